@@ -0,0 +1,50 @@
+package ru.javarush.dnekh.cryptoanalyzer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+/**
+ * Measures the {@link Alphabet} membership and index lookups over a text,
+ * including upper case characters and line breaks that are not in the alphabet.
+ */
+@State(Scope.Thread)
+public class AlphabetBenchmark extends BaseBenchmark {
+
+    private static final int TEXT_LENGTH = 64 * 1024;
+
+    @Param({"CYRILLIC", "LATIN", "MIXED"})
+    public BenchmarkCorpus.Script script;
+
+    private Alphabet alphabet;
+    private char[] text;
+
+    @Setup
+    public void setUp() {
+        alphabet = new Alphabet();
+        text = BenchmarkCorpus.generate(script, TEXT_LENGTH).toCharArray();
+    }
+
+    @Benchmark
+    public int isCharInAlphabet() {
+        int count = 0;
+        for (char c : text) {
+            if (alphabet.isCharInAlphabet(c)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long indexOf() {
+        long sum = 0;
+        for (char c : text) {
+            sum += alphabet.indexOf(c);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.javarush.dnekh.cryptoanalyzer.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates the reproducible benchmark texts.
+ * Letters are drawn with a skewed, language-like frequency distribution from a fixed seed,
+ * so every run and every machine benchmarks exactly the same input.
+ */
+public final class BenchmarkCorpus {
+
+    /**
+     * Seed of every generated text.
+     */
+    public static final long SEED = 20240917L;
+
+    /**
+     * The script of a generated text.
+     */
+    public enum Script {
+        CYRILLIC,
+        LATIN,
+        MIXED
+    }
+
+    // Letters from the most to the least frequent
+    private static final String CYRILLIC_LETTERS = "оеаинтсрвлкмдпуяыьгзбчйхжшюцщэфъё";
+    private static final String LATIN_LETTERS = "etaoinshrdlcumwfgypbvkjxqz";
+    private static final String DIGITS = "1234567890";
+    private static final double LETTER_DECAY = 0.9;
+    private static final int MAX_WORD_LENGTH = 9;
+    private static final int WORDS_PER_LINE = 12;
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * Generates a text of exactly the given number of characters.
+     *
+     * @param script the script of the text
+     * @param length the number of characters
+     * @return the generated text
+     */
+    public static String generate(Script script, int length) {
+        StringBuilder text = new StringBuilder(length + MAX_WORD_LENGTH + 2);
+        Random random = new Random(SEED);
+        while (text.length() < length) {
+            appendLine(text, script, random);
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    /**
+     * Writes a UTF-8 text file of at least the given number of characters.
+     *
+     * @param path   the file to write
+     * @param script the script of the text
+     * @param length the minimal number of characters
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public static void write(Path path, Script script, long length) throws IOException {
+        Random random = new Random(SEED);
+        StringBuilder line = new StringBuilder();
+        long written = 0;
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            while (written < length) {
+                line.setLength(0);
+                appendLine(line, script, random);
+                writer.append(line);
+                written += line.length();
+            }
+        }
+    }
+
+    private static void appendLine(StringBuilder text, Script script, Random random) {
+        for (int word = 0; word < WORDS_PER_LINE; word++) {
+            String letters = switch (script) {
+                case CYRILLIC -> CYRILLIC_LETTERS;
+                case LATIN -> LATIN_LETTERS;
+                case MIXED -> random.nextBoolean() ? CYRILLIC_LETTERS : LATIN_LETTERS;
+            };
+            int wordLength = 1 + random.nextInt(MAX_WORD_LENGTH);
+            for (int i = 0; i < wordLength; i++) {
+                char letter = letters.charAt(skewedIndex(letters.length(), random));
+                text.append(word == 0 && i == 0 ? Character.toUpperCase(letter) : letter);
+            }
+            if (random.nextInt(20) == 0) {
+                text.append(DIGITS.charAt(random.nextInt(DIGITS.length())));
+            }
+            text.append(random.nextInt(8) == 0 ? ", " : " ");
+        }
+        text.setLength(text.length() - 1);
+        text.append(".\n");
+    }
+
+    /**
+     * Picks an index with geometrically decreasing probability, so low indices are the most frequent.
+     */
+    private static int skewedIndex(int bound, Random random) {
+        int index = 0;
+        while (index < bound - 1 && random.nextDouble() > 1.0 - LETTER_DECAY) {
+            index++;
+        }
+        return index;
+    }
+}
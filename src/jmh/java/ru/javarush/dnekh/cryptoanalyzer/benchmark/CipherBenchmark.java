@@ -0,0 +1,81 @@
+package ru.javarush.dnekh.cryptoanalyzer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.model.ShiftTable;
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures the cipher kernels on Cyrillic, Latin and mixed texts of several sizes:
+ * the string API of {@link CaesarCipher}, the in-place char kernel and the UTF-8 byte kernel.
+ */
+@State(Scope.Thread)
+public class CipherBenchmark extends BaseBenchmark {
+
+    private static final int KEY = 7;
+
+    @Param({"CYRILLIC", "LATIN", "MIXED"})
+    public BenchmarkCorpus.Script script;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private CaesarCipher caesarCipher;
+    private String plainText;
+    private String cipherText;
+    private ShiftTable shiftTable;
+    private char[] chars;
+    private char[] charsCopy;
+    private Utf8ShiftTable utf8ShiftTable;
+    private ByteBuffer utf8Input;
+    private ByteBuffer utf8Output;
+
+    @Setup
+    public void setUp() {
+        caesarCipher = new CaesarCipher();
+        plainText = BenchmarkCorpus.generate(script, size);
+        cipherText = caesarCipher.encrypt(plainText, KEY);
+
+        shiftTable = caesarCipher.getShiftTable(KEY);
+        chars = plainText.toCharArray();
+        charsCopy = new char[chars.length];
+
+        utf8ShiftTable = caesarCipher.getUtf8ShiftTable(KEY);
+        byte[] bytes = plainText.getBytes(StandardCharsets.UTF_8);
+        utf8Input = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+        utf8Output = ByteBuffer.allocateDirect(bytes.length * Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return caesarCipher.encrypt(plainText, KEY);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return caesarCipher.decrypt(cipherText, KEY);
+    }
+
+    @Benchmark
+    public int transformCharsInPlace() {
+        System.arraycopy(chars, 0, charsCopy, 0, chars.length);
+        return shiftTable.transform(charsCopy, 0, charsCopy.length);
+    }
+
+    @Benchmark
+    public int transformUtf8Bytes() throws MalformedInputException {
+        utf8Input.flip();
+        utf8Output.clear();
+        utf8ShiftTable.transform(utf8Input, utf8Output);
+        utf8Input.position(utf8Input.limit());
+        return utf8Output.position();
+    }
+}
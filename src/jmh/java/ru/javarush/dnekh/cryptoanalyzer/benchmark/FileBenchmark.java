@@ -0,0 +1,104 @@
+package ru.javarush.dnekh.cryptoanalyzer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.javarush.dnekh.cryptoanalyzer.io.FileHandler;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+import ru.javarush.dnekh.cryptoanalyzer.service.OperationSuffix;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures the file read, write and transform paths of {@link FileHandler} on a generated file.
+ * The files live in a temporary directory that is removed after the trial.
+ */
+@State(Scope.Thread)
+public class FileBenchmark extends BaseBenchmark {
+
+    private static final int KEY = 7;
+    private static final String INPUT_FILE_NAME = "input.txt";
+    private static final String OUTPUT_FILE_NAME = "output.txt";
+
+    @Param({"CYRILLIC", "LATIN"})
+    public BenchmarkCorpus.Script script;
+
+    @Param({"1048576", "16777216"})
+    public long size;
+
+    private FileHandler fileHandler;
+    private CaesarCipher caesarCipher;
+    private Utf8ShiftTable utf8ShiftTable;
+    private Path directory;
+    private Path input;
+    private Path output;
+    private String content;
+
+    @Setup
+    public void setUp() throws IOException {
+        fileHandler = new FileHandler();
+        caesarCipher = new CaesarCipher();
+        utf8ShiftTable = caesarCipher.getUtf8ShiftTable(KEY);
+        directory = Files.createTempDirectory("cryptoanalyzer-benchmark");
+        input = directory.resolve(INPUT_FILE_NAME);
+        output = directory.resolve(OUTPUT_FILE_NAME);
+        BenchmarkCorpus.write(input, script, size);
+        content = fileHandler.readFile(input.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public String readFile() throws IOException {
+        return fileHandler.readFile(input.toString());
+    }
+
+    @Benchmark
+    public void writeFile() throws IOException {
+        fileHandler.writeFile(input.toString(), OperationSuffix.ENCRYPT, content);
+    }
+
+    @Benchmark
+    public String readEncryptWrite() throws IOException {
+        String encrypted = caesarCipher.encrypt(fileHandler.readFile(input.toString()), KEY);
+        fileHandler.writeFile(input.toString(), OperationSuffix.ENCRYPT, encrypted);
+        return encrypted;
+    }
+
+    @Benchmark
+    public long transformFileStreaming() throws IOException {
+        return fileHandler.transformFile(input.toString(), OperationSuffix.ENCRYPT,
+                caesarCipher.getShiftTable(KEY), FileHandler.DEFAULT_CHUNK_SIZE);
+    }
+
+    @Benchmark
+    public long transformFileMapped() throws IOException {
+        return fileHandler.transformFileMapped(input, output, utf8ShiftTable).getBytesWritten();
+    }
+
+    @Benchmark
+    public long transformStream() throws IOException {
+        try (FileChannel inputChannel = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel outputChannel = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return fileHandler.transformStream(inputChannel, outputChannel, utf8ShiftTable).getBytesWritten();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ru.javarush.dnekh.cryptoanalyzer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.FrequencyAnalyzer;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.KeyRecoveryResult;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.NGramAnalyzer;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.SampledKeyFinder;
+import ru.javarush.dnekh.cryptoanalyzer.io.FileHandler;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures key recovery: histogram building, chi-squared scoring of all shifts,
+ * n-gram ranking and sampled recovery from a file.
+ */
+@State(Scope.Thread)
+public class KeyRecoveryBenchmark extends BaseBenchmark {
+
+    private static final int KEY = 7;
+    private static final long FILE_SIZE = 64L * 1024 * 1024;
+
+    @Param({"CYRILLIC", "LATIN"})
+    public BenchmarkCorpus.Script script;
+
+    @Param({"4096", "1048576"})
+    public int size;
+
+    private FrequencyAnalyzer frequencyAnalyzer;
+    private NGramAnalyzer nGramAnalyzer;
+    private SampledKeyFinder sampledKeyFinder;
+    private String cipherText;
+    private int[] histogram;
+    private Path cipherFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        CaesarCipher caesarCipher = new CaesarCipher();
+        frequencyAnalyzer = new FrequencyAnalyzer(caesarCipher.getAlphabet());
+        nGramAnalyzer = new NGramAnalyzer(caesarCipher.getAlphabet());
+        sampledKeyFinder = new SampledKeyFinder(frequencyAnalyzer, SampledKeyFinder.DEFAULT_CONFIDENCE_THRESHOLD,
+                Runtime.getRuntime().availableProcessors());
+        cipherText = caesarCipher.encrypt(BenchmarkCorpus.generate(script, size), KEY);
+        histogram = frequencyAnalyzer.getHistogramBuilder().build(cipherText);
+
+        Path plainFile = Files.createTempFile("cryptoanalyzer-benchmark", ".txt");
+        cipherFile = Files.createTempFile("cryptoanalyzer-benchmark", ".txt");
+        BenchmarkCorpus.write(plainFile, script, FILE_SIZE);
+        try {
+            new FileHandler()
+                    .transformFileMapped(plainFile, cipherFile, caesarCipher.getUtf8ShiftTable(KEY));
+        } finally {
+            Files.deleteIfExists(plainFile);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(cipherFile);
+    }
+
+    @Benchmark
+    public int[] buildHistogram() {
+        return frequencyAnalyzer.getHistogramBuilder().build(cipherText);
+    }
+
+    @Benchmark
+    public KeyRecoveryResult scoreHistogram() {
+        return frequencyAnalyzer.findKey(histogram);
+    }
+
+    @Benchmark
+    public KeyRecoveryResult frequencyAnalysis() {
+        return frequencyAnalyzer.findKey(cipherText);
+    }
+
+    @Benchmark
+    public KeyRecoveryResult nGramAnalysis() {
+        return nGramAnalyzer.findKey(cipherText);
+    }
+
+    @Benchmark
+    public KeyRecoveryResult sampledFile() throws IOException {
+        return sampledKeyFinder.findKey(cipherFile);
+    }
+}
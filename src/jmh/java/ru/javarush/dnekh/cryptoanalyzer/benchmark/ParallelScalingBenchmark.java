@@ -0,0 +1,58 @@
+package ru.javarush.dnekh.cryptoanalyzer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.javarush.dnekh.cryptoanalyzer.io.ParallelFileTransformer;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures how the parallel segmented transform scales with the number of threads.
+ * A parallelism of 1 is the baseline; compare it with the sequential
+ * {@link FileBenchmark#transformFileMapped()} to see the cost of segmenting.
+ * A parallelism of 0 stands for one thread per available processor, so the scan always reaches
+ * the full machine; pass {@code -p parallelism=...} to measure other thread counts.
+ */
+@State(Scope.Thread)
+public class ParallelScalingBenchmark extends BaseBenchmark {
+
+    private static final int KEY = 7;
+    private static final long FILE_SIZE = 64L * 1024 * 1024;
+
+    @Param({"1", "2", "4", "8", "16", "0"})
+    public int parallelism;
+
+    private ParallelFileTransformer transformer;
+    private Utf8ShiftTable utf8ShiftTable;
+    private Path input;
+    private Path output;
+
+    @Setup
+    public void setUp() throws IOException {
+        transformer = new ParallelFileTransformer(
+                (parallelism == 0) ? Runtime.getRuntime().availableProcessors() : parallelism);
+        utf8ShiftTable = new CaesarCipher().getUtf8ShiftTable(KEY);
+        input = Files.createTempFile("cryptoanalyzer-benchmark", ".txt");
+        output = Files.createTempFile("cryptoanalyzer-benchmark", ".out");
+        BenchmarkCorpus.write(input, BenchmarkCorpus.Script.MIXED, FILE_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public long transform() throws IOException {
+        return transformer.transform(input, output, utf8ShiftTable).getBytesWritten();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.javarush.dnekh.cryptoanalyzer.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+import ru.javarush.dnekh.cryptoanalyzer.model.ShiftTable;
+import ru.javarush.dnekh.cryptoanalyzer.model.TransformKernel;
+
+/**
+ * Compares the scalar and the Vector API char kernels on Latin, Cyrillic and mixed texts.
+ * Needs a jar built with both profiles: {@code mvn -P benchmarks,vector package}.
+ */
+@State(Scope.Thread)
+@Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorKernelBenchmark extends BaseBenchmark {
+
+    private static final int KEY = 7;
+
+    @Param({"SCALAR", "VECTOR"})
+    public TransformKernel kernel;
+
+    @Param({"LATIN", "CYRILLIC", "MIXED"})
+    public BenchmarkCorpus.Script script;
+
+    @Param({"65536"})
+    public int size;
+
+    private ShiftTable shiftTable;
+    private String plainText;
+    private char[] chars;
+    private char[] charsCopy;
+
+    @Setup
+    public void setUp() {
+        if (!kernel.isAvailable()) {
+            throw new IllegalStateException(kernel + " kernel is not available, build with -P benchmarks,vector");
+        }
+        shiftTable = ShiftTable.forKey(new Alphabet(), KEY, false, kernel);
+        plainText = BenchmarkCorpus.generate(script, size);
+        chars = plainText.toCharArray();
+        charsCopy = new char[chars.length];
+    }
+
+    @Benchmark
+    public int transformCharsInPlace() {
+        System.arraycopy(chars, 0, charsCopy, 0, chars.length);
+        return shiftTable.transform(charsCopy, 0, charsCopy.length);
+    }
+
+    @Benchmark
+    public String transformString() {
+        return shiftTable.transform(plainText);
+    }
+}
@@ -1,12 +1,34 @@
 package ru.javarush.dnekh.cryptoanalyzer;
 
+import ru.javarush.dnekh.cryptoanalyzer.exception.ErrorHandler;
+import ru.javarush.dnekh.cryptoanalyzer.service.FileProcessor;
 import ru.javarush.dnekh.cryptoanalyzer.ui.CommandLineInterface;
+import ru.javarush.dnekh.cryptoanalyzer.ui.HeadlessRunner;
 
 public class Main {
 
     public static void main(String[] args) {
 
-        CommandLineInterface cli = new CommandLineInterface();
+        if (args.length > 0) {
+            FileProcessor fileProcessor;
+            try {
+                fileProcessor = FileProcessor.fromConfiguration();
+            } catch (IllegalStateException e) {
+                // The configured alphabet, mode or parallelism is invalid
+                ErrorHandler.showErrorOnStderr(e.getMessage());
+                System.exit(HeadlessRunner.EXIT_USAGE);
+                return;
+            }
+            System.exit(new HeadlessRunner(fileProcessor).run(args));
+        }
+
+        CommandLineInterface cli;
+        try {
+            cli = new CommandLineInterface();
+        } catch (IllegalStateException e) {
+            ErrorHandler.showError(e.getMessage());
+            return;
+        }
         cli.start();
     }
-}
\ No newline at end of file
+}
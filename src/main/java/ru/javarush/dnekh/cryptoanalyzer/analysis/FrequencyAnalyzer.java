@@ -0,0 +1,155 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+import java.util.Arrays;
+
+/**
+ * This class recovers a Caesar cipher key without user interaction.
+ * Every candidate shift is scored by comparing the character frequencies of the text decrypted with that shift
+ * against the Russian and English language profiles using the chi-squared statistic.
+ * The text is read once: all shifts are scored from a single histogram, so the cost is O(n + k²).
+ */
+public class FrequencyAnalyzer {
+
+    private final HistogramBuilder histogramBuilder;
+    private final LanguageProfile[] languages;
+    private final double[][] expectedDistributions;
+
+    /**
+     * Constructor initializes the analyzer with the expected distributions of all known languages.
+     *
+     * @param alphabet the alphabet the ciphertext was produced with
+     */
+    public FrequencyAnalyzer(Alphabet alphabet) {
+        this.histogramBuilder = new HistogramBuilder(alphabet);
+        this.languages = LanguageProfile.values();
+        this.expectedDistributions = new double[languages.length][];
+        for (int i = 0; i < languages.length; i++) {
+            expectedDistributions[i] = languages[i].expectedDistribution(alphabet);
+        }
+    }
+
+    /**
+     * Finds the most likely decryption shift for the given ciphertext.
+     * The text is counted once into a histogram, which is then scored for every shift.
+     *
+     * @param text the ciphertext to analyze
+     * @return the best shift with its language and confidence
+     */
+    public KeyRecoveryResult findKey(CharSequence text) {
+        return findKey(histogramBuilder.buildParallel(text));
+    }
+
+    /**
+     * Finds the most likely decryption shift for a ciphertext given by its alphabet histogram.
+     * Decrypting with a shift only rotates the histogram, so every shift is scored by reading the
+     * histogram at a rotated offset instead of decrypting the text again.
+     * The confidence is derived from the gap between the best and the second-best shift scores.
+     *
+     * @param histogram the ciphertext character counts indexed by alphabet position
+     * @return the best shift with its language and confidence
+     */
+    public KeyRecoveryResult findKey(int[] histogram) {
+        int alphabetSize = histogram.length;
+        long total = 0;
+        for (int count : histogram) {
+            total += count;
+        }
+
+        int bestShift = 0;
+        LanguageProfile bestLanguage = languages[0];
+        double bestScore = Double.MAX_VALUE;
+        double secondBestScore = Double.MAX_VALUE;
+
+        for (int shift = 0; shift < alphabetSize; shift++) {
+            double shiftScore = Double.MAX_VALUE;
+            LanguageProfile shiftLanguage = languages[0];
+            for (int language = 0; language < languages.length; language++) {
+                double score = chiSquared(histogram, shift, total, expectedDistributions[language]);
+                if (score < shiftScore) {
+                    shiftScore = score;
+                    shiftLanguage = languages[language];
+                }
+            }
+
+            if (shiftScore < bestScore) {
+                secondBestScore = bestScore;
+                bestScore = shiftScore;
+                bestShift = shift;
+                bestLanguage = shiftLanguage;
+            } else if (shiftScore < secondBestScore) {
+                secondBestScore = shiftScore;
+            }
+        }
+
+        return new KeyRecoveryResult(bestShift, confidence(bestScore, secondBestScore), bestLanguage, bestScore);
+    }
+
+    /**
+     * Orders all candidate shifts from the most to the least likely, each scored with its best language.
+     *
+     * @param histogram the ciphertext character counts indexed by alphabet position
+     * @return every shift value, best first
+     */
+    public int[] rankShifts(int[] histogram) {
+        long total = 0;
+        for (int count : histogram) {
+            total += count;
+        }
+
+        double[] scores = new double[histogram.length];
+        Integer[] shifts = new Integer[histogram.length];
+        for (int shift = 0; shift < histogram.length; shift++) {
+            scores[shift] = Double.MAX_VALUE;
+            for (double[] expectedDistribution : expectedDistributions) {
+                scores[shift] = Math.min(scores[shift], chiSquared(histogram, shift, total, expectedDistribution));
+            }
+            shifts[shift] = shift;
+        }
+        Arrays.sort(shifts, (left, right) -> Double.compare(scores[left], scores[right]));
+
+        int[] ranked = new int[shifts.length];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = shifts[i];
+        }
+        return ranked;
+    }
+
+    /**
+     * Returns the histogram builder matching the analyzer's alphabet.
+     *
+     * @return the histogram builder
+     */
+    public HistogramBuilder getHistogramBuilder() {
+        return histogramBuilder;
+    }
+
+    /**
+     * Computes the chi-squared statistic of the ciphertext histogram decrypted with the given shift.
+     * The decrypted character at alphabet index {@code i} comes from ciphertext index {@code i + shift}.
+     */
+    static double chiSquared(int[] histogram, int shift, long total, double[] expectedDistribution) {
+        if (total == 0) {
+            return Double.MAX_VALUE;
+        }
+        int alphabetSize = histogram.length;
+        double score = 0;
+        for (int i = 0, source = shift; i < alphabetSize; i++, source++) {
+            if (source == alphabetSize) {
+                source = 0;
+            }
+            double expected = total * expectedDistribution[i];
+            double difference = histogram[source] - expected;
+            score += difference * difference / expected;
+        }
+        return score;
+    }
+
+    static double confidence(double bestScore, double secondBestScore) {
+        if (bestScore == Double.MAX_VALUE || secondBestScore == 0) {
+            return 0;
+        }
+        return 1.0 - bestScore / secondBestScore;
+    }
+}
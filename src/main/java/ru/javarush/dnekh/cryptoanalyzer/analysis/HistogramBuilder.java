@@ -0,0 +1,435 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class counts how often every alphabet character occurs in a text, in a single pass.
+ * The result is a primitive histogram indexed by alphabet position; upper-case letters are counted
+ * as their lower-case form and characters outside the alphabet are ignored.
+ * Large inputs are split into ranges whose partial histograms are built in parallel and merged.
+ * <p>
+ * For polyalphabetic ciphertext the builder also counts per-column histograms: the character at key position
+ * {@code i} is counted into column {@code i mod period}. Key positions follow
+ * {@link ru.javarush.dnekh.cryptoanalyzer.model.PolyalphabeticTable}: every character advances the position
+ * except line breaks, and characters outside the alphabet advance it without being counted.
+ */
+public class HistogramBuilder {
+
+    /**
+     * Number of characters or bytes below which a range is counted on the current thread.
+     */
+    public static final int PARALLEL_THRESHOLD = 1024 * 1024;
+
+    private static final int MAX_SEQUENCE_LENGTH = 4;
+
+    private final Alphabet alphabet;
+    private final int alphabetSize;
+    private final int[] indexTable;
+
+    /**
+     * Constructor initializes the lookup table from characters to alphabet positions.
+     *
+     * @param alphabet the alphabet to count characters of
+     */
+    public HistogramBuilder(Alphabet alphabet) {
+        this.alphabet = alphabet;
+        this.alphabetSize = alphabet.size();
+
+        // Characters above the dense range are rare and looked up in the alphabet itself
+        int limit = 0;
+        for (int i = 0; i < alphabetSize; i++) {
+            char c = alphabet.charAt(i);
+            limit = Math.max(limit, Math.min(Math.max(c, Character.toUpperCase(c)), Alphabet.DENSE_LIMIT - 1));
+        }
+        this.indexTable = new int[limit + 1];
+        for (int c = 0; c < indexTable.length; c++) {
+            indexTable[c] = alphabet.indexOf(Character.toLowerCase((char) c));
+        }
+    }
+
+    /**
+     * Returns the number of buckets in the histograms this builder produces.
+     *
+     * @return the alphabet size
+     */
+    public int getAlphabetSize() {
+        return alphabetSize;
+    }
+
+    /**
+     * Returns the alphabet position of a character, folding upper case to lower case.
+     *
+     * @param c the character to look up
+     * @return the alphabet index, or -1 if the character is not in the alphabet
+     */
+    public int indexOf(int c) {
+        return c < indexTable.length ? indexTable[c] : highIndexOf(c);
+    }
+
+    private int highIndexOf(int c) {
+        return c < Alphabet.DENSE_LIMIT || c > Character.MAX_VALUE ? -1 : alphabet.indexOf(Character.toLowerCase((char) c));
+    }
+
+    /**
+     * Counts the alphabet characters of the text on the current thread.
+     *
+     * @param text the text to count
+     * @return the histogram indexed by alphabet position
+     */
+    public int[] build(CharSequence text) {
+        int[] histogram = new int[alphabetSize];
+        addAll(text, 0, text.length(), histogram);
+        return histogram;
+    }
+
+    /**
+     * Counts the alphabet characters of the text, splitting large texts across the common ForkJoin pool.
+     *
+     * @param text the text to count
+     * @return the histogram indexed by alphabet position
+     */
+    public int[] buildParallel(CharSequence text) {
+        return ForkJoinPool.commonPool().invoke(new TextHistogramTask(text, 0, text.length()));
+    }
+
+    /**
+     * Counts the alphabet characters in the remaining UTF-8 bytes of the buffer on the current thread.
+     * The buffer position is not changed. Malformed or incomplete sequences are skipped.
+     *
+     * @param utf8      the UTF-8 encoded text
+     * @param histogram the histogram to add the counts to
+     * @return the number of alphabet characters counted
+     */
+    public long addAll(ByteBuffer utf8, int[] histogram) {
+        int[] indexTable = this.indexTable;
+        int limit = utf8.limit();
+        int position = utf8.position();
+        long counted = 0;
+
+        while (position < limit) {
+            int b = utf8.get(position);
+            int codePoint;
+
+            if (b >= 0) {
+                codePoint = b;
+                position++;
+            } else if ((b & 0xE0) == 0xC0 && position + 1 < limit) {
+                codePoint = ((b & 0x1F) << 6) | (utf8.get(position + 1) & 0x3F);
+                position += 2;
+            } else if ((b & 0xF0) == 0xE0 && position + 2 < limit) {
+                codePoint = ((b & 0x0F) << 12) | ((utf8.get(position + 1) & 0x3F) << 6) | (utf8.get(position + 2) & 0x3F);
+                position += 3;
+            } else {
+                position++;
+                continue;
+            }
+
+            int index = codePoint < indexTable.length ? indexTable[codePoint] : highIndexOf(codePoint);
+            if (index >= 0) {
+                histogram[index]++;
+                counted++;
+            }
+        }
+        return counted;
+    }
+
+    /**
+     * Counts the alphabet characters of a UTF-8 file. The file is mapped segment by segment, the segments
+     * are counted in parallel into partial histograms and the partial histograms are merged at the end.
+     *
+     * @param path        the UTF-8 file to count
+     * @param parallelism the number of worker threads
+     * @return the histogram indexed by alphabet position
+     * @throws IOException if an I/O error occurs while mapping the file
+     */
+    public int[] buildParallel(Path path, int parallelism) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<RecursiveTask<int[]>> tasks = new ArrayList<>();
+            for (long start = 0; start < size; start += PARALLEL_THRESHOLD) {
+                tasks.add(new FileSegmentHistogramTask(channel, size, start));
+            }
+
+            int[] histogram = new int[alphabetSize];
+            for (RecursiveTask<int[]> task : tasks) {
+                pool.execute(task);
+            }
+            for (RecursiveTask<int[]> task : tasks) {
+                merge(histogram, task.join());
+            }
+            return histogram;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Counts the alphabet characters of the text into one histogram per key column, on the current thread.
+     *
+     * @param text   the text to count
+     * @param period the number of columns
+     * @return the histograms indexed by column and alphabet position
+     */
+    public int[][] buildColumns(CharSequence text, int period) {
+        int[][] columns = new int[period][alphabetSize];
+        int[] indexTable = this.indexTable;
+        int column = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                continue;
+            }
+            int index = c < indexTable.length ? indexTable[c] : highIndexOf(c);
+            if (index >= 0) {
+                columns[column][index]++;
+            }
+            if (++column == period) {
+                column = 0;
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Counts the alphabet characters in the remaining UTF-8 bytes of the buffer into one histogram per key column,
+     * on the current thread. The buffer position is not changed. A four-byte sequence advances the key position
+     * by two, as it is two characters. Malformed or incomplete sequences are skipped.
+     *
+     * @param utf8        the UTF-8 encoded text
+     * @param columns     the column histograms to add the counts to
+     * @param firstColumn the column of the first character
+     * @return the number of key positions the text advances
+     */
+    public long addColumns(ByteBuffer utf8, int[][] columns, int firstColumn) {
+        int[] indexTable = this.indexTable;
+        int period = columns.length;
+        int limit = utf8.limit();
+        int position = utf8.position();
+        int column = firstColumn;
+        long positions = 0;
+
+        while (position < limit) {
+            int b = utf8.get(position);
+            int codePoint;
+
+            if (b >= 0) {
+                codePoint = b;
+                position++;
+                if (codePoint == '\n' || codePoint == '\r') {
+                    continue;
+                }
+            } else if ((b & 0xE0) == 0xC0 && position + 1 < limit) {
+                codePoint = ((b & 0x1F) << 6) | (utf8.get(position + 1) & 0x3F);
+                position += 2;
+            } else if ((b & 0xF0) == 0xE0 && position + 2 < limit) {
+                codePoint = ((b & 0x0F) << 12) | ((utf8.get(position + 1) & 0x3F) << 6) | (utf8.get(position + 2) & 0x3F);
+                position += 3;
+            } else if ((b & 0xF8) == 0xF0 && position + 3 < limit) {
+                // A surrogate pair, never part of the alphabet
+                position += 4;
+                column = (column + 2) % period;
+                positions += 2;
+                continue;
+            } else {
+                position++;
+                continue;
+            }
+
+            int index = codePoint < indexTable.length ? indexTable[codePoint] : highIndexOf(codePoint);
+            if (index >= 0) {
+                columns[column][index]++;
+            }
+            if (++column == period) {
+                column = 0;
+            }
+            positions++;
+        }
+        return positions;
+    }
+
+    /**
+     * Counts the alphabet characters of a UTF-8 file into one histogram per key column. The file is mapped
+     * segment by segment and the segments are counted in parallel, each from column 0; when the partial
+     * histograms are merged, every segment's columns are rotated by the number of key positions before it.
+     *
+     * @param path        the UTF-8 file to count
+     * @param period      the number of columns
+     * @param parallelism the number of worker threads
+     * @return the histograms indexed by column and alphabet position
+     * @throws IOException if an I/O error occurs while mapping the file
+     */
+    public int[][] buildColumnsParallel(Path path, int period, int parallelism) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<FileSegmentColumnsTask> tasks = new ArrayList<>();
+            for (long start = 0; start < size; start += PARALLEL_THRESHOLD) {
+                tasks.add(new FileSegmentColumnsTask(channel, size, start, period));
+            }
+
+            int[][] columns = new int[period][alphabetSize];
+            for (FileSegmentColumnsTask task : tasks) {
+                pool.execute(task);
+            }
+            int offset = 0;
+            for (FileSegmentColumnsTask task : tasks) {
+                int[][] partial = task.join();
+                for (int column = 0; column < period; column++) {
+                    merge(columns[(offset + column) % period], partial[column]);
+                }
+                offset = (int) ((offset + task.positions) % period);
+            }
+            return columns;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void addAll(CharSequence text, int from, int to, int[] histogram) {
+        int[] indexTable = this.indexTable;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            int index = c < indexTable.length ? indexTable[c] : highIndexOf(c);
+            if (index >= 0) {
+                histogram[index]++;
+            }
+        }
+    }
+
+    private static void merge(int[] target, int[] partial) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += partial[i];
+        }
+    }
+
+    private static int skipContinuationBytes(ByteBuffer buffer, int position) {
+        int limit = Math.min(buffer.limit(), position + MAX_SEQUENCE_LENGTH - 1);
+        while (position < limit && (buffer.get(position) & 0xC0) == 0x80) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Splits a text range in halves until it is small enough, then counts it into a partial histogram.
+     */
+    private class TextHistogramTask extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final int from;
+        private final int to;
+
+        TextHistogramTask(CharSequence text, int from, int to) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                int[] histogram = new int[alphabetSize];
+                addAll(text, from, to, histogram);
+                return histogram;
+            }
+
+            int middle = (from + to) >>> 1;
+            TextHistogramTask left = new TextHistogramTask(text, from, middle);
+            TextHistogramTask right = new TextHistogramTask(text, middle, to);
+            left.fork();
+            int[] histogram = right.compute();
+            merge(histogram, left.join());
+            return histogram;
+        }
+    }
+
+    /**
+     * Counts one mapped segment of a file. The segment borders are moved to the next UTF-8 sequence start,
+     * so neighbouring segments never count the same character twice.
+     */
+    private class FileSegmentHistogramTask extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long size;
+        private final long nominalStart;
+
+        FileSegmentHistogramTask(FileChannel channel, long size, long nominalStart) {
+            this.channel = channel;
+            this.size = size;
+            this.nominalStart = nominalStart;
+        }
+
+        @Override
+        protected int[] compute() {
+            int[] histogram = new int[alphabetSize];
+            addAll(map(), histogram);
+            return histogram;
+        }
+
+        /**
+         * Maps the segment with its borders moved to sequence starts.
+         */
+        MappedByteBuffer map() {
+            long mappedLength = Math.min(PARALLEL_THRESHOLD + MAX_SEQUENCE_LENGTH, size - nominalStart);
+            MappedByteBuffer segment;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, nominalStart, mappedLength);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            int start = skipContinuationBytes(segment, 0);
+            int end = (nominalStart + PARALLEL_THRESHOLD >= size)
+                    ? (int) mappedLength
+                    : skipContinuationBytes(segment, PARALLEL_THRESHOLD);
+            segment.limit(end).position(start);
+            return segment;
+        }
+    }
+
+    /**
+     * Counts one mapped segment of a file into column histograms, starting at column 0, and remembers
+     * how many key positions the segment advances.
+     */
+    private class FileSegmentColumnsTask extends RecursiveTask<int[][]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileSegmentHistogramTask segment;
+        private final int period;
+        private long positions;
+
+        FileSegmentColumnsTask(FileChannel channel, long size, long nominalStart, int period) {
+            this.segment = new FileSegmentHistogramTask(channel, size, nominalStart);
+            this.period = period;
+        }
+
+        @Override
+        protected int[][] compute() {
+            int[][] columns = new int[period][alphabetSize];
+            positions = addColumns(segment.map(), columns, 0);
+            return columns;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import ru.javarush.dnekh.cryptoanalyzer.io.AtomicFile;
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * An on-disk cache of key recovery results, so the same ciphertext is analyzed only once.
+ * <p>
+ * A file is identified by a {@link ContentFingerprint}: its size and a CRC-32C of three 4 KB blocks
+ * (head, middle and tail) form the lookup key, and a CRC-32C of sixteen evenly spread blocks verifies a hit.
+ * Computing both reads at most 76 KB, which is less than the first round of {@link SampledKeyFinder}.
+ * Two files that agree on all of that are the same ciphertext for any practical purpose, and since a Caesar key
+ * is a statistic of the whole text, a small edit elsewhere could not change it anyway.
+ * Entries also record the alphabet they were recovered with and are ignored under any other alphabet.
+ * <p>
+ * The cache keeps at most a fixed number of entries in least-recently-used order and drops entries that have
+ * not been used for longer than the maximum age. A hit is written back when the entry's recorded use is older than
+ * {@link #TOUCH_INTERVAL}, so one-shot runs keep the order and the age of entries they use without rewriting the file
+ * on every lookup; uses within that interval move an entry only in memory. The file is written as an
+ * {@link AtomicFile}, so when several processes share a cache the last writer wins.
+ * A missing or corrupt cache file is treated as empty.
+ */
+public final class KeyRecoveryCache {
+
+    /**
+     * System property naming the cache file; "none" disables the cache.
+     */
+    public static final String CACHE_FILE_PROPERTY = "cryptoanalyzer.keyCache";
+
+    /**
+     * Value of {@value #CACHE_FILE_PROPERTY} that disables the cache.
+     */
+    public static final String DISABLED = "none";
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(30);
+
+    /**
+     * How old the recorded use of an entry must be for a hit to write the cache file.
+     */
+    public static final Duration TOUCH_INTERVAL = Duration.ofHours(1);
+
+    private static final String DEFAULT_CACHE_DIRECTORY = ".cryptoanalyzer";
+    private static final String DEFAULT_CACHE_FILE = "key-cache.bin";
+
+    private static final int MAGIC = 0x4B524300;
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final int alphabetFingerprint;
+    private final int maxEntries;
+    private final long maxAgeMillis;
+    private final long touchIntervalMillis;
+    private final LinkedHashMap<Key, Entry> entries;
+    private boolean loaded;
+
+    /**
+     * Constructor initializes a cache backed by the given file. The file is read on first use.
+     *
+     * @param file       the cache file, created with its directory when the first result is stored
+     * @param alphabet   the alphabet keys are recovered with
+     * @param maxEntries the maximum number of cached results
+     * @param maxAge     how long an unused result is kept
+     */
+    public KeyRecoveryCache(Path file, Alphabet alphabet, int maxEntries, Duration maxAge) {
+        this.file = file;
+        this.alphabetFingerprint = NGramModel.fingerprint(alphabet);
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.touchIntervalMillis = Math.min(TOUCH_INTERVAL.toMillis(), maxAgeMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > KeyRecoveryCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache selected by {@value #CACHE_FILE_PROPERTY}: the named file,
+     * or {@code ~/.cryptoanalyzer/key-cache.bin} if the property is not set.
+     *
+     * @param alphabet the alphabet keys are recovered with
+     * @return the configured cache, or null if the cache is disabled
+     */
+    public static KeyRecoveryCache fromConfiguration(Alphabet alphabet) {
+        String file = System.getProperty(CACHE_FILE_PROPERTY);
+        if (DISABLED.equalsIgnoreCase(file)) {
+            return null;
+        }
+        Path path = (file == null)
+                ? Paths.get(System.getProperty("user.home"), DEFAULT_CACHE_DIRECTORY, DEFAULT_CACHE_FILE)
+                : Paths.get(file);
+        return new KeyRecoveryCache(path, alphabet, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Looks up the result recovered earlier for a file with the given fingerprint. A hit marks the entry
+     * as used and writes the cache file if the entry was last recorded as used more than
+     * {@link #TOUCH_INTERVAL} ago.
+     *
+     * @param fingerprint the fingerprint of the ciphertext file
+     * @return the cached result, or null if there is none
+     */
+    public synchronized KeyRecoveryResult get(ContentFingerprint fingerprint) {
+        ensureLoaded();
+        Key key = new Key(fingerprint.size, fingerprint.lookupHash, alphabetFingerprint);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.verificationHash != fingerprint.verificationHash || isExpired(entry)) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        boolean stale = now - entry.lastUsedMillis > touchIntervalMillis;
+        entry.lastUsedMillis = now;
+        if (stale) {
+            try {
+                save();
+            } catch (IOException e) {
+                // The result is still valid; the entry only ages on disk until the next write succeeds
+            }
+        }
+        return entry.result;
+    }
+
+    /**
+     * Stores a recovered result and writes the cache file.
+     *
+     * @param fingerprint the fingerprint of the ciphertext file
+     * @param result      the recovered result
+     * @throws IOException if the cache file cannot be written
+     */
+    public synchronized void put(ContentFingerprint fingerprint, KeyRecoveryResult result) throws IOException {
+        ensureLoaded();
+        entries.put(new Key(fingerprint.size, fingerprint.lookupHash, alphabetFingerprint),
+                new Entry(fingerprint.verificationHash, result, System.currentTimeMillis()));
+        save();
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.lastUsedMillis > maxAgeMillis;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            load();
+        } catch (NoSuchFileException e) {
+            // Nothing cached yet
+        } catch (IOException | IllegalArgumentException e) {
+            // A corrupt cache only costs a new analysis
+            entries.clear();
+        }
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException(file.toString());
+            }
+            int count = input.readInt();
+            // Written in least-recently-used order, so reinserting restores the order
+            for (int i = 0; i < count; i++) {
+                Key key = new Key(input.readLong(), input.readInt(), input.readInt());
+                int verificationHash = input.readInt();
+                KeyRecoveryResult result = new KeyRecoveryResult(input.readInt(), input.readDouble(),
+                        LanguageProfile.valueOf(input.readUTF()), input.readDouble());
+                Entry entry = new Entry(verificationHash, result, input.readLong());
+                if (!isExpired(entry)) {
+                    entries.put(key, entry);
+                }
+            }
+        }
+    }
+
+    private void save() throws IOException {
+        entries.values().removeIf(this::isExpired);
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+
+        AtomicFile.write(file, output -> {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(entries.size());
+            for (Map.Entry<Key, Entry> mapEntry : entries.entrySet()) {
+                Key key = mapEntry.getKey();
+                Entry entry = mapEntry.getValue();
+                output.writeLong(key.size);
+                output.writeInt(key.lookupHash);
+                output.writeInt(key.alphabetFingerprint);
+                output.writeInt(entry.verificationHash);
+                output.writeInt(entry.result.getShift());
+                output.writeDouble(entry.result.getConfidence());
+                output.writeUTF(entry.result.getLanguage().name());
+                output.writeDouble(entry.result.getScore());
+                output.writeLong(entry.lastUsedMillis);
+            }
+        });
+    }
+
+    /**
+     * The cheap identity of a file's content: its size, a hash of a few blocks used as the lookup key,
+     * and a hash of more blocks used to verify a hit.
+     */
+    public static final class ContentFingerprint {
+
+        /**
+         * Number of bytes hashed per block.
+         */
+        static final int BLOCK_SIZE = 4096;
+
+        private static final int LOOKUP_BLOCKS = 3;
+        private static final int VERIFICATION_BLOCKS = 16;
+
+        private final long size;
+        private final int lookupHash;
+        private final int verificationHash;
+
+        private ContentFingerprint(long size, int lookupHash, int verificationHash) {
+            this.size = size;
+            this.lookupHash = lookupHash;
+            this.verificationHash = verificationHash;
+        }
+
+        /**
+         * Computes the fingerprint of a file.
+         *
+         * @param path the file
+         * @return the fingerprint
+         * @throws IOException if an I/O error occurs while reading the file
+         */
+        public static ContentFingerprint of(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+                return new ContentFingerprint(size,
+                        hashBlocks(channel, size, LOOKUP_BLOCKS, block),
+                        hashBlocks(channel, size, VERIFICATION_BLOCKS, block));
+            }
+        }
+
+        /**
+         * Hashes evenly spread blocks from the head to the tail of the file, or the whole file if it is small.
+         */
+        private static int hashBlocks(FileChannel channel, long size, int blocks, ByteBuffer block) throws IOException {
+            CRC32C crc = new CRC32C();
+            long lastBlockStart = Math.max(0, size - BLOCK_SIZE);
+            int count = (size <= (long) blocks * BLOCK_SIZE) ? (int) ((size + BLOCK_SIZE - 1) / BLOCK_SIZE) : blocks;
+            for (int i = 0; i < count; i++) {
+                long position = (count == 1) ? 0 : (size <= (long) blocks * BLOCK_SIZE)
+                        ? (long) i * BLOCK_SIZE
+                        : lastBlockStart * i / (count - 1);
+                block.clear();
+                while (block.hasRemaining() && channel.read(block, position + block.position()) > 0) {
+                    // Read the whole block
+                }
+                block.flip();
+                crc.update(block);
+            }
+            return (int) crc.getValue();
+        }
+    }
+
+    /**
+     * The lookup key of an entry.
+     */
+    private static final class Key {
+
+        private final long size;
+        private final int lookupHash;
+        private final int alphabetFingerprint;
+
+        Key(long size, int lookupHash, int alphabetFingerprint) {
+            this.size = size;
+            this.lookupHash = lookupHash;
+            this.alphabetFingerprint = alphabetFingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return size == other.size && lookupHash == other.lookupHash
+                    && alphabetFingerprint == other.alphabetFingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, lookupHash, alphabetFingerprint);
+        }
+    }
+
+    /**
+     * A cached result with its verification hash and the time it was last used.
+     */
+    private static final class Entry {
+
+        private final int verificationHash;
+        private final KeyRecoveryResult result;
+        private long lastUsedMillis;
+
+        Entry(int verificationHash, KeyRecoveryResult result, long lastUsedMillis) {
+            this.verificationHash = verificationHash;
+            this.result = result;
+            this.lastUsedMillis = lastUsedMillis;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+/**
+ * This class holds the outcome of an automatic key search: the most likely shift,
+ * the language it was matched against, and how confident the analyzer is about it.
+ */
+public class KeyRecoveryResult {
+
+    private final int shift;
+    private final double confidence;
+    private final LanguageProfile language;
+    private final double score;
+
+    /**
+     * Constructor initializes the result with the recovered shift and its statistics.
+     *
+     * @param shift      the recovered shift value
+     * @param confidence the confidence in the shift, from 0 (no idea) to 1 (certain)
+     * @param language   the language profile the decrypted text matched best
+     * @param score      the score of the best match, lower is better
+     */
+    public KeyRecoveryResult(int shift, double confidence, LanguageProfile language, double score) {
+        this.shift = shift;
+        this.confidence = confidence;
+        this.language = language;
+        this.score = score;
+    }
+
+    public int getShift() {
+        return shift;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public LanguageProfile getLanguage() {
+        return language;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("shift %d (%s, confidence %.2f)", shift, language.name().toLowerCase(), confidence);
+    }
+}
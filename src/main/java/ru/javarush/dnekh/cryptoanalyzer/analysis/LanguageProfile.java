@@ -0,0 +1,78 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+/**
+ * Enum representing the character frequency profiles of the languages the analyzer can recognize.
+ * Each profile lists the relative letter frequencies of a language; spaces and common punctuation
+ * get a fixed share of the text, and every other alphabet character a small floor probability.
+ */
+public enum LanguageProfile {
+
+    RUSSIAN("оеаинтсрвлкмдпуяыьгзбчйхжшюцщэфъё", new double[]{
+            0.1097, 0.0845, 0.0801, 0.0735, 0.0670, 0.0626, 0.0547, 0.0473, 0.0454, 0.0440, 0.0349,
+            0.0321, 0.0298, 0.0281, 0.0262, 0.0201, 0.0190, 0.0174, 0.0170, 0.0165, 0.0159, 0.0144,
+            0.0121, 0.0097, 0.0094, 0.0073, 0.0064, 0.0048, 0.0036, 0.0032, 0.0026, 0.0004, 0.0004}),
+
+    ENGLISH("etaoinshrdlcumwfgypbvkjxqz", new double[]{
+            0.1270, 0.0906, 0.0817, 0.0751, 0.0697, 0.0675, 0.0633, 0.0609, 0.0599, 0.0425, 0.0403,
+            0.0278, 0.0276, 0.0241, 0.0236, 0.0223, 0.0202, 0.0197, 0.0193, 0.0149, 0.0098, 0.0077,
+            0.0015, 0.0015, 0.0010, 0.0007});
+
+    private static final double SPACE_SHARE = 0.15;
+    private static final double PERIOD_SHARE = 0.01;
+    private static final double COMMA_SHARE = 0.012;
+    private static final double LETTER_SHARE = 1.0 - SPACE_SHARE - PERIOD_SHARE - COMMA_SHARE;
+    private static final double MIN_PROBABILITY = 0.0001;
+
+    private final String letters;
+    private final double[] frequencies;
+
+    /**
+     * Constructor for the enum constant, associates letters with their relative frequencies.
+     *
+     * @param letters     the letters of the language
+     * @param frequencies the relative frequency of each letter, in the same order
+     */
+    LanguageProfile(String letters, double[] frequencies) {
+        this.letters = letters;
+        this.frequencies = frequencies;
+    }
+
+    /**
+     * Builds the expected probability of every alphabet character in a text of this language.
+     * The result is indexed by alphabet position and sums to one.
+     *
+     * @param alphabet the alphabet to build the distribution for
+     * @return the expected probabilities by alphabet index
+     */
+    public double[] expectedDistribution(Alphabet alphabet) {
+        double[] expected = new double[alphabet.size()];
+        for (int i = 0; i < expected.length; i++) {
+            char c = alphabet.charAt(i);
+            int letterIndex = letters.indexOf(c);
+            double probability;
+            if (letterIndex >= 0) {
+                probability = frequencies[letterIndex] * LETTER_SHARE;
+            } else if (c == ' ') {
+                probability = SPACE_SHARE;
+            } else if (c == '.') {
+                probability = PERIOD_SHARE;
+            } else if (c == ',') {
+                probability = COMMA_SHARE;
+            } else {
+                probability = 0;
+            }
+            expected[i] = Math.max(probability, MIN_PROBABILITY);
+        }
+
+        double total = 0;
+        for (double probability : expected) {
+            total += probability;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] /= total;
+        }
+        return expected;
+    }
+}
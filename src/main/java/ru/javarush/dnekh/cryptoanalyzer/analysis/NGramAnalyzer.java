@@ -0,0 +1,160 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class recovers a Caesar cipher key by scoring every candidate shift with character bigram language models.
+ * Unlike single-character frequencies, bigrams stay reliable on short texts and on texts
+ * with many digits and symbols, because they capture which characters follow each other.
+ * The ciphertext is converted to alphabet indices once; each shift is then scored by rotating the indices
+ * inside the scoring loop.
+ */
+public class NGramAnalyzer {
+
+    /**
+     * Maximum number of alphabet characters scored; longer texts are scored by their beginning.
+     */
+    public static final int MAX_SCORED_CHARACTERS = 64 * 1024;
+
+    private static final double CONFIDENCE_SCALE = 4.0;
+
+    private final HistogramBuilder histogramBuilder;
+    private final NGramModel[] models;
+
+    /**
+     * Constructor loads the bundled models of all known languages.
+     *
+     * @param alphabet the alphabet the ciphertext was produced with
+     * @throws IOException if a model resource is missing or was built for another alphabet
+     */
+    public NGramAnalyzer(Alphabet alphabet) throws IOException {
+        this.histogramBuilder = new HistogramBuilder(alphabet);
+        LanguageProfile[] languages = LanguageProfile.values();
+        this.models = new NGramModel[languages.length];
+        for (int i = 0; i < languages.length; i++) {
+            models[i] = NGramModel.load(languages[i], alphabet);
+        }
+    }
+
+    /**
+     * Finds the most likely decryption shift for the given ciphertext.
+     * The confidence grows with the per-character log-likelihood gap between the best and second-best shift.
+     *
+     * @param text the ciphertext to analyze
+     * @return the best shift with its language and confidence
+     */
+    public KeyRecoveryResult findKey(CharSequence text) {
+        int[] indices = new int[Math.min(text.length(), MAX_SCORED_CHARACTERS)];
+        int length = toIndices(text, indices);
+        double[] scores = new double[histogramBuilder.getAlphabetSize()];
+        LanguageProfile[] languages = scoreShifts(indices, length, scores);
+        return bestResult(scores, languages, length);
+    }
+
+    /**
+     * Picks the more likely of two candidate shifts by scoring the text under the n-gram models with both,
+     * so candidates found by different methods are compared on one scale. Confidences of different analyzers
+     * are not comparable, and the cheaper letter frequencies are often wrong on short or repetitive texts.
+     *
+     * @param text      the ciphertext to analyze
+     * @param candidate the shift found by another analyzer
+     * @return the candidate if it scores at least as well as the best n-gram shift, otherwise the n-gram result
+     */
+    public KeyRecoveryResult choose(CharSequence text, KeyRecoveryResult candidate) {
+        int[] indices = new int[Math.min(text.length(), MAX_SCORED_CHARACTERS)];
+        int length = toIndices(text, indices);
+        // Too little text to tell the shifts apart keeps the candidate
+        if (length < 2) {
+            return candidate;
+        }
+        double[] scores = new double[histogramBuilder.getAlphabetSize()];
+        LanguageProfile[] languages = scoreShifts(indices, length, scores);
+        KeyRecoveryResult nGramResult = bestResult(scores, languages, length);
+        return (scores[candidate.getShift()] >= scores[nGramResult.getShift()]) ? candidate : nGramResult;
+    }
+
+    /**
+     * Orders all candidate shifts from the most to the least likely.
+     *
+     * @param text the ciphertext to analyze
+     * @return every shift value, best first
+     */
+    public int[] rankShifts(CharSequence text) {
+        int[] indices = new int[Math.min(text.length(), MAX_SCORED_CHARACTERS)];
+        int length = toIndices(text, indices);
+        double[] scores = new double[histogramBuilder.getAlphabetSize()];
+        scoreShifts(indices, length, scores);
+
+        Integer[] shifts = new Integer[scores.length];
+        for (int shift = 0; shift < shifts.length; shift++) {
+            shifts[shift] = shift;
+        }
+        Arrays.sort(shifts, (left, right) -> Double.compare(scores[right], scores[left]));
+
+        int[] ranked = new int[shifts.length];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = shifts[i];
+        }
+        return ranked;
+    }
+
+    /**
+     * Scores every shift with every language model and keeps the best language per shift.
+     *
+     * @return the best language for each shift
+     */
+    private LanguageProfile[] scoreShifts(int[] indices, int length, double[] scores) {
+        LanguageProfile[] languages = new LanguageProfile[scores.length];
+        for (int shift = 0; shift < scores.length; shift++) {
+            scores[shift] = Double.NEGATIVE_INFINITY;
+            for (NGramModel model : models) {
+                double score = model.score(indices, length, shift);
+                if (score > scores[shift]) {
+                    scores[shift] = score;
+                    languages[shift] = model.getLanguage();
+                }
+            }
+        }
+        return languages;
+    }
+
+    /**
+     * Builds the result of the best shift. The confidence grows with the per-character log-likelihood gap
+     * between the best and second-best shift.
+     */
+    private static KeyRecoveryResult bestResult(double[] scores, LanguageProfile[] languages, int length) {
+        int bestShift = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double secondBestScore = Double.NEGATIVE_INFINITY;
+        for (int shift = 0; shift < scores.length; shift++) {
+            if (scores[shift] > bestScore) {
+                secondBestScore = bestScore;
+                bestScore = scores[shift];
+                bestShift = shift;
+            } else if (scores[shift] > secondBestScore) {
+                secondBestScore = scores[shift];
+            }
+        }
+
+        if (length < 2) {
+            return new KeyRecoveryResult(bestShift, 0, languages[bestShift], 0);
+        }
+        double gapPerCharacter = (bestScore - secondBestScore) / length;
+        double confidence = 1.0 - Math.exp(-gapPerCharacter * CONFIDENCE_SCALE);
+        return new KeyRecoveryResult(bestShift, confidence, languages[bestShift], -bestScore / length);
+    }
+
+    private int toIndices(CharSequence text, int[] indices) {
+        int length = 0;
+        for (int i = 0; i < text.length() && length < indices.length; i++) {
+            int index = histogramBuilder.indexOf(text.charAt(i));
+            if (index >= 0) {
+                indices[length++] = index;
+            }
+        }
+        return length;
+    }
+}
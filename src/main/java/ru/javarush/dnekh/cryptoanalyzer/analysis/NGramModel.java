@@ -0,0 +1,152 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A character bigram language model over alphabet positions.
+ * Bigram log-probabilities are kept in a flat {@code float[]} indexed by {@code a * N + b}.
+ * There are no trigrams: the bundled reference corpora are a few kilobytes, which leaves most trigram contexts
+ * unseen, so trigram estimates would mostly repeat the bigram ones. They are worth adding with a corpus
+ * of at least some hundred kilobytes per language.
+ * Models are built by {@link NGramModelBuilder} and stored as gzip-compressed binary resources.
+ */
+public final class NGramModel {
+
+    private static final int MAGIC = 0x4E47524D;
+    private static final int VERSION = 2;
+    private static final String RESOURCE_PATH = "/ngram/%s.bin.gz";
+    private static final String ERR_MESSAGE_ALPHABET_MISMATCH = "N-GRAM MODEL WAS BUILT FOR A DIFFERENT ALPHABET: ";
+    private static final String ERR_MESSAGE_INVALID_MODEL = "INVALID N-GRAM MODEL FILE";
+
+    private final LanguageProfile language;
+    private final int alphabetSize;
+    private final float[] bigramLogProbabilities;
+
+    NGramModel(LanguageProfile language, int alphabetSize, float[] bigramLogProbabilities) {
+        this.language = language;
+        this.alphabetSize = alphabetSize;
+        this.bigramLogProbabilities = bigramLogProbabilities;
+    }
+
+    /**
+     * Loads the bundled model of the given language.
+     *
+     * @param language the language to load the model for
+     * @param alphabet the alphabet the model must have been built for
+     * @return the loaded model
+     * @throws IOException if the resource is missing, corrupt or built for another alphabet
+     */
+    public static NGramModel load(LanguageProfile language, Alphabet alphabet) throws IOException {
+        String resource = String.format(RESOURCE_PATH, language.name().toLowerCase());
+        InputStream inputStream = NGramModel.class.getResourceAsStream(resource);
+        if (inputStream == null) {
+            throw new IOException(resource + " NOT FOUND");
+        }
+        try (inputStream) {
+            return read(inputStream, alphabet);
+        }
+    }
+
+    /**
+     * Reads a model from a gzip-compressed binary stream.
+     *
+     * @param inputStream the stream to read
+     * @param alphabet    the alphabet the model must have been built for
+     * @return the model
+     * @throws IOException if the stream is corrupt or the model was built for another alphabet
+     */
+    public static NGramModel read(InputStream inputStream, Alphabet alphabet) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)));
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException(ERR_MESSAGE_INVALID_MODEL);
+        }
+        LanguageProfile language = LanguageProfile.valueOf(input.readUTF());
+        int alphabetSize = input.readInt();
+        int fingerprint = input.readInt();
+        if (alphabetSize != alphabet.size() || fingerprint != fingerprint(alphabet)) {
+            throw new IOException(ERR_MESSAGE_ALPHABET_MISMATCH + language);
+        }
+
+        float[] bigramLogProbabilities = new float[alphabetSize * alphabetSize];
+        for (int i = 0; i < bigramLogProbabilities.length; i++) {
+            bigramLogProbabilities[i] = input.readFloat();
+        }
+
+        return new NGramModel(language, alphabetSize, bigramLogProbabilities);
+    }
+
+    /**
+     * Writes the model as a gzip-compressed binary stream.
+     *
+     * @param outputStream the stream to write to
+     * @param alphabet     the alphabet the model was built for
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public void write(OutputStream outputStream, Alphabet alphabet) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(outputStream);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(gzip));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeUTF(language.name());
+        output.writeInt(alphabetSize);
+        output.writeInt(fingerprint(alphabet));
+        for (float logProbability : bigramLogProbabilities) {
+            output.writeFloat(logProbability);
+        }
+        output.flush();
+        gzip.finish();
+    }
+
+    public LanguageProfile getLanguage() {
+        return language;
+    }
+
+    /**
+     * Computes the total log-probability of a text decrypted with the given shift.
+     * The text is given as ciphertext alphabet indices; decryption is a rotation of each index,
+     * so no decrypted text is produced.
+     *
+     * @param indices the ciphertext as alphabet indices
+     * @param length  the number of indices to score
+     * @param shift   the decryption shift to score
+     * @return the log-likelihood of the decrypted text, higher is better
+     */
+    public double score(int[] indices, int length, int shift) {
+        if (length < 2) {
+            return 0;
+        }
+        int alphabetSize = this.alphabetSize;
+        float[] bigramLogProbabilities = this.bigramLogProbabilities;
+
+        double score = 0;
+        int previous = decrypt(indices[0], shift, alphabetSize);
+        for (int i = 1; i < length; i++) {
+            int current = decrypt(indices[i], shift, alphabetSize);
+            score += bigramLogProbabilities[previous * alphabetSize + current];
+            previous = current;
+        }
+        return score;
+    }
+
+    private static int decrypt(int index, int shift, int alphabetSize) {
+        int decrypted = index - shift;
+        return decrypted < 0 ? decrypted + alphabetSize : decrypted;
+    }
+
+    /**
+     * Identifies an alphabet by its exact character sequence, so a model is never used with another alphabet.
+     */
+    static int fingerprint(Alphabet alphabet) {
+        return new String(alphabet.getAlphabet()).hashCode();
+    }
+}
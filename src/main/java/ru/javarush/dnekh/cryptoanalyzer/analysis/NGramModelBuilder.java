@@ -0,0 +1,123 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * This class builds an {@link NGramModel} from a plain UTF-8 reference corpus.
+ * Characters are folded to lower case and characters outside the alphabet are skipped, just like the cipher does.
+ * Probabilities are smoothed by interpolating bigram and add-one unigram estimates,
+ * so unseen combinations still get a small non-zero probability.
+ * <p>
+ * Usage: {@code NGramModelBuilder <corpus file> <RUSSIAN|ENGLISH> <output file>}; the bundled models
+ * in {@code src/main/resources/ngram} are built from the files in the {@code corpus} directory.
+ */
+public class NGramModelBuilder {
+
+    private static final double UNIGRAM_WEIGHT = 0.1;
+    private static final String USAGE_MESSAGE = "Usage: NGramModelBuilder <corpus file> <RUSSIAN|ENGLISH> <output file>";
+
+    private final Alphabet alphabet;
+    private final HistogramBuilder histogramBuilder;
+
+    /**
+     * Constructor initializes the builder for the given alphabet.
+     *
+     * @param alphabet the alphabet the model is built over
+     */
+    public NGramModelBuilder(Alphabet alphabet) {
+        this.alphabet = alphabet;
+        this.histogramBuilder = new HistogramBuilder(alphabet);
+    }
+
+    /**
+     * Builds the model from the corpus file.
+     *
+     * @param corpus   the UTF-8 reference text
+     * @param language the language of the reference text
+     * @return the built model
+     * @throws IOException if an I/O error occurs while reading the corpus
+     */
+    public NGramModel build(Path corpus, LanguageProfile language) throws IOException {
+        int n = alphabet.size();
+        long[] unigrams = new long[n];
+        long[] bigrams = new long[n * n];
+
+        try (Reader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8)) {
+            int previous = -1;
+            int c;
+            while ((c = reader.read()) != -1) {
+                int index = histogramBuilder.indexOf(c);
+                if (index < 0) {
+                    continue;
+                }
+                unigrams[index]++;
+                if (previous >= 0) {
+                    bigrams[previous * n + index]++;
+                }
+                previous = index;
+            }
+        }
+
+        long total = 0;
+        for (long count : unigrams) {
+            total += count;
+        }
+        double[] unigramProbabilities = new double[n];
+        for (int i = 0; i < n; i++) {
+            unigramProbabilities[i] = (unigrams[i] + 1.0) / (total + n);
+        }
+
+        float[] bigramLogProbabilities = new float[n * n];
+        for (int a = 0; a < n; a++) {
+            long context = rowSum(bigrams, a * n, n);
+            for (int b = 0; b < n; b++) {
+                double probability = context == 0
+                        ? unigramProbabilities[b]
+                        : (1.0 - UNIGRAM_WEIGHT) * bigrams[a * n + b] / context + UNIGRAM_WEIGHT * unigramProbabilities[b];
+                bigramLogProbabilities[a * n + b] = (float) Math.log(probability);
+            }
+        }
+
+        return new NGramModel(language, n, bigramLogProbabilities);
+    }
+
+    private static long rowSum(long[] counts, int from, int length) {
+        long sum = 0;
+        for (int i = from; i < from + length; i++) {
+            sum += counts[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Builds a model from a corpus file and writes it to the output file.
+     * The model is built for the configured alphabet, see {@link Alphabet#fromConfiguration()}.
+     *
+     * @param args the corpus file, the language name and the output file
+     * @throws IOException if an I/O error occurs
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.out.println(USAGE_MESSAGE);
+            return;
+        }
+        Alphabet alphabet = Alphabet.fromConfiguration();
+        NGramModel model = new NGramModelBuilder(alphabet).build(Paths.get(args[0]), LanguageProfile.valueOf(args[1]));
+
+        Path output = Paths.get(args[2]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (OutputStream outputStream = Files.newOutputStream(output)) {
+            model.write(outputStream, alphabet);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class recovers a Caesar cipher key from a bounded sample of a file instead of the whole file.
+ * It starts with the head of the file and then adds blocks from evenly spread, ever finer positions
+ * (1/2, then 1/4 and 3/4, then 1/8, 3/8, ...), rescoring after every round. Sampling stops as soon as
+ * the confidence passes the threshold, so unambiguous files are decided after reading a few kilobytes.
+ * Only when the sample budget is spent and the result is still ambiguous is the whole file counted.
+ */
+public class SampledKeyFinder {
+
+    /**
+     * Number of bytes mapped and counted per sampled block.
+     */
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Maximum number of bytes sampled before falling back to counting the whole file.
+     */
+    public static final long MAX_SAMPLE_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * Confidence at which sampling stops early.
+     */
+    public static final double DEFAULT_CONFIDENCE_THRESHOLD = 0.6;
+
+    private static final long MIN_SAMPLED_CHARACTERS = 256;
+
+    private final FrequencyAnalyzer frequencyAnalyzer;
+    private final double confidenceThreshold;
+    private final int parallelism;
+
+    /**
+     * Constructor initializes the finder with the analyzer used to score samples.
+     *
+     * @param frequencyAnalyzer   the analyzer scoring the sampled histogram
+     * @param confidenceThreshold the confidence at which sampling stops
+     * @param parallelism         the number of threads used if the whole file has to be counted
+     */
+    public SampledKeyFinder(FrequencyAnalyzer frequencyAnalyzer, double confidenceThreshold, int parallelism) {
+        this.frequencyAnalyzer = frequencyAnalyzer;
+        this.confidenceThreshold = confidenceThreshold;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Finds the most likely decryption shift for the UTF-8 ciphertext file.
+     *
+     * @param path the ciphertext file
+     * @return the best shift with its language and confidence
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public KeyRecoveryResult findKey(Path path) throws IOException {
+        HistogramBuilder histogramBuilder = frequencyAnalyzer.getHistogramBuilder();
+        int[] histogram = new int[histogramBuilder.getAlphabetSize()];
+        KeyRecoveryResult result;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long sampledBytes = 0;
+            long sampledCharacters = addBlock(channel, 0, size, histogram);
+            sampledBytes += Math.min(BLOCK_SIZE, size);
+            result = frequencyAnalyzer.findKey(histogram);
+
+            for (long denominator = 2; sampledBytes < Math.min(size, MAX_SAMPLE_SIZE); denominator *= 2) {
+                if (sampledCharacters >= MIN_SAMPLED_CHARACTERS && result.getConfidence() >= confidenceThreshold) {
+                    return result;
+                }
+                long step = size / denominator;
+                if (step < BLOCK_SIZE) {
+                    break;
+                }
+                // Odd multiples of size / denominator are exactly the positions not sampled in earlier rounds
+                for (long numerator = 1; numerator < denominator && sampledBytes < MAX_SAMPLE_SIZE; numerator += 2) {
+                    sampledCharacters += addBlock(channel, step * numerator, size, histogram);
+                    sampledBytes += BLOCK_SIZE;
+                }
+                result = frequencyAnalyzer.findKey(histogram);
+            }
+
+            if (result.getConfidence() >= confidenceThreshold || sampledBytes >= size) {
+                return result;
+            }
+        }
+
+        return frequencyAnalyzer.findKey(histogramBuilder.buildParallel(path, parallelism));
+    }
+
+    private long addBlock(FileChannel channel, long position, long size, int[] histogram) throws IOException {
+        long length = Math.min(BLOCK_SIZE, size - position);
+        if (length <= 0) {
+            return 0;
+        }
+        MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        return frequencyAnalyzer.getHistogramBuilder().addAll(block, histogram);
+    }
+}
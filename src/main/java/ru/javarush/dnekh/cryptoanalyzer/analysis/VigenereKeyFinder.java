@@ -0,0 +1,232 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class recovers a Vigenère keyword without user interaction, in two steps.
+ * <p>
+ * First the key length: the text is split into columns for every candidate length, the character at key
+ * position {@code i} going into column {@code i mod length}, and the mean index of coincidence of the columns
+ * is computed. At the right length (or a multiple of it) every column is a Caesar shift of natural text
+ * and its index of coincidence is that of the language; at any other length the columns mix several shifts
+ * and the index drops towards that of random text. The shortest length whose index comes close to the best one
+ * is taken. The candidates are scored in parallel on the head of the text, which is plenty for this statistic.
+ * <p>
+ * Then every column is solved on its own like a Caesar cipher by {@link FrequencyAnalyzer}. The column histograms
+ * for that are built from the whole text in a single parallel pass, so the cost is one read of the file plus
+ * O(length * k²) for the scoring.
+ */
+public class VigenereKeyFinder {
+
+    /**
+     * Longest key length that is considered.
+     */
+    public static final int DEFAULT_MAX_KEY_LENGTH = 64;
+
+    /**
+     * Number of bytes at the head of a file used to find the key length.
+     */
+    public static final int KEY_LENGTH_SAMPLE_SIZE = 1024 * 1024;
+
+    /**
+     * Smallest number of characters per column for a key length to be considered.
+     */
+    private static final int MIN_COLUMN_LENGTH = 32;
+
+    /**
+     * Share of the best index of coincidence above random text that a shorter key length has to reach.
+     */
+    private static final double KEY_LENGTH_SELECTION_RATIO = 0.9;
+
+    private final FrequencyAnalyzer frequencyAnalyzer;
+    private final HistogramBuilder histogramBuilder;
+    private final Alphabet alphabet;
+    private final int maxKeyLength;
+    private final int parallelism;
+
+    /**
+     * Constructor initializes the finder with the analyzer used to solve every key position.
+     *
+     * @param frequencyAnalyzer the analyzer solving the columns
+     * @param alphabet          the alphabet the ciphertext was produced with
+     * @param maxKeyLength      the longest key length that is considered
+     * @param parallelism       the number of worker threads
+     */
+    public VigenereKeyFinder(FrequencyAnalyzer frequencyAnalyzer, Alphabet alphabet, int maxKeyLength, int parallelism) {
+        this.frequencyAnalyzer = frequencyAnalyzer;
+        this.histogramBuilder = frequencyAnalyzer.getHistogramBuilder();
+        this.alphabet = alphabet;
+        this.maxKeyLength = maxKeyLength;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Finds the most likely keyword for the UTF-8 ciphertext file.
+     *
+     * @param path the ciphertext file
+     * @return the keyword with its language and confidence
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public VigenereKeyResult findKey(Path path) throws IOException {
+        long size;
+        ByteBuffer head;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            size = channel.size();
+            head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, KEY_LENGTH_SAMPLE_SIZE));
+        }
+
+        KeyLength keyLength = findKeyLength(length -> {
+            int[][] columns = new int[length][histogramBuilder.getAlphabetSize()];
+            histogramBuilder.addColumns(head, columns, 0);
+            return columns;
+        });
+        int[][] columns = (size <= KEY_LENGTH_SAMPLE_SIZE)
+                ? keyLength.columns
+                : histogramBuilder.buildColumnsParallel(path, keyLength.columns.length, parallelism);
+        return solve(columns, keyLength.indexOfCoincidence);
+    }
+
+    /**
+     * Finds the most likely keyword for the given ciphertext.
+     *
+     * @param text the ciphertext to analyze
+     * @return the keyword with its language and confidence
+     */
+    public VigenereKeyResult findKey(CharSequence text) {
+        try {
+            KeyLength keyLength = findKeyLength(length -> histogramBuilder.buildColumns(text, length));
+            return solve(keyLength.columns, keyLength.indexOfCoincidence);
+        } catch (InterruptedIOException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Counts the columns for every candidate key length in parallel and picks the shortest length
+     * whose mean index of coincidence is close to the best one; multiples of the key length score as well
+     * as the key length itself.
+     */
+    private KeyLength findKeyLength(ColumnCounter columnCounter) throws InterruptedIOException {
+        int[][] singleColumn = columnCounter.count(1);
+        long characters = 0;
+        for (int count : singleColumn[0]) {
+            characters += count;
+        }
+        int candidates = (int) Math.max(1, Math.min(maxKeyLength, characters / MIN_COLUMN_LENGTH));
+
+        List<Callable<int[][]>> tasks = new ArrayList<>();
+        for (int length = 1; length <= candidates; length++) {
+            int candidate = length;
+            tasks.add(() -> candidate == 1 ? singleColumn : columnCounter.count(candidate));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<int[][]> columnsByLength = new ArrayList<>();
+        try {
+            for (Future<int[][]> future : pool.invokeAll(tasks)) {
+                columnsByLength.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double[] indexes = new double[candidates];
+        double best = 0;
+        for (int i = 0; i < candidates; i++) {
+            indexes[i] = meanIndexOfCoincidence(columnsByLength.get(i));
+            best = Math.max(best, indexes[i]);
+        }
+        double random = 1.0 / histogramBuilder.getAlphabetSize();
+        for (int i = 0; i < candidates; i++) {
+            if (indexes[i] - random >= KEY_LENGTH_SELECTION_RATIO * (best - random)) {
+                return new KeyLength(columnsByLength.get(i), indexes[i]);
+            }
+        }
+        return new KeyLength(singleColumn, indexes[0]);
+    }
+
+    /**
+     * Solves every column as a Caesar shift and assembles the keyword from the shifts.
+     */
+    private VigenereKeyResult solve(int[][] columns, double indexOfCoincidence) {
+        LanguageProfile[] languages = LanguageProfile.values();
+        int[] languageVotes = new int[languages.length];
+        StringBuilder keyword = new StringBuilder(columns.length);
+        double confidence = 1;
+
+        for (int[] column : columns) {
+            KeyRecoveryResult result = frequencyAnalyzer.findKey(column);
+            keyword.append(alphabet.charAt(result.getShift()));
+            languageVotes[result.getLanguage().ordinal()]++;
+            confidence = Math.min(confidence, result.getConfidence());
+        }
+
+        int language = 0;
+        for (int i = 1; i < languages.length; i++) {
+            if (languageVotes[i] > languageVotes[language]) {
+                language = i;
+            }
+        }
+        return new VigenereKeyResult(keyword.toString(), confidence, languages[language], indexOfCoincidence);
+    }
+
+    /**
+     * Computes the mean over all columns of the probability that two characters drawn from a column are equal.
+     */
+    static double meanIndexOfCoincidence(int[][] columns) {
+        double sum = 0;
+        for (int[] column : columns) {
+            long total = 0;
+            long coincidences = 0;
+            for (int count : column) {
+                total += count;
+                coincidences += (long) count * (count - 1);
+            }
+            if (total > 1) {
+                sum += (double) coincidences / ((double) total * (total - 1));
+            }
+        }
+        return sum / columns.length;
+    }
+
+    /**
+     * Counts a text into the column histograms of one key length.
+     */
+    @FunctionalInterface
+    private interface ColumnCounter {
+        int[][] count(int keyLength);
+    }
+
+    /**
+     * The chosen key length, given by the number of its columns, and its mean index of coincidence.
+     */
+    private static final class KeyLength {
+
+        private final int[][] columns;
+        private final double indexOfCoincidence;
+
+        KeyLength(int[][] columns, double indexOfCoincidence) {
+            this.columns = columns;
+            this.indexOfCoincidence = indexOfCoincidence;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+/**
+ * This class holds the outcome of an automatic Vigenère key search: the recovered keyword,
+ * the language it was matched against, and how confident the analyzer is about it.
+ */
+public class VigenereKeyResult {
+
+    private final String keyword;
+    private final double confidence;
+    private final LanguageProfile language;
+    private final double indexOfCoincidence;
+
+    /**
+     * Constructor initializes the result with the recovered keyword and its statistics.
+     *
+     * @param keyword            the recovered keyword, one alphabet character per key position
+     * @param confidence         the confidence in the least certain key position, from 0 (no idea) to 1 (certain)
+     * @param language           the language profile most key positions matched best
+     * @param indexOfCoincidence the mean index of coincidence of the key columns at the recovered key length
+     */
+    public VigenereKeyResult(String keyword, double confidence, LanguageProfile language, double indexOfCoincidence) {
+        this.keyword = keyword;
+        this.confidence = confidence;
+        this.language = language;
+        this.indexOfCoincidence = indexOfCoincidence;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public LanguageProfile getLanguage() {
+        return language;
+    }
+
+    public double getIndexOfCoincidence() {
+        return indexOfCoincidence;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("keyword \"%s\" of length %d (%s, confidence %.2f)", keyword, keyword.length(),
+                language.name().toLowerCase(), confidence);
+    }
+}
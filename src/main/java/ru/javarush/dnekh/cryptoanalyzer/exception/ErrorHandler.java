@@ -11,6 +11,9 @@ public final class ErrorHandler {
     public static final String INVALID_CHOSEN_OPTION_MESSAGE = "INVALID OPTION. PLEASE TRY AGAIN.";
     public static final String INVALID_OUTPUT_DIRECTORY = "THE OUTPUT DIRECTORY IS INVALID OR NOT WRITABLE. PLEASE ENTER A VALID PATH: ";
     public static final String INVALID_FILE_PATH = "INVALID FILE PATH. PLEASE TRY AGAIN!";
+    public static final String INVALID_DIRECTORY_PATH = "INVALID DIRECTORY PATH. PLEASE TRY AGAIN!";
+    public static final String LOW_CONFIDENCE_MESSAGE = "WARNING: THE RECOVERED KEY HAS LOW CONFIDENCE. CHECK THE RESULT.";
+    public static final String INVALID_ARGUMENTS_MESSAGE = "INVALID ARGUMENTS: ";
     public static final String INVALID_KEY_ENTERED = "INVALID KEY ENTERED. PLEASE ENTER A VALID INTEGER!";
 
     public static final String ENTER_VALID_PATH = "ENTER A VALID OUTPUT FILE PATH: ";
@@ -27,4 +30,14 @@ public final class ErrorHandler {
     public static void showError(String message) {
         System.out.println(message);
     }
+
+    /**
+     * Displays an error message on the standard error stream.
+     * Used in non-interactive modes, where standard output carries the processed data.
+     *
+     * @param message the error message to display
+     */
+    public static void showErrorOnStderr(String message) {
+        System.err.println(message);
+    }
 }
@@ -0,0 +1,88 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A file that is written under a temporary name next to its target and moved over the target in one atomic step
+ * once it is complete, so readers see either the previous file or the complete new one, never a torn file.
+ * <p>
+ * Every instance gets a temporary file with a unique name, so several threads or processes writing the same target
+ * never write into each other's file; the last one to commit wins. An instance that is closed without being
+ * committed deletes its temporary file and leaves the target as it was.
+ */
+public final class AtomicFile implements Closeable {
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path target;
+    private final Path temporary;
+    private boolean committed;
+
+    /**
+     * Constructor creates the temporary file in the directory of the target.
+     *
+     * @param target the file to replace on commit
+     * @throws IOException if the temporary file cannot be created
+     */
+    public AtomicFile(Path target) throws IOException {
+        this.target = target;
+        this.temporary = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName() + ".",
+                TEMPORARY_SUFFIX);
+    }
+
+    /**
+     * Writes a small binary file, such as a checkpoint or an index, in one go and commits it.
+     *
+     * @param target the file to replace
+     * @param writer writes the content
+     * @throws IOException if an I/O error occurs; the target is then left as it was
+     */
+    public static void write(Path target, ContentWriter writer) throws IOException {
+        try (AtomicFile file = new AtomicFile(target)) {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.temporary)))) {
+                writer.write(out);
+            }
+            file.commit();
+        }
+    }
+
+    /**
+     * Returns the temporary file to write the content to.
+     *
+     * @return the temporary file
+     */
+    public Path getTemporaryPath() {
+        return temporary;
+    }
+
+    /**
+     * Moves the complete temporary file over the target.
+     *
+     * @throws IOException if the file cannot be moved
+     */
+    public void commit() throws IOException {
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes the content of a file.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
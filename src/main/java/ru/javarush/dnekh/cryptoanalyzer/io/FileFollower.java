@@ -0,0 +1,244 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps transforming a growing UTF-8 file, such as an application log, into an output file.
+ * Only the bytes appended since the last pass are read; their transformation is appended to the output file.
+ * <p>
+ * After every pass the input offset and the output length are saved to a checkpoint file next to the output,
+ * so a restarted follower continues where it stopped. The checkpoint also records the job fingerprint, and a
+ * follower started with another key, case mode or alphabet refuses to append to the output, since a file
+ * encrypted with two keys can no longer be decrypted as a whole. The output is forced to disk before the checkpoint is
+ * replaced, and on start the output is cut back to the length in the checkpoint, so a pass interrupted by a crash
+ * is redone without duplicating output. A sequence cut off at the current end of the input is left for the next pass.
+ * <p>
+ * Changes are noticed with a {@link WatchService} on the input's directory; since some file systems report
+ * changes late or not at all, the input is also checked after every poll interval. An input that becomes
+ * shorter than the checkpoint offset is taken as truncated in place, as by {@code logrotate copytruncate},
+ * and is followed again from its start.
+ */
+public class FileFollower {
+
+    /**
+     * Longest time between two checks of the input.
+     */
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Suffix of the checkpoint file, which is stored next to the output file.
+     */
+    public static final String CHECKPOINT_SUFFIX = ".offset";
+
+    private static final int MAGIC = 0x46464F00;
+    private static final int VERSION = 2;
+    private static final String ERR_MESSAGE_INVALID_CHECKPOINT = "NOT A FOLLOW CHECKPOINT OR FROM AN OLDER VERSION: ";
+    private static final String ERR_MESSAGE_OTHER_JOB = "THE OUTPUT WAS WRITTEN WITH ANOTHER KEY, CASE MODE OR ALPHABET;"
+            + " USE THE SAME SETTINGS OR REMOVE THE OUTPUT AND ITS CHECKPOINT TO START OVER: ";
+
+    private final Path inputPath;
+    private final Path outputPath;
+    private final Path checkpointPath;
+    private final Utf8ShiftTable utf8ShiftTable;
+    private final int jobFingerprint;
+    private final Duration pollInterval;
+    private final ByteBuffer input = ByteBuffer.allocateDirect(FileHandler.OUTPUT_BUFFER_SIZE);
+    private final ByteBuffer output = ByteBuffer.allocateDirect(FileHandler.OUTPUT_BUFFER_SIZE);
+
+    private long inputOffset;
+    private long outputLength;
+    private long passCharacters;
+    private boolean checkpointLoaded;
+
+    /**
+     * Constructor initializes a follower; nothing is read until the first pass.
+     *
+     * @param inputPath      the growing UTF-8 file
+     * @param outputPath     the file receiving the transformed text
+     * @param utf8ShiftTable the compiled byte-level shift to apply
+     * @param jobFingerprint identifies the transformation, so output of another key is never appended to
+     * @param pollInterval   the longest time between two checks of the input
+     */
+    public FileFollower(Path inputPath, Path outputPath, Utf8ShiftTable utf8ShiftTable, int jobFingerprint,
+                        Duration pollInterval) {
+        this.inputPath = inputPath;
+        this.outputPath = outputPath;
+        this.checkpointPath = outputPath.resolveSibling(outputPath.getFileName() + CHECKPOINT_SUFFIX);
+        this.utf8ShiftTable = utf8ShiftTable;
+        this.jobFingerprint = jobFingerprint;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Transforms everything appended to the input since the last pass and saves the checkpoint.
+     *
+     * @return the number of input bytes transformed in this pass
+     * @throws IOException if an I/O error occurs, the input is not valid UTF-8 or the checkpoint belongs to another job
+     */
+    public long catchUp() throws IOException {
+        if (!checkpointLoaded) {
+            loadCheckpoint();
+            checkpointLoaded = true;
+        }
+
+        try (FileChannel inputChannel = FileChannel.open(inputPath, StandardOpenOption.READ);
+             FileChannel outputChannel = FileChannel.open(outputPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (inputChannel.size() < inputOffset) {
+                // Truncated in place by log rotation
+                inputOffset = 0;
+            }
+            // Drop output of a pass that was interrupted before its checkpoint was saved
+            if (outputChannel.size() > outputLength) {
+                outputChannel.truncate(outputLength);
+            } else if (outputChannel.size() < outputLength) {
+                // The output was removed or cut, so start over
+                outputChannel.truncate(0);
+                inputOffset = 0;
+                outputLength = 0;
+            }
+            outputChannel.position(outputLength);
+
+            long startOffset = inputOffset;
+            passCharacters = 0;
+            input.clear();
+            output.clear();
+            while (inputChannel.read(input, inputOffset + input.position()) > 0) {
+                input.flip();
+                int start = input.position();
+                while (true) {
+                    passCharacters += utf8ShiftTable.transform(input, output);
+                    if (output.remaining() >= Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH) {
+                        break;
+                    }
+                    outputLength += flush(outputChannel);
+                }
+                inputOffset += input.position() - start;
+                // An incomplete sequence at the end stays in the buffer until the rest is appended
+                input.compact();
+            }
+            outputLength += flush(outputChannel);
+
+            if (inputOffset == startOffset) {
+                return 0;
+            }
+            outputChannel.force(false);
+            saveCheckpoint();
+            return inputOffset - startOffset;
+        }
+    }
+
+    /**
+     * Follows the input until the thread is interrupted, running a pass whenever it may have grown.
+     *
+     * @param listener called after every pass that transformed something, with the number of input bytes
+     *                 and characters
+     * @throws IOException if an I/O error occurs or the input is not valid UTF-8
+     */
+    public void follow(PassListener listener) throws IOException {
+        Path directory = inputPath.toAbsolutePath().getParent();
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    long transformed = catchUp();
+                    if (transformed > 0) {
+                        listener.passCompleted(transformed, passCharacters);
+                    }
+                } catch (NoSuchFileException e) {
+                    // Between the rename and the creation of a rotated file; wait for it to appear
+                } catch (ClosedByInterruptException e) {
+                    // Interrupted during a pass; the checkpoint still describes the last complete one
+                    return;
+                }
+
+                // Any event in the directory, or the timeout, triggers the next pass
+                WatchKey key = watchService.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the input offset up to which the text has been transformed.
+     *
+     * @return the checkpoint offset
+     */
+    public long getInputOffset() {
+        return inputOffset;
+    }
+
+    private long flush(FileChannel outputChannel) throws IOException {
+        output.flip();
+        long written = output.remaining();
+        while (output.hasRemaining()) {
+            outputChannel.write(output);
+        }
+        output.clear();
+        return written;
+    }
+
+    private void loadCheckpoint() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(ERR_MESSAGE_INVALID_CHECKPOINT + checkpointPath);
+            }
+            if (in.readInt() != jobFingerprint) {
+                throw new IOException(ERR_MESSAGE_OTHER_JOB + outputPath);
+            }
+            inputOffset = in.readLong();
+            outputLength = in.readLong();
+        } catch (NoSuchFileException e) {
+            // First run: the output is written from the start of the input
+            inputOffset = 0;
+            outputLength = 0;
+        }
+    }
+
+    private void saveCheckpoint() throws IOException {
+        AtomicFile.write(checkpointPath, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(jobFingerprint);
+            out.writeLong(inputOffset);
+            out.writeLong(outputLength);
+        });
+    }
+
+    /**
+     * Receives a notification after every pass that transformed new input.
+     */
+    @FunctionalInterface
+    public interface PassListener {
+
+        /**
+         * Called after a pass and its checkpoint are complete.
+         *
+         * @param transformedBytes      the number of input bytes transformed in the pass
+         * @param transformedCharacters the number of characters transformed in the pass
+         * @throws IOException if the listener fails
+         */
+        void passCompleted(long transformedBytes, long transformedCharacters) throws IOException;
+    }
+}
@@ -1,26 +1,66 @@
 package ru.javarush.dnekh.cryptoanalyzer.io;
 
+import ru.javarush.dnekh.cryptoanalyzer.model.AllShiftsTable;
+import ru.javarush.dnekh.cryptoanalyzer.model.PolyalphabeticTable;
+import ru.javarush.dnekh.cryptoanalyzer.model.ShiftTable;
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
 import ru.javarush.dnekh.cryptoanalyzer.service.OperationSuffix;
 import ru.javarush.dnekh.cryptoanalyzer.utils.UserInputUtils;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class provides methods for reading text from a file and writing text to a file using Java NIO (New I/O).
- * It supports reading the entire content of a file into a string and writing string data to a file.
+ * It supports reading the entire content of a file into a string and writing string data to a file,
+ * as well as transforming a file chunk by chunk without holding its content in memory.
+ * Transformed files are written as an {@link AtomicFile}, so a run that fails part way through, for example
+ * on input that is not valid UTF-8, leaves an earlier output file as it was.
  */
 public class FileHandler {
 
+    /**
+     * Number of characters read, transformed and written per chunk in streaming mode.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Number of input bytes mapped into memory at a time in memory-mapped mode.
+     */
+    public static final long MAPPED_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Size of the direct buffer collecting output bytes in memory-mapped mode.
+     */
+    public static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Number of characters per chunk when decrypting with every shift; one output chunk is kept per shift.
+     */
+    public static final int ALL_SHIFTS_CHUNK_SIZE = 8 * 1024;
+
+    private static final String ERR_MESSAGE_OUTPUT_IS_DIRECTORY = "OUTPUT PATH IS A DIRECTORY: ";
+
     private final Charset charset = StandardCharsets.UTF_8;
 
     /**
@@ -45,6 +85,31 @@ public class FileHandler {
         return content.toString();
     }
 
+    /**
+     * Reads at most the given number of characters from the beginning of the specified file.
+     * Only the requested prefix is read, regardless of the file size.
+     *
+     * @param filePath the path to the file
+     * @param maxChars the maximum number of characters to read
+     * @return the beginning of the file
+     * @throws IOException          if an I/O error occurs while reading from the file
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public String readHead(String filePath, int maxChars) throws IOException, InvalidPathException {
+        Path path = Paths.get(filePath);
+        char[] head = new char[maxChars];
+        int length = 0;
+
+        try (Reader reader = Files.newBufferedReader(path, charset)) {
+            int read;
+            while (length < maxChars && (read = reader.read(head, length, maxChars - length)) != -1) {
+                length += read;
+            }
+        }
+
+        return new String(head, 0, length);
+    }
+
     /**
      * Writes the specified text to a file using a BufferedWriter.
      * The output file path is determined by combining the source file path and the operation suffix.
@@ -63,6 +128,411 @@ public class FileHandler {
         }
     }
 
+    /**
+     * Transforms the specified file with the given shift table in fixed-size chunks and writes the result
+     * to the output file. Heap usage is bounded by the chunk size regardless of the file size.
+     * The UTF-8 decoder keeps incomplete multi-byte sequences between reads, so characters split
+     * across chunk boundaries are decoded correctly.
+     *
+     * @param sourceFilePath  the path to the source file
+     * @param operationSuffix the operation suffix enum used to generate the output file name
+     * @param shiftTable      the compiled shift to apply to every chunk
+     * @param chunkSize       the number of characters per chunk
+     * @return the number of characters written to the output file
+     * @throws IOException          if an I/O error occurs while reading or writing
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public long transformFile(String sourceFilePath, OperationSuffix operationSuffix, ShiftTable shiftTable, int chunkSize)
+            throws IOException, InvalidPathException {
+        Path path = Paths.get(sourceFilePath);
+        Path outputPath = UserInputUtils.getValidatedOutputFilePath(sourceFilePath, operationSuffix.getSuffix());
+        char[] chunk = new char[chunkSize];
+        long written = 0;
+
+        try (AtomicFile output = new AtomicFile(outputPath)) {
+            try (Reader reader = Files.newBufferedReader(path, charset);
+                 Writer writer = Files.newBufferedWriter(output.getTemporaryPath(), charset)) {
+                int read;
+                while ((read = reader.read(chunk, 0, chunkSize)) != -1) {
+                    int transformed = shiftTable.transform(chunk, 0, read);
+                    writer.write(chunk, 0, transformed);
+                    written += transformed;
+                }
+            }
+            output.commit();
+        }
+
+        return written;
+    }
+
+    /**
+     * Transforms the specified file with the given polyalphabetic table in fixed-size chunks and writes the result
+     * to the output file. The key position carries over from chunk to chunk, so the result does not depend
+     * on the chunk size.
+     *
+     * @param sourceFilePath      the path to the source file
+     * @param operationSuffix     the operation suffix enum used to generate the output file name
+     * @param polyalphabeticTable the compiled substitution to apply to every chunk
+     * @param chunkSize           the number of characters per chunk
+     * @return the number of characters written to the output file
+     * @throws IOException          if an I/O error occurs while reading or writing
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public long transformFile(String sourceFilePath, OperationSuffix operationSuffix,
+                              PolyalphabeticTable polyalphabeticTable, int chunkSize)
+            throws IOException, InvalidPathException {
+        Path path = Paths.get(sourceFilePath);
+        Path outputPath = UserInputUtils.getValidatedOutputFilePath(sourceFilePath, operationSuffix.getSuffix());
+        char[] chunk = new char[chunkSize];
+        long written = 0;
+
+        try (AtomicFile output = new AtomicFile(outputPath)) {
+            try (Reader reader = Files.newBufferedReader(path, charset);
+                 Writer writer = Files.newBufferedWriter(output.getTemporaryPath(), charset)) {
+                int read;
+                while ((read = reader.read(chunk, 0, chunkSize)) != -1) {
+                    int transformed = polyalphabeticTable.transform(chunk, 0, read, chunk, 0, written);
+                    writer.write(chunk, 0, transformed);
+                    written += transformed;
+                }
+            }
+            output.commit();
+        }
+
+        return written;
+    }
+
+    /**
+     * Returns the output files of {@link #decryptAllShifts}: one per shift but shift 0, named with the shift after
+     * the {@link OperationSuffix#ALL_SHIFTS_DECRYPT} suffix and placed next to the source without asking for
+     * another location. Shift 0 only reproduces the ciphertext, so like the interactive brute force
+     * it is no candidate and gets no output file.
+     *
+     * @param sourceFilePath the path to the source file
+     * @param shifts         the number of shifts, the alphabet size
+     * @return the output files of shifts 1 to {@code shifts - 1}, in shift order
+     * @throws IOException          if an output path is a directory
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public List<Path> getAllShiftsOutputPaths(String sourceFilePath, int shifts) throws IOException, InvalidPathException {
+        List<Path> outputPaths = new ArrayList<>(shifts - 1);
+        for (int shift = 1; shift < shifts; shift++) {
+            Path outputPath = Paths.get(generateOutputFilePath(sourceFilePath,
+                    OperationSuffix.ALL_SHIFTS_DECRYPT.getSuffix() + shift));
+            if (Files.isDirectory(outputPath)) {
+                throw new IOException(ERR_MESSAGE_OUTPUT_IS_DIRECTORY + outputPath);
+            }
+            outputPaths.add(outputPath);
+        }
+        return outputPaths;
+    }
+
+    /**
+     * Decrypts the specified file with every shift in a single pass and writes one output file per shift
+     * but shift 0. The source is read and decoded once; every chunk is decrypted into all outputs at the same time.
+     * The outputs replace earlier outputs only once every shift is complete, so a failure leaves the earlier
+     * outputs as they were.
+     *
+     * @param sourceFilePath the path to the source file
+     * @param outputPaths    the output files of shifts 1 and up, as returned by {@link #getAllShiftsOutputPaths}
+     * @param allShiftsTable the compiled decryption with every shift
+     * @param chunkSize      the number of characters per chunk
+     * @return the number of characters written to each output file
+     * @throws IOException          if an I/O error occurs while reading or writing
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public long decryptAllShifts(String sourceFilePath, List<Path> outputPaths, AllShiftsTable allShiftsTable,
+                                 int chunkSize) throws IOException, InvalidPathException {
+        Path path = Paths.get(sourceFilePath);
+        int shifts = allShiftsTable.shifts();
+        long written = 0;
+
+        // The table fills every shift, so shift 0 is decrypted into a buffer that is never written
+        char[] chunk = new char[chunkSize];
+        char[][] outputs = new char[shifts][chunkSize];
+        AtomicFile[] outputFiles = new AtomicFile[outputPaths.size()];
+        Writer[] writers = new Writer[outputPaths.size()];
+        try {
+            for (int i = 0; i < outputFiles.length; i++) {
+                outputFiles[i] = new AtomicFile(outputPaths.get(i));
+            }
+            try (Reader reader = Files.newBufferedReader(path, charset)) {
+                for (int i = 0; i < writers.length; i++) {
+                    writers[i] = Files.newBufferedWriter(outputFiles[i].getTemporaryPath(), charset);
+                }
+                int read;
+                while ((read = reader.read(chunk, 0, chunkSize)) != -1) {
+                    int transformed = allShiftsTable.transform(chunk, 0, read, outputs, 0);
+                    for (int shift = 1; shift < shifts; shift++) {
+                        writers[shift - 1].write(outputs[shift], 0, transformed);
+                    }
+                    written += transformed;
+                }
+            } finally {
+                closeAll(writers);
+            }
+            for (AtomicFile outputFile : outputFiles) {
+                outputFile.commit();
+            }
+        } finally {
+            closeAll(outputFiles);
+        }
+
+        return written;
+    }
+
+    private static void closeAll(Closeable[] closeables) throws IOException {
+        IOException failure = null;
+        for (Closeable closeable : closeables) {
+            if (closeable == null) {
+                continue;
+            }
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Transforms the specified file directly on its UTF-8 bytes and writes the result to the output file.
+     * The input is mapped into memory window by window and the output is collected in a direct buffer,
+     * so the text is never decoded or held on the heap.
+     *
+     * @param sourceFilePath  the path to the source file
+     * @param operationSuffix the operation suffix enum used to generate the output file name
+     * @param utf8ShiftTable  the compiled byte-level shift to apply
+     * @return the number of bytes written and characters transformed
+     * @throws IOException          if an I/O error occurs or the file is not valid UTF-8
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public TransformResult transformFileMapped(String sourceFilePath, OperationSuffix operationSuffix,
+                                               Utf8ShiftTable utf8ShiftTable) throws IOException, InvalidPathException {
+        return transformFileMapped(sourceFilePath, operationSuffix, utf8ShiftTable, false);
+    }
+
+    /**
+     * Transforms the specified file like {@link #transformFileMapped(String, OperationSuffix, Utf8ShiftTable)},
+     * optionally writing a {@link LineIndex} of the output file in the same pass.
+     *
+     * @param sourceFilePath  the path to the source file
+     * @param operationSuffix the operation suffix enum used to generate the output file name
+     * @param utf8ShiftTable  the compiled byte-level shift to apply
+     * @param indexLines      whether to write the line index of the output file
+     * @return the number of bytes written and characters transformed
+     * @throws IOException          if an I/O error occurs or the file is not valid UTF-8
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public TransformResult transformFileMapped(String sourceFilePath, OperationSuffix operationSuffix,
+                                               Utf8ShiftTable utf8ShiftTable, boolean indexLines)
+            throws IOException, InvalidPathException {
+        Path path = Paths.get(sourceFilePath);
+        Path outputPath = UserInputUtils.getValidatedOutputFilePath(sourceFilePath, operationSuffix.getSuffix());
+
+        try (LineIndex.Writer lineIndex = indexLines
+                ? new LineIndex.Writer(outputPath, LineIndex.DEFAULT_CHECKPOINT_INTERVAL) : null) {
+            TransformResult result = transformFileMapped(path, outputPath, utf8ShiftTable, lineIndex);
+            if (lineIndex != null) {
+                lineIndex.commit();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Transforms the input file directly on its UTF-8 bytes and writes the result to the given output file,
+     * replacing it if it exists. Unlike {@link #transformFileMapped(String, OperationSuffix, Utf8ShiftTable)}
+     * the output path is used as is and never validated interactively.
+     *
+     * @param path           the UTF-8 file to transform
+     * @param outputPath     the file receiving the transformed bytes
+     * @param utf8ShiftTable the compiled byte-level shift to apply
+     * @return the number of bytes written and characters transformed
+     * @throws IOException if an I/O error occurs or the file is not valid UTF-8
+     */
+    public TransformResult transformFileMapped(Path path, Path outputPath, Utf8ShiftTable utf8ShiftTable)
+            throws IOException {
+        return transformFileMapped(path, outputPath, utf8ShiftTable, null);
+    }
+
+    private TransformResult transformFileMapped(Path path, Path outputPath, Utf8ShiftTable utf8ShiftTable,
+                                                LineIndex.Writer lineIndex) throws IOException {
+        ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        long written = 0;
+        long characters = 0;
+
+        // A failure part way through leaves the previous output file as it was
+        try (AtomicFile outputFile = new AtomicFile(outputPath);
+             FileChannel inputChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            try (FileChannel outputChannel = FileChannel.open(outputFile.getTemporaryPath(), StandardOpenOption.WRITE)) {
+                long size = inputChannel.size();
+                long position = 0;
+
+                while (position < size) {
+                    long windowSize = Math.min(MAPPED_WINDOW_SIZE, size - position);
+                    MappedByteBuffer window = inputChannel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+
+                    while (true) {
+                        characters += (lineIndex == null)
+                                ? utf8ShiftTable.transform(window, output)
+                                : lineIndex.transform(utf8ShiftTable, window, output);
+                        if (output.remaining() >= Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH) {
+                            break;
+                        }
+                        written += flush(output, outputChannel);
+                    }
+
+                    // A sequence cut by the window end is picked up again at the start of the next window
+                    position += window.position();
+                    if (window.hasRemaining() && position + window.remaining() == size) {
+                        throw new MalformedInputException(window.remaining());
+                    }
+                }
+                written += flush(output, outputChannel);
+            }
+            outputFile.commit();
+        }
+
+        return new TransformResult(written, characters);
+    }
+
+    /**
+     * Transforms a UTF-8 byte stream from one channel to another, for example from standard input
+     * to standard output. Input and output go through fixed-size direct buffers, so nothing is decoded
+     * or held on the heap and memory usage does not depend on the stream length. A sequence cut by
+     * a read is kept in the input buffer until the rest of it arrives.
+     *
+     * @param inputChannel   the channel to read UTF-8 bytes from until end of stream
+     * @param outputChannel  the channel receiving the transformed bytes
+     * @param utf8ShiftTable the compiled byte-level shift to apply
+     * @return the number of bytes written to the output channel and characters transformed
+     * @throws IOException if an I/O error occurs or the stream is not valid UTF-8
+     */
+    public TransformResult transformStream(ReadableByteChannel inputChannel, WritableByteChannel outputChannel,
+                                           Utf8ShiftTable utf8ShiftTable) throws IOException {
+        ByteBuffer input = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        long written = 0;
+        long characters = 0;
+
+        while (inputChannel.read(input) != -1) {
+            input.flip();
+            while (true) {
+                characters += utf8ShiftTable.transform(input, output);
+                if (output.remaining() >= Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH) {
+                    break;
+                }
+                written += flush(output, outputChannel);
+            }
+            input.compact();
+            // Hand complete buffers to the pipe right away instead of waiting for the next read
+            written += flush(output, outputChannel);
+        }
+
+        if (input.position() > 0) {
+            throw new MalformedInputException(input.position());
+        }
+        return new TransformResult(written, characters);
+    }
+
+    /**
+     * Transforms the specified file on its UTF-8 bytes in checkpointed chunks. An interrupted run of the same job
+     * is continued from its last durable chunk, and the output file is replaced atomically when the run completes.
+     *
+     * @param sourceFilePath  the path to the source file
+     * @param operationSuffix the operation suffix enum used to generate the output file name
+     * @param utf8ShiftTable  the compiled byte-level shift to apply
+     * @param jobFingerprint  identifies the transformation, so a checkpoint of another key is not continued
+     * @return the bytes written and characters transformed by this run, and the number of input bytes
+     *         that were already transformed by an earlier run
+     * @throws IOException          if an I/O error occurs or the file is not valid UTF-8
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public TransformResult transformFileResumable(String sourceFilePath, OperationSuffix operationSuffix,
+                                                  Utf8ShiftTable utf8ShiftTable, int jobFingerprint)
+            throws IOException, InvalidPathException {
+        return transformFileResumable(sourceFilePath, operationSuffix, utf8ShiftTable, jobFingerprint, false);
+    }
+
+    /**
+     * Transforms the specified file like {@link #transformFileResumable(String, OperationSuffix, Utf8ShiftTable, int)},
+     * optionally writing a {@link LineIndex} of the output file in the same pass. The index is moved into place
+     * after the output file, so an index is never newer than the output it describes.
+     *
+     * @param sourceFilePath  the path to the source file
+     * @param operationSuffix the operation suffix enum used to generate the output file name
+     * @param utf8ShiftTable  the compiled byte-level shift to apply
+     * @param jobFingerprint  identifies the transformation, so a checkpoint of another key is not continued
+     * @param indexLines      whether to write the line index of the output file
+     * @return the bytes written and characters transformed by this run, and the number of input bytes
+     *         that were already transformed by an earlier run
+     * @throws IOException          if an I/O error occurs or the file is not valid UTF-8
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public TransformResult transformFileResumable(String sourceFilePath, OperationSuffix operationSuffix,
+                                                  Utf8ShiftTable utf8ShiftTable, int jobFingerprint, boolean indexLines)
+            throws IOException, InvalidPathException {
+        Path path = Paths.get(sourceFilePath);
+        Path outputPath = UserInputUtils.getValidatedOutputFilePath(sourceFilePath, operationSuffix.getSuffix());
+
+        try (LineIndex.Writer lineIndex = indexLines
+                ? new LineIndex.Writer(outputPath, LineIndex.DEFAULT_CHECKPOINT_INTERVAL) : null) {
+            TransformResult result = new ResumableFileTransformer().transform(path, outputPath, utf8ShiftTable,
+                    jobFingerprint, lineIndex);
+            if (lineIndex != null) {
+                lineIndex.commit();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Transforms the specified file directly on its UTF-8 bytes using several threads and writes the result
+     * to the output file. The output is byte-identical to {@link #transformFileMapped}.
+     *
+     * @param sourceFilePath  the path to the source file
+     * @param operationSuffix the operation suffix enum used to generate the output file name
+     * @param utf8ShiftTable  the compiled byte-level shift to apply
+     * @param parallelism     the number of worker threads
+     * @return the number of bytes written and characters transformed
+     * @throws IOException          if an I/O error occurs or the file is not valid UTF-8
+     * @throws InvalidPathException if the file path is invalid
+     */
+    public TransformResult transformFileParallel(String sourceFilePath, OperationSuffix operationSuffix,
+                                                 Utf8ShiftTable utf8ShiftTable, int parallelism)
+            throws IOException, InvalidPathException {
+        Path path = Paths.get(sourceFilePath);
+        Path outputPath = UserInputUtils.getValidatedOutputFilePath(sourceFilePath, operationSuffix.getSuffix());
+
+        return new ParallelFileTransformer(parallelism).transform(path, outputPath, utf8ShiftTable);
+    }
+
+    /**
+     * Writes the content of the output buffer to the channel and clears the buffer.
+     *
+     * @param buffer  the buffer to drain
+     * @param channel the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs while writing
+     */
+    private long flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        long written = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return written;
+    }
+
     /**
      * Generates the output file path by appending the suffix from the OperationSuffix enum to the original file name.
      * The suffix is inserted before the file extension, if present.
@@ -72,12 +542,22 @@ public class FileHandler {
      * @return the generated output file path as a string
      */
     public String generateOutputFilePath(String originalFilePath, OperationSuffix operationSuffix) {
+        return generateOutputFilePath(originalFilePath, operationSuffix.getSuffix());
+    }
+
+    /**
+     * Generates the output file path by inserting the suffix before the file extension of the original file name,
+     * or appending it if there is no extension. A file name without a directory gives a file name without one.
+     *
+     * @param originalFilePath the path of the original file
+     * @param suffix           the suffix to add to the file name
+     * @return the generated output file path as a string
+     */
+    public String generateOutputFilePath(String originalFilePath, String suffix) {
         File originalFile = new File(originalFilePath);
         String parentDirectory = originalFile.getParent();
         String originalFileName = originalFile.getName();
 
-        String suffix = operationSuffix.getSuffix();
-
         int extensionIndex = originalFileName.lastIndexOf(".");
         String newFileName;
 
@@ -87,6 +567,6 @@ public class FileHandler {
             newFileName = originalFileName + suffix;
         }
 
-        return parentDirectory + File.separator + newFileName;
+        return (parentDirectory == null) ? newFileName : parentDirectory + File.separator + newFileName;
     }
-}
\ No newline at end of file
+}
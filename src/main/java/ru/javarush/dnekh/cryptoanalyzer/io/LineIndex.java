@@ -0,0 +1,467 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * A sidecar index of an encrypted file that maps plaintext line numbers to ciphertext byte offsets,
+ * so a range of lines can be decrypted without reading the file up to it.
+ * <p>
+ * Encryption drops line breaks, so the ciphertext itself has no lines. A {@link Writer} records the lines
+ * inside the encryption loop: it hands the table one line at a time and notes how many ciphertext bytes every line
+ * became, so the plaintext is read only once. {@link #build} rebuilds the index of an existing ciphertext
+ * by encrypting the plaintext again without writing the output.
+ * <p>
+ * The file {@code <ciphertext>}{@value #INDEX_SUFFIX} holds the byte length of every line as a variable-length
+ * integer, mostly one byte per line, and a sparse checkpoint every {@code checkpointInterval} lines with the absolute
+ * ciphertext offset of that line and the position of its length. Finding a line reads one checkpoint and at most
+ * {@code checkpointInterval - 1} lengths.
+ * <p>
+ * File layout: a header with {@code MAGIC}, {@code VERSION} and the checkpoint interval, the line lengths,
+ * the checkpoints, and a fixed-size trailer with the line count, the stamp of the ciphertext (its size,
+ * modification time and a CRC-32C of its first and last {@value #STAMP_SAMPLE_SIZE} bytes), the checkpoint position
+ * and {@code MAGIC}. An index whose stamp does not match the ciphertext is stale and is refused, so a ciphertext
+ * that was encrypted again or copied without its modification time needs its index rebuilt.
+ * The file is written as an {@link AtomicFile}.
+ */
+public final class LineIndex {
+
+    /**
+     * Suffix of the index file, which is stored next to the ciphertext file.
+     */
+    public static final String INDEX_SUFFIX = ".lines";
+
+    /**
+     * System property enabling the index for file encryption: "true" writes an index next to every encrypted file.
+     */
+    public static final String LINE_INDEX_PROPERTY = "cryptoanalyzer.lineIndex";
+
+    /**
+     * Number of lines between two checkpoints.
+     */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+
+    private static final int MAGIC = 0x4C494458;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 12;
+    private static final int TRAILER_SIZE = 40;
+    private static final int STAMP_SAMPLE_SIZE = 64 * 1024;
+    private static final int LINE_BREAK = '\n';
+    private static final String ERR_MESSAGE_INVALID_INDEX = "NOT A LINE INDEX OR DAMAGED: ";
+    private static final String ERR_MESSAGE_STALE_INDEX = "THE LINE INDEX DOES NOT MATCH THE FILE, REBUILD IT: ";
+    private static final String ERR_MESSAGE_LINE_OUT_OF_RANGE = "LINES %d..%d ARE OUT OF RANGE, THE FILE HAS %d LINES";
+    private static final String ERR_MESSAGE_CHECKPOINT_INTERVAL = "CHECKPOINT INTERVAL MUST BE POSITIVE: ";
+
+    private final Path indexPath;
+    private final int checkpointInterval;
+    private final long lineCount;
+    private final long ciphertextSize;
+    private final long[] checkpointOffsets;
+    private final long[] checkpointPositions;
+
+    private LineIndex(Path indexPath, int checkpointInterval, long lineCount, long ciphertextSize,
+                      long[] checkpointOffsets, long[] checkpointPositions) {
+        this.indexPath = indexPath;
+        this.checkpointInterval = checkpointInterval;
+        this.lineCount = lineCount;
+        this.ciphertextSize = ciphertextSize;
+        this.checkpointOffsets = checkpointOffsets;
+        this.checkpointPositions = checkpointPositions;
+    }
+
+    /**
+     * Checks whether {@value #LINE_INDEX_PROPERTY} asks for an index to be written during file encryption.
+     *
+     * @return true if the property is set to "true"
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(LINE_INDEX_PROPERTY);
+    }
+
+    /**
+     * Returns the path of the index file of a ciphertext file.
+     *
+     * @param ciphertextPath the encrypted file
+     * @return the path of its index file
+     */
+    public static Path indexPathOf(Path ciphertextPath) {
+        return ciphertextPath.resolveSibling(ciphertextPath.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Rebuilds the index of the ciphertext that the plaintext file encrypts to and writes it next to the ciphertext,
+     * replacing an existing index. The plaintext is encrypted again only to count the bytes of every line;
+     * nothing is written to the ciphertext.
+     *
+     * @param plaintextPath      the UTF-8 plaintext file
+     * @param ciphertextPath     the file the plaintext was encrypted into
+     * @param encryption         the byte-level table the plaintext was encrypted with
+     * @param checkpointInterval the number of lines between two checkpoints, must be positive
+     * @return the number of lines
+     * @throws IOException if an I/O error occurs or the plaintext is not valid UTF-8
+     */
+    public static long build(Path plaintextPath, Path ciphertextPath, Utf8ShiftTable encryption, int checkpointInterval)
+            throws IOException {
+        try (FileChannel inputChannel = FileChannel.open(plaintextPath, StandardOpenOption.READ);
+             Writer writer = new Writer(ciphertextPath, checkpointInterval)) {
+            writer.recordLines(inputChannel, inputChannel.size(), encryption);
+            return writer.commit();
+        }
+    }
+
+    /**
+     * Reads the index of a ciphertext file and checks that it belongs to the file in its current state.
+     *
+     * @param ciphertextPath the encrypted file
+     * @return the index
+     * @throws IOException if the index is missing, damaged or was built for another version of the file
+     */
+    public static LineIndex load(Path ciphertextPath) throws IOException {
+        Path indexPath = indexPathOf(ciphertextPath);
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException(ERR_MESSAGE_INVALID_INDEX + indexPath);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            readFully(channel, header, 0);
+            readFully(channel, trailer, size - TRAILER_SIZE);
+            int checkpointInterval = header.getInt(8);
+            long lineCount = trailer.getLong(0);
+            long ciphertextSize = trailer.getLong(8);
+            long ciphertextModified = trailer.getLong(16);
+            int ciphertextSample = trailer.getInt(24);
+            long checkpointsStart = trailer.getLong(28);
+            long checkpointsSize = size - TRAILER_SIZE - checkpointsStart;
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || trailer.getInt(36) != MAGIC
+                    || checkpointInterval < 1 || checkpointsStart < HEADER_SIZE || checkpointsSize < 0
+                    || checkpointsSize != 16 * ((lineCount + checkpointInterval - 1) / checkpointInterval)) {
+                throw new IOException(ERR_MESSAGE_INVALID_INDEX + indexPath);
+            }
+            // The size is the cheapest to compare; the sample catches a file rewritten within the same millisecond
+            if (Files.size(ciphertextPath) != ciphertextSize
+                    || Files.getLastModifiedTime(ciphertextPath).toMillis() != ciphertextModified
+                    || sampleChecksum(ciphertextPath, ciphertextSize) != ciphertextSample) {
+                throw new IOException(ERR_MESSAGE_STALE_INDEX + indexPath);
+            }
+
+            int checkpoints = (int) (checkpointsSize / 16);
+            long[] checkpointOffsets = new long[checkpoints];
+            long[] checkpointPositions = new long[checkpoints];
+            ByteBuffer table = ByteBuffer.allocate((int) checkpointsSize);
+            readFully(channel, table, checkpointsStart);
+            for (int i = 0; i < checkpoints; i++) {
+                checkpointOffsets[i] = table.getLong(16 * i);
+                checkpointPositions[i] = table.getLong(16 * i + 8);
+            }
+            return new LineIndex(indexPath, checkpointInterval, lineCount, ciphertextSize,
+                    checkpointOffsets, checkpointPositions);
+        }
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public long getCiphertextSize() {
+        return ciphertextSize;
+    }
+
+    /**
+     * Reports the ciphertext byte range of every line from {@code firstLine} to {@code lastLine}, in order.
+     * The lengths are read from the checkpoint at or before the first line onwards, so the cost does not depend
+     * on how far into the file the lines are.
+     *
+     * @param firstLine the first line, counted from 0
+     * @param lastLine  the last line, included
+     * @param consumer  receives the start and end offset of every line
+     * @throws IOException              if an I/O error occurs while reading the index or in the consumer
+     * @throws IllegalArgumentException if the lines are not in the file
+     */
+    public void forEachLine(long firstLine, long lastLine, LineConsumer consumer) throws IOException {
+        if (firstLine < 0 || lastLine < firstLine || lastLine >= lineCount) {
+            throw new IllegalArgumentException(String.format(ERR_MESSAGE_LINE_OUT_OF_RANGE, firstLine + 1, lastLine + 1,
+                    lineCount));
+        }
+        int checkpoint = (int) (firstLine / checkpointInterval);
+        long line = (long) checkpoint * checkpointInterval;
+        long offset = checkpointOffsets[checkpoint];
+
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            channel.position(HEADER_SIZE + checkpointPositions[checkpoint]);
+            InputStream lengths = new BufferedInputStream(Channels.newInputStream(channel));
+            for (; line <= lastLine; line++) {
+                long end = offset + readVarLong(lengths);
+                if (line >= firstLine) {
+                    consumer.accept(offset, end);
+                }
+                offset = end;
+            }
+        }
+    }
+
+    /**
+     * Computes a CRC-32C of the first and the last {@value #STAMP_SAMPLE_SIZE} bytes of a file.
+     */
+    private static int sampleChecksum(Path path, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        long headEnd = Math.min(STAMP_SAMPLE_SIZE, size);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate((int) headEnd);
+            readFully(channel, head, 0);
+            crc.update(head.flip());
+            long tailStart = Math.max(headEnd, size - STAMP_SAMPLE_SIZE);
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - tailStart));
+            readFully(channel, tail, tailStart);
+            crc.update(tail.flip());
+        }
+        return (int) crc.getValue();
+    }
+
+    private static int indexOf(ByteBuffer buffer, int value) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned variable-length integer, seven bits per byte with the high bit marking that more follow.
+     *
+     * @return the number of bytes written
+     */
+    private static int writeVarLong(DataOutputStream out, long value) throws IOException {
+        int written = 1;
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+            written++;
+        }
+        out.writeByte((int) value);
+        return written;
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException(ERR_MESSAGE_INVALID_INDEX);
+    }
+
+    /**
+     * Writes the index of a ciphertext file while the ciphertext is written. The header goes out up front and
+     * the line lengths as they come; the checkpoints and the trailer are written by {@link #commit()} once the
+     * ciphertext is complete. An index that is closed without being committed is deleted.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final Path ciphertextPath;
+        private final AtomicFile file;
+        private final DataOutputStream out;
+        private final int checkpointInterval;
+        private long[] checkpointOffsets = new long[16];
+        private long[] checkpointPositions = new long[16];
+        private int checkpoints;
+        private long lines;
+        private long lineStart;
+        private long lineLength;
+        private long lengthsPosition;
+
+        /**
+         * Constructor starts the index of a ciphertext file in a temporary file next to it.
+         *
+         * @param ciphertextPath     the file being encrypted into
+         * @param checkpointInterval the number of lines between two checkpoints, must be positive
+         * @throws IOException if the temporary file cannot be written
+         */
+        public Writer(Path ciphertextPath, int checkpointInterval) throws IOException {
+            if (checkpointInterval < 1) {
+                throw new IllegalArgumentException(ERR_MESSAGE_CHECKPOINT_INTERVAL + checkpointInterval);
+            }
+            this.ciphertextPath = ciphertextPath;
+            this.file = new AtomicFile(indexPathOf(ciphertextPath));
+            this.checkpointInterval = checkpointInterval;
+            try {
+                this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.getTemporaryPath())));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(checkpointInterval);
+            } catch (IOException e) {
+                file.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Transforms bytes like {@link Utf8ShiftTable#transform(ByteBuffer, ByteBuffer)} and records the lines
+         * that end in them. The table is called once per line, with the source limited to the line break,
+         * so the output it produces in between is the length of the line. It returns in the same cases as the table:
+         * when the source is used up, when only an incomplete sequence is left, or when the destination is nearly full.
+         *
+         * @param encryption the byte-level table the file is encrypted with
+         * @param src        the plaintext bytes
+         * @param dst        the buffer receiving the ciphertext bytes
+         * @return the number of characters transformed, line breaks included
+         * @throws IOException if an I/O error occurs while writing the index or a line ends inside a sequence
+         */
+        public int transform(Utf8ShiftTable encryption, ByteBuffer src, ByteBuffer dst) throws IOException {
+            int characters = 0;
+            while (true) {
+                int lineEnd = indexOf(src, LINE_BREAK);
+                int start = dst.position();
+                if (lineEnd < 0) {
+                    characters += encryption.transform(src, dst);
+                    lineLength += dst.position() - start;
+                    return characters;
+                }
+                int limit = src.limit();
+                src.limit(lineEnd);
+                try {
+                    characters += encryption.transform(src, dst);
+                } finally {
+                    src.limit(limit);
+                }
+                lineLength += dst.position() - start;
+                if (src.position() < lineEnd) {
+                    if (dst.remaining() < Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH) {
+                        return characters;
+                    }
+                    // A line break never occurs inside a valid UTF-8 sequence, so a line ends on a sequence border
+                    throw new MalformedInputException(lineEnd - src.position());
+                }
+                // The table drops line breaks, so skipping it leaves the output unchanged
+                src.position(lineEnd + 1);
+                characters++;
+                addLine(lineLength);
+                lineLength = 0;
+            }
+        }
+
+        /**
+         * Records the lines of the input up to {@code end} without writing their ciphertext, for output that was
+         * written earlier, such as the part of the file that an interrupted run already encrypted.
+         *
+         * @param inputChannel the plaintext, read from its start
+         * @param end          where to stop, a sequence border
+         * @param encryption   the byte-level table the file is encrypted with
+         * @throws IOException if an I/O error occurs or the input is not valid UTF-8
+         */
+        public void recordLines(FileChannel inputChannel, long end, Utf8ShiftTable encryption) throws IOException {
+            ByteBuffer input = ByteBuffer.allocateDirect(FileHandler.OUTPUT_BUFFER_SIZE);
+            ByteBuffer scratch = ByteBuffer.allocateDirect(FileHandler.OUTPUT_BUFFER_SIZE);
+            long position = 0;
+            while (position < end) {
+                // The buffer holds the input from the position on, an incomplete sequence first if one was cut
+                input.limit((int) Math.min(input.capacity(), end - position));
+                if (inputChannel.read(input, position + input.position()) < 0) {
+                    throw new EOFException();
+                }
+                input.flip();
+                do {
+                    scratch.clear();
+                    transform(encryption, input, scratch);
+                } while (scratch.remaining() < Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH);
+                if (input.position() == 0) {
+                    throw new MalformedInputException(input.remaining());
+                }
+                position += input.position();
+                input.compact();
+            }
+        }
+
+        /**
+         * Finishes the index once the ciphertext is complete: counts a last line without a line break if it
+         * is not empty, stamps the index with the ciphertext as it is now and moves the index into place.
+         *
+         * @return the number of lines
+         * @throws IOException if an I/O error occurs
+         */
+        public long commit() throws IOException {
+            if (lineLength > 0) {
+                addLine(lineLength);
+                lineLength = 0;
+            }
+            long ciphertextSize = Files.size(ciphertextPath);
+            try (out) {
+                for (int i = 0; i < checkpoints; i++) {
+                    out.writeLong(checkpointOffsets[i]);
+                    out.writeLong(checkpointPositions[i]);
+                }
+                out.writeLong(lines);
+                out.writeLong(ciphertextSize);
+                out.writeLong(Files.getLastModifiedTime(ciphertextPath).toMillis());
+                out.writeInt(sampleChecksum(ciphertextPath, ciphertextSize));
+                out.writeLong(HEADER_SIZE + lengthsPosition);
+                out.writeInt(MAGIC);
+            }
+            file.commit();
+            return lines;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                file.close();
+            }
+        }
+
+        private void addLine(long length) throws IOException {
+            if (lines % checkpointInterval == 0) {
+                if (checkpoints == checkpointOffsets.length) {
+                    checkpointOffsets = Arrays.copyOf(checkpointOffsets, checkpoints * 2);
+                    checkpointPositions = Arrays.copyOf(checkpointPositions, checkpoints * 2);
+                }
+                checkpointOffsets[checkpoints] = lineStart;
+                checkpointPositions[checkpoints] = lengthsPosition;
+                checkpoints++;
+            }
+            lengthsPosition += writeVarLong(out, length);
+            lineStart += length;
+            lines++;
+        }
+    }
+
+    /**
+     * Receives the ciphertext byte range of one line.
+     */
+    @FunctionalInterface
+    public interface LineConsumer {
+        void accept(long start, long end) throws IOException;
+    }
+}
@@ -0,0 +1,181 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class transforms a UTF-8 file on several threads at once.
+ * The input is split into fixed-size segments whose borders are moved to the next UTF-8 sequence start,
+ * every segment is mapped and transformed on a ForkJoin pool into its own direct buffer,
+ * and the buffers are written strictly in input order, so the output is identical to a sequential run.
+ * The number of segments in flight is bounded, which bounds the memory used for output buffers.
+ */
+public class ParallelFileTransformer {
+
+    /**
+     * Number of input bytes transformed by one task.
+     */
+    public static final int SEGMENT_SIZE = 512 * 1024;
+
+    private static final int MAX_SEQUENCE_LENGTH = 4;
+    private static final int SEGMENTS_IN_FLIGHT_PER_THREAD = 2;
+    private static final String ERR_MESSAGE_PARALLELISM = "PARALLELISM MUST BE POSITIVE: ";
+
+    private final int parallelism;
+
+    /**
+     * Constructor initializes the transformer with the number of worker threads to use.
+     *
+     * @param parallelism the number of worker threads, must be positive
+     */
+    public ParallelFileTransformer(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(ERR_MESSAGE_PARALLELISM + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Transforms the input file into the output file, replacing the output if it exists. The output is written
+     * to a temporary file and moved into place when it is complete, so a failure leaves the previous output.
+     *
+     * @param inputPath      the UTF-8 file to transform
+     * @param outputPath     the file receiving the transformed bytes
+     * @param utf8ShiftTable the compiled byte-level shift to apply
+     * @return the number of bytes written and characters transformed
+     * @throws IOException if an I/O error occurs or the input is not valid UTF-8
+     */
+    public TransformResult transform(Path inputPath, Path outputPath, Utf8ShiftTable utf8ShiftTable)
+            throws IOException {
+        int maxInFlight = parallelism * SEGMENTS_IN_FLIGHT_PER_THREAD;
+        Deque<ByteBuffer> freeBuffers = new ArrayDeque<>(maxInFlight);
+        Deque<ForkJoinTask<Segment>> inFlight = new ArrayDeque<>(maxInFlight);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long written = 0;
+        long characters = 0;
+
+        try (AtomicFile outputFile = new AtomicFile(outputPath);
+             FileChannel inputChannel = FileChannel.open(inputPath, StandardOpenOption.READ)) {
+            try (FileChannel outputChannel = FileChannel.open(outputFile.getTemporaryPath(),
+                    StandardOpenOption.WRITE)) {
+                long size = inputChannel.size();
+
+                for (long segmentStart = 0; segmentStart < size; segmentStart += SEGMENT_SIZE) {
+                    if (inFlight.size() == maxInFlight) {
+                        Segment segment = await(inFlight.removeFirst());
+                        written += write(segment.output, outputChannel);
+                        characters += segment.characters;
+                        freeBuffers.addLast(segment.output);
+                    }
+
+                    ByteBuffer output = freeBuffers.isEmpty()
+                            ? ByteBuffer.allocateDirect(
+                                    SEGMENT_SIZE * Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH + MAX_SEQUENCE_LENGTH)
+                            : freeBuffers.removeFirst();
+                    long start = segmentStart;
+                    inFlight.addLast(pool.submit(
+                            () -> transformSegment(inputChannel, size, start, utf8ShiftTable, output)));
+                }
+
+                while (!inFlight.isEmpty()) {
+                    Segment segment = await(inFlight.removeFirst());
+                    written += write(segment.output, outputChannel);
+                    characters += segment.characters;
+                }
+            }
+            // The output channel is closed first, so the complete file is moved into place
+            outputFile.commit();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new TransformResult(written, characters);
+    }
+
+    /**
+     * Transforms one segment of the input. The segment starts at the first sequence start at or after
+     * {@code nominalStart} and ends at the first sequence start at or after {@code nominalStart + SEGMENT_SIZE},
+     * so neighbouring segments agree on their common border without coordinating.
+     */
+    private static Segment transformSegment(FileChannel inputChannel, long size, long nominalStart,
+                                            Utf8ShiftTable utf8ShiftTable, ByteBuffer output) throws IOException {
+        long mappedLength = Math.min(SEGMENT_SIZE + MAX_SEQUENCE_LENGTH, size - nominalStart);
+        MappedByteBuffer segment = inputChannel.map(FileChannel.MapMode.READ_ONLY, nominalStart, mappedLength);
+
+        int start = skipContinuationBytes(segment, 0);
+        int end = (nominalStart + SEGMENT_SIZE >= size)
+                ? (int) mappedLength
+                : skipContinuationBytes(segment, SEGMENT_SIZE);
+
+        output.clear();
+        segment.limit(end).position(start);
+        int characters = utf8ShiftTable.transform(segment, output);
+        if (segment.hasRemaining()) {
+            throw new MalformedInputException(segment.remaining());
+        }
+        output.flip();
+        return new Segment(output, characters);
+    }
+
+    private static int skipContinuationBytes(ByteBuffer buffer, int position) {
+        int limit = Math.min(buffer.limit(), position + MAX_SEQUENCE_LENGTH - 1);
+        while (position < limit && (buffer.get(position) & 0xC0) == 0x80) {
+            position++;
+        }
+        return position;
+    }
+
+    private static Segment await(ForkJoinTask<Segment> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            // The pool wraps an exception a task throws in RuntimeExceptions, so the I/O error is looked up below them
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static long write(ByteBuffer output, FileChannel outputChannel) throws IOException {
+        long written = output.remaining();
+        while (output.hasRemaining()) {
+            outputChannel.write(output);
+        }
+        return written;
+    }
+
+    /**
+     * The transformed bytes of one segment and the number of characters they hold.
+     */
+    private static final class Segment {
+
+        private final ByteBuffer output;
+        private final int characters;
+
+        Segment(ByteBuffer output, int characters) {
+            this.output = output;
+            this.characters = characters;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class transforms parts of a UTF-8 file without reading the rest of it: a byte range, or a range of lines
+ * located with a {@link LineIndex}. The file is memory-mapped in windows of at most
+ * {@link FileHandler#MAPPED_WINDOW_SIZE} bytes around the requested parts, so the cost depends on the size
+ * of the range and not on where it lies in the file.
+ */
+public class RangeTransformer implements AutoCloseable {
+
+    private static final String ERR_MESSAGE_BYTE_RANGE = "BYTES %d..%d ARE OUT OF RANGE, THE FILE HAS %d BYTES";
+    private static final byte LINE_BREAK = '\n';
+
+    private final FileChannel inputChannel;
+    private final long size;
+    private final Utf8ShiftTable utf8ShiftTable;
+    private final WritableByteChannel outputChannel;
+    private final ByteBuffer output = ByteBuffer.allocateDirect(FileHandler.OUTPUT_BUFFER_SIZE);
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long written;
+    private long characters;
+
+    /**
+     * Constructor opens the file whose parts are transformed.
+     *
+     * @param path           the UTF-8 file
+     * @param utf8ShiftTable the compiled byte-level shift to apply
+     * @param outputChannel  the channel receiving the transformed bytes
+     * @throws IOException if the file cannot be opened
+     */
+    public RangeTransformer(Path path, Utf8ShiftTable utf8ShiftTable, WritableByteChannel outputChannel)
+            throws IOException {
+        this.inputChannel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = inputChannel.size();
+        this.utf8ShiftTable = utf8ShiftTable;
+        this.outputChannel = outputChannel;
+    }
+
+    /**
+     * Transforms the lines from {@code firstLine} to {@code lastLine}, writing a line break after each of them.
+     *
+     * @param lineIndex the index of the file
+     * @param firstLine the first line, counted from 0
+     * @param lastLine  the last line, included
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs or a line is not valid UTF-8
+     */
+    public long transformLines(LineIndex lineIndex, long firstLine, long lastLine) throws IOException {
+        long start = written;
+        lineIndex.forEachLine(firstLine, lastLine, (lineStart, lineEnd) -> {
+            transform(lineStart, lineEnd);
+            if (output.remaining() < 1) {
+                flush();
+            }
+            output.put(LINE_BREAK);
+        });
+        flush();
+        return written - start;
+    }
+
+    /**
+     * Transforms the characters in the byte range from {@code from} to {@code to}, both included.
+     * UTF-8 is self-synchronizing, so no index is needed: the range is widened to the whole characters
+     * that its first and last byte belong to.
+     *
+     * @param from the first byte
+     * @param to   the last byte, included
+     * @return the number of bytes written
+     * @throws IOException              if an I/O error occurs or the range is not valid UTF-8
+     * @throws IllegalArgumentException if the range is not in the file
+     */
+    public long transformBytes(long from, long to) throws IOException {
+        if (from < 0 || to < from || to >= size) {
+            throw new IllegalArgumentException(String.format(ERR_MESSAGE_BYTE_RANGE, from, to, size));
+        }
+        long start = written;
+        transform(sequenceStart(from), sequenceEnd(to));
+        flush();
+        return written - start;
+    }
+
+    /**
+     * Returns the number of characters transformed so far, line breaks written after lines not included.
+     *
+     * @return the number of characters transformed by all calls
+     */
+    public long getCharacters() {
+        return characters;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputChannel.close();
+    }
+
+    /**
+     * Transforms the bytes from {@code start} to {@code end}, which must both be sequence borders.
+     */
+    private void transform(long start, long end) throws IOException {
+        long position = start;
+        while (position < end) {
+            // The window has to hold the whole sequence at the position, or the table cannot make progress
+            long windowEnd = windowStart + (window == null ? 0 : window.capacity());
+            if (window == null || position < windowStart
+                    || Math.min(end, position + Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH) > windowEnd) {
+                windowStart = position;
+                window = inputChannel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(FileHandler.MAPPED_WINDOW_SIZE, size - position));
+                windowEnd = windowStart + window.capacity();
+            }
+            window.limit((int) (Math.min(end, windowEnd) - windowStart));
+            window.position((int) (position - windowStart));
+
+            while (true) {
+                characters += utf8ShiftTable.transform(window, output);
+                if (output.remaining() >= Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH) {
+                    break;
+                }
+                flush();
+            }
+            long reached = windowStart + window.position();
+            if (reached == position) {
+                throw new MalformedInputException((int) Math.min(end - position, Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH));
+            }
+            position = reached;
+        }
+    }
+
+    /**
+     * Returns the start of the UTF-8 sequence that the byte at the offset belongs to.
+     */
+    private long sequenceStart(long offset) throws IOException {
+        long position = offset;
+        while (position > 0 && offset - position < Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH - 1
+                && isContinuation(position)) {
+            position--;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the end of the UTF-8 sequence that the byte at the offset belongs to.
+     */
+    private long sequenceEnd(long offset) throws IOException {
+        long position = offset + 1;
+        while (position < size && position - offset < Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH
+                && isContinuation(position)) {
+            position++;
+        }
+        return position;
+    }
+
+    private boolean isContinuation(long position) throws IOException {
+        ByteBuffer single = ByteBuffer.allocate(1);
+        inputChannel.read(single, position);
+        return (single.get(0) & 0xC0) == 0x80;
+    }
+
+    private void flush() throws IOException {
+        output.flip();
+        written += output.remaining();
+        while (output.hasRemaining()) {
+            outputChannel.write(output);
+        }
+        output.clear();
+    }
+}
@@ -0,0 +1,339 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException;
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * This class transforms a UTF-8 file in checkpointed chunks, so a run that dies part way through
+ * can be continued instead of started over.
+ * <p>
+ * The output is written to a {@value #PART_SUFFIX} file next to the output file. After every chunk of about
+ * {@link #CHUNK_SIZE} input bytes the partial output is forced to disk and the checkpoint file is replaced;
+ * it records the input and output offsets where every chunk ends and a CRC-32C of its output.
+ * A rerun of the same job checks the partial output against the checkpoint, starting with the last chunk and
+ * stepping back until a chunk matches, and continues after that chunk. A checkpoint of another input file
+ * (a different size or modification time) or another transformation is discarded. Input that cannot be transformed,
+ * such as an unsupported character or malformed UTF-8, fails every rerun at the same place, so then the partial
+ * output and the checkpoint are deleted.
+ * When the whole input is transformed, the partial file is renamed to the output file in one atomic step,
+ * so readers see either the previous output or the complete new one, never a torn file.
+ */
+public class ResumableFileTransformer {
+
+    /**
+     * Number of input bytes between two checkpoints.
+     */
+    public static final long CHUNK_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Suffix of the partial output file.
+     */
+    public static final String PART_SUFFIX = ".part";
+
+    /**
+     * Suffix of the checkpoint file, which is stored next to the partial output file.
+     */
+    public static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private static final int MAGIC = 0x52465400;
+    private static final int VERSION = 1;
+    private static final String ERR_MESSAGE_CHUNK_SIZE = "CHUNK SIZE MUST BE POSITIVE: ";
+
+    private final long chunkSize;
+
+    /**
+     * Constructor initializes the transformer with the default chunk size.
+     */
+    public ResumableFileTransformer() {
+        this(CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor initializes the transformer with the number of input bytes between two checkpoints.
+     *
+     * @param chunkSize the checkpoint interval in input bytes, must be positive
+     */
+    public ResumableFileTransformer(long chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(ERR_MESSAGE_CHUNK_SIZE + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Transforms the input file into the output file, continuing an interrupted run of the same job.
+     *
+     * @param inputPath      the UTF-8 file to transform
+     * @param outputPath     the file receiving the transformed bytes; replaced when the run completes
+     * @param utf8ShiftTable the compiled byte-level shift to apply
+     * @param jobFingerprint identifies the transformation, so a checkpoint of another key is not continued
+     * @return the bytes written and characters transformed by this run, and the number of input bytes
+     *         that were already transformed by an earlier run
+     * @throws IOException if an I/O error occurs or the input is not valid UTF-8
+     */
+    public TransformResult transform(Path inputPath, Path outputPath, Utf8ShiftTable utf8ShiftTable, int jobFingerprint)
+            throws IOException {
+        return transform(inputPath, outputPath, utf8ShiftTable, jobFingerprint, null);
+    }
+
+    /**
+     * Transforms the input file into the output file like {@link #transform(Path, Path, Utf8ShiftTable, int)}
+     * and records its lines in a line index on the way. The lines of the part that an earlier run transformed
+     * are counted from the input first; the index is not committed.
+     *
+     * @param inputPath      the UTF-8 file to transform
+     * @param outputPath     the file receiving the transformed bytes; replaced when the run completes
+     * @param utf8ShiftTable the compiled byte-level shift to apply
+     * @param jobFingerprint identifies the transformation, so a checkpoint of another key is not continued
+     * @param lineIndex      the index of the output file, or null to write none
+     * @return the bytes written and characters transformed by this run, and the number of input bytes
+     *         that were already transformed by an earlier run
+     * @throws IOException if an I/O error occurs or the input is not valid UTF-8
+     */
+    public TransformResult transform(Path inputPath, Path outputPath, Utf8ShiftTable utf8ShiftTable, int jobFingerprint,
+                                     LineIndex.Writer lineIndex) throws IOException {
+        Path partPath = outputPath.resolveSibling(outputPath.getFileName() + PART_SUFFIX);
+        Path checkpointPath = partPath.resolveSibling(partPath.getFileName() + CHECKPOINT_SUFFIX);
+        TransformResult result;
+
+        try {
+            try (FileChannel inputChannel = FileChannel.open(inputPath, StandardOpenOption.READ);
+                 FileChannel outputChannel = FileChannel.open(partPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                         StandardOpenOption.WRITE)) {
+                long inputSize = inputChannel.size();
+                long inputModified = Files.getLastModifiedTime(inputPath).toMillis();
+
+                Checkpoint checkpoint = Checkpoint.load(checkpointPath);
+                if (checkpoint == null || !checkpoint.matches(inputSize, inputModified, jobFingerprint)) {
+                    checkpoint = new Checkpoint(inputSize, inputModified, jobFingerprint);
+                }
+                checkpoint.dropChunksNotIn(outputChannel);
+                outputChannel.truncate(checkpoint.outputEnd());
+                if (lineIndex != null && checkpoint.inputEnd() > 0) {
+                    lineIndex.recordLines(inputChannel, checkpoint.inputEnd(), utf8ShiftTable);
+                }
+
+                result = transformChunks(inputChannel, outputChannel, utf8ShiftTable, lineIndex, checkpoint,
+                        checkpointPath);
+                outputChannel.force(true);
+            }
+        } catch (InvalidCharacterException | MalformedInputException e) {
+            // A rerun stops at the same character, so there is nothing worth resuming
+            Files.deleteIfExists(partPath);
+            Files.deleteIfExists(checkpointPath);
+            throw e;
+        }
+
+        Files.move(partPath, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(checkpointPath);
+        return result;
+    }
+
+    private TransformResult transformChunks(FileChannel inputChannel, FileChannel outputChannel,
+                                            Utf8ShiftTable utf8ShiftTable, LineIndex.Writer lineIndex,
+                                            Checkpoint checkpoint, Path checkpointPath) throws IOException {
+        ByteBuffer input = ByteBuffer.allocateDirect(FileHandler.OUTPUT_BUFFER_SIZE);
+        ByteBuffer output = ByteBuffer.allocateDirect(FileHandler.OUTPUT_BUFFER_SIZE);
+        CRC32C crc = new CRC32C();
+        long resumedOffset = checkpoint.inputEnd();
+        long resumedOutput = checkpoint.outputEnd();
+        long inputOffset = resumedOffset;
+        long outputOffset = resumedOutput;
+        long chunkStart = inputOffset;
+        long characters = 0;
+        outputChannel.position(outputOffset);
+
+        while (inputChannel.read(input, inputOffset + input.position()) > 0) {
+            input.flip();
+            int start = input.position();
+            while (true) {
+                characters += (lineIndex == null)
+                        ? utf8ShiftTable.transform(input, output)
+                        : lineIndex.transform(utf8ShiftTable, input, output);
+                if (output.remaining() >= Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH) {
+                    break;
+                }
+                outputOffset += flush(output, outputChannel, crc);
+            }
+            inputOffset += input.position() - start;
+            input.compact();
+
+            if (inputOffset - chunkStart >= chunkSize) {
+                outputOffset += flush(output, outputChannel, crc);
+                commitChunk(outputChannel, checkpoint, checkpointPath, inputOffset, outputOffset, crc);
+                chunkStart = inputOffset;
+            }
+        }
+        if (input.position() > 0) {
+            throw new MalformedInputException(input.position());
+        }
+
+        outputOffset += flush(output, outputChannel, crc);
+        if (inputOffset > chunkStart) {
+            commitChunk(outputChannel, checkpoint, checkpointPath, inputOffset, outputOffset, crc);
+        }
+        return new TransformResult(outputOffset - resumedOutput, characters, resumedOffset);
+    }
+
+    /**
+     * Makes a chunk durable: the output is forced to disk before the checkpoint that refers to it is replaced.
+     */
+    private static void commitChunk(FileChannel outputChannel, Checkpoint checkpoint, Path checkpointPath,
+                                    long inputEnd, long outputEnd, CRC32C crc) throws IOException {
+        outputChannel.force(false);
+        checkpoint.addChunk(inputEnd, outputEnd, (int) crc.getValue());
+        checkpoint.save(checkpointPath);
+        crc.reset();
+    }
+
+    private static long flush(ByteBuffer output, FileChannel outputChannel, CRC32C crc) throws IOException {
+        output.flip();
+        crc.update(output.duplicate());
+        long written = output.remaining();
+        while (output.hasRemaining()) {
+            outputChannel.write(output);
+        }
+        output.clear();
+        return written;
+    }
+
+    /**
+     * The progress of one job: the input it belongs to and the end offsets and output checksums of its chunks.
+     */
+    private static final class Checkpoint {
+
+        private final long inputSize;
+        private final long inputModified;
+        private final int jobFingerprint;
+        private final List<Chunk> chunks = new ArrayList<>();
+
+        Checkpoint(long inputSize, long inputModified, int jobFingerprint) {
+            this.inputSize = inputSize;
+            this.inputModified = inputModified;
+            this.jobFingerprint = jobFingerprint;
+        }
+
+        /**
+         * Reads a checkpoint file.
+         *
+         * @return the checkpoint, or null if there is none or it cannot be read
+         */
+        static Checkpoint load(Path checkpointPath) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointPath)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    return null;
+                }
+                Checkpoint checkpoint = new Checkpoint(in.readLong(), in.readLong(), in.readInt());
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    checkpoint.chunks.add(new Chunk(in.readLong(), in.readLong(), in.readInt()));
+                }
+                return checkpoint;
+            } catch (IOException e) {
+                // A missing or damaged checkpoint only means the job starts over
+                return null;
+            }
+        }
+
+        boolean matches(long inputSize, long inputModified, int jobFingerprint) {
+            return this.inputSize == inputSize && this.inputModified == inputModified
+                    && this.jobFingerprint == jobFingerprint;
+        }
+
+        /**
+         * Removes chunks from the end until the last one is fully present in the partial output
+         * with the recorded checksum.
+         */
+        void dropChunksNotIn(FileChannel outputChannel) throws IOException {
+            long outputSize = outputChannel.size();
+            while (!chunks.isEmpty()) {
+                int last = chunks.size() - 1;
+                long outputStart = (last == 0) ? 0 : chunks.get(last - 1).outputEnd;
+                Chunk chunk = chunks.get(last);
+                if (chunk.outputEnd <= outputSize && checksum(outputChannel, outputStart, chunk.outputEnd) == chunk.checksum) {
+                    return;
+                }
+                chunks.remove(last);
+            }
+        }
+
+        void addChunk(long inputEnd, long outputEnd, int checksum) {
+            chunks.add(new Chunk(inputEnd, outputEnd, checksum));
+        }
+
+        long inputEnd() {
+            return chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).inputEnd;
+        }
+
+        long outputEnd() {
+            return chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).outputEnd;
+        }
+
+        /**
+         * Replaces the checkpoint file, so a crash leaves either the previous or the new checkpoint.
+         */
+        void save(Path checkpointPath) throws IOException {
+            AtomicFile.write(checkpointPath, out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(inputSize);
+                out.writeLong(inputModified);
+                out.writeInt(jobFingerprint);
+                out.writeInt(chunks.size());
+                for (Chunk chunk : chunks) {
+                    out.writeLong(chunk.inputEnd);
+                    out.writeLong(chunk.outputEnd);
+                    out.writeInt(chunk.checksum);
+                }
+            });
+        }
+
+        private static int checksum(FileChannel channel, long start, long end) throws IOException {
+            CRC32C crc = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(FileHandler.OUTPUT_BUFFER_SIZE);
+            long position = start;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                buffer.flip();
+                crc.update(buffer);
+                position += read;
+            }
+            return (int) crc.getValue();
+        }
+    }
+
+    /**
+     * The input and output offsets where a chunk ends and the CRC-32C of its output.
+     */
+    private static final class Chunk {
+
+        private final long inputEnd;
+        private final long outputEnd;
+        private final int checksum;
+
+        Chunk(long inputEnd, long outputEnd, int checksum) {
+            this.inputEnd = inputEnd;
+            this.outputEnd = outputEnd;
+            this.checksum = checksum;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+/**
+ * This class holds the outcome of a byte-level transform: how many bytes it wrote, how many characters
+ * it transformed, and for a resumed run how much of the input an earlier run had already transformed.
+ */
+public class TransformResult {
+
+    private final long bytesWritten;
+    private final long characters;
+    private final long resumedOffset;
+
+    /**
+     * Constructor initializes the result of a transform that started at the beginning of its input.
+     *
+     * @param bytesWritten the number of bytes written to the output
+     * @param characters   the number of characters transformed
+     */
+    public TransformResult(long bytesWritten, long characters) {
+        this(bytesWritten, characters, 0);
+    }
+
+    /**
+     * Constructor initializes the result of a transform that may have continued an interrupted run.
+     *
+     * @param bytesWritten  the number of bytes written to the output by this run
+     * @param characters    the number of characters transformed by this run
+     * @param resumedOffset the number of input bytes that were already transformed by an earlier run
+     */
+    public TransformResult(long bytesWritten, long characters, long resumedOffset) {
+        this.bytesWritten = bytesWritten;
+        this.characters = characters;
+        this.resumedOffset = resumedOffset;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getCharacters() {
+        return characters;
+    }
+
+    public long getResumedOffset() {
+        return resumedOffset;
+    }
+}
@@ -0,0 +1,24 @@
+package ru.javarush.dnekh.cryptoanalyzer.metrics;
+
+import ru.javarush.dnekh.cryptoanalyzer.service.OperationSuffix;
+
+/**
+ * Enum representing the operations that are counted and timed by {@link OperationMetrics}.
+ */
+public enum MeteredOperation {
+    ENCRYPT,
+    DECRYPT,
+    KEY_RECOVERY,
+    SEARCH;
+
+    /**
+     * Returns the metered operation of a file operation. Brute force decryption is metered as decryption;
+     * its key search is metered separately as key recovery.
+     *
+     * @param operationSuffix the file operation
+     * @return the metered operation
+     */
+    public static MeteredOperation of(OperationSuffix operationSuffix) {
+        return operationSuffix.isEncryption() ? ENCRYPT : DECRYPT;
+    }
+}
@@ -0,0 +1,223 @@
+package ru.javarush.dnekh.cryptoanalyzer.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative counters and a latency histogram of one operation, exposed over JMX as
+ * {@code ru.javarush.dnekh.cryptoanalyzer:type=OperationMetrics,name=<operation>}.
+ * Recording is a handful of uncontended adder updates per file, so it stays on permanently;
+ * the MBeans are registered on demand with {@link #registerMBeans()}.
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+
+    private static final String OBJECT_NAME = "ru.javarush.dnekh.cryptoanalyzer:type=OperationMetrics,name=";
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    /**
+     * Upper bounds of the latency buckets in milliseconds; the last bucket takes everything above.
+     */
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000,
+            10_000, 30_000, 60_000, Long.MAX_VALUE};
+
+    /**
+     * System property registering the MBeans as soon as metrics are first recorded: "true" makes every command
+     * visible over JMX, including the short-lived ones that do not register by default.
+     */
+    public static final String JMX_PROPERTY = "cryptoanalyzer.jmx";
+
+    private static final Map<MeteredOperation, OperationMetrics> METRICS = new EnumMap<>(MeteredOperation.class);
+
+    static {
+        for (MeteredOperation operation : MeteredOperation.values()) {
+            METRICS.put(operation, new OperationMetrics());
+        }
+        if (Boolean.getBoolean(JMX_PROPERTY)) {
+            registerMBeans();
+        }
+    }
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder bytesProcessed = new LongAdder();
+    private final LongAdder charactersProcessed = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length);
+
+    private OperationMetrics() {
+    }
+
+    /**
+     * Registers the metrics of every operation with the platform MBean server, once. Starting the MBean server
+     * takes longer than a whole short encryption, so only the long-running modes, the interactive menu and
+     * the server, call this; other commands only record in memory unless {@value #JMX_PROPERTY} is set.
+     */
+    public static void registerMBeans() {
+        MBeanRegistration.ensureRegistered();
+    }
+
+    /**
+     * Returns the metrics of the given operation.
+     *
+     * @param operation the operation
+     * @return the metrics of the operation
+     */
+    public static OperationMetrics of(MeteredOperation operation) {
+        return METRICS.get(operation);
+    }
+
+    /**
+     * Records a successful operation.
+     *
+     * @param elapsedNanos the duration of the operation
+     * @param bytes        the number of bytes processed
+     * @param characters   the number of characters processed, 0 if unknown
+     */
+    public void recordSuccess(long elapsedNanos, long bytes, long characters) {
+        count.increment();
+        bytesProcessed.add(bytes);
+        charactersProcessed.add(characters);
+        recordLatency(elapsedNanos);
+    }
+
+    /**
+     * Records a failed operation.
+     *
+     * @param elapsedNanos the time spent before the operation failed
+     */
+    public void recordFailure(long elapsedNanos) {
+        count.increment();
+        failureCount.increment();
+        recordLatency(elapsedNanos);
+    }
+
+    private void recordLatency(long elapsedNanos) {
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulate(elapsedNanos);
+        long elapsedMillis = elapsedNanos / NANOS_PER_MILLI;
+        int bucket = 0;
+        while (elapsedMillis > BUCKET_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    @Override
+    public long getBytesProcessed() {
+        return bytesProcessed.sum();
+    }
+
+    @Override
+    public long getCharactersProcessed() {
+        return charactersProcessed.sum();
+    }
+
+    @Override
+    public long getTotalTimeMillis() {
+        return totalNanos.sum() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMeanLatencyMillis() {
+        long operations = count.sum();
+        return operations == 0 ? 0 : (double) totalNanos.sum() / NANOS_PER_MILLI / operations;
+    }
+
+    @Override
+    public long getMaxLatencyMillis() {
+        return maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getMedianLatencyMillis() {
+        return percentileMillis(0.5);
+    }
+
+    @Override
+    public long getP99LatencyMillis() {
+        return percentileMillis(0.99);
+    }
+
+    private long percentileMillis(double percentile) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                // The open last bucket has no upper bound, so report the maximum instead
+                return i == buckets.length() - 1 ? getMaxLatencyMillis() : BUCKET_BOUNDS_MILLIS[i];
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < buckets.length(); i++) {
+            String label = i == buckets.length() - 1
+                    ? ">" + BUCKET_BOUNDS_MILLIS[i - 1] + "ms"
+                    : "<=" + BUCKET_BOUNDS_MILLIS[i] + "ms";
+            histogram.put(label, buckets.get(i));
+        }
+        return histogram;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        failureCount.reset();
+        bytesProcessed.reset();
+        charactersProcessed.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    /**
+     * Registers the MBeans in its class initializer, which the JVM runs exactly once and only on first use.
+     */
+    private static final class MBeanRegistration {
+
+        static {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (Map.Entry<MeteredOperation, OperationMetrics> entry : METRICS.entrySet()) {
+                try {
+                    server.registerMBean(entry.getValue(),
+                            new ObjectName(OBJECT_NAME + entry.getKey().name().toLowerCase()));
+                } catch (JMException e) {
+                    // The metrics are still recorded, just not visible over JMX
+                }
+            }
+        }
+
+        static void ensureRegistered() {
+            // Calling this method is enough to run the class initializer
+        }
+    }
+}
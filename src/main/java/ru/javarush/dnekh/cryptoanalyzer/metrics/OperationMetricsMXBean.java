@@ -0,0 +1,49 @@
+package ru.javarush.dnekh.cryptoanalyzer.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing the cumulative counters and the latency histogram of one operation.
+ */
+public interface OperationMetricsMXBean {
+
+    long getCount();
+
+    long getFailureCount();
+
+    long getBytesProcessed();
+
+    long getCharactersProcessed();
+
+    long getTotalTimeMillis();
+
+    double getMeanLatencyMillis();
+
+    long getMaxLatencyMillis();
+
+    /**
+     * Returns the upper bound of the histogram bucket containing the median latency.
+     *
+     * @return the approximate median latency in milliseconds
+     */
+    long getMedianLatencyMillis();
+
+    /**
+     * Returns the upper bound of the histogram bucket containing the 99th percentile latency.
+     *
+     * @return the approximate 99th percentile latency in milliseconds
+     */
+    long getP99LatencyMillis();
+
+    /**
+     * Returns the number of operations per latency bucket, keyed by the bucket's upper bound, e.g. {@code <=50ms}.
+     *
+     * @return the latency histogram
+     */
+    Map<String, Long> getLatencyHistogram();
+
+    /**
+     * Clears all counters and the histogram.
+     */
+    void reset();
+}
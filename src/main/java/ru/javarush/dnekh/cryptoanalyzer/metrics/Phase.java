@@ -0,0 +1,37 @@
+package ru.javarush.dnekh.cryptoanalyzer.metrics;
+
+/**
+ * Enum representing the phases of a file operation recorded by {@link PhaseEvent}.
+ */
+public enum Phase {
+    /**
+     * Reading the whole file into memory.
+     */
+    READ,
+
+    /**
+     * Applying the cipher. In the streaming, mapped and parallel modes this phase also covers
+     * reading and writing, because they are interleaved chunk by chunk.
+     */
+    TRANSFORM,
+
+    /**
+     * Writing the whole result to the output file.
+     */
+    WRITE,
+
+    /**
+     * Finding the key of a ciphertext.
+     */
+    KEY_RECOVERY,
+
+    /**
+     * Searching a ciphertext for an encrypted pattern.
+     */
+    SEARCH,
+
+    /**
+     * Building the line index of an encrypted file.
+     */
+    INDEX
+}
@@ -0,0 +1,87 @@
+package ru.javarush.dnekh.cryptoanalyzer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event covering one phase of a file operation.
+ * Usage: {@code PhaseEvent event = PhaseEvent.start(...)}, run the phase, then {@code event.finish(...)}.
+ * When no recording has the event enabled, {@link #shouldCommit()} is false and the fields are never set,
+ * so the cost is a timestamp and a check that the JIT usually removes together with the allocation.
+ */
+@Name("ru.javarush.dnekh.cryptoanalyzer.Phase")
+@Label("File Operation Phase")
+@Category("CryptoAnalyzer")
+@Description("Reading, transforming or writing a file, or recovering its key")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Phase")
+    private String phase;
+
+    @Label("Path")
+    private String path;
+
+    @Label("File Size")
+    @DataAmount
+    private long fileSize;
+
+    @Label("Characters")
+    @Description("Number of characters processed, 0 if the phase does not decode them, such as key recovery or search")
+    private long characters;
+
+    @Label("Throughput")
+    @DataAmount
+    @Frequency
+    private long bytesPerSecond;
+
+    private long startNanos;
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param phase     the phase being timed
+     * @param operation the operation the phase belongs to
+     * @param path      the file being processed
+     * @return the started event
+     */
+    public static PhaseEvent start(Phase phase, MeteredOperation operation, String path) {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        if (event.isEnabled()) {
+            event.phase = phase.name();
+            event.operation = operation.name();
+            event.path = path;
+            event.startNanos = System.nanoTime();
+        }
+        return event;
+    }
+
+    /**
+     * Ends the phase and commits the event if a recording wants it.
+     *
+     * @param fileSize   the size of the processed file in bytes
+     * @param characters the number of characters processed, 0 if unknown
+     */
+    public void finish(long fileSize, long characters) {
+        end();
+        if (shouldCommit()) {
+            long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+            this.fileSize = fileSize;
+            this.characters = characters;
+            this.bytesPerSecond = (long) (fileSize * NANOS_PER_SECOND / elapsedNanos);
+            commit();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException;
+
+/**
+ * A compiled decryption with every shift at once, for producing all candidate plaintexts of a ciphertext
+ * in a single pass. Every input character is looked up once to find its alphabet index; the transposed table
+ * row of that index then holds its decryption under every shift, {@code row[shift]}, and is copied to all outputs.
+ * Line breaks are dropped and characters outside the alphabet are rejected or passed through, as in
+ * {@link ShiftTable}, so all outputs have the same length. Output {@code shift} equals decrypting with that shift.
+ */
+public final class AllShiftsTable {
+
+    private static final int SKIPPED = -2;
+    private static final int NOT_SUPPORTED = -1;
+
+    private final Alphabet alphabet;
+    private final ShiftTable identity;
+    private final int[] indexTable;
+    private final char[][] shiftedByIndex;
+
+    /**
+     * Constructor compiles the lookup from characters to alphabet positions and the transposed table
+     * of every alphabet position under every shift.
+     *
+     * @param alphabet the alphabet the ciphertext was produced with
+     */
+    public AllShiftsTable(Alphabet alphabet) {
+        this.alphabet = alphabet;
+        this.identity = ShiftTable.forKey(alphabet, 0);
+
+        int limit = 0;
+        for (int i = 0; i < alphabet.size(); i++) {
+            char c = alphabet.charAt(i);
+            limit = Math.max(limit, Math.min(Math.max(c, Character.toUpperCase(c)), Alphabet.DENSE_LIMIT - 1));
+        }
+        this.indexTable = new int[limit + 1];
+        for (int c = 0; c < indexTable.length; c++) {
+            indexTable[c] = indexOf((char) c);
+        }
+
+        int size = alphabet.size();
+        this.shiftedByIndex = new char[size][size];
+        for (int index = 0; index < size; index++) {
+            for (int shift = 0; shift < size; shift++) {
+                shiftedByIndex[index][shift] = alphabet.charAt(Math.floorMod(index - shift, size));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of outputs, one per shift.
+     *
+     * @return the alphabet size
+     */
+    public int shifts() {
+        return shiftedByIndex.length;
+    }
+
+    /**
+     * Decrypts characters from the source array with every shift, writing the result of shift {@code s}
+     * into {@code dst[s]}. Line breaks are dropped, so the number of characters written may be smaller
+     * than {@code length}; it is the same for every shift.
+     *
+     * @param src       the source characters
+     * @param srcOffset the first source position
+     * @param length    the number of source characters
+     * @param dst       one destination array per shift, each with room for {@code length} characters
+     * @param dstOffset the first destination position
+     * @return the number of characters written to every destination
+     * @throws InvalidCharacterException if a character is not present in the alphabet
+     */
+    public int transform(char[] src, int srcOffset, int length, char[][] dst, int dstOffset)
+            throws InvalidCharacterException {
+        int[] indexTable = this.indexTable;
+        int shifts = dst.length;
+        int out = dstOffset;
+        int end = srcOffset + length;
+
+        for (int i = srcOffset; i < end; i++) {
+            char c = src[i];
+            int index = c < indexTable.length ? indexTable[c] : indexOf(c);
+            if (index >= 0) {
+                char[] row = shiftedByIndex[index];
+                for (int shift = 0; shift < shifts; shift++) {
+                    dst[shift][out] = row[shift];
+                }
+            } else if (index == NOT_SUPPORTED) {
+                char passed = identity.passThrough(c);
+                for (int shift = 0; shift < shifts; shift++) {
+                    dst[shift][out] = passed;
+                }
+            } else {
+                continue;
+            }
+            out++;
+        }
+
+        return out - dstOffset;
+    }
+
+    /**
+     * Decrypts a whole character sequence with every shift.
+     *
+     * @param text the text to decrypt
+     * @return the decryption with every shift, indexed by shift
+     * @throws InvalidCharacterException if a character is not present in the alphabet
+     */
+    public String[] transform(CharSequence text) throws InvalidCharacterException {
+        char[] chars = text.toString().toCharArray();
+        char[][] results = new char[shifts()][chars.length];
+        int written = transform(chars, 0, chars.length, results, 0);
+
+        String[] texts = new String[results.length];
+        for (int shift = 0; shift < results.length; shift++) {
+            texts[shift] = new String(results[shift], 0, written);
+        }
+        return texts;
+    }
+
+    private int indexOf(char c) {
+        if (c == '\n' || c == '\r') {
+            return SKIPPED;
+        }
+        int index = alphabet.indexOf(Character.toLowerCase(c));
+        return index >= 0 ? index : NOT_SUPPORTED;
+    }
+}
@@ -1,14 +1,58 @@
 package ru.javarush.dnekh.cryptoanalyzer.model;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * This class represents an alphabet used for Caesar cipher encryption and decryption.
  * It provides methods to get the alphabet and to check if a character is part of the alphabet.
+ * Character lookups go through a dense primitive table for the Latin and Cyrillic range and through
+ * a perfect hash for the few characters above it, so they are O(1) and never box or scan the alphabet.
+ * <p>
+ * The built-in alphabet can be replaced by a UTF-8 properties file named by the
+ * {@value #ALPHABET_FILE_PROPERTY} system property, for example:
+ * <pre>
+ * name = ukrainian
+ * # Letter groups in order; in case-preserving mode the capitals of each group rotate among themselves
+ * letters.1 = абвгґдеєжзиіїйклмнопрстуфхцчшщьюя
+ * letters.2 = abcdefghijklmnopqrstuvwxyz
+ * # All other characters in order
+ * symbols = 1234567890.,«»“”—\t"':;!? -*()=+№_[]{}\\&lt;&gt;
+ * # REJECT (default) or PASS_THROUGH
+ * unsupportedCharacters = PASS_THROUGH
+ * </pre>
  */
 public class Alphabet {
 
+    /**
+     * System property naming the alphabet configuration file.
+     */
+    public static final String ALPHABET_FILE_PROPERTY = "cryptoanalyzer.alphabet";
+
+    /**
+     * System property overriding the unsupported character policy of the alphabet.
+     */
+    public static final String UNSUPPORTED_CHARACTERS_PROPERTY = "cryptoanalyzer.unsupportedCharacters";
+
+    /**
+     * Characters below this limit are looked up in dense tables. The range covers ASCII, Latin and Cyrillic,
+     * which are exactly the characters encoded with one or two UTF-8 bytes.
+     */
+    public static final int DENSE_LIMIT = 0x800;
+
+    private static final String DEFAULT_NAME = "default";
+
     private static final String RUS_ALPHABET =
             "абвгдеёжзийклмнопрстуфхцчшщъыьэюя";
 
@@ -20,19 +64,202 @@ public class Alphabet {
     private static final String SYMBOLS =
             ".,«»\"':;!? -*()=+№_[]{}\\<>";
 
-    private static final String ALPHABET = RUS_ALPHABET + ENG_ALPHABET + NUMBERS + SYMBOLS;
+    private static final String NAME_KEY = "name";
+    private static final String LETTERS_KEY_PREFIX = "letters.";
+    private static final String SYMBOLS_KEY = "symbols";
+    private static final String UNSUPPORTED_CHARACTERS_KEY = "unsupportedCharacters";
+
+    private static final String ERR_MESSAGE_DUPLICATE = "DUPLICATE CHARACTER IN ALPHABET: ";
+    private static final String ERR_MESSAGE_RESERVED = "CHARACTER CANNOT BE PART OF AN ALPHABET: U+%04X";
+    private static final String ERR_MESSAGE_TOO_SMALL = "AN ALPHABET NEEDS AT LEAST TWO CHARACTERS";
+    private static final String ERR_MESSAGE_INVALID_LETTERS_KEY = "INVALID LETTER GROUP KEY: ";
 
-    private final Set<Character> alphabetSet;
+    private static final int NOT_IN_ALPHABET = -1;
+
+    private final String name;
+    private final List<String> letterGroups;
+    private final String symbols;
+    private final UnsupportedCharacterPolicy unsupportedCharacterPolicy;
+    private final char[] alphabetChars;
+    private final int[] charIndexTable;
+    private final PerfectHashCharMap highCharIndex;
+    private final char[][] upperCaseRings;
 
     /**
-     * Constructor initializes the set of alphabet characters.
+     * Constructor initializes the built-in alphabet.
      * The alphabet includes Cyrillic characters, English characters, and specific punctuation marks.
      */
     public Alphabet() {
-        this.alphabetSet = new HashSet<>();
-        for (char ch : ALPHABET.toCharArray()) {
-            alphabetSet.add(ch);
+        this(DEFAULT_NAME, List.of(RUS_ALPHABET, ENG_ALPHABET), NUMBERS + SYMBOLS, UnsupportedCharacterPolicy.REJECT);
+    }
+
+    /**
+     * Constructor compiles an alphabet from its letter groups and other characters.
+     * The alphabet is the letter groups in order followed by the other characters.
+     *
+     * @param name                       the name of the alphabet
+     * @param letterGroups               the lower-case letters of each script, in order
+     * @param symbols                    all other characters, in order
+     * @param unsupportedCharacterPolicy what to do with characters outside the alphabet
+     * @throws IllegalArgumentException if a character repeats, is a line break, a surrogate or a noncharacter,
+     *                                  or the alphabet has fewer than two characters
+     */
+    public Alphabet(String name, List<String> letterGroups, String symbols,
+                    UnsupportedCharacterPolicy unsupportedCharacterPolicy) {
+        this.name = name;
+        this.letterGroups = List.copyOf(letterGroups);
+        this.symbols = symbols;
+        this.unsupportedCharacterPolicy = unsupportedCharacterPolicy;
+        this.alphabetChars = (String.join("", letterGroups) + symbols).toCharArray();
+        if (alphabetChars.length < 2) {
+            throw new IllegalArgumentException(ERR_MESSAGE_TOO_SMALL);
+        }
+
+        Set<Character> seen = new HashSet<>();
+        char maxDenseChar = 0;
+        int highCount = 0;
+        for (char ch : alphabetChars) {
+            if (ch == '\n' || ch == '\r' || Character.isSurrogate(ch) || ch >= ShiftTable.SKIPPED) {
+                throw new IllegalArgumentException(String.format(ERR_MESSAGE_RESERVED, (int) ch));
+            }
+            if (!seen.add(ch)) {
+                throw new IllegalArgumentException(ERR_MESSAGE_DUPLICATE + ch);
+            }
+            if (ch < DENSE_LIMIT) {
+                maxDenseChar = (char) Math.max(maxDenseChar, ch);
+            } else {
+                highCount++;
+            }
+        }
+
+        this.charIndexTable = new int[maxDenseChar + 1];
+        Arrays.fill(charIndexTable, NOT_IN_ALPHABET);
+        char[] highKeys = new char[highCount];
+        char[] highIndices = new char[highCount];
+        int high = 0;
+        for (int i = 0; i < alphabetChars.length; i++) {
+            char ch = alphabetChars[i];
+            if (ch < DENSE_LIMIT) {
+                charIndexTable[ch] = i;
+            } else {
+                highKeys[high] = ch;
+                highIndices[high++] = (char) i;
+            }
+        }
+        this.highCharIndex = PerfectHashCharMap.of(highKeys, highIndices);
+
+        // A group without upper-case forms, such as digits, has no ring to rotate
+        List<char[]> rings = new ArrayList<>(letterGroups.size());
+        for (String letters : letterGroups) {
+            char[] ring = upperCaseRing(letters);
+            if (ring.length > 0) {
+                rings.add(ring);
+            }
+        }
+        this.upperCaseRings = rings.toArray(new char[0][]);
+    }
+
+    /**
+     * Returns the alphabet selected by the system properties: the file named by {@value #ALPHABET_FILE_PROPERTY},
+     * or the built-in alphabet if the property is not set. The policy is overridden by
+     * {@value #UNSUPPORTED_CHARACTERS_PROPERTY} if that property is set.
+     *
+     * @return the configured alphabet
+     * @throws IllegalStateException if the configuration file cannot be read or is invalid
+     */
+    public static Alphabet fromConfiguration() {
+        String file = System.getProperty(ALPHABET_FILE_PROPERTY);
+        String policy = System.getProperty(UNSUPPORTED_CHARACTERS_PROPERTY);
+        Alphabet alphabet;
+        try {
+            alphabet = (file == null) ? new Alphabet() : load(Paths.get(file));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException(ALPHABET_FILE_PROPERTY + ": " + e.getMessage(), e);
+        }
+        try {
+            return (policy == null)
+                    ? alphabet
+                    : alphabet.withUnsupportedCharacterPolicy(UnsupportedCharacterPolicy.fromString(policy));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(UNSUPPORTED_CHARACTERS_PROPERTY + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads an alphabet from a UTF-8 properties file. Letter groups are read from the keys
+     * {@code letters.1}, {@code letters.2} and so on in numeric order; see the class description for the format.
+     *
+     * @param path the properties file
+     * @return the compiled alphabet
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the alphabet is invalid
+     */
+    public static Alphabet load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        TreeMap<Integer, String> letterGroups = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(LETTERS_KEY_PREFIX)) {
+                try {
+                    letterGroups.put(Integer.parseInt(key.substring(LETTERS_KEY_PREFIX.length())), properties.getProperty(key));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(ERR_MESSAGE_INVALID_LETTERS_KEY + key);
+                }
+            }
+        }
+
+        return new Alphabet(properties.getProperty(NAME_KEY, path.getFileName().toString()),
+                new ArrayList<>(letterGroups.values()),
+                properties.getProperty(SYMBOLS_KEY, ""),
+                UnsupportedCharacterPolicy.fromString(
+                        properties.getProperty(UNSUPPORTED_CHARACTERS_KEY, UnsupportedCharacterPolicy.REJECT.name())));
+    }
+
+    /**
+     * Returns this alphabet with another unsupported character policy.
+     *
+     * @param policy the policy
+     * @return an alphabet with the same characters and the given policy
+     */
+    public Alphabet withUnsupportedCharacterPolicy(UnsupportedCharacterPolicy policy) {
+        return policy == unsupportedCharacterPolicy ? this : new Alphabet(name, letterGroups, symbols, policy);
+    }
+
+    /**
+     * Builds the upper-case ring of a letter group. Letters without a separate upper-case form,
+     * or whose upper-case form is itself part of the alphabet, are left out of the ring.
+     */
+    private char[] upperCaseRing(String letters) {
+        StringBuilder ring = new StringBuilder(letters.length());
+        for (int i = 0; i < letters.length(); i++) {
+            char letter = letters.charAt(i);
+            char upper = Character.toUpperCase(letter);
+            if (upper != letter && !isCharInAlphabet(upper)) {
+                ring.append(upper);
+            }
         }
+        return ring.toString().toCharArray();
+    }
+
+    /**
+     * Returns the name of the alphabet.
+     *
+     * @return the configured name, or "default" for the built-in alphabet
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns what is done with characters outside the alphabet.
+     *
+     * @return the unsupported character policy
+     */
+    public UnsupportedCharacterPolicy getUnsupportedCharacterPolicy() {
+        return unsupportedCharacterPolicy;
     }
 
     /**
@@ -42,7 +269,58 @@ public class Alphabet {
      * @return a copy of the alphabet as a character array
      */
     public char[] getAlphabet() {
-        return ALPHABET.toCharArray();
+        return alphabetChars.clone();
+    }
+
+    /**
+     * Returns the number of characters in the alphabet.
+     *
+     * @return the alphabet size
+     */
+    public int size() {
+        return alphabetChars.length;
+    }
+
+    /**
+     * Returns the character at the given alphabet position.
+     *
+     * @param index the position in the alphabet
+     * @return the character at that position
+     */
+    public char charAt(int index) {
+        return alphabetChars[index];
+    }
+
+    /**
+     * Returns the position of a character in the alphabet.
+     *
+     * @param c the character to look up
+     * @return the index of the character, or -1 if it is not part of the alphabet
+     */
+    public int indexOf(char c) {
+        if (c < charIndexTable.length) {
+            return charIndexTable[c];
+        }
+        if (c < DENSE_LIMIT) {
+            return NOT_IN_ALPHABET;
+        }
+        char index = highCharIndex.get(c);
+        return index == PerfectHashCharMap.MISSING ? NOT_IN_ALPHABET : index;
+    }
+
+    /**
+     * Returns the upper-case letters of each script in alphabet order, for example the 33 Cyrillic
+     * and the 26 Latin capitals. In case-preserving mode every ring is rotated on its own.
+     * Letter groups without any upper-case forms have no ring.
+     *
+     * @return a copy of the upper-case rings
+     */
+    public char[][] getUpperCaseRings() {
+        char[][] rings = new char[upperCaseRings.length][];
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = upperCaseRings[i].clone();
+        }
+        return rings;
     }
 
     /**
@@ -52,6 +330,6 @@ public class Alphabet {
      * @return true if the character is in the alphabet, false otherwise
      */
     public boolean isCharInAlphabet(char c) {
-        return alphabetSet.contains(c);
+        return indexOf(c) != NOT_IN_ALPHABET;
     }
 }
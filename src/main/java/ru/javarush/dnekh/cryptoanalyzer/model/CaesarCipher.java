@@ -2,31 +2,71 @@ package ru.javarush.dnekh.cryptoanalyzer.model;
 
 import ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException;
 
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class provides methods for encrypting, decrypting, and brute force decryption of text using the Caesar cipher.
  * It works with both the given shift key for encryption/decryption and the brute force method without a key.
+ * <p>
+ * The same table kernel also runs the Vigenère cipher, as one precomputed shift table per keyword letter,
+ * and the affine cipher, as a single precomputed permutation table.
  */
 public class CaesarCipher {
 
+    /**
+     * Number of characters decrypted at a time while building the preview of a brute force candidate.
+     */
+    static final int PREVIEW_WINDOW_LENGTH = 128;
+
     private final Alphabet alphabet;
+    private final ShiftTable[] shiftTables;
+    private final Utf8ShiftTable[] utf8ShiftTables;
+    private final int casePreservingKeyPeriod;
+    private final Map<Integer, ShiftTable> casePreservingShiftTables;
+    private final Map<Integer, Utf8ShiftTable> casePreservingUtf8ShiftTables;
+    private final Map<String, ShiftTable> affineTables;
+    private final Map<String, Utf8ShiftTable> utf8AffineTables;
+    private volatile AllShiftsTable allShiftsTable;
 
-    private static final String ERR_MESSAGE_CHARACTER_NOT_SUPPORTED = " IS NOT SUPPORTED";
     private static final String UNSUCCESSFUL_BRUTE_FORCE_RESULT_MESSAGE = "BRUTE FORCE DECRYPTION COMPLETED. NO CORRECT DECRYPTION FOUND.";
     private static final String BRUTE_FORCE_STARTING_MESSAGE = "Starting Brute Force Decryption...";
     private static final String IS_CORRECT_QUESTION_MESSAGE = "Is this correct? (yes/no): ";
+    private static final int PREVIEW_LENGTH = 100;
+    private static final String ERR_MESSAGE_EMPTY_KEYWORD = "THE KEYWORD MUST NOT BE EMPTY";
+    private static final String ERR_MESSAGE_KEYWORD_CHARACTER = "THE KEYWORD MAY ONLY CONTAIN CHARACTERS OF THE ALPHABET: ";
 
     /**
-     * Constructor initializes the CaesarCipher with a given Alphabet instance.
+     * Constructor initializes the CaesarCipher with the configured alphabet.
+     *
+     * @throws IllegalStateException if the configured alphabet cannot be loaded
+     * @see Alphabet#fromConfiguration()
      */
     public CaesarCipher() {
-        this.alphabet = new Alphabet();
+        this(Alphabet.fromConfiguration());
+    }
+
+    /**
+     * Constructor initializes the CaesarCipher with a given Alphabet instance.
+     *
+     * @param alphabet the alphabet to shift through
+     */
+    public CaesarCipher(Alphabet alphabet) {
+        this.alphabet = alphabet;
+        this.shiftTables = new ShiftTable[alphabet.size()];
+        this.utf8ShiftTables = new Utf8ShiftTable[alphabet.size()];
+        this.casePreservingKeyPeriod = casePreservingKeyPeriod(alphabet);
+        this.casePreservingShiftTables = new ConcurrentHashMap<>();
+        this.casePreservingUtf8ShiftTables = new ConcurrentHashMap<>();
+        this.affineTables = new ConcurrentHashMap<>();
+        this.utf8AffineTables = new ConcurrentHashMap<>();
     }
 
     /**
      * Encrypts a given text using the Caesar cipher with the specified key.
      * Converts the text to lowercase and shifts each character according to the provided key.
+     * Line breaks are dropped from the result.
      *
      * @param text the text to encrypt
      * @param key  the encryption key (shift value)
@@ -34,27 +74,22 @@ public class CaesarCipher {
      * @throws InvalidCharacterException if the text contains a character not present in the alphabet
      */
     public String encrypt(String text, int key) throws InvalidCharacterException {
-        StringBuilder encryptedText = new StringBuilder();
-        char[] alphabetArray = alphabet.getAlphabet();
-        int alphabetSize = alphabetArray.length;
-
-        for (char c : text.toLowerCase().toCharArray()) {
-            if (c == '\n') {
-                continue;
-            }
-            if (alphabet.isCharInAlphabet(c)) {
-                int originalIndex = findCharIndex(c, alphabetArray);
-                int newIndex = (originalIndex + key) % alphabetSize;
-                if (newIndex < 0) {
-                    newIndex += alphabetSize;
-                }
-                encryptedText.append(alphabetArray[newIndex]);
-            } else {
-                throw new InvalidCharacterException(c + ERR_MESSAGE_CHARACTER_NOT_SUPPORTED);
-            }
-        }
+        return getShiftTable(key).transform(text);
+    }
 
-        return encryptedText.toString();
+    /**
+     * Encrypts a given text using the Caesar cipher with the specified key, optionally preserving letter case.
+     * In case-preserving mode upper-case letters are shifted within their own script's upper-case letters,
+     * so {@link #decrypt(String, int, boolean)} restores the original capitalization exactly.
+     *
+     * @param text         the text to encrypt
+     * @param key          the encryption key (shift value)
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the encrypted text
+     * @throws InvalidCharacterException if the text contains a character not present in the alphabet
+     */
+    public String encrypt(String text, int key, boolean preserveCase) throws InvalidCharacterException {
+        return getShiftTable(key, preserveCase).transform(text);
     }
 
     /**
@@ -70,6 +105,19 @@ public class CaesarCipher {
         return encrypt(text, -key);
     }
 
+    /**
+     * Decrypts a given text using the Caesar cipher with the specified key, optionally preserving letter case.
+     *
+     * @param text         the text to decrypt
+     * @param key          the decryption key (shift value)
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the decrypted text
+     * @throws InvalidCharacterException if the text contains a character not present in the alphabet
+     */
+    public String decrypt(String text, int key, boolean preserveCase) throws InvalidCharacterException {
+        return encrypt(text, -key, preserveCase);
+    }
+
     /**
      * Performs brute force decryption by trying all possible shifts and returns the confirmed shift value.
      * The user is prompted to confirm if the decryption is correct after each shift attempt.
@@ -78,21 +126,32 @@ public class CaesarCipher {
      * @return the confirmed shift value if the user confirms the decryption, or -1 if no confirmation is given
      */
     public int bruteForceDecryptAndGetShift(String text) {
+        int[] shifts = new int[alphabet.size() - 1];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = i + 1;
+        }
+        return bruteForceDecryptAndGetShift(text, shifts);
+    }
+
+    /**
+     * Performs brute force decryption by offering the given shifts in order and returns the confirmed shift value.
+     * Only the preview shown for a shift is decrypted: the text is transformed window by window until the first
+     * sentence or {@value #PREVIEW_LENGTH} characters are complete, so the cost per candidate does not depend
+     * on the text length.
+     *
+     * @param text   the text to decrypt using brute force, usually the head of a file
+     * @param shifts the candidate shift values, best first
+     * @return the confirmed shift value if the user confirms the decryption, or -1 if no confirmation is given
+     */
+    public int bruteForceDecryptAndGetShift(CharSequence text, int[] shifts) {
         Scanner scanner = new Scanner(System.in);
-        char[] alphabetArray = alphabet.getAlphabet();
-        int alphabetSize = alphabetArray.length;
+        char[] window = new char[PREVIEW_WINDOW_LENGTH];
 
         System.out.println();
         System.out.println(BRUTE_FORCE_STARTING_MESSAGE);
 
-        for (int shift = 1; shift < alphabetSize; shift++) {
-            String decryptedText = decrypt(text, shift);
-
-            // Extract the first sentence up to 100 characters or until a punctuation mark
-            String firstSentence = decryptedText.split("[.!?]", 2)[0];
-            if (firstSentence.length() > 100) {
-                firstSentence = firstSentence.substring(0, 100);
-            }
+        for (int shift : shifts) {
+            String firstSentence = preview(text, getShiftTable(-shift), window);
 
             System.out.println("Shift " + shift + ": " + firstSentence);
             System.out.print(IS_CORRECT_QUESTION_MESSAGE);
@@ -109,18 +168,266 @@ public class CaesarCipher {
     }
 
     /**
-     * Finds the index of a character in the alphabet array.
+     * Decrypts the beginning of the text up to the first punctuation mark that ends a sentence,
+     * at most {@value #PREVIEW_LENGTH} characters.
+     */
+    private static String preview(CharSequence text, ShiftTable shiftTable, char[] window) {
+        StringBuilder preview = new StringBuilder(PREVIEW_LENGTH);
+        int length = text.length();
+        for (int from = 0; from < length && preview.length() < PREVIEW_LENGTH; from += window.length) {
+            int to = Math.min(length, from + window.length);
+            for (int i = from; i < to; i++) {
+                window[i - from] = text.charAt(i);
+            }
+            int written = shiftTable.transform(window, 0, to - from);
+            for (int i = 0; i < written && preview.length() < PREVIEW_LENGTH; i++) {
+                char c = window[i];
+                if (c == '.' || c == '!' || c == '?') {
+                    return preview.toString();
+                }
+                preview.append(c);
+            }
+        }
+        return preview.toString();
+    }
+
+    /**
+     * Returns the compiled shift table for the given key.
+     * Tables are built once per normalized key and reused for every subsequent call.
+     *
+     * @param key the shift value, may be negative or larger than the alphabet
+     * @return the shift table for the key
+     */
+    public ShiftTable getShiftTable(int key) {
+        int normalizedKey = Math.floorMod(key, shiftTables.length);
+        ShiftTable shiftTable = shiftTables[normalizedKey];
+        if (shiftTable == null) {
+            shiftTable = ShiftTable.forKey(alphabet, normalizedKey);
+            shiftTables[normalizedKey] = shiftTable;
+        }
+        return shiftTable;
+    }
+
+    /**
+     * Returns the compiled byte-level shift table for the given key.
+     * Tables are built once per normalized key and reused for every subsequent call.
      *
-     * @param c             the character to find
-     * @param alphabetArray the alphabet array
-     * @return the index of the character, or -1 if not found
+     * @param key the shift value, may be negative or larger than the alphabet
+     * @return the UTF-8 shift table for the key
      */
-    private int findCharIndex(char c, char[] alphabetArray) {
-        for (int i = 0; i < alphabetArray.length; i++) {
-            if (alphabetArray[i] == c) {
-                return i;
+    public Utf8ShiftTable getUtf8ShiftTable(int key) {
+        int normalizedKey = Math.floorMod(key, utf8ShiftTables.length);
+        Utf8ShiftTable utf8ShiftTable = utf8ShiftTables[normalizedKey];
+        if (utf8ShiftTable == null) {
+            utf8ShiftTable = Utf8ShiftTable.of(getShiftTable(normalizedKey));
+            utf8ShiftTables[normalizedKey] = utf8ShiftTable;
+        }
+        return utf8ShiftTable;
+    }
+
+    /**
+     * Returns the compiled shift table for the given key, optionally preserving letter case.
+     *
+     * @param key          the shift value, may be negative or larger than the alphabet
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the shift table for the key
+     */
+    public ShiftTable getShiftTable(int key, boolean preserveCase) {
+        if (!preserveCase) {
+            return getShiftTable(key);
+        }
+        // Upper-case rings are shorter than the alphabet, so keys are only equivalent modulo the common period
+        return casePreservingShiftTables.computeIfAbsent(Math.floorMod(key, casePreservingKeyPeriod),
+                normalizedKey -> ShiftTable.forKey(alphabet, normalizedKey, true));
+    }
+
+    /**
+     * Returns the compiled byte-level shift table for the given key, optionally preserving letter case.
+     *
+     * @param key          the shift value, may be negative or larger than the alphabet
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the UTF-8 shift table for the key
+     */
+    public Utf8ShiftTable getUtf8ShiftTable(int key, boolean preserveCase) {
+        if (!preserveCase) {
+            return getUtf8ShiftTable(key);
+        }
+        return casePreservingUtf8ShiftTables.computeIfAbsent(Math.floorMod(key, casePreservingKeyPeriod),
+                normalizedKey -> Utf8ShiftTable.of(getShiftTable(normalizedKey, true)));
+    }
+
+    /**
+     * Decrypts a given text with every possible shift in a single pass over the text.
+     * The result for shift {@code s} equals {@code decrypt(text, s)}.
+     *
+     * @param text the text to decrypt
+     * @return the decryption with every shift, indexed by shift
+     * @throws InvalidCharacterException if the text contains a character not present in the alphabet
+     */
+    public String[] decryptAllShifts(String text) throws InvalidCharacterException {
+        return getAllShiftsTable().transform(text);
+    }
+
+    /**
+     * Returns the compiled table that decrypts with every shift at once. It is built on first use.
+     *
+     * @return the all-shifts table
+     */
+    public AllShiftsTable getAllShiftsTable() {
+        AllShiftsTable table = allShiftsTable;
+        if (table == null) {
+            table = new AllShiftsTable(alphabet);
+            allShiftsTable = table;
+        }
+        return table;
+    }
+
+    /**
+     * Encrypts a given text with the Vigenère cipher: the n-th character is shifted by the alphabet index
+     * of the n-th keyword letter, repeating the keyword. Line breaks are dropped and do not use up a letter.
+     *
+     * @param text         the text to encrypt
+     * @param keyword      the keyword, made of alphabet characters in any case
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the encrypted text
+     * @throws InvalidCharacterException if the text contains a character not present in the alphabet
+     * @throws IllegalArgumentException  if the keyword is empty or contains a character outside the alphabet
+     */
+    public String encryptVigenere(String text, String keyword, boolean preserveCase) throws InvalidCharacterException {
+        return getVigenereTable(keyword, false, preserveCase).transform(text);
+    }
+
+    /**
+     * Decrypts a given text encrypted with the Vigenère cipher.
+     *
+     * @param text         the text to decrypt
+     * @param keyword      the keyword, made of alphabet characters in any case
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the decrypted text
+     * @throws InvalidCharacterException if the text contains a character not present in the alphabet
+     * @throws IllegalArgumentException  if the keyword is empty or contains a character outside the alphabet
+     */
+    public String decryptVigenere(String text, String keyword, boolean preserveCase) throws InvalidCharacterException {
+        return getVigenereTable(keyword, true, preserveCase).transform(text);
+    }
+
+    /**
+     * Encrypts a given text with the affine cipher, which maps the letter at index {@code i}
+     * to the letter at index {@code (multiplier * i + shift) mod n}.
+     *
+     * @param text         the text to encrypt
+     * @param multiplier   the multiplier, must be coprime with the alphabet size
+     * @param shift        the shift value
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the encrypted text
+     * @throws InvalidCharacterException if the text contains a character not present in the alphabet
+     * @throws IllegalArgumentException  if the multiplier has no inverse
+     */
+    public String encryptAffine(String text, int multiplier, int shift, boolean preserveCase)
+            throws InvalidCharacterException {
+        return getAffineTable(multiplier, shift, false, preserveCase).transform(text);
+    }
+
+    /**
+     * Decrypts a given text encrypted with the affine cipher.
+     *
+     * @param text         the text to decrypt
+     * @param multiplier   the multiplier the text was encrypted with
+     * @param shift        the shift value the text was encrypted with
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the decrypted text
+     * @throws InvalidCharacterException if the text contains a character not present in the alphabet
+     * @throws IllegalArgumentException  if the multiplier has no inverse
+     */
+    public String decryptAffine(String text, int multiplier, int shift, boolean preserveCase)
+            throws InvalidCharacterException {
+        return getAffineTable(multiplier, shift, true, preserveCase).transform(text);
+    }
+
+    /**
+     * Returns the compiled Vigenère substitution for the given keyword. It reuses the cached shift table
+     * of every keyword letter, so it costs no more than the distinct letters' tables.
+     *
+     * @param keyword      the keyword, made of alphabet characters in any case
+     * @param decrypt      true for the decryption table, false for the encryption table
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the polyalphabetic table of the keyword
+     * @throws IllegalArgumentException if the keyword is empty or contains a character outside the alphabet
+     */
+    public PolyalphabeticTable getVigenereTable(String keyword, boolean decrypt, boolean preserveCase) {
+        if (keyword == null || keyword.isEmpty()) {
+            throw new IllegalArgumentException(ERR_MESSAGE_EMPTY_KEYWORD);
+        }
+        ShiftTable[] tables = new ShiftTable[keyword.length()];
+        for (int i = 0; i < tables.length; i++) {
+            int shift = alphabet.indexOf(Character.toLowerCase(keyword.charAt(i)));
+            if (shift < 0) {
+                throw new IllegalArgumentException(ERR_MESSAGE_KEYWORD_CHARACTER + keyword.charAt(i));
             }
+            tables[i] = getShiftTable(decrypt ? -shift : shift, preserveCase);
         }
-        return -1;
+        return new PolyalphabeticTable(tables);
+    }
+
+    /**
+     * Returns the compiled affine table for the given multiplier and shift.
+     * Tables are built once per key and direction and reused for every subsequent call.
+     *
+     * @param multiplier   the multiplier, must be coprime with the alphabet size
+     * @param shift        the shift value
+     * @param decrypt      true for the decryption table, false for the encryption table
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the affine table
+     * @throws IllegalArgumentException if the multiplier has no inverse
+     */
+    public ShiftTable getAffineTable(int multiplier, int shift, boolean decrypt, boolean preserveCase) {
+        return affineTables.computeIfAbsent(affineKey(multiplier, shift, decrypt, preserveCase),
+                affineKey -> ShiftTable.forAffine(alphabet, multiplier, shift, preserveCase, decrypt));
+    }
+
+    /**
+     * Returns the compiled byte-level affine table for the given multiplier and shift.
+     *
+     * @param multiplier   the multiplier, must be coprime with the alphabet size
+     * @param shift        the shift value
+     * @param decrypt      true for the decryption table, false for the encryption table
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the UTF-8 affine table
+     * @throws IllegalArgumentException if the multiplier has no inverse
+     */
+    public Utf8ShiftTable getUtf8AffineTable(int multiplier, int shift, boolean decrypt, boolean preserveCase) {
+        return utf8AffineTables.computeIfAbsent(affineKey(multiplier, shift, decrypt, preserveCase),
+                affineKey -> Utf8ShiftTable.of(getAffineTable(multiplier, shift, decrypt, preserveCase)));
+    }
+
+    private String affineKey(int multiplier, int shift, boolean decrypt, boolean preserveCase) {
+        // Every ring size divides the case-preserving period, so keys are equivalent modulo it
+        int period = preserveCase ? casePreservingKeyPeriod : alphabet.size();
+        return Math.floorMod(multiplier, period) + ":" + Math.floorMod(shift, period) + ":" + decrypt + ":" + preserveCase;
+    }
+
+    /**
+     * Computes the smallest key period after which all rings, the alphabet and every upper-case ring,
+     * are back in their original positions.
+     */
+    private static int casePreservingKeyPeriod(Alphabet alphabet) {
+        int period = alphabet.size();
+        for (char[] ring : alphabet.getUpperCaseRings()) {
+            period = period / gcd(period, ring.length) * ring.length;
+        }
+        return period;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Returns the alphabet this cipher works with.
+     *
+     * @return the alphabet
+     */
+    public Alphabet getAlphabet() {
+        return alphabet;
     }
-}
\ No newline at end of file
+}
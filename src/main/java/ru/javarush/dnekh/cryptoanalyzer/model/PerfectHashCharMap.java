@@ -0,0 +1,85 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * An immutable map from characters to characters backed by a collision-free (perfect) hash table.
+ * It holds the few characters that lie far above the dense lookup ranges, such as typographic quotes
+ * or dashes, so a lookup is one multiplication, one shift and one comparison however sparse the keys are.
+ * The table has the smallest power-of-two size that admits a perfect multiplicative hash,
+ * which is found by trying multipliers when the map is built.
+ */
+final class PerfectHashCharMap {
+
+    /**
+     * Value returned for characters that are not in the map. It can never be a key.
+     */
+    static final char MISSING = '\uFFFF';
+
+    private static final int MAX_ATTEMPTS_PER_SIZE = 10_000;
+    private static final long MULTIPLIER_SEED = 0x5DEECE66DL;
+
+    private final char[] keys;
+    private final char[] values;
+    private final int multiplier;
+    private final int shift;
+
+    private PerfectHashCharMap(char[] keys, char[] values, int multiplier, int shift) {
+        this.keys = keys;
+        this.values = values;
+        this.multiplier = multiplier;
+        this.shift = shift;
+    }
+
+    /**
+     * Builds the map from parallel key and value arrays.
+     *
+     * @param keys   the distinct keys, none equal to {@link #MISSING}
+     * @param values the value of each key
+     * @return the compiled map
+     */
+    static PerfectHashCharMap of(char[] keys, char[] values) {
+        SplittableRandom random = new SplittableRandom(MULTIPLIER_SEED);
+        // At least two slots, so the shift stays below 32
+        for (int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, keys.length - 1))); ; bits++) {
+            int size = 1 << bits;
+            int shift = 32 - bits;
+            char[] slotKeys = new char[size];
+            char[] slotValues = new char[size];
+
+            for (int attempt = 0; attempt < MAX_ATTEMPTS_PER_SIZE; attempt++) {
+                int multiplier = random.nextInt() | 1;
+                Arrays.fill(slotKeys, MISSING);
+                Arrays.fill(slotValues, MISSING);
+                if (place(keys, values, multiplier, shift, slotKeys, slotValues)) {
+                    return new PerfectHashCharMap(slotKeys, slotValues, multiplier, shift);
+                }
+            }
+        }
+    }
+
+    private static boolean place(char[] keys, char[] values, int multiplier, int shift,
+                                 char[] slotKeys, char[] slotValues) {
+        for (int i = 0; i < keys.length; i++) {
+            int slot = (keys[i] * multiplier) >>> shift;
+            if (slotKeys[slot] != MISSING) {
+                return false;
+            }
+            slotKeys[slot] = keys[i];
+            slotValues[slot] = values[i];
+        }
+        return true;
+    }
+
+    /**
+     * Looks up a character.
+     *
+     * @param c the character to look up
+     * @return the mapped character, or {@link #MISSING} if the character is not a key
+     */
+    char get(char c) {
+        int slot = (c * multiplier) >>> shift;
+        return keys[slot] == c ? values[slot] : MISSING;
+    }
+}
@@ -0,0 +1,95 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException;
+
+/**
+ * A compiled polyalphabetic substitution, such as a Vigenère key: one {@link ShiftTable} per key position,
+ * applied in turn. Every character written to the output, including characters passed through unchanged,
+ * moves on to the next key position; dropped line breaks do not, so the key position of a stream is simply
+ * the number of characters written so far modulo the {@link #period()}.
+ * <p>
+ * The transform loop does one array lookup per character, like the single-table loop, plus the step of
+ * the key position; it allocates nothing.
+ */
+public final class PolyalphabeticTable {
+
+    private final ShiftTable[] shiftTables;
+    private final char[][] tables;
+    private final int limit;
+
+    /**
+     * Constructor initializes the substitution from the tables of its key positions.
+     * All tables must be built for the same alphabet.
+     *
+     * @param shiftTables the table of every key position, in key order
+     */
+    PolyalphabeticTable(ShiftTable[] shiftTables) {
+        this.shiftTables = shiftTables.clone();
+        this.tables = new char[shiftTables.length][];
+        for (int i = 0; i < shiftTables.length; i++) {
+            tables[i] = shiftTables[i].denseTable();
+        }
+        // Built for the same alphabet, so all dense tables have the same length
+        this.limit = tables[0].length;
+    }
+
+    /**
+     * Returns the number of key positions after which the substitution repeats.
+     *
+     * @return the key length
+     */
+    public int period() {
+        return shiftTables.length;
+    }
+
+    /**
+     * Transforms characters from the source array into the destination array, starting at the given key position.
+     * Line breaks are dropped, so the number of characters written may be smaller than {@code length}.
+     * The source and destination may be the same array with {@code dstOffset <= srcOffset}.
+     *
+     * @param src         the source characters
+     * @param srcOffset   the first source position
+     * @param length      the number of source characters
+     * @param dst         the destination array, must have room for {@code length} characters
+     * @param dstOffset   the first destination position
+     * @param keyPosition the key position of the first character, taken modulo the period
+     * @return the number of characters written; the next key position is advanced by this number
+     * @throws InvalidCharacterException if a character is not present in the alphabet
+     */
+    public int transform(char[] src, int srcOffset, int length, char[] dst, int dstOffset, long keyPosition)
+            throws InvalidCharacterException {
+        int period = tables.length;
+        int position = (int) Math.floorMod(keyPosition, (long) period);
+        int out = dstOffset;
+        int end = srcOffset + length;
+
+        for (int i = srcOffset; i < end; i++) {
+            char c = src[i];
+            char mapped = c < limit ? tables[position][c] : shiftTables[position].map(c);
+            if (mapped < ShiftTable.SKIPPED) {
+                dst[out++] = mapped;
+            } else if (mapped == ShiftTable.NOT_SUPPORTED) {
+                dst[out++] = shiftTables[position].passThrough(c);
+            } else {
+                continue;
+            }
+            if (++position == period) {
+                position = 0;
+            }
+        }
+
+        return out - dstOffset;
+    }
+
+    /**
+     * Transforms a whole character sequence from the first key position and returns the result as a string.
+     *
+     * @param text the text to transform
+     * @return the transformed text
+     * @throws InvalidCharacterException if a character is not present in the alphabet
+     */
+    public String transform(CharSequence text) throws InvalidCharacterException {
+        char[] chars = text.toString().toCharArray();
+        return new String(chars, 0, transform(chars, 0, chars.length, chars, 0, 0));
+    }
+}
@@ -0,0 +1,24 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+/**
+ * A transform loop over UTF-16 characters compiled for one {@link ShiftTable}.
+ * It maps the characters it can one to one and leaves the rest, such as line breaks and characters
+ * it has no fast path for, to the table's scalar loop. That loop runs in the table's frame rather than inside
+ * the kernel, where it compiles together with the vector code and runs markedly slower.
+ */
+interface ShiftKernel {
+
+    /**
+     * Maps characters one to one from the start of the source region into the destination until
+     * it reaches a character it does not handle or the rest of the region is too short for it.
+     * Nothing is written for characters that are not mapped, so the caller transforms them from the intact source.
+     *
+     * @param src       the source characters
+     * @param srcOffset the first source position
+     * @param length    the number of source characters
+     * @param dst       the destination array, may be the source array with {@code dstOffset <= srcOffset}
+     * @param dstOffset the first destination position, with room for {@code length} characters
+     * @return the number of characters mapped, which is also the number written
+     */
+    int transformPrefix(char[] src, int srcOffset, int length, char[] dst, int dstOffset);
+}
@@ -0,0 +1,484 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException;
+
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A compiled Caesar shift for one alphabet and one key, or more generally a compiled affine substitution.
+ * The table maps every input character directly to its shifted output character, with lowercasing
+ * folded in, so the transform loop is a single array lookup per character with no allocation or boxing.
+ * In case-preserving mode upper-case letters are not folded but rotated within their own script's
+ * upper-case ring, in the same table and therefore in the same single pass.
+ * Characters outside the alphabet are rejected or passed through unchanged, depending on the
+ * alphabet's {@link UnsupportedCharacterPolicy}. Character arrays are transformed by the
+ * {@link TransformKernel} the table was built with.
+ */
+public final class ShiftTable {
+
+    /**
+     * Table marker for characters that are not part of the alphabet.
+     */
+    static final char NOT_SUPPORTED = '\uFFFF';
+
+    /**
+     * Table marker for line breaks, which are dropped from the output.
+     */
+    static final char SKIPPED = '\uFFFE';
+
+    /**
+     * The longest run of characters handed to the scalar loop before the kernel is tried again.
+     */
+    private static final int MAX_SCALAR_RUN = 2048;
+
+    private static final String ERR_MESSAGE_CHARACTER_NOT_SUPPORTED = " IS NOT SUPPORTED";
+    private static final String ERR_MESSAGE_MULTIPLIER_NOT_INVERTIBLE = "MULTIPLIER %d IS NOT COPRIME WITH %d, CHOOSE ANOTHER ONE";
+
+    private final char[] table;
+    private final PerfectHashCharMap highTable;
+    private final int key;
+    private final int multiplier;
+    private final boolean casePreserving;
+    private final UnsupportedCharacterPolicy unsupportedCharacterPolicy;
+    private final boolean passThrough;
+    private final TransformKernel transformKernel;
+    private final ShiftKernel kernel;
+
+    private ShiftTable(char[] table, PerfectHashCharMap highTable, int key, int multiplier, boolean casePreserving,
+                       UnsupportedCharacterPolicy unsupportedCharacterPolicy, TransformKernel transformKernel) {
+        this.table = table;
+        this.highTable = highTable;
+        this.key = key;
+        this.multiplier = multiplier;
+        this.casePreserving = casePreserving;
+        this.unsupportedCharacterPolicy = unsupportedCharacterPolicy;
+        this.passThrough = unsupportedCharacterPolicy == UnsupportedCharacterPolicy.PASS_THROUGH;
+        this.transformKernel = transformKernel.isAvailable() ? transformKernel : TransformKernel.SCALAR;
+        // Compiled last, the kernel reads the finished table
+        this.kernel = this.transformKernel.compile(this);
+    }
+
+    /**
+     * Builds the shift table for the given alphabet and key.
+     * Upper-case letters whose lower-case form is in the alphabet are mapped as their lower-case form.
+     *
+     * @param alphabet the alphabet to rotate
+     * @param key      the shift value, may be negative or larger than the alphabet
+     * @return the compiled shift table
+     */
+    public static ShiftTable forKey(Alphabet alphabet, int key) {
+        return forKey(alphabet, key, false);
+    }
+
+    /**
+     * Builds the shift table for the given alphabet and key, optionally preserving letter case.
+     * With case preservation every upper-case letter of an {@link Alphabet#getUpperCaseRings() upper-case ring}
+     * is shifted by {@code key} within that ring, so it stays an upper-case letter of the same script
+     * and the table for {@code -key} restores it exactly. Lower-case letters and all other characters
+     * are shifted through the whole alphabet as usual.
+     * <p>
+     * Characters below {@link Alphabet#DENSE_LIMIT} go into a dense array; the few mapped characters above it
+     * go into a perfect hash. With the {@link UnsupportedCharacterPolicy#PASS_THROUGH pass-through} policy the
+     * dense array covers the whole range and maps unsupported characters to themselves, so passing them through
+     * costs nothing in the transform loop.
+     *
+     * @param alphabet     the alphabet to rotate
+     * @param key          the shift value, may be negative or larger than the alphabet
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the compiled shift table
+     */
+    public static ShiftTable forKey(Alphabet alphabet, int key, boolean preserveCase) {
+        return forKey(alphabet, key, preserveCase, TransformKernel.configured());
+    }
+
+    /**
+     * Builds the shift table for the given alphabet and key with an explicit transform kernel.
+     *
+     * @param alphabet        the alphabet to rotate
+     * @param key             the shift value, may be negative or larger than the alphabet
+     * @param preserveCase    whether upper-case letters keep their case
+     * @param transformKernel the kernel to use, the scalar kernel is used instead if it is not available
+     * @return the compiled shift table
+     */
+    public static ShiftTable forKey(Alphabet alphabet, int key, boolean preserveCase, TransformKernel transformKernel) {
+        return build(alphabet, new AffineMap(1, key, false), preserveCase, transformKernel);
+    }
+
+    /**
+     * Builds the table of an affine cipher, which maps the letter at alphabet index {@code i} to the letter
+     * at index {@code (multiplier * i + shift) mod n}, or of its inverse, which undoes that mapping.
+     * A Caesar shift is the affine cipher with multiplier 1. In case-preserving mode upper-case letters
+     * are mapped the same way within their own upper-case ring.
+     *
+     * @param alphabet     the alphabet to permute
+     * @param multiplier   the multiplier, must be coprime with the alphabet size and, when case is preserved,
+     *                     with the size of every upper-case ring
+     * @param shift        the shift value, may be negative or larger than the alphabet
+     * @param preserveCase whether upper-case letters keep their case
+     * @param inverse      true for the decryption table, false for the encryption table
+     * @return the compiled table
+     * @throws IllegalArgumentException if the multiplier has no inverse modulo one of the ring sizes
+     */
+    public static ShiftTable forAffine(Alphabet alphabet, int multiplier, int shift, boolean preserveCase,
+                                       boolean inverse) {
+        return build(alphabet, new AffineMap(multiplier, shift, inverse), preserveCase, TransformKernel.configured());
+    }
+
+    private static ShiftTable build(Alphabet alphabet, AffineMap affineMap, boolean preserveCase,
+                                    TransformKernel transformKernel) {
+        int alphabetSize = alphabet.size();
+        int[] permutation = affineMap.permutation(alphabetSize);
+        UnsupportedCharacterPolicy policy = alphabet.getUnsupportedCharacterPolicy();
+        boolean passThrough = policy == UnsupportedCharacterPolicy.PASS_THROUGH;
+
+        int limit = passThrough ? Alphabet.DENSE_LIMIT - 1 : 0;
+        for (int i = 0; i < alphabetSize; i++) {
+            char c = alphabet.charAt(i);
+            limit = Math.max(limit, Math.min(Math.max(c, Character.toUpperCase(c)), Alphabet.DENSE_LIMIT - 1));
+        }
+
+        char[] table = new char[limit + 1];
+        for (int c = 0; c < table.length; c++) {
+            int index = alphabet.indexOf(Character.toLowerCase((char) c));
+            if (index >= 0) {
+                table[c] = alphabet.charAt(permutation[index]);
+            } else {
+                table[c] = passThrough ? (char) c : NOT_SUPPORTED;
+            }
+        }
+        table['\n'] = SKIPPED;
+        table['\r'] = SKIPPED;
+
+        Map<Character, Character> high = new LinkedHashMap<>();
+        for (int c = table.length; c < SKIPPED; c++) {
+            int index = alphabet.indexOf(Character.toLowerCase((char) c));
+            if (index >= 0) {
+                high.put((char) c, alphabet.charAt(permutation[index]));
+            }
+        }
+
+        if (preserveCase) {
+            for (char[] ring : alphabet.getUpperCaseRings()) {
+                int[] ringPermutation = affineMap.permutation(ring.length);
+                for (int i = 0; i < ring.length; i++) {
+                    char mapped = ring[ringPermutation[i]];
+                    if (ring[i] < table.length) {
+                        table[ring[i]] = mapped;
+                    } else {
+                        high.put(ring[i], mapped);
+                    }
+                }
+            }
+        }
+
+        char[] highKeys = new char[high.size()];
+        char[] highValues = new char[high.size()];
+        int i = 0;
+        for (Map.Entry<Character, Character> entry : high.entrySet()) {
+            highKeys[i] = entry.getKey();
+            highValues[i++] = entry.getValue();
+        }
+
+        return new ShiftTable(table, PerfectHashCharMap.of(highKeys, highValues),
+                Math.floorMod(affineMap.shift, alphabetSize), Math.floorMod(affineMap.multiplier, alphabetSize),
+                preserveCase, policy, transformKernel);
+    }
+
+    /**
+     * Returns the key this table was compiled for, normalized to the alphabet size.
+     * For an affine table this is the shift it was built with.
+     *
+     * @return the normalized shift value
+     */
+    public int getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the multiplier this table was compiled for, normalized to the alphabet size.
+     *
+     * @return the multiplier, 1 for a Caesar shift
+     */
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Checks whether upper-case letters keep their case.
+     *
+     * @return true if the table was built in case-preserving mode
+     */
+    public boolean isCasePreserving() {
+        return casePreserving;
+    }
+
+    /**
+     * Returns what is done with characters outside the alphabet.
+     *
+     * @return the unsupported character policy
+     */
+    public UnsupportedCharacterPolicy getUnsupportedCharacterPolicy() {
+        return unsupportedCharacterPolicy;
+    }
+
+    /**
+     * Returns the kernel that transforms character arrays with this table.
+     *
+     * @return the transform kernel
+     */
+    public TransformKernel getTransformKernel() {
+        return transformKernel;
+    }
+
+    /**
+     * Maps a single character through the table.
+     * Unsupported characters are reported as {@link #NOT_SUPPORTED} whatever the policy;
+     * above the dense range the caller applies the policy.
+     *
+     * @param c the character to map
+     * @return the shifted character, {@link #SKIPPED} for a line break or {@link #NOT_SUPPORTED}
+     */
+    char map(char c) {
+        if (c < table.length) {
+            return table[c];
+        }
+        char mapped = highTable.get(c);
+        return mapped == PerfectHashCharMap.MISSING ? NOT_SUPPORTED : mapped;
+    }
+
+    /**
+     * Returns the dense part of the table for loops that index it directly; it must not be modified.
+     *
+     * @return the table of the characters below its length
+     */
+    char[] denseTable() {
+        return table;
+    }
+
+    /**
+     * Transforms characters from the source array into the destination array.
+     * Line breaks are dropped, so the number of characters written may be smaller than {@code length}.
+     * The source and destination may be the same array with {@code dstOffset <= srcOffset}.
+     *
+     * @param src       the source characters
+     * @param srcOffset the first source position
+     * @param length    the number of source characters
+     * @param dst       the destination array, must have room for {@code length} characters
+     * @param dstOffset the first destination position
+     * @return the number of characters written
+     * @throws InvalidCharacterException if a character is not present in the alphabet
+     */
+    public int transform(char[] src, int srcOffset, int length, char[] dst, int dstOffset)
+            throws InvalidCharacterException {
+        return kernel != null
+                ? transformWithKernel(src, srcOffset, length, dst, dstOffset)
+                : transformScalar(src, srcOffset, length, dst, dstOffset);
+    }
+
+    /**
+     * Alternates between the kernel and the scalar loop. Every time the kernel stops early again, the following
+     * scalar run doubles, up to {@value #MAX_SCALAR_RUN} characters, so text the kernel has no fast path for,
+     * such as Cyrillic, runs almost entirely on the scalar loop, while a line break in Latin text costs a single
+     * scalar step.
+     */
+    private int transformWithKernel(char[] src, int srcOffset, int length, char[] dst, int dstOffset)
+            throws InvalidCharacterException {
+        int end = srcOffset + length;
+        int out = dstOffset;
+        int i = srcOffset;
+        int scalarRun = 1;
+
+        while (true) {
+            int mapped = kernel.transformPrefix(src, i, end - i, dst, out);
+            out += mapped;
+            i += mapped;
+            if (i == end) {
+                return out - dstOffset;
+            }
+
+            scalarRun = mapped < scalarRun ? Math.min(2 * scalarRun, MAX_SCALAR_RUN) : 1;
+            int run = Math.min(scalarRun, end - i);
+            out += transformScalar(src, i, run, dst, out);
+            i += run;
+        }
+    }
+
+    /**
+     * The scalar loop: one table lookup per character.
+     */
+    private int transformScalar(char[] src, int srcOffset, int length, char[] dst, int dstOffset)
+            throws InvalidCharacterException {
+        char[] table = this.table;
+        int limit = table.length;
+        int out = dstOffset;
+        int end = srcOffset + length;
+
+        for (int i = srcOffset; i < end; i++) {
+            char c = src[i];
+            char mapped = c < limit ? table[c] : map(c);
+            if (mapped < SKIPPED) {
+                dst[out++] = mapped;
+            } else if (mapped == NOT_SUPPORTED) {
+                dst[out++] = passThrough(c);
+            }
+        }
+
+        return out - dstOffset;
+    }
+
+    /**
+     * Transforms a character array region in place.
+     *
+     * @param buffer the characters to transform
+     * @param offset the first position
+     * @param length the number of characters
+     * @return the number of characters left in the region after line breaks are dropped
+     * @throws InvalidCharacterException if a character is not present in the alphabet
+     */
+    public int transform(char[] buffer, int offset, int length) throws InvalidCharacterException {
+        return transform(buffer, offset, length, buffer, offset);
+    }
+
+    /**
+     * Transforms all remaining characters of the source buffer into the destination buffer.
+     * Array-backed buffers are processed directly on their backing arrays.
+     *
+     * @param src the source buffer, its position is advanced to its limit
+     * @param dst the destination buffer, its position is advanced by the number of characters written
+     * @throws InvalidCharacterException if a character is not present in the alphabet
+     * @throws BufferOverflowException if the destination has less room than the source has characters
+     */
+    public void transform(CharBuffer src, CharBuffer dst) throws InvalidCharacterException {
+        int length = src.remaining();
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+
+        if (src.hasArray() && dst.hasArray() && !dst.isReadOnly()) {
+            int written = transform(src.array(), src.arrayOffset() + src.position(), length,
+                    dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.limit());
+            dst.position(dst.position() + written);
+            return;
+        }
+
+        while (src.hasRemaining()) {
+            char c = src.get();
+            char mapped = map(c);
+            if (mapped < SKIPPED) {
+                dst.put(mapped);
+            } else if (mapped == NOT_SUPPORTED) {
+                dst.put(passThrough(c));
+            }
+        }
+    }
+
+    /**
+     * Transforms a whole character sequence and returns the result as a string.
+     *
+     * @param text the text to transform
+     * @return the transformed text
+     * @throws InvalidCharacterException if a character is not present in the alphabet
+     */
+    public String transform(CharSequence text) throws InvalidCharacterException {
+        if (kernel != null) {
+            char[] chars = text.toString().toCharArray();
+            return new String(chars, 0, transformWithKernel(chars, 0, chars.length, chars, 0));
+        }
+
+        int length = text.length();
+        char[] result = new char[length];
+        char[] table = this.table;
+        int limit = table.length;
+        int out = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            char mapped = c < limit ? table[c] : map(c);
+            if (mapped < SKIPPED) {
+                result[out++] = mapped;
+            } else if (mapped == NOT_SUPPORTED) {
+                result[out++] = passThrough(c);
+            }
+        }
+
+        return new String(result, 0, out);
+    }
+
+    /**
+     * Applies the unsupported character policy to a character outside the alphabet.
+     *
+     * @param c the unsupported character
+     * @return the character itself if it is passed through
+     * @throws InvalidCharacterException if unsupported characters are rejected
+     */
+    char passThrough(char c) throws InvalidCharacterException {
+        if (!passThrough) {
+            throw notSupported(c);
+        }
+        return c;
+    }
+
+    private static InvalidCharacterException notSupported(char c) {
+        return new InvalidCharacterException(Character.toLowerCase(c) + ERR_MESSAGE_CHARACTER_NOT_SUPPORTED);
+    }
+
+    /**
+     * The index mapping {@code i -> (multiplier * i + shift) mod n} of an affine cipher, or its inverse,
+     * evaluated once per ring size into a permutation.
+     */
+    private static final class AffineMap {
+
+        private final int multiplier;
+        private final int shift;
+        private final boolean inverse;
+
+        AffineMap(int multiplier, int shift, boolean inverse) {
+            this.multiplier = multiplier;
+            this.shift = shift;
+            this.inverse = inverse;
+        }
+
+        /**
+         * Returns the target index of every index of a ring with the given size.
+         *
+         * @throws IllegalArgumentException if the multiplier is not invertible modulo the size
+         */
+        int[] permutation(int size) {
+            int a = Math.floorMod(multiplier, size);
+            int b = Math.floorMod(shift, size);
+            int aInverse = modularInverse(a, size);
+            int[] permutation = new int[size];
+            for (int i = 0; i < size; i++) {
+                permutation[i] = inverse
+                        ? (int) ((long) aInverse * Math.floorMod(i - b, size) % size)
+                        : (int) (((long) a * i + b) % size);
+            }
+            return permutation;
+        }
+
+        private int modularInverse(int a, int size) {
+            // Extended Euclid: find x with a * x = 1 (mod size)
+            int oldR = a;
+            int r = size;
+            int oldX = 1;
+            int x = 0;
+            while (r != 0) {
+                int quotient = oldR / r;
+                int t = oldR - quotient * r;
+                oldR = r;
+                r = t;
+                t = oldX - quotient * x;
+                oldX = x;
+                x = t;
+            }
+            if (oldR != 1 && size > 1) {
+                throw new IllegalArgumentException(String.format(ERR_MESSAGE_MULTIPLIER_NOT_INVERTIBLE, multiplier, size));
+            }
+            return Math.floorMod(oldX, size);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Enum representing the loops that apply a {@link ShiftTable} to UTF-16 characters.
+ * The kernel is chosen at runtime with the {@value #KERNEL_PROPERTY} system property.
+ * <p>
+ * The vector kernel is only compiled with the {@code vector} Maven profile and only runs when the JVM
+ * is started with {@code --add-modules jdk.incubator.vector}; otherwise the scalar kernel is used.
+ */
+public enum TransformKernel {
+    /**
+     * One table lookup per character. Always available.
+     */
+    SCALAR,
+
+    /**
+     * Maps runs of ASCII characters on wide SIMD lanes with the Vector API and hands blocks with
+     * line breaks or characters above ASCII, such as Cyrillic, to the scalar kernel.
+     */
+    VECTOR;
+
+    /**
+     * System property selecting the kernel: "scalar" (default) or "vector".
+     */
+    public static final String KERNEL_PROPERTY = "cryptoanalyzer.kernel";
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL_CLASS = "ru.javarush.dnekh.cryptoanalyzer.model.VectorShiftKernel";
+    private static final String ERR_MESSAGE_UNKNOWN_KERNEL = "UNKNOWN TRANSFORM KERNEL: ";
+
+    private static final MethodHandle VECTOR_KERNEL_CONSTRUCTOR = findVectorKernelConstructor();
+    private static final TransformKernel CONFIGURED = configuredKernel();
+
+    /**
+     * Converts a kernel name, ignoring case and surrounding spaces.
+     *
+     * @param kernel the kernel name, for example "vector"
+     * @return the kernel
+     * @throws IllegalArgumentException if the name is not a kernel
+     */
+    public static TransformKernel fromString(String kernel) {
+        for (TransformKernel value : values()) {
+            if (value.name().equalsIgnoreCase(kernel.trim())) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException(ERR_MESSAGE_UNKNOWN_KERNEL + kernel);
+    }
+
+    /**
+     * Returns the kernel selected by {@value #KERNEL_PROPERTY}, or the scalar kernel if the property is not set,
+     * names an unknown kernel or names a kernel that is not available in this JVM.
+     *
+     * @return the kernel new shift tables use by default
+     */
+    public static TransformKernel configured() {
+        return CONFIGURED;
+    }
+
+    /**
+     * Checks whether this kernel can run in this JVM.
+     *
+     * @return true for the scalar kernel, and for the vector kernel if it is compiled in and its module is loaded
+     */
+    public boolean isAvailable() {
+        return this == SCALAR || VECTOR_KERNEL_CONSTRUCTOR != null;
+    }
+
+    /**
+     * Compiles the kernel for a shift table.
+     *
+     * @param shiftTable the table to apply
+     * @return the compiled kernel, or null for the scalar kernel, which is the table's own loop
+     */
+    ShiftKernel compile(ShiftTable shiftTable) {
+        if (this == SCALAR) {
+            return null;
+        }
+        try {
+            return (ShiftKernel) VECTOR_KERNEL_CONSTRUCTOR.invoke(shiftTable);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle findVectorKernelConstructor() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            Class<?> kernelClass = Class.forName(VECTOR_KERNEL_CLASS);
+            return MethodHandles.lookup().findConstructor(kernelClass, MethodType.methodType(void.class, ShiftTable.class));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Built without the vector profile
+            return null;
+        }
+    }
+
+    private static TransformKernel configuredKernel() {
+        String kernel = System.getProperty(KERNEL_PROPERTY);
+        if (kernel == null) {
+            return SCALAR;
+        }
+        try {
+            TransformKernel selected = fromString(kernel);
+            return selected.isAvailable() ? selected : SCALAR;
+        } catch (IllegalArgumentException e) {
+            return SCALAR;
+        }
+    }
+}
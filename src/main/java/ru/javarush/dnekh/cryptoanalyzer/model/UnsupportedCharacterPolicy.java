@@ -0,0 +1,34 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+/**
+ * Enum representing what the cipher does with characters that are not part of the alphabet.
+ */
+public enum UnsupportedCharacterPolicy {
+    /**
+     * Stop with an {@link ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException}.
+     */
+    REJECT,
+
+    /**
+     * Copy the character to the output unchanged. Decryption copies it back, so the round trip is exact.
+     */
+    PASS_THROUGH;
+
+    private static final String ERR_MESSAGE_UNKNOWN_POLICY = "UNKNOWN UNSUPPORTED CHARACTER POLICY: ";
+
+    /**
+     * Converts a policy name, ignoring case and surrounding spaces.
+     *
+     * @param policy the policy name, for example "pass_through"
+     * @return the policy
+     * @throws IllegalArgumentException if the name is not a policy
+     */
+    public static UnsupportedCharacterPolicy fromString(String policy) {
+        for (UnsupportedCharacterPolicy value : values()) {
+            if (value.name().equalsIgnoreCase(policy.trim())) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException(ERR_MESSAGE_UNKNOWN_POLICY + policy);
+    }
+}
@@ -0,0 +1,232 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A compiled Caesar shift that works directly on UTF-8 encoded bytes.
+ * One-byte (ASCII) and two-byte (Cyrillic, «, ») sequences are mapped through precomputed tables
+ * holding the UTF-8 encoding of the shifted character, so text is never decoded to UTF-16.
+ * Longer sequences are decoded and mapped through the char-level {@link ShiftTable}.
+ * With the {@link UnsupportedCharacterPolicy#PASS_THROUGH pass-through} policy unsupported sequences,
+ * including four-byte ones such as emoji, are copied to the output unchanged.
+ */
+public final class Utf8ShiftTable {
+
+    /**
+     * The longest UTF-8 sequence a single input sequence can produce: three bytes for a shifted
+     * character, four for a supplementary character that is passed through.
+     */
+    public static final int MAX_OUTPUT_SEQUENCE_LENGTH = 4;
+
+    private static final int SKIPPED = 0;
+    private static final int NOT_SUPPORTED = -1;
+
+    private static final int TWO_BYTE_LIMIT = 0x800;
+    private static final int FOUR_BYTE_LIMIT = 0x110000;
+    private static final String ERR_MESSAGE_CHARACTER_NOT_SUPPORTED = " IS NOT SUPPORTED";
+
+    private final ShiftTable shiftTable;
+    private final int[] singleByteTable;
+    private final int[] doubleByteTable;
+    private final boolean passThrough;
+
+    private Utf8ShiftTable(ShiftTable shiftTable, int[] singleByteTable, int[] doubleByteTable) {
+        this.shiftTable = shiftTable;
+        this.singleByteTable = singleByteTable;
+        this.doubleByteTable = doubleByteTable;
+        this.passThrough = shiftTable.getUnsupportedCharacterPolicy() == UnsupportedCharacterPolicy.PASS_THROUGH;
+    }
+
+    /**
+     * Builds the byte-level tables from a char-level shift table.
+     *
+     * @param shiftTable the char-level shift to encode
+     * @return the compiled UTF-8 shift table
+     */
+    public static Utf8ShiftTable of(ShiftTable shiftTable) {
+        int[] singleByteTable = new int[0x80];
+        int[] doubleByteTable = new int[TWO_BYTE_LIMIT];
+
+        for (int c = 0; c < TWO_BYTE_LIMIT; c++) {
+            int encoded = encode(shiftTable.map((char) c));
+            if (c < singleByteTable.length) {
+                singleByteTable[c] = encoded;
+            } else {
+                doubleByteTable[c] = encoded;
+            }
+        }
+
+        return new Utf8ShiftTable(shiftTable, singleByteTable, doubleByteTable);
+    }
+
+    /**
+     * Returns the char-level shift table these byte tables were built from.
+     *
+     * @return the char-level shift table
+     */
+    public ShiftTable getShiftTable() {
+        return shiftTable;
+    }
+
+    /**
+     * Transforms complete UTF-8 sequences from the source buffer into the destination buffer.
+     * The method returns when the source is exhausted, when only an incomplete sequence is left in the source,
+     * or when the destination has less than {@link #MAX_OUTPUT_SEQUENCE_LENGTH} bytes of room.
+     * The source position is left at the first sequence that was not transformed.
+     *
+     * @param src the UTF-8 encoded input
+     * @param dst the buffer receiving the UTF-8 encoded output
+     * @return the number of characters transformed, that is, the number of sequences consumed from the source
+     * @throws MalformedInputException   if the source is not valid UTF-8
+     * @throws InvalidCharacterException if a character is not present in the alphabet
+     */
+    public int transform(ByteBuffer src, ByteBuffer dst) throws MalformedInputException, InvalidCharacterException {
+        int[] singleByteTable = this.singleByteTable;
+        int[] doubleByteTable = this.doubleByteTable;
+        int position = src.position();
+        int limit = src.limit();
+        int outPosition = dst.position();
+        int outLimit = dst.limit() - MAX_OUTPUT_SEQUENCE_LENGTH;
+        int characters = 0;
+
+        try {
+            while (position < limit && outPosition <= outLimit) {
+                int b = src.get(position);
+                int encoded;
+                int length;
+
+                if (b >= 0) {
+                    encoded = singleByteTable[b];
+                    length = 1;
+                } else if ((b & 0xE0) == 0xC0) {
+                    if ((b & 0xFF) < 0xC2) {
+                        throw new MalformedInputException(1);
+                    }
+                    if (position + 1 >= limit) {
+                        break;
+                    }
+                    int b2 = continuation(src.get(position + 1));
+                    encoded = doubleByteTable[((b & 0x1F) << 6) | b2];
+                    length = 2;
+                } else if ((b & 0xF0) == 0xE0) {
+                    if (position + 2 >= limit) {
+                        break;
+                    }
+                    int codePoint = ((b & 0x0F) << 12)
+                            | (continuation(src.get(position + 1)) << 6)
+                            | continuation(src.get(position + 2));
+                    if (codePoint < TWO_BYTE_LIMIT || Character.isSurrogate((char) codePoint)) {
+                        throw new MalformedInputException(3);
+                    }
+                    encoded = encode(shiftTable.map((char) codePoint));
+                    if (encoded == NOT_SUPPORTED && passThrough) {
+                        encoded = utf8((char) codePoint);
+                    }
+                    length = 3;
+                } else if ((b & 0xF8) == 0xF0) {
+                    if (position + 3 >= limit) {
+                        break;
+                    }
+                    int codePoint = ((b & 0x07) << 18)
+                            | (continuation(src.get(position + 1)) << 12)
+                            | (continuation(src.get(position + 2)) << 6)
+                            | continuation(src.get(position + 3));
+                    if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint >= FOUR_BYTE_LIMIT) {
+                        throw new MalformedInputException(4);
+                    }
+                    if (!passThrough) {
+                        throw new InvalidCharacterException(new String(Character.toChars(codePoint)) + ERR_MESSAGE_CHARACTER_NOT_SUPPORTED);
+                    }
+                    // No alphabet character lies outside the BMP, so the sequence is copied as is
+                    for (int i = 0; i < 4; i++) {
+                        dst.put(outPosition++, src.get(position++));
+                    }
+                    characters++;
+                    continue;
+                } else {
+                    throw new MalformedInputException(1);
+                }
+
+                if (encoded == NOT_SUPPORTED) {
+                    throw notSupported(src, position, length);
+                }
+                outPosition = put(dst, outPosition, encoded);
+                position += length;
+                characters++;
+            }
+        } finally {
+            src.position(position);
+            dst.position(outPosition);
+        }
+        return characters;
+    }
+
+    private static int continuation(byte b) throws MalformedInputException {
+        if ((b & 0xC0) != 0x80) {
+            throw new MalformedInputException(1);
+        }
+        return b & 0x3F;
+    }
+
+    /**
+     * Packs the UTF-8 encoding of a mapped character into an int: the length in the top byte
+     * and the encoded bytes in the lower three bytes, first byte lowest.
+     */
+    private static int encode(char mapped) {
+        if (mapped == ShiftTable.SKIPPED) {
+            return SKIPPED;
+        }
+        if (mapped == ShiftTable.NOT_SUPPORTED) {
+            return NOT_SUPPORTED;
+        }
+        return utf8(mapped);
+    }
+
+    /**
+     * Packs the UTF-8 encoding of any BMP character that is not a surrogate, ignoring the table markers.
+     */
+    private static int utf8(char mapped) {
+        if (mapped < 0x80) {
+            return (1 << 24) | mapped;
+        }
+        if (mapped < TWO_BYTE_LIMIT) {
+            return (2 << 24)
+                    | (0x80 | (mapped & 0x3F)) << 8
+                    | (0xC0 | (mapped >> 6));
+        }
+        return (3 << 24)
+                | (0x80 | (mapped & 0x3F)) << 16
+                | (0x80 | ((mapped >> 6) & 0x3F)) << 8
+                | (0xE0 | (mapped >> 12));
+    }
+
+    private static int put(ByteBuffer dst, int position, int encoded) {
+        switch (encoded >>> 24) {
+            case 1 -> dst.put(position++, (byte) encoded);
+            case 2 -> {
+                dst.put(position++, (byte) encoded);
+                dst.put(position++, (byte) (encoded >>> 8));
+            }
+            case 3 -> {
+                dst.put(position++, (byte) encoded);
+                dst.put(position++, (byte) (encoded >>> 8));
+                dst.put(position++, (byte) (encoded >>> 16));
+            }
+            default -> {
+                // Skipped character, nothing to write
+            }
+        }
+        return position;
+    }
+
+    private static InvalidCharacterException notSupported(ByteBuffer src, int position, int length) {
+        byte[] sequence = new byte[length];
+        src.get(position, sequence);
+        String character = new String(sequence, StandardCharsets.UTF_8).toLowerCase();
+        return new InvalidCharacterException(character + ERR_MESSAGE_CHARACTER_NOT_SUPPORTED);
+    }
+}
@@ -0,0 +1,192 @@
+package ru.javarush.dnekh.cryptoanalyzer.search;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Aho-Corasick search for many byte patterns in one pass. The trie edges are kept sparse, sorted by byte
+ * in one array shared by all states, so the automaton takes memory in proportion to the total pattern bytes
+ * rather than a row of 256 transitions per state. Only the root, where a search of text that does not match
+ * spends most of its time, has a full row. A byte without an edge follows the failure links, which costs
+ * at most two transitions per text byte on average, no matter how many patterns there are.
+ */
+final class AhoCorasick implements BytePatternMatcher {
+
+    private static final int ROOT = 0;
+    private static final int NO_STATE = -1;
+    private static final int[] NO_PATTERNS = new int[0];
+
+    private final int[] rootTransitions = new int[256];
+    private final int[] firstEdge;
+    private final byte[] edgeBytes;
+    private final int[] edgeTargets;
+    private final int[] failure;
+    private final int[][] outputs;
+    private final int[] patternLengths;
+    private final int maxPatternLength;
+
+    /**
+     * Constructor compiles the automaton of the patterns.
+     *
+     * @param patterns the byte patterns to find, none of them empty; a match reports the pattern's index
+     */
+    AhoCorasick(byte[][] patterns) {
+        // Every state but the root has one incoming edge, so a trie of all pattern bytes has at most that many states
+        int capacity = 1;
+        for (byte[] pattern : patterns) {
+            capacity += pattern.length;
+        }
+        int[] parent = new int[capacity];
+        byte[] label = new byte[capacity];
+        int[] firstChild = new int[capacity];
+        int[] nextSibling = new int[capacity];
+        int[][] trieOutputs = new int[capacity][];
+        Arrays.fill(firstChild, NO_STATE);
+        trieOutputs[ROOT] = NO_PATTERNS;
+        int stateCount = 1;
+
+        this.patternLengths = new int[patterns.length];
+        int longest = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            int state = ROOT;
+            for (byte b : patterns[p]) {
+                int next = firstChild[state];
+                while (next != NO_STATE && label[next] != b) {
+                    next = nextSibling[next];
+                }
+                if (next == NO_STATE) {
+                    next = stateCount++;
+                    parent[next] = state;
+                    label[next] = b;
+                    nextSibling[next] = firstChild[state];
+                    firstChild[state] = next;
+                    trieOutputs[next] = NO_PATTERNS;
+                }
+                state = next;
+            }
+            trieOutputs[state] = append(trieOutputs[state], p);
+            patternLengths[p] = patterns[p].length;
+            longest = Math.max(longest, patterns[p].length);
+        }
+        this.maxPatternLength = longest;
+
+        // Counting sort by byte, then a stable one by source state, groups the edges by state in byte order
+        int[] byteStarts = new int[257];
+        for (int state = 1; state < stateCount; state++) {
+            byteStarts[(label[state] & 0xFF) + 1]++;
+        }
+        for (int b = 0; b < 256; b++) {
+            byteStarts[b + 1] += byteStarts[b];
+        }
+        int[] statesByByte = new int[stateCount - 1];
+        for (int state = 1; state < stateCount; state++) {
+            statesByByte[byteStarts[label[state] & 0xFF]++] = state;
+        }
+        this.firstEdge = new int[stateCount + 1];
+        for (int state = 1; state < stateCount; state++) {
+            firstEdge[parent[state] + 1]++;
+        }
+        for (int state = 0; state < stateCount; state++) {
+            firstEdge[state + 1] += firstEdge[state];
+        }
+        int[] nextEdge = Arrays.copyOf(firstEdge, stateCount);
+        this.edgeBytes = new byte[stateCount - 1];
+        this.edgeTargets = new int[stateCount - 1];
+        for (int state : statesByByte) {
+            int e = nextEdge[parent[state]]++;
+            edgeBytes[e] = label[state];
+            edgeTargets[e] = state;
+        }
+
+        // Breadth first, so the failure state of every state is complete before the state itself
+        this.failure = new int[stateCount];
+        this.outputs = Arrays.copyOf(trieOutputs, stateCount);
+        Arrays.fill(rootTransitions, ROOT);
+        int[] queue = new int[stateCount];
+        int tail = 0;
+        for (int e = firstEdge[ROOT]; e < firstEdge[ROOT + 1]; e++) {
+            rootTransitions[edgeBytes[e] & 0xFF] = edgeTargets[e];
+            queue[tail++] = edgeTargets[e];
+        }
+        for (int head = 0; head < tail; head++) {
+            int state = queue[head];
+            outputs[state] = concat(outputs[state], outputs[failure[state]]);
+            for (int e = firstEdge[state]; e < firstEdge[state + 1]; e++) {
+                int child = edgeTargets[e];
+                failure[child] = next(failure[state], edgeBytes[e] & 0xFF);
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    @Override
+    public int maxPatternLength() {
+        return maxPatternLength;
+    }
+
+    @Override
+    public void search(ByteBuffer buffer, int from, int startLimit, int to, long baseOffset, PatternListener listener) {
+        int state = ROOT;
+        int end = Math.min(to, startLimit + maxPatternLength - 1);
+
+        for (int position = from; position < end; position++) {
+            state = next(state, buffer.get(position) & 0xFF);
+            int[] matched = outputs[state];
+            for (int pattern : matched) {
+                int start = position + 1 - patternLengths[pattern];
+                if (start < startLimit) {
+                    listener.matchFound(baseOffset + start, pattern);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the state after reading a byte, following failure links until a state has an edge for the byte.
+     */
+    private int next(int state, int b) {
+        while (state != ROOT) {
+            int child = edge(state, b);
+            if (child != NO_STATE) {
+                return child;
+            }
+            state = failure[state];
+        }
+        return rootTransitions[b];
+    }
+
+    /**
+     * Returns the target of the trie edge of a state for a byte, or {@link #NO_STATE}.
+     */
+    private int edge(int state, int b) {
+        int low = firstEdge[state];
+        int high = firstEdge[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleByte = edgeBytes[middle] & 0xFF;
+            if (middleByte < b) {
+                low = middle + 1;
+            } else if (middleByte > b) {
+                high = middle - 1;
+            } else {
+                return edgeTargets[middle];
+            }
+        }
+        return NO_STATE;
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = value;
+        return result;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        if (second.length == 0) {
+            return first;
+        }
+        int[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.javarush.dnekh.cryptoanalyzer.search;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Boyer-Moore-Horspool search for a single byte pattern. The pattern is compared from its last byte,
+ * and on a mismatch the window moves on by the distance from the last occurrence of the byte under
+ * the pattern's end to the pattern's end, so most bytes of the text are never looked at.
+ */
+final class BoyerMooreHorspool implements BytePatternMatcher {
+
+    private final byte[] pattern;
+    private final int[] skip = new int[256];
+
+    /**
+     * Constructor compiles the skip table of the pattern.
+     *
+     * @param pattern the bytes to find, must not be empty
+     */
+    BoyerMooreHorspool(byte[] pattern) {
+        this.pattern = pattern.clone();
+        Arrays.fill(skip, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            skip[pattern[i] & 0xFF] = pattern.length - 1 - i;
+        }
+    }
+
+    @Override
+    public int maxPatternLength() {
+        return pattern.length;
+    }
+
+    @Override
+    public void search(ByteBuffer buffer, int from, int startLimit, int to, long baseOffset, PatternListener listener) {
+        byte[] pattern = this.pattern;
+        int last = pattern.length - 1;
+        int lastStart = Math.min(startLimit - 1, to - pattern.length);
+
+        for (int start = from; start <= lastStart; ) {
+            byte tail = buffer.get(start + last);
+            if (tail == pattern[last]) {
+                int i = last - 1;
+                while (i >= 0 && buffer.get(start + i) == pattern[i]) {
+                    i--;
+                }
+                if (i < 0) {
+                    listener.matchFound(baseOffset + start, 0);
+                }
+            }
+            start += skip[tail & 0xFF];
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.javarush.dnekh.cryptoanalyzer.search;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Finds fixed byte patterns in a buffer. Implementations are immutable and may be shared between threads.
+ */
+interface BytePatternMatcher {
+
+    /**
+     * Returns the length of the longest pattern, which is the overlap needed between consecutive windows.
+     *
+     * @return the longest pattern length in bytes
+     */
+    int maxPatternLength();
+
+    /**
+     * Reports every match that starts in {@code [from, startLimit)} and ends before {@code to}.
+     *
+     * @param buffer     the bytes to search, read with absolute gets
+     * @param from       the first position to search
+     * @param startLimit the position at which matches may no longer start
+     * @param to         the end of the readable bytes
+     * @param baseOffset the file offset of buffer position 0
+     * @param listener   receives the matches with their file offsets and pattern numbers
+     */
+    void search(ByteBuffer buffer, int from, int startLimit, int to, long baseOffset, PatternListener listener);
+
+    /**
+     * Receives the matches of one window with the number of the pattern that matched.
+     */
+    @FunctionalInterface
+    interface PatternListener {
+        void matchFound(long offset, int pattern);
+    }
+}
@@ -0,0 +1,148 @@
+package ru.javarush.dnekh.cryptoanalyzer.search;
+
+import ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException;
+import ru.javarush.dnekh.cryptoanalyzer.io.FileHandler;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class finds a plaintext pattern in a Caesar-encrypted file without decrypting the file.
+ * <p>
+ * Encryption is a fixed substitution per key, so instead of decrypting the whole file the pattern is encrypted
+ * with every key of interest and the encrypted patterns are searched for in the ciphertext bytes. One distinct
+ * pattern is found with Boyer-Moore-Horspool, which skips most of the file; several are found in a single pass
+ * with an Aho-Corasick automaton. UTF-8 is self-synchronizing, so a byte match is always a match of whole
+ * characters. The file is mapped in windows that overlap by one pattern length less one byte, so matches
+ * across a window border are found exactly once.
+ * <p>
+ * Like the ciphertext, the encrypted patterns are lower case and have their line breaks dropped; files encrypted
+ * with letter case preserved are not supported.
+ */
+public class CiphertextSearch {
+
+    private static final String ERR_MESSAGE_EMPTY_PATTERN = "THE SEARCH PATTERN MUST NOT BE EMPTY";
+    private static final String ERR_MESSAGE_NO_KEYS = "AT LEAST ONE KEY IS NEEDED FOR THE SEARCH";
+
+    private final CaesarCipher caesarCipher;
+
+    /**
+     * Constructor initializes the search with the cipher the files were encrypted with.
+     *
+     * @param caesarCipher the cipher used to encrypt the pattern
+     */
+    public CiphertextSearch(CaesarCipher caesarCipher) {
+        this.caesarCipher = caesarCipher;
+    }
+
+    /**
+     * Searches the file for the pattern encrypted with each of the given keys.
+     *
+     * @param path     the UTF-8 ciphertext file
+     * @param pattern  the plaintext to find
+     * @param keys     the keys the file may be encrypted with
+     * @param listener receives every match with its byte offset and key
+     * @return the number of matches
+     * @throws IOException               if an I/O error occurs while reading the file
+     * @throws InvalidCharacterException if the pattern contains a character not present in the alphabet
+     * @throws IllegalArgumentException  if the pattern is empty or no key is given
+     */
+    public long search(Path path, String pattern, int[] keys, MatchListener listener) throws IOException {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException(ERR_MESSAGE_NO_KEYS);
+        }
+
+        // Different keys may still give the same bytes, for example when the pattern is made of pass-through characters
+        Map<String, List<Integer>> keysByPattern = new LinkedHashMap<>();
+        for (int key : keys) {
+            String encrypted = caesarCipher.encrypt(pattern, key);
+            if (encrypted.isEmpty()) {
+                throw new IllegalArgumentException(ERR_MESSAGE_EMPTY_PATTERN);
+            }
+            keysByPattern.computeIfAbsent(encrypted, k -> new ArrayList<>()).add(key);
+        }
+
+        byte[][] patterns = new byte[keysByPattern.size()][];
+        int[][] patternKeys = new int[patterns.length][];
+        int p = 0;
+        for (Map.Entry<String, List<Integer>> entry : keysByPattern.entrySet()) {
+            patterns[p] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            patternKeys[p] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            p++;
+        }
+
+        BytePatternMatcher matcher = patterns.length == 1
+                ? new BoyerMooreHorspool(patterns[0])
+                : new AhoCorasick(patterns);
+        return search(path, matcher, patternKeys, listener);
+    }
+
+    /**
+     * Runs the matcher over the file window by window and translates pattern numbers back to keys.
+     */
+    private long search(Path path, BytePatternMatcher matcher, int[][] patternKeys, MatchListener listener)
+            throws IOException {
+        long[] matches = new long[1];
+        BytePatternMatcher.PatternListener patternListener = (offset, pattern) -> {
+            for (int key : patternKeys[pattern]) {
+                listener.matchFound(offset, key);
+                matches[0]++;
+            }
+        };
+        int overlap = matcher.maxPatternLength() - 1;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += FileHandler.MAPPED_WINDOW_SIZE) {
+                int startLimit = (int) Math.min(FileHandler.MAPPED_WINDOW_SIZE, size - position);
+                int windowSize = (int) Math.min(FileHandler.MAPPED_WINDOW_SIZE + overlap, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                matcher.search(window, 0, startLimit, windowSize, position, patternListener);
+            }
+        }
+        return matches[0];
+    }
+
+    /**
+     * Returns every key, one per shift.
+     *
+     * @return the keys {@code 0} to {@code alphabet size - 1}
+     */
+    public int[] allKeys() {
+        int[] keys = new int[caesarCipher.getAlphabet().size()];
+        Arrays.setAll(keys, i -> i);
+        return keys;
+    }
+
+    /**
+     * Returns the distinct keys of an inclusive key range, reduced to the alphabet size. Keys that differ by
+     * a multiple of the alphabet size are the same shift, so a range of at least the alphabet size is every key.
+     *
+     * @param firstKey the first key
+     * @param lastKey  the last key, not smaller than the first
+     * @return the distinct keys in {@code [0, alphabet size)}, in the order of the range
+     */
+    public int[] keysInRange(long firstKey, long lastKey) {
+        int size = caesarCipher.getAlphabet().size();
+        long span = lastKey - firstKey;
+        // A negative span means the subtraction overflowed, which only a range far wider than the alphabet does
+        if (span < 0 || span >= size - 1) {
+            return allKeys();
+        }
+        int[] keys = new int[(int) span + 1];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (int) Math.floorMod(firstKey + i, (long) size);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.javarush.dnekh.cryptoanalyzer.search;
+
+/**
+ * Receives the matches of a ciphertext search as they are found, from the start of the file to its end.
+ */
+@FunctionalInterface
+public interface MatchListener {
+
+    /**
+     * Called for every match.
+     *
+     * @param offset the byte offset in the ciphertext file where the match starts
+     * @param key    the key with which the pattern was encrypted to produce the match
+     */
+    void matchFound(long offset, int key);
+}
@@ -0,0 +1,296 @@
+package ru.javarush.dnekh.cryptoanalyzer.server;
+
+import ru.javarush.dnekh.cryptoanalyzer.exception.ErrorHandler;
+import ru.javarush.dnekh.cryptoanalyzer.ui.CommandLineArguments;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class sends a text to a running {@link CipherServer} and copies the answer to an output stream,
+ * so shell scripts can use the resident server instead of starting the full application for every file.
+ * The text is streamed to the server while the answer is streamed back.
+ * <p>
+ * It has its own entry point that loads neither the cipher nor the analyzers, for example
+ * {@code java -cp cryptoanalyzer.jar ru.javarush.dnekh.cryptoanalyzer.server.CipherClient encrypt --key 3 < in.txt > out.txt}.
+ */
+public class CipherClient {
+
+    private static final String ENCRYPT_COMMAND = "encrypt";
+    private static final String DECRYPT_COMMAND = "decrypt";
+    private static final String RECOVER_KEY_COMMAND = "recover-key";
+    private static final String KEY_OPTION = "key";
+    private static final String PRESERVE_CASE_OPTION = "preserve-case";
+    private static final String PORT_OPTION = "port";
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE_MESSAGE = """
+                USAGE:
+                  encrypt --key <key> [--preserve-case] [--port <port>]
+                  decrypt --key <key> [--preserve-case] [--port <port>]
+                                         Encrypt or decrypt standard input on the server to standard output.
+                  recover-key [--port <port>]
+                                         Print the shift, the language and the confidence of standard input.
+                """;
+    private static final String UNKNOWN_COMMAND_MESSAGE = "UNKNOWN COMMAND: ";
+    private static final String MISSING_COMMAND_MESSAGE = "MISSING COMMAND";
+    private static final String REQUEST_FAILED_MESSAGE = "REQUEST FAILED: ";
+    private static final String SERVER_ERROR_MESSAGE = "SERVER ANSWERED %d: %s";
+    private static final String TRUNCATED_RESPONSE_MESSAGE = "THE SERVER CLOSED THE CONNECTION BEFORE THE END OF THE ANSWER";
+    private static final String MALFORMED_RESPONSE_MESSAGE = "MALFORMED ANSWER FROM THE SERVER";
+
+    private static final String REQUEST_HEAD_FORMAT = "%s %s HTTP/1.1\r\n"
+            + "Host: 127.0.0.1:%d\r\n"
+            + "Content-Type: text/plain; charset=UTF-8\r\n"
+            + "Transfer-Encoding: chunked\r\n"
+            + "Connection: close\r\n"
+            + "\r\n";
+    private static final String TRANSFER_ENCODING_HEADER = "Transfer-Encoding";
+    private static final String CHUNKED = "chunked";
+    private static final String CRLF = "\r\n";
+    private static final byte[] CRLF_BYTES = CRLF.getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] LAST_CHUNK = ("0" + CRLF + CRLF).getBytes(StandardCharsets.ISO_8859_1);
+    private static final int STATUS_OK = 200;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int port;
+
+    /**
+     * Constructor initializes a client for the server on the given local port.
+     *
+     * @param port the port the server listens on
+     */
+    public CipherClient(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Sends standard input to the server on 127.0.0.1 and writes the answer to standard output.
+     * Exits with status 0 on success, 1 if the request failed and 2 for invalid arguments.
+     *
+     * @param args the operation followed by its options
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    private static int run(String[] args) {
+        CommandLineArguments arguments;
+        int port;
+        try {
+            if (args.length == 0) {
+                throw new IllegalArgumentException(MISSING_COMMAND_MESSAGE);
+            }
+            arguments = CommandLineArguments.parse(args);
+            port = arguments.hasOption(PORT_OPTION) ? arguments.getIntOption(PORT_OPTION) : CipherServer.DEFAULT_PORT;
+        } catch (IllegalArgumentException e) {
+            ErrorHandler.showErrorOnStderr(ErrorHandler.INVALID_ARGUMENTS_MESSAGE + e.getMessage());
+            ErrorHandler.showErrorOnStderr(USAGE_MESSAGE);
+            return EXIT_USAGE;
+        }
+
+        CipherClient client = new CipherClient(port);
+        try (FileInputStream input = new FileInputStream(FileDescriptor.in);
+             FileOutputStream output = new FileOutputStream(FileDescriptor.out)) {
+            switch (arguments.getCommand()) {
+                case ENCRYPT_COMMAND, DECRYPT_COMMAND -> client.transform(DECRYPT_COMMAND.equals(arguments.getCommand()),
+                        arguments.getIntOption(KEY_OPTION), arguments.hasOption(PRESERVE_CASE_OPTION), input, output);
+                case RECOVER_KEY_COMMAND -> client.recoverKey(input, output);
+                default -> throw new IllegalArgumentException(UNKNOWN_COMMAND_MESSAGE + arguments.getCommand());
+            }
+            return EXIT_SUCCESS;
+        } catch (IllegalArgumentException e) {
+            ErrorHandler.showErrorOnStderr(ErrorHandler.INVALID_ARGUMENTS_MESSAGE + e.getMessage());
+            ErrorHandler.showErrorOnStderr(USAGE_MESSAGE);
+            return EXIT_USAGE;
+        } catch (IOException e) {
+            ErrorHandler.showErrorOnStderr(REQUEST_FAILED_MESSAGE + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Encrypts or decrypts a text on the server.
+     *
+     * @param decrypt      true to decrypt, false to encrypt
+     * @param key          the key to be used for the encryption or decryption process
+     * @param preserveCase whether upper-case letters keep their case
+     * @param input        the UTF-8 text, read until end of stream
+     * @param output       the stream receiving the result
+     * @throws IOException if the server cannot be reached or rejects the request
+     */
+    public void transform(boolean decrypt, int key, boolean preserveCase, InputStream input, OutputStream output)
+            throws IOException {
+        String path = decrypt ? CipherServer.DECRYPT_PATH : CipherServer.ENCRYPT_PATH;
+        String query = "?" + CipherServer.KEY_PARAMETER + "=" + key
+                + (preserveCase ? "&" + CipherServer.PRESERVE_CASE_PARAMETER : "");
+        send(path + query, input, output);
+    }
+
+    /**
+     * Recovers the key of a text on the server.
+     *
+     * @param input  the UTF-8 ciphertext, read until end of stream
+     * @param output the stream receiving one line with the shift, the language and the confidence
+     * @throws IOException if the server cannot be reached or rejects the request
+     */
+    public void recoverKey(InputStream input, OutputStream output) throws IOException {
+        send(CipherServer.RECOVER_KEY_PATH, input, output);
+    }
+
+    /**
+     * Sends one request over a plain socket. The request body is written by a separate thread with chunked
+     * transfer encoding while this thread reads the response, because the server starts answering before
+     * the request is complete and would stall once the unread response filled the socket buffers.
+     */
+    private void send(String pathAndQuery, InputStream input, OutputStream output) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream requestStream = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+            requestStream.write(String.format(REQUEST_HEAD_FORMAT, CipherServer.POST_METHOD, pathAndQuery, port)
+                    .getBytes(StandardCharsets.ISO_8859_1));
+
+            AtomicReference<IOException> uploadFailure = new AtomicReference<>();
+            Thread uploader = new Thread(() -> {
+                try {
+                    writeChunked(input, requestStream);
+                } catch (IOException e) {
+                    // The server stops reading when it rejects the request; its answer explains why
+                    uploadFailure.set(e);
+                }
+            });
+            uploader.setDaemon(true);
+            uploader.start();
+
+            InputStream responseStream = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            int status = readStatus(responseStream);
+            boolean chunked = readChunkedHeader(responseStream);
+            if (status != STATUS_OK) {
+                ByteArrayOutputStream message = new ByteArrayOutputStream();
+                copyBody(responseStream, message, chunked);
+                throw new IOException(String.format(SERVER_ERROR_MESSAGE, status,
+                        message.toString(StandardCharsets.UTF_8).strip()));
+            }
+            copyBody(responseStream, output, chunked);
+            output.flush();
+
+            try {
+                uploader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (uploadFailure.get() != null) {
+                throw uploadFailure.get();
+            }
+        }
+    }
+
+    private static void writeChunked(InputStream input, OutputStream requestStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            if (read > 0) {
+                requestStream.write((Integer.toHexString(read) + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+                requestStream.write(buffer, 0, read);
+                requestStream.write(CRLF_BYTES);
+                // Send what is available now, the response for it can be produced right away
+                requestStream.flush();
+            }
+        }
+        requestStream.write(LAST_CHUNK);
+        requestStream.flush();
+    }
+
+    private static int readStatus(InputStream responseStream) throws IOException {
+        // HTTP/1.1 200 OK
+        String[] statusLine = readLine(responseStream).split(" ", 3);
+        try {
+            return Integer.parseInt(statusLine[1]);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IOException(MALFORMED_RESPONSE_MESSAGE);
+        }
+    }
+
+    /**
+     * Reads the response headers.
+     *
+     * @return true if the body uses chunked transfer encoding, false if it ends with the connection
+     */
+    private static boolean readChunkedHeader(InputStream responseStream) throws IOException {
+        boolean chunked = false;
+        String header;
+        while (!(header = readLine(responseStream)).isEmpty()) {
+            int separator = header.indexOf(':');
+            if (separator > 0 && header.substring(0, separator).trim().equalsIgnoreCase(TRANSFER_ENCODING_HEADER)) {
+                chunked = header.substring(separator + 1).trim().equalsIgnoreCase(CHUNKED);
+            }
+        }
+        return chunked;
+    }
+
+    /**
+     * Copies the response body. A chunked body that ends before its last chunk means the server failed
+     * in the middle of the text, which is reported instead of returning a truncated result.
+     */
+    private static void copyBody(InputStream responseStream, OutputStream output, boolean chunked) throws IOException {
+        if (!chunked) {
+            // Every request asks to close the connection, so the body ends with the stream
+            responseStream.transferTo(output);
+            return;
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (true) {
+            String sizeLine = readLine(responseStream);
+            int extension = sizeLine.indexOf(';');
+            int size;
+            try {
+                size = Integer.parseInt((extension < 0) ? sizeLine.trim() : sizeLine.substring(0, extension).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException(MALFORMED_RESPONSE_MESSAGE);
+            }
+            if (size == 0) {
+                while (!readLine(responseStream).isEmpty()) {
+                    // Skip trailers
+                }
+                return;
+            }
+            while (size > 0) {
+                int read = responseStream.read(buffer, 0, Math.min(size, buffer.length));
+                if (read == -1) {
+                    throw new IOException(TRUNCATED_RESPONSE_MESSAGE);
+                }
+                output.write(buffer, 0, read);
+                size -= read;
+            }
+            readLine(responseStream);
+        }
+    }
+
+    private static String readLine(InputStream responseStream) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = responseStream.read()) != '\n') {
+            if (b == -1) {
+                throw new IOException(TRUNCATED_RESPONSE_MESSAGE);
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
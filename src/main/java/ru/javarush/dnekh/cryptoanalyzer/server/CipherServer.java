@@ -0,0 +1,281 @@
+package ru.javarush.dnekh.cryptoanalyzer.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.KeyRecoveryResult;
+import ru.javarush.dnekh.cryptoanalyzer.exception.ErrorHandler;
+import ru.javarush.dnekh.cryptoanalyzer.service.FileProcessor;
+import ru.javarush.dnekh.cryptoanalyzer.service.OperationSuffix;
+import ru.javarush.dnekh.cryptoanalyzer.utils.ConcurrencyUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * This class keeps one {@link FileProcessor} resident behind a local HTTP server, so jobs do not pay
+ * for JVM startup, class loading and model loading every time. It listens on the loopback address only.
+ * <p>
+ * Requests are {@code POST}s whose body is the UTF-8 text:
+ * <ul>
+ *     <li>{@code /encrypt?key=3} and {@code /decrypt?key=3}, optionally with {@code &preserve-case},
+ *     answer with the transformed text;</li>
+ *     <li>{@code /recover-key} answers with one line: the shift, the language and the confidence.</li>
+ * </ul>
+ * Bodies are streamed in both directions: the response starts while the request is still arriving,
+ * so memory usage does not depend on the text size. If the text turns out to be invalid after the response
+ * has started, the connection is dropped before the end of the chunked response, so the client sees an error
+ * rather than a silently truncated result. Every request runs on its own thread from
+ * {@link ConcurrencyUtils#newThreadPerTaskExecutor()}, but only a bounded number of them are handled at once:
+ * a request arriving while all permits are taken is answered right away with 503 Service Unavailable,
+ * so a burst of clients cannot exhaust memory or file descriptors.
+ * <p>
+ * {@link CipherClient} is a small client for shell scripts; {@code curl -sSf -T - -X POST
+ * 'http://127.0.0.1:8765/encrypt?key=3'} works as well.
+ */
+public class CipherServer {
+
+    /**
+     * Port used when none is given.
+     */
+    public static final int DEFAULT_PORT = 8765;
+
+    /**
+     * Number of requests handled at the same time when no other limit is given.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+
+    static final String ENCRYPT_PATH = "/encrypt";
+    static final String DECRYPT_PATH = "/decrypt";
+    static final String RECOVER_KEY_PATH = "/recover-key";
+    static final String KEY_PARAMETER = "key";
+    static final String PRESERVE_CASE_PARAMETER = "preserve-case";
+    static final String POST_METHOD = "POST";
+
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String ALLOW_HEADER = "Allow";
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=UTF-8";
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_BAD_REQUEST = 400;
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+    private static final int STATUS_SERVICE_UNAVAILABLE = 503;
+    private static final int CHUNKED_RESPONSE = 0;
+    private static final String KEY_RESULT_FORMAT = "%d %s %.2f%n";
+
+    private static final String ERR_MESSAGE_METHOD_NOT_ALLOWED = "ONLY POST REQUESTS ARE SUPPORTED";
+    private static final String ERR_MESSAGE_MISSING_PARAMETER = "MISSING PARAMETER: ";
+    private static final String ERR_MESSAGE_NOT_A_NUMBER = "PARAMETER %s MUST BE AN INTEGER: %s";
+    private static final String ERR_MESSAGE_BUSY = "TOO MANY REQUESTS IN PROGRESS, TRY AGAIN LATER";
+    private static final String ERR_MESSAGE_MAX_REQUESTS = "MAXIMUM NUMBER OF CONCURRENT REQUESTS MUST BE POSITIVE: ";
+    private static final String REQUEST_FAILED_MESSAGE = "REQUEST %s FAILED: %s";
+
+    private final FileProcessor fileProcessor;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final Semaphore requestPermits;
+
+    /**
+     * Constructor binds the server to a port of the loopback address and handles up to
+     * {@link #DEFAULT_MAX_CONCURRENT_REQUESTS} requests at once. The server does not accept
+     * requests until it is started.
+     *
+     * @param fileProcessor the processor performing the operations
+     * @param port          the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public CipherServer(FileProcessor fileProcessor, int port) throws IOException {
+        this(fileProcessor, port, DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    /**
+     * Constructor binds the server to a port of the loopback address. The server does not accept
+     * requests until it is started.
+     *
+     * @param fileProcessor         the processor performing the operations
+     * @param port                  the port to listen on, or 0 for any free port
+     * @param maxConcurrentRequests the number of requests handled at once; further requests get 503
+     * @throws IOException if the port cannot be bound
+     */
+    public CipherServer(FileProcessor fileProcessor, int port, int maxConcurrentRequests) throws IOException {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException(ERR_MESSAGE_MAX_REQUESTS + maxConcurrentRequests);
+        }
+        this.fileProcessor = fileProcessor;
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = ConcurrencyUtils.newThreadPerTaskExecutor();
+        this.requestPermits = new Semaphore(maxConcurrentRequests);
+
+        httpServer.createContext(ENCRYPT_PATH, limited(exchange -> handleTransform(exchange, OperationSuffix.ENCRYPT)));
+        httpServer.createContext(DECRYPT_PATH, limited(exchange -> handleTransform(exchange, OperationSuffix.DECRYPT)));
+        httpServer.createContext(RECOVER_KEY_PATH, limited(this::handleRecoverKey));
+        httpServer.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * Stops accepting requests, waits for running requests up to the given delay and releases the threads.
+     *
+     * @param delaySeconds the maximum time to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        httpServer.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the port the server listens on, which is useful when it was created with port 0.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Wraps a handler so that it runs only while a request permit is free, and answers with
+     * 503 Service Unavailable otherwise instead of queueing the request.
+     */
+    private HttpHandler limited(HttpHandler handler) {
+        return exchange -> {
+            if (!requestPermits.tryAcquire()) {
+                exchange.getResponseHeaders().set(RETRY_AFTER_HEADER, RETRY_AFTER_SECONDS);
+                sendError(exchange, STATUS_SERVICE_UNAVAILABLE, ERR_MESSAGE_BUSY);
+                return;
+            }
+            try {
+                handler.handle(exchange);
+            } finally {
+                requestPermits.release();
+            }
+        };
+    }
+
+    /**
+     * Streams the request body through the cipher into the response body. Failures after the response
+     * has started are rethrown, which makes the HTTP server drop the connection.
+     */
+    private void handleTransform(HttpExchange exchange, OperationSuffix operationSuffix) throws IOException {
+        if (!acceptPost(exchange)) {
+            return;
+        }
+        Map<String, String> parameters;
+        int key;
+        try {
+            parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            key = getIntParameter(parameters, KEY_PARAMETER);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, STATUS_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        try {
+            exchange.getResponseHeaders().set(CONTENT_TYPE_HEADER, TEXT_CONTENT_TYPE);
+            exchange.sendResponseHeaders(STATUS_OK, CHUNKED_RESPONSE);
+            fileProcessor.processStream(Channels.newChannel(exchange.getRequestBody()),
+                    Channels.newChannel(exchange.getResponseBody()), operationSuffix, key,
+                    parameters.containsKey(PRESERVE_CASE_PARAMETER));
+        } catch (IOException | RuntimeException e) {
+            reportFailure(exchange, e);
+            throw e;
+        }
+        // Closing the exchange completes the chunked response, so it must not happen on failure
+        exchange.close();
+    }
+
+    /**
+     * Recovers the key of the request body and answers with the shift, the language and the confidence.
+     */
+    private void handleRecoverKey(HttpExchange exchange) throws IOException {
+        if (!acceptPost(exchange)) {
+            return;
+        }
+        KeyRecoveryResult result;
+        try {
+            result = fileProcessor.recoverKey(Channels.newChannel(exchange.getRequestBody()));
+        } catch (IOException | RuntimeException e) {
+            reportFailure(exchange, e);
+            throw e;
+        }
+        send(exchange, STATUS_OK, String.format(Locale.ROOT, KEY_RESULT_FORMAT, result.getShift(),
+                result.getLanguage().name().toLowerCase(Locale.ROOT), result.getConfidence()));
+    }
+
+    /**
+     * Answers anything but a POST with 405 Method Not Allowed.
+     *
+     * @return true if the request is a POST and should be handled
+     */
+    private static boolean acceptPost(HttpExchange exchange) throws IOException {
+        if (POST_METHOD.equals(exchange.getRequestMethod())) {
+            return true;
+        }
+        exchange.getResponseHeaders().set(ALLOW_HEADER, POST_METHOD);
+        sendError(exchange, STATUS_METHOD_NOT_ALLOWED, ERR_MESSAGE_METHOD_NOT_ALLOWED);
+        return false;
+    }
+
+    private static void reportFailure(HttpExchange exchange, Exception e) {
+        ErrorHandler.showErrorOnStderr(String.format(REQUEST_FAILED_MESSAGE, exchange.getRequestURI(), e.getMessage()));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, message + System.lineSeparator());
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set(CONTENT_TYPE_HEADER, TEXT_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+        exchange.close();
+    }
+
+    /**
+     * Parses a query string such as {@code key=3&preserve-case}; parameters without a value map to "".
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = (separator < 0) ? parameter : parameter.substring(0, separator);
+            String value = (separator < 0) ? "" : parameter.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static int getIntParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException(ERR_MESSAGE_MISSING_PARAMETER + name);
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(ERR_MESSAGE_NOT_A_NUMBER, name, value));
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package ru.javarush.dnekh.cryptoanalyzer.service;
+
+import ru.javarush.dnekh.cryptoanalyzer.analysis.KeyRecoveryResult;
+import ru.javarush.dnekh.cryptoanalyzer.exception.ErrorHandler;
+import ru.javarush.dnekh.cryptoanalyzer.io.FileHandler;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.MeteredOperation;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.OperationMetrics;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.Phase;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.PhaseEvent;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.utils.ConcurrencyUtils;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class applies one operation to every matching file of a directory tree concurrently.
+ * Every file runs on its own (virtual, when available) thread, while a semaphore bounds the number of files
+ * in flight so memory stays capped. Outputs are written next to the inputs with the usual operation suffixes,
+ * and a per-file timing report with the aggregate throughput is printed at the end.
+ * <p>
+ * Every file is transformed in {@link ProcessingMode#MAPPED} mode, whatever mode the {@link FileProcessor}
+ * is configured with: the batch already runs many files at once, so splitting single files across threads
+ * would only compete for the same cores, and a failed batch file is simply processed again.
+ */
+public class BatchProcessor {
+
+    /**
+     * Default number of files processed at the same time.
+     */
+    public static final int DEFAULT_MAX_FILES_IN_FLIGHT = 64;
+
+    private static final String GLOB_SYNTAX = "glob:";
+    private static final String NO_FILES_MESSAGE = "No matching files found in: ";
+    private static final String FILE_RESULT_FORMAT = "%-60s %12d bytes %10.1f ms %s%n";
+    private static final String FILE_ERROR_FORMAT = "%-60s FAILED: %s%n";
+    private static final String SUMMARY_FORMAT = "Processed %d of %d files, %d bytes in %.1f ms (%.1f MB/s)%n";
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private final FileHandler fileHandler;
+    private final CaesarCipher caesarCipher;
+    private final FileProcessor fileProcessor;
+    private final int maxFilesInFlight;
+
+    /**
+     * Constructor initializes the batch processor.
+     *
+     * The cipher and the file handler of the processor are shared, so the alphabet is loaded once
+     * and the compiled shift tables are cached in one place.
+     *
+     * @param fileProcessor    the processor used to recover keys for brute force operations
+     * @param maxFilesInFlight the maximum number of files processed at the same time
+     */
+    public BatchProcessor(FileProcessor fileProcessor, int maxFilesInFlight) {
+        this.fileHandler = fileProcessor.getFileHandler();
+        this.caesarCipher = fileProcessor.getCaesarCipher();
+        this.fileProcessor = fileProcessor;
+        this.maxFilesInFlight = maxFilesInFlight;
+    }
+
+    /**
+     * Applies the operation to every regular file under the directory whose name matches the glob pattern.
+     * Files produced by earlier runs of any operation (carrying one of the operation suffixes) are skipped,
+     * except that decrypting operations take encrypted files as their input.
+     *
+     * @param directoryPath   the root of the directory tree
+     * @param fileGlob        the file name pattern, for example {@code *.txt}
+     * @param operationSuffix the operation to apply: ENCRYPT, DECRYPT or BRUTE_FORCE_DECRYPT
+     * @param key             the key for encryption or decryption, ignored for brute force
+     */
+    public void processDirectory(String directoryPath, String fileGlob, OperationSuffix operationSuffix, int key) {
+        processDirectory(directoryPath, fileGlob, operationSuffix, key, false);
+    }
+
+    /**
+     * Applies the operation to every matching file under the directory, optionally preserving letter case.
+     *
+     * @param directoryPath   the root of the directory tree
+     * @param fileGlob        the file name pattern, for example {@code *.txt}
+     * @param operationSuffix the operation to apply: ENCRYPT, DECRYPT or BRUTE_FORCE_DECRYPT
+     * @param key             the key for encryption or decryption, ignored for brute force
+     * @param preserveCase    whether upper-case letters keep their case
+     */
+    public void processDirectory(String directoryPath, String fileGlob, OperationSuffix operationSuffix, int key,
+                                 boolean preserveCase) {
+        List<Path> files;
+        try {
+            files = findFiles(Paths.get(directoryPath), fileGlob, operationSuffix);
+        } catch (IOException e) {
+            ErrorHandler.showError(ErrorHandler.FILE_ERROR_MESSAGE + e.getMessage());
+            return;
+        }
+        if (files.isEmpty()) {
+            System.out.println(NO_FILES_MESSAGE + directoryPath);
+            return;
+        }
+
+        Semaphore permits = new Semaphore(maxFilesInFlight);
+        List<Future<FileResult>> futures = new ArrayList<>(files.size());
+        long start = System.nanoTime();
+
+        ExecutorService executor = ConcurrencyUtils.newThreadPerTaskExecutor();
+        try {
+            for (Path file : files) {
+                permits.acquire();
+                futures.add(executor.submit(() -> {
+                    try {
+                        return processFile(file, operationSuffix, key, preserveCase);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+
+        List<FileResult> results = new ArrayList<>(futures.size());
+        for (Future<FileResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                ErrorHandler.showError(ErrorHandler.SOME_ERROR + e.getMessage());
+            }
+        }
+
+        printReport(results, files.size(), System.nanoTime() - start);
+    }
+
+    private List<Path> findFiles(Path directory, String fileGlob, OperationSuffix operationSuffix) throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher(GLOB_SYNTAX + fileGlob);
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(path.getFileName()))
+                    .filter(path -> !isOperationOutput(path, operationSuffix))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Checks whether a file was written by an operation and is not an input of the given one, so a run does not
+     * pick up the outputs that earlier runs of any operation left next to the inputs.
+     */
+    private static boolean isOperationOutput(Path path, OperationSuffix operationSuffix) {
+        String fileName = path.getFileName().toString();
+        // The suffix goes right before the extension, as FileHandler.generateOutputFilePath puts it
+        int extensionIndex = fileName.lastIndexOf('.');
+        String baseName = (extensionIndex > 0) ? fileName.substring(0, extensionIndex) : fileName;
+        for (OperationSuffix suffix : OperationSuffix.values()) {
+            // Decrypting runs are meant for the files that encrypting runs wrote
+            boolean input = !operationSuffix.isEncryption() && suffix.isEncryption();
+            if (!input && endsWithSuffix(baseName, suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a file name without its extension ends with an operation suffix,
+     * followed by the shift for the all-shifts decryption.
+     */
+    private static boolean endsWithSuffix(String baseName, OperationSuffix suffix) {
+        if (suffix != OperationSuffix.ALL_SHIFTS_DECRYPT) {
+            return baseName.endsWith(suffix.getSuffix());
+        }
+        int shiftIndex = baseName.lastIndexOf(suffix.getSuffix()) + suffix.getSuffix().length();
+        if (shiftIndex < suffix.getSuffix().length() || shiftIndex == baseName.length()) {
+            return false;
+        }
+        for (int i = shiftIndex; i < baseName.length(); i++) {
+            char c = baseName.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Processes a single file and measures how long it took. Failures are recorded in the result
+     * instead of aborting the whole batch.
+     */
+    private FileResult processFile(Path file, OperationSuffix operationSuffix, int key, boolean preserveCase) {
+        MeteredOperation operation = MeteredOperation.of(operationSuffix);
+        long start = System.nanoTime();
+        try {
+            long size = Files.size(file);
+            Path outputPath = Paths.get(fileHandler.generateOutputFilePath(file.toString(), operationSuffix));
+            String details = "";
+
+            int shift;
+            switch (operationSuffix) {
+                case ENCRYPT -> shift = key;
+                case DECRYPT -> shift = -key;
+                default -> {
+                    KeyRecoveryResult result = fileProcessor.recoverKey(file.toString());
+                    shift = -result.getShift();
+                    details = result.toString();
+                }
+            }
+
+            long transformStart = System.nanoTime();
+            PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, operation, file.toString());
+            long characters = fileHandler.transformFileMapped(file, outputPath,
+                    caesarCipher.getUtf8ShiftTable(shift, preserveCase)).getCharacters();
+            transformEvent.finish(size, characters);
+            OperationMetrics.of(operation).recordSuccess(System.nanoTime() - transformStart, size, characters);
+            return new FileResult(file, size, System.nanoTime() - start, details, null);
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(operation).recordFailure(System.nanoTime() - start);
+            return new FileResult(file, 0, System.nanoTime() - start, "", e.getMessage());
+        }
+    }
+
+    private void printReport(List<FileResult> results, int fileCount, long elapsedNanos) {
+        long totalBytes = 0;
+        int succeeded = 0;
+        for (FileResult result : results) {
+            if (result.error == null) {
+                System.out.printf(FILE_RESULT_FORMAT, result.file, result.bytes, result.nanos / NANOS_PER_MILLI, result.details);
+                totalBytes += result.bytes;
+                succeeded++;
+            } else {
+                System.out.printf(FILE_ERROR_FORMAT, result.file, result.error);
+            }
+        }
+
+        double elapsedMillis = elapsedNanos / NANOS_PER_MILLI;
+        double megabytesPerSecond = elapsedNanos == 0 ? 0 : (totalBytes / BYTES_PER_MEGABYTE) / (elapsedNanos / 1e9);
+        System.out.printf(SUMMARY_FORMAT, succeeded, fileCount, totalBytes, elapsedMillis, megabytesPerSecond);
+        System.out.println();
+    }
+
+    /**
+     * The outcome of processing one file.
+     */
+    private static class FileResult {
+
+        private final Path file;
+        private final long bytes;
+        private final long nanos;
+        private final String details;
+        private final String error;
+
+        FileResult(Path file, long bytes, long nanos, String details, String error) {
+            this.file = file;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.details = details;
+            this.error = error;
+        }
+    }
+}
@@ -1,56 +1,640 @@
 package ru.javarush.dnekh.cryptoanalyzer.service;
 
+import ru.javarush.dnekh.cryptoanalyzer.analysis.FrequencyAnalyzer;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.HistogramBuilder;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.KeyRecoveryCache;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.KeyRecoveryResult;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.NGramAnalyzer;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.SampledKeyFinder;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.VigenereKeyFinder;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.VigenereKeyResult;
+import ru.javarush.dnekh.cryptoanalyzer.io.FileFollower;
 import ru.javarush.dnekh.cryptoanalyzer.io.FileHandler;
+import ru.javarush.dnekh.cryptoanalyzer.io.LineIndex;
+import ru.javarush.dnekh.cryptoanalyzer.io.RangeTransformer;
+import ru.javarush.dnekh.cryptoanalyzer.io.TransformResult;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.MeteredOperation;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.OperationMetrics;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.Phase;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.PhaseEvent;
+import ru.javarush.dnekh.cryptoanalyzer.model.AllShiftsTable;
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
 import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.model.PolyalphabeticTable;
+import ru.javarush.dnekh.cryptoanalyzer.model.ShiftTable;
+import ru.javarush.dnekh.cryptoanalyzer.search.CiphertextSearch;
+import ru.javarush.dnekh.cryptoanalyzer.search.MatchListener;
 import ru.javarush.dnekh.cryptoanalyzer.exception.ErrorHandler;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
 
 /**
  * This class handles file processing operations such as encryption, decryption, and brute force decryption.
  * It interacts with the `FileHandler` and `CaesarCipher` classes to read, process, and write text files.
+ * Every phase is recorded as a {@link PhaseEvent} for Java Flight Recorder, and every operation
+ * is counted and timed in {@link OperationMetrics}, which is exposed over JMX.
  */
 public class FileProcessor {
 
+    /**
+     * System property setting the number of worker threads, for example {@code -Dcryptoanalyzer.parallelism=4}.
+     * Without it one thread per available processor is used.
+     */
+    public static final String PARALLELISM_PROPERTY = "cryptoanalyzer.parallelism";
+
     private final FileHandler fileHandler;
     private final CaesarCipher caesarCipher;
+    private final FrequencyAnalyzer frequencyAnalyzer;
+    private final SampledKeyFinder sampledKeyFinder;
+    private final VigenereKeyFinder vigenereKeyFinder;
+    private final KeyRecoveryCache keyRecoveryCache;
+    private final CiphertextSearch ciphertextSearch;
+    private final ProcessingMode processingMode;
+    private final int parallelism;
+    private NGramAnalyzer nGramAnalyzer;
+    private boolean nGramAnalyzerLoaded;
 
     private static final String ENCRYPT_DECRYPT_RESULT_MESSAGE = "File %s successfully.";
     private static final String BRUTE_FORCE_RESULT_MESSAGE = "File decrypted using Brute Force successfully.";
     private static final String SAVED_TO_MESSAGE = "Result saved to: ";
+    private static final String KEY_RECOVERED_MESSAGE = "Recovered key: ";
+    private static final String KEYWORD_RECOVERED_MESSAGE = "Recovered keyword: ";
+    private static final double LOW_CONFIDENCE_THRESHOLD = 0.3;
+    private static final String STANDARD_STREAMS_PATH = "<stdin>";
+    private static final String RESUMED_MESSAGE = "Resumed an interrupted run after %d of %d bytes.%n";
+    private static final String LINE_INDEX_MESSAGE = "Line index of %d lines saved to: %s%n";
+    private static final String ERR_MESSAGE_PARALLELISM = "PARALLELISM MUST BE A POSITIVE NUMBER: ";
 
     /**
      * Constructor initializes the `FileProcessor` with instances of `FileHandler` and `CaesarCipher`.
+     * Parallel processing uses one thread per available processor.
      */
     public FileProcessor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor initializes the `FileProcessor` with the number of threads used in parallel mode.
+     * Files are processed in streaming mode.
+     *
+     * @param parallelism the number of worker threads for {@link ProcessingMode#PARALLEL}
+     */
+    public FileProcessor(int parallelism) {
+        this(ProcessingMode.STREAMING, parallelism);
+    }
+
+    /**
+     * Constructor initializes the `FileProcessor` with the processing mode of file operations
+     * and the number of threads used in parallel mode and for key recovery.
+     *
+     * @param processingMode the way files are read, transformed and written
+     *                       unless an operation names another mode
+     * @param parallelism    the number of worker threads
+     */
+    public FileProcessor(ProcessingMode processingMode, int parallelism) {
         this.fileHandler = new FileHandler();
         this.caesarCipher = new CaesarCipher();
+        this.frequencyAnalyzer = new FrequencyAnalyzer(caesarCipher.getAlphabet());
+        this.sampledKeyFinder = new SampledKeyFinder(frequencyAnalyzer,
+                SampledKeyFinder.DEFAULT_CONFIDENCE_THRESHOLD, parallelism);
+        this.vigenereKeyFinder = new VigenereKeyFinder(frequencyAnalyzer, caesarCipher.getAlphabet(),
+                VigenereKeyFinder.DEFAULT_MAX_KEY_LENGTH, parallelism);
+        this.keyRecoveryCache = KeyRecoveryCache.fromConfiguration(caesarCipher.getAlphabet());
+        this.ciphertextSearch = new CiphertextSearch(caesarCipher);
+        this.processingMode = processingMode;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the processor selected by the system properties: the processing mode named by
+     * {@value ProcessingMode#MODE_PROPERTY} and the number of threads set by {@value #PARALLELISM_PROPERTY},
+     * each with its default if the property is not set.
+     *
+     * @return the configured processor
+     * @throws IllegalStateException if a property has an invalid value or the configured alphabet is invalid
+     */
+    public static FileProcessor fromConfiguration() {
+        String mode = System.getProperty(ProcessingMode.MODE_PROPERTY);
+        String threads = System.getProperty(PARALLELISM_PROPERTY);
+        ProcessingMode processingMode;
+        try {
+            processingMode = (mode == null) ? ProcessingMode.STREAMING : ProcessingMode.fromString(mode);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException(ProcessingMode.MODE_PROPERTY + ": " + e.getMessage(), e);
+        }
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        if (threads != null) {
+            try {
+                parallelism = Integer.parseInt(threads.trim());
+            } catch (NumberFormatException e) {
+                parallelism = 0;
+            }
+            if (parallelism < 1) {
+                throw new IllegalStateException(PARALLELISM_PROPERTY + ": " + ERR_MESSAGE_PARALLELISM + threads);
+            }
+        }
+        return new FileProcessor(processingMode, parallelism);
+    }
+
+    /**
+     * Returns the processing mode of file operations that do not name one.
+     *
+     * @return the configured processing mode
+     */
+    public ProcessingMode getProcessingMode() {
+        return processingMode;
+    }
+
+    FileHandler getFileHandler() {
+        return fileHandler;
+    }
+
+    CaesarCipher getCaesarCipher() {
+        return caesarCipher;
     }
 
     /**
      * Processes the file operation for encryption or decryption based on the provided key and operation type.
-     * Reads the content of the file, performs the Caesar cipher operation, and writes the result to a new file.
+     * The file is processed in the configured mode, by default in streaming chunks, so memory usage does not
+     * depend on the file size.
      *
      * @param filePath       the path to the source file
      * @param operationSuffix the enum indicating the operation type (ENCRYPT or DECRYPT)
      * @param key            the key to be used for the encryption or decryption process
      */
     public void processFileOperation(String filePath, OperationSuffix operationSuffix, int key) {
+        processFileOperation(filePath, operationSuffix, key, processingMode);
+    }
+
+    /**
+     * Processes the file operation for encryption or decryption based on the provided key and operation type.
+     * Reads the content of the file, performs the Caesar cipher operation, and writes the result to a new file,
+     * either all at once or chunk by chunk depending on the processing mode.
+     *
+     * @param filePath       the path to the source file
+     * @param operationSuffix the enum indicating the operation type (ENCRYPT or DECRYPT)
+     * @param key            the key to be used for the encryption or decryption process
+     * @param processingMode the way the file is read, transformed and written
+     */
+    public void processFileOperation(String filePath, OperationSuffix operationSuffix, int key, ProcessingMode processingMode) {
+        processFileOperation(filePath, operationSuffix, key, processingMode, false);
+    }
+
+    /**
+     * Processes the file operation for encryption or decryption, optionally preserving letter case.
+     * In case-preserving mode upper-case letters stay upper-case, so decrypting with the same key
+     * and mode restores the original capitalization exactly.
+     *
+     * @param filePath       the path to the source file
+     * @param operationSuffix the enum indicating the operation type (ENCRYPT or DECRYPT)
+     * @param key            the key to be used for the encryption or decryption process
+     * @param processingMode the way the file is read, transformed and written
+     * @param preserveCase   whether upper-case letters keep their case
+     */
+    public void processFileOperation(String filePath, OperationSuffix operationSuffix, int key, ProcessingMode processingMode,
+                                     boolean preserveCase) {
+        int shift = (operationSuffix == OperationSuffix.ENCRYPT) ? key : -key;
+        MeteredOperation operation = MeteredOperation.of(operationSuffix);
+        boolean indexed = operationSuffix == OperationSuffix.ENCRYPT && LineIndex.isEnabled();
+        long start = System.nanoTime();
+
         try {
-            String content = fileHandler.readFile(filePath);
+            long fileSize = Files.size(Paths.get(filePath));
+            long characters;
 
-            String resultContent = (operationSuffix == OperationSuffix.ENCRYPT)
-                    ? caesarCipher.encrypt(content, key)
-                    : caesarCipher.decrypt(content, key);
+            if (processingMode == ProcessingMode.IN_MEMORY) {
+                PhaseEvent readEvent = PhaseEvent.start(Phase.READ, operation, filePath);
+                String content = fileHandler.readFile(filePath);
+                readEvent.finish(fileSize, content.length());
 
-            fileHandler.writeFile(filePath, operationSuffix, resultContent);
+                PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, operation, filePath);
+                String resultContent = caesarCipher.encrypt(content, shift, preserveCase);
+                transformEvent.finish(fileSize, content.length());
+
+                PhaseEvent writeEvent = PhaseEvent.start(Phase.WRITE, operation, filePath);
+                fileHandler.writeFile(filePath, operationSuffix, resultContent);
+                writeEvent.finish(fileSize, resultContent.length());
+                characters = content.length();
+            } else {
+                PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, operation, filePath);
+                characters = switch (processingMode) {
+                    case STREAMING -> fileHandler.transformFile(filePath, operationSuffix,
+                            caesarCipher.getShiftTable(shift, preserveCase), FileHandler.DEFAULT_CHUNK_SIZE);
+                    case RESUMABLE -> {
+                        TransformResult result = fileHandler.transformFileResumable(filePath, operationSuffix,
+                                caesarCipher.getUtf8ShiftTable(shift, preserveCase), jobFingerprint(shift, preserveCase),
+                                indexed);
+                        if (result.getResumedOffset() > 0) {
+                            System.out.printf(RESUMED_MESSAGE, result.getResumedOffset(), fileSize);
+                        }
+                        yield result.getCharacters();
+                    }
+                    case MAPPED -> fileHandler.transformFileMapped(filePath, operationSuffix,
+                            caesarCipher.getUtf8ShiftTable(shift, preserveCase), indexed).getCharacters();
+                    default -> fileHandler.transformFileParallel(filePath, operationSuffix,
+                            caesarCipher.getUtf8ShiftTable(shift, preserveCase), parallelism).getCharacters();
+                };
+                transformEvent.finish(fileSize, characters);
+            }
+            long lines = 0;
+            if (indexed) {
+                // The byte-level modes record the lines while they encrypt; the others leave it to a second pass
+                boolean recorded = processingMode == ProcessingMode.RESUMABLE || processingMode == ProcessingMode.MAPPED;
+                lines = recorded
+                        ? LineIndex.load(ciphertextPathOf(filePath)).getLineCount()
+                        : buildLineIndex(filePath, key, preserveCase);
+            }
+            OperationMetrics.of(operation).recordSuccess(System.nanoTime() - start, fileSize, characters);
 
             System.out.printf(ENCRYPT_DECRYPT_RESULT_MESSAGE, operationSuffix.name().toLowerCase() + "ed");
             System.out.println(SAVED_TO_MESSAGE + fileHandler.generateOutputFilePath(filePath, operationSuffix));
+            if (indexed) {
+                System.out.printf(LINE_INDEX_MESSAGE, lines, LineIndex.indexPathOf(ciphertextPathOf(filePath)));
+            }
             System.out.println();
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(operation).recordFailure(System.nanoTime() - start);
+            ErrorHandler.showError(ErrorHandler.FILE_ERROR_MESSAGE + e.getMessage());
+        }
+    }
+
+    /**
+     * Encrypts or decrypts a file with the Vigenère cipher. The file is streamed through one precomputed
+     * shift table per keyword letter in fixed-size chunks, so memory usage does not depend on the file size.
+     *
+     * @param filePath        the path to the source file
+     * @param operationSuffix VIGENERE_ENCRYPT or VIGENERE_DECRYPT
+     * @param keyword         the keyword, made of alphabet characters in any case
+     * @param preserveCase    whether upper-case letters keep their case
+     * @throws IllegalArgumentException if the keyword is empty or contains a character outside the alphabet
+     */
+    public void processVigenereFileOperation(String filePath, OperationSuffix operationSuffix, String keyword,
+                                             boolean preserveCase) {
+        PolyalphabeticTable table = caesarCipher.getVigenereTable(keyword, !operationSuffix.isEncryption(), preserveCase);
+        MeteredOperation operation = MeteredOperation.of(operationSuffix);
+        long start = System.nanoTime();
+
+        try {
+            long fileSize = Files.size(Paths.get(filePath));
+            PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, operation, filePath);
+            long characters = fileHandler.transformFile(filePath, operationSuffix, table, FileHandler.DEFAULT_CHUNK_SIZE);
+            transformEvent.finish(fileSize, characters);
+            OperationMetrics.of(operation).recordSuccess(System.nanoTime() - start, fileSize, characters);
+            printSaved(filePath, operationSuffix);
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(operation).recordFailure(System.nanoTime() - start);
+            ErrorHandler.showError(ErrorHandler.FILE_ERROR_MESSAGE + e.getMessage());
+        }
+    }
+
+    /**
+     * Decrypts a Vigenère-encrypted file without knowing the keyword: the keyword is recovered first
+     * and the file is then decrypted with it.
+     *
+     * @param filePath     the path to the source file
+     * @param preserveCase whether upper-case letters keep their case
+     */
+    public void handleVigenereBruteForceFileOperation(String filePath, boolean preserveCase) {
+        VigenereKeyResult result;
+        try {
+            result = recoverVigenereKey(filePath);
         } catch (IOException e) {
             ErrorHandler.showError(ErrorHandler.FILE_ERROR_MESSAGE + e.getMessage());
+            return;
+        }
+
+        System.out.println(KEYWORD_RECOVERED_MESSAGE + result);
+        if (result.getConfidence() < LOW_CONFIDENCE_THRESHOLD) {
+            ErrorHandler.showError(ErrorHandler.LOW_CONFIDENCE_MESSAGE);
+        }
+        processVigenereFileOperation(filePath, OperationSuffix.VIGENERE_DECRYPT, result.getKeyword(), preserveCase);
+    }
+
+    /**
+     * Recovers the keyword of a Vigenère-encrypted file without user interaction. The key length is found from
+     * the index of coincidence of the head of the file, and every key position is then solved from the whole file.
+     *
+     * @param filePath the path to the ciphertext file
+     * @return the recovered keyword with its language and confidence
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public VigenereKeyResult recoverVigenereKey(String filePath) throws IOException {
+        long start = System.nanoTime();
+        PhaseEvent keyRecoveryEvent = PhaseEvent.start(Phase.KEY_RECOVERY, MeteredOperation.KEY_RECOVERY, filePath);
+        try {
+            Path path = Paths.get(filePath);
+            long fileSize = Files.size(path);
+            VigenereKeyResult result = vigenereKeyFinder.findKey(path);
+            keyRecoveryEvent.finish(fileSize, 0);
+            OperationMetrics.of(MeteredOperation.KEY_RECOVERY).recordSuccess(System.nanoTime() - start, fileSize, 0);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(MeteredOperation.KEY_RECOVERY).recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Encrypts or decrypts a file with the affine cipher. The cipher is a single precomputed table like a Caesar
+     * shift, so the file is streamed through it in fixed-size chunks, or transformed on its UTF-8 bytes
+     * in checkpointed chunks when the processor runs in {@link ProcessingMode#RESUMABLE} mode.
+     *
+     * @param filePath        the path to the source file
+     * @param operationSuffix AFFINE_ENCRYPT or AFFINE_DECRYPT
+     * @param multiplier      the multiplier, must be coprime with the alphabet size
+     * @param shift           the shift value
+     * @param preserveCase    whether upper-case letters keep their case
+     * @throws IllegalArgumentException if the multiplier has no inverse
+     */
+    public void processAffineFileOperation(String filePath, OperationSuffix operationSuffix, int multiplier, int shift,
+                                           boolean preserveCase) {
+        boolean decrypt = !operationSuffix.isEncryption();
+        ShiftTable table = caesarCipher.getAffineTable(multiplier, shift, decrypt, preserveCase);
+        MeteredOperation operation = MeteredOperation.of(operationSuffix);
+        long start = System.nanoTime();
+
+        try {
+            long fileSize = Files.size(Paths.get(filePath));
+            PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, operation, filePath);
+            long characters;
+            if (processingMode == ProcessingMode.RESUMABLE) {
+                TransformResult result = fileHandler.transformFileResumable(filePath, operationSuffix,
+                        caesarCipher.getUtf8AffineTable(multiplier, shift, decrypt, preserveCase),
+                        jobFingerprint("affine", operationSuffix.name(), multiplier, shift, preserveCase));
+                if (result.getResumedOffset() > 0) {
+                    System.out.printf(RESUMED_MESSAGE, result.getResumedOffset(), fileSize);
+                }
+                characters = result.getCharacters();
+            } else {
+                characters = fileHandler.transformFile(filePath, operationSuffix, table, FileHandler.DEFAULT_CHUNK_SIZE);
+            }
+            transformEvent.finish(fileSize, characters);
+            OperationMetrics.of(operation).recordSuccess(System.nanoTime() - start, fileSize, characters);
+            printSaved(filePath, operationSuffix);
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(operation).recordFailure(System.nanoTime() - start);
+            ErrorHandler.showError(ErrorHandler.FILE_ERROR_MESSAGE + e.getMessage());
+        }
+    }
+
+    private void printSaved(String filePath, OperationSuffix operationSuffix) {
+        System.out.printf(ENCRYPT_DECRYPT_RESULT_MESSAGE, operationSuffix.name().toLowerCase().replace('_', ' ') + "ed");
+        System.out.println(SAVED_TO_MESSAGE + fileHandler.generateOutputFilePath(filePath, operationSuffix));
+        System.out.println();
+    }
+
+    /**
+     * Decrypts a file with every shift in a single pass, for tools that need every candidate plaintext.
+     * The file is read and decoded once, and one output file per shift but shift 0 is written next to it.
+     *
+     * @param filePath the path to the ciphertext file
+     * @return the output files of shifts 1 to the alphabet size less one, in shift order
+     * @throws IOException if an I/O error occurs while reading or writing
+     */
+    public List<Path> decryptAllShifts(String filePath) throws IOException {
+        long start = System.nanoTime();
+        PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, MeteredOperation.DECRYPT, filePath);
+        try {
+            long fileSize = Files.size(Paths.get(filePath));
+            AllShiftsTable allShiftsTable = caesarCipher.getAllShiftsTable();
+            List<Path> outputPaths = fileHandler.getAllShiftsOutputPaths(filePath, allShiftsTable.shifts());
+            long characters = fileHandler.decryptAllShifts(filePath, outputPaths, allShiftsTable,
+                    FileHandler.ALL_SHIFTS_CHUNK_SIZE);
+            transformEvent.finish(fileSize, characters);
+            OperationMetrics.of(MeteredOperation.DECRYPT).recordSuccess(System.nanoTime() - start, fileSize, characters);
+            return outputPaths;
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(MeteredOperation.DECRYPT).recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds a plaintext pattern in an encrypted file without decrypting it, trying every shift in a single pass.
+     *
+     * @param filePath the path to the ciphertext file
+     * @param pattern  the plaintext to find
+     * @param listener receives every match with its byte offset and key
+     * @return the number of matches
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public long searchCiphertext(String filePath, String pattern, MatchListener listener) throws IOException {
+        return searchCiphertext(filePath, pattern, ciphertextSearch.allKeys(), listener);
+    }
+
+    /**
+     * Finds a plaintext pattern in an encrypted file without decrypting it. The pattern is encrypted with each key
+     * of the range and the results are searched for in the ciphertext bytes in a single pass. Keys are reduced
+     * to the alphabet size first, so a range of any width costs at most one pattern per shift.
+     *
+     * @param filePath the path to the ciphertext file
+     * @param pattern  the plaintext to find
+     * @param firstKey the first key to try
+     * @param lastKey  the last key to try, included
+     * @param listener receives every match with its byte offset and key
+     * @return the number of matches
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public long searchCiphertext(String filePath, String pattern, long firstKey, long lastKey, MatchListener listener)
+            throws IOException {
+        return searchCiphertext(filePath, pattern, ciphertextSearch.keysInRange(firstKey, lastKey), listener);
+    }
+
+    private long searchCiphertext(String filePath, String pattern, int[] keys, MatchListener listener) throws IOException {
+        long start = System.nanoTime();
+        PhaseEvent searchEvent = PhaseEvent.start(Phase.SEARCH, MeteredOperation.SEARCH, filePath);
+        try {
+            Path path = Paths.get(filePath);
+            long fileSize = Files.size(path);
+            long matches = ciphertextSearch.search(path, pattern, keys, listener);
+            searchEvent.finish(fileSize, 0);
+            OperationMetrics.of(MeteredOperation.SEARCH).recordSuccess(System.nanoTime() - start, fileSize, 0);
+            return matches;
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(MeteredOperation.SEARCH).recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Builds the line index of the encrypted file of a plaintext file, so line ranges of the ciphertext can later
+     * be decrypted on their own. The ciphertext has no line breaks, so the index can only be built from the plaintext;
+     * it is written during encryption when {@value LineIndex#LINE_INDEX_PROPERTY} is set, and this method
+     * rebuilds it from the plaintext, for example after the index went stale or was lost.
+     *
+     * @param filePath     the path to the plaintext file; its "_encrypted" file is indexed
+     * @param key          the key the file was encrypted with
+     * @param preserveCase whether the file was encrypted with letter case preserved
+     * @return the number of lines
+     * @throws IOException if an I/O error occurs or the file is not valid UTF-8
+     */
+    public long buildLineIndex(String filePath, int key, boolean preserveCase) throws IOException {
+        Path ciphertextPath = ciphertextPathOf(filePath);
+        PhaseEvent indexEvent = PhaseEvent.start(Phase.INDEX, MeteredOperation.ENCRYPT, filePath);
+        long lines = LineIndex.build(Paths.get(filePath), ciphertextPath, caesarCipher.getUtf8ShiftTable(key, preserveCase),
+                LineIndex.DEFAULT_CHECKPOINT_INTERVAL);
+        indexEvent.finish(Files.size(ciphertextPath), 0);
+        return lines;
+    }
+
+    /**
+     * Returns the path of the "_encrypted" file of a plaintext file. The path is made absolute first, because
+     * the output file name is derived from the parent directory.
+     */
+    private Path ciphertextPathOf(String filePath) {
+        String absolutePath = Paths.get(filePath).toAbsolutePath().toString();
+        return Paths.get(fileHandler.generateOutputFilePath(absolutePath, OperationSuffix.ENCRYPT));
+    }
+
+    /**
+     * Decrypts a range of plaintext lines of an encrypted file without decrypting the rest of it.
+     * The lines are located with the file's line index and written with a line break after each.
+     *
+     * @param filePath      the path to the ciphertext file, which must have a line index
+     * @param key           the key the file was encrypted with
+     * @param preserveCase  whether the file was encrypted with letter case preserved
+     * @param firstLine     the first line, counted from 1
+     * @param lastLine      the last line, included
+     * @param outputChannel the channel receiving the decrypted lines
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs or the line index is missing or stale
+     */
+    public long decryptLines(String filePath, int key, boolean preserveCase, long firstLine, long lastLine,
+                             WritableByteChannel outputChannel) throws IOException {
+        Path path = Paths.get(filePath);
+        LineIndex lineIndex = LineIndex.load(path);
+        return decryptRange(filePath, key, preserveCase, outputChannel,
+                transformer -> transformer.transformLines(lineIndex, firstLine - 1, lastLine - 1));
+    }
+
+    /**
+     * Decrypts a byte range of an encrypted file without decrypting the rest of it. No index is needed;
+     * the range is widened to whole characters.
+     *
+     * @param filePath      the path to the ciphertext file
+     * @param key           the key the file was encrypted with
+     * @param preserveCase  whether the file was encrypted with letter case preserved
+     * @param from          the first byte, counted from 0
+     * @param to            the last byte, included
+     * @param outputChannel the channel receiving the decrypted text
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs or the range is not valid UTF-8
+     */
+    public long decryptBytes(String filePath, int key, boolean preserveCase, long from, long to,
+                             WritableByteChannel outputChannel) throws IOException {
+        return decryptRange(filePath, key, preserveCase, outputChannel,
+                transformer -> transformer.transformBytes(from, to));
+    }
+
+    private long decryptRange(String filePath, int key, boolean preserveCase, WritableByteChannel outputChannel,
+                              RangeOperation rangeOperation) throws IOException {
+        long start = System.nanoTime();
+        PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, MeteredOperation.DECRYPT, filePath);
+        try (RangeTransformer transformer = new RangeTransformer(Paths.get(filePath),
+                caesarCipher.getUtf8ShiftTable(-key, preserveCase), outputChannel)) {
+            long written = rangeOperation.apply(transformer);
+            transformEvent.finish(written, transformer.getCharacters());
+            OperationMetrics.of(MeteredOperation.DECRYPT)
+                    .recordSuccess(System.nanoTime() - start, written, transformer.getCharacters());
+            return written;
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(MeteredOperation.DECRYPT).recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Encrypts or decrypts a UTF-8 byte stream from one channel to another without any intermediate file,
+     * for example from standard input to standard output in a pipeline.
+     *
+     * @param inputChannel    the channel to read the source text from until end of stream
+     * @param outputChannel   the channel receiving the result
+     * @param operationSuffix the enum indicating the operation type (ENCRYPT or DECRYPT)
+     * @param key             the key to be used for the encryption or decryption process
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs or the input is not valid UTF-8
+     */
+    public long processStream(ReadableByteChannel inputChannel, WritableByteChannel outputChannel,
+                              OperationSuffix operationSuffix, int key) throws IOException {
+        return processStream(inputChannel, outputChannel, operationSuffix, key, false);
+    }
+
+    /**
+     * Encrypts or decrypts a UTF-8 byte stream from one channel to another, optionally preserving letter case.
+     *
+     * @param inputChannel    the channel to read the source text from until end of stream
+     * @param outputChannel   the channel receiving the result
+     * @param operationSuffix the enum indicating the operation type (ENCRYPT or DECRYPT)
+     * @param key             the key to be used for the encryption or decryption process
+     * @param preserveCase    whether upper-case letters keep their case
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs or the input is not valid UTF-8
+     */
+    public long processStream(ReadableByteChannel inputChannel, WritableByteChannel outputChannel,
+                              OperationSuffix operationSuffix, int key, boolean preserveCase) throws IOException {
+        int shift = (operationSuffix == OperationSuffix.ENCRYPT) ? key : -key;
+        MeteredOperation operation = MeteredOperation.of(operationSuffix);
+        long start = System.nanoTime();
+
+        PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, operation, STANDARD_STREAMS_PATH);
+        try {
+            TransformResult result = fileHandler.transformStream(inputChannel, outputChannel,
+                    caesarCipher.getUtf8ShiftTable(shift, preserveCase));
+            transformEvent.finish(result.getBytesWritten(), result.getCharacters());
+            OperationMetrics.of(operation)
+                    .recordSuccess(System.nanoTime() - start, result.getBytesWritten(), result.getCharacters());
+            return result.getBytesWritten();
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(operation).recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Keeps encrypting a growing file, such as an application log, until the thread is interrupted.
+     * Only newly appended bytes are encrypted and appended to the output file; a checkpoint next to the output
+     * lets a restarted follower continue where the previous one stopped.
+     *
+     * @param filePath     the path to the growing UTF-8 file
+     * @param key          the key to be used for the encryption
+     * @param preserveCase whether upper-case letters keep their case
+     * @return the path of the output file
+     * @throws IOException if an I/O error occurs, the file is not valid UTF-8 or the output was written
+     *                     with another key or case mode
+     */
+    public String followFile(String filePath, int key, boolean preserveCase) throws IOException {
+        Path path = Paths.get(filePath).toAbsolutePath();
+        String outputPath = fileHandler.generateOutputFilePath(path.toString(), OperationSuffix.ENCRYPT);
+        FileFollower follower = new FileFollower(path, Paths.get(outputPath),
+                caesarCipher.getUtf8ShiftTable(key, preserveCase), jobFingerprint(key, preserveCase),
+                FileFollower.DEFAULT_POLL_INTERVAL);
+
+        long[] passStart = {System.nanoTime()};
+        PhaseEvent[] transformEvent = {PhaseEvent.start(Phase.TRANSFORM, MeteredOperation.ENCRYPT, filePath)};
+        try {
+            follower.follow((transformedBytes, transformedCharacters) -> {
+                // Every pass is one encryption of the appended bytes
+                transformEvent[0].finish(transformedBytes, transformedCharacters);
+                OperationMetrics.of(MeteredOperation.ENCRYPT)
+                        .recordSuccess(System.nanoTime() - passStart[0], transformedBytes, transformedCharacters);
+                passStart[0] = System.nanoTime();
+                transformEvent[0] = PhaseEvent.start(Phase.TRANSFORM, MeteredOperation.ENCRYPT, filePath);
+            });
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(MeteredOperation.ENCRYPT).recordFailure(System.nanoTime() - passStart[0]);
+            throw e;
         }
+        return outputPath;
     }
 
     /**
@@ -60,24 +644,243 @@ public class FileProcessor {
      * @param filePath the path to the source file to be decrypted using brute force
      */
     public void handleBruteForceFileOperation(String filePath) {
+        handleBruteForceFileOperation(filePath, true);
+    }
+
+    /**
+     * Handles the brute force decryption operation either interactively or headless.
+     * In interactive mode the user confirms the correct shift from previews of the head of the file, offered
+     * best first, and only the confirmed shift is applied to the whole file in streaming mode. In headless mode
+     * the shift is recovered automatically from a bounded sample of the file, with the n-gram models as a second
+     * opinion when letter frequencies are ambiguous, and the file is then decrypted in streaming mode without
+     * asking anything.
+     *
+     * @param filePath    the path to the source file to be decrypted using brute force
+     * @param interactive whether the user confirms the shift
+     */
+    public void handleBruteForceFileOperation(String filePath, boolean interactive) {
+        long start = System.nanoTime();
         try {
-            String content = fileHandler.readFile(filePath);
+            long fileSize = Files.size(Paths.get(filePath));
+            if (interactive) {
+                // Only the phases are recorded: the user's thinking time would distort the operation latencies
+                PhaseEvent readEvent = PhaseEvent.start(Phase.READ, MeteredOperation.DECRYPT, filePath);
+                String head = fileHandler.readHead(filePath, NGramAnalyzer.MAX_SCORED_CHARACTERS);
+                readEvent.finish(fileSize, head.length());
 
-            int confirmedShift = caesarCipher.bruteForceDecryptAndGetShift(content);
+                // Candidates come best first and only their previews are decrypted
+                int confirmedShift = caesarCipher.bruteForceDecryptAndGetShift(head, rankShifts(head));
+                if (confirmedShift == -1) {
+                    ErrorHandler.showError(ErrorHandler.DECRYPTION_NOT_CONFIRMED_MESSAGE);
+                    return;
+                }
 
-            if (confirmedShift != -1) {
-                String decryptedContent = caesarCipher.decrypt(content, confirmedShift);
+                PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, MeteredOperation.DECRYPT, filePath);
+                long characters = fileHandler.transformFile(filePath, OperationSuffix.BRUTE_FORCE_DECRYPT,
+                        caesarCipher.getShiftTable(-confirmedShift), FileHandler.DEFAULT_CHUNK_SIZE);
+                transformEvent.finish(fileSize, characters);
+            } else {
+                KeyRecoveryResult result = recoverKey(filePath);
 
-                fileHandler.writeFile(filePath, OperationSuffix.BRUTE_FORCE_DECRYPT, decryptedContent);
+                System.out.println(KEY_RECOVERED_MESSAGE + result);
+                if (result.getConfidence() < LOW_CONFIDENCE_THRESHOLD) {
+                    ErrorHandler.showError(ErrorHandler.LOW_CONFIDENCE_MESSAGE);
+                }
 
-                System.out.println(BRUTE_FORCE_RESULT_MESSAGE);
-                System.out.println(SAVED_TO_MESSAGE + fileHandler.generateOutputFilePath(filePath, OperationSuffix.BRUTE_FORCE_DECRYPT));
-                System.out.println();
-            } else {
-                ErrorHandler.showError(ErrorHandler.DECRYPTION_NOT_CONFIRMED_MESSAGE);
+                start = System.nanoTime();
+                PhaseEvent transformEvent = PhaseEvent.start(Phase.TRANSFORM, MeteredOperation.DECRYPT, filePath);
+                long characters = fileHandler.transformFile(filePath, OperationSuffix.BRUTE_FORCE_DECRYPT,
+                        caesarCipher.getShiftTable(-result.getShift()), FileHandler.DEFAULT_CHUNK_SIZE);
+                transformEvent.finish(fileSize, characters);
+                OperationMetrics.of(MeteredOperation.DECRYPT).recordSuccess(System.nanoTime() - start, fileSize, characters);
+            }
+
+            System.out.println(BRUTE_FORCE_RESULT_MESSAGE);
+            System.out.println(SAVED_TO_MESSAGE + fileHandler.generateOutputFilePath(filePath, OperationSuffix.BRUTE_FORCE_DECRYPT));
+            System.out.println();
+        } catch (IOException | RuntimeException e) {
+            if (!interactive) {
+                OperationMetrics.of(MeteredOperation.DECRYPT).recordFailure(System.nanoTime() - start);
+            }
+            ErrorHandler.showError(ErrorHandler.FILE_ERROR_MESSAGE + e.getMessage());
+        }
+    }
+
+    /**
+     * Orders the shifts from the most to the least likely for the head of a ciphertext, by the n-gram models
+     * if they are available and by letter frequencies otherwise. Shift 0 is left out: its preview is the ciphertext
+     * itself, which the user has already seen.
+     */
+    private int[] rankShifts(String head) {
+        NGramAnalyzer nGramAnalyzer = getNGramAnalyzer();
+        int[] ranked = (nGramAnalyzer != null)
+                ? nGramAnalyzer.rankShifts(head)
+                : frequencyAnalyzer.rankShifts(frequencyAnalyzer.getHistogramBuilder().build(head));
+        return Arrays.stream(ranked).filter(shift -> shift != 0).toArray();
+    }
+
+    /**
+     * Recovers the decryption shift of a ciphertext file without user interaction.
+     * The shift is found from a bounded sample of the file; when letter frequencies are ambiguous,
+     * the n-gram models score the head of the file with both their own best shift and the frequency shift,
+     * and the one that scores better is kept.
+     * Results are kept in the {@link KeyRecoveryCache}, so a file that was analyzed before is recognized
+     * from a few sampled blocks instead of being analyzed again.
+     *
+     * @param filePath the path to the ciphertext file
+     * @return the recovered shift with its language and confidence
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public KeyRecoveryResult recoverKey(String filePath) throws IOException {
+        long start = System.nanoTime();
+        PhaseEvent keyRecoveryEvent = PhaseEvent.start(Phase.KEY_RECOVERY, MeteredOperation.KEY_RECOVERY, filePath);
+        try {
+            Path path = Paths.get(filePath);
+            long fileSize = Files.size(path);
+            KeyRecoveryCache.ContentFingerprint fingerprint = null;
+            if (keyRecoveryCache != null) {
+                fingerprint = KeyRecoveryCache.ContentFingerprint.of(path);
+                KeyRecoveryResult cached = keyRecoveryCache.get(fingerprint);
+                if (cached != null) {
+                    keyRecoveryEvent.finish(fileSize, 0);
+                    OperationMetrics.of(MeteredOperation.KEY_RECOVERY).recordSuccess(System.nanoTime() - start, fileSize, 0);
+                    return cached;
+                }
+            }
+
+            KeyRecoveryResult result = sampledKeyFinder.findKey(path);
+            NGramAnalyzer nGramAnalyzer = (result.getConfidence() < LOW_CONFIDENCE_THRESHOLD) ? getNGramAnalyzer() : null;
+            if (nGramAnalyzer != null) {
+                // Letter frequencies are unreliable here, so let the n-gram models rank the head of the file
+                String head = fileHandler.readHead(filePath, NGramAnalyzer.MAX_SCORED_CHARACTERS);
+                result = nGramAnalyzer.choose(head, result);
+            }
+            if (keyRecoveryCache != null) {
+                storeKey(fingerprint, result);
+            }
+
+            keyRecoveryEvent.finish(fileSize, 0);
+            OperationMetrics.of(MeteredOperation.KEY_RECOVERY).recordSuccess(System.nanoTime() - start, fileSize, 0);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(MeteredOperation.KEY_RECOVERY).recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Recovers the decryption shift of a UTF-8 ciphertext stream without user interaction.
+     * Letter frequencies are counted over the first {@link SampledKeyFinder#MAX_SAMPLE_SIZE} bytes while they
+     * arrive and the rest of the stream is read and discarded; when the frequencies are ambiguous, the n-gram
+     * models decide between their own best shift and the frequency shift on the head of the stream.
+     *
+     * @param inputChannel the channel to read the ciphertext from until end of stream
+     * @return the recovered shift with its language and confidence
+     * @throws IOException if an I/O error occurs while reading the stream
+     */
+    public KeyRecoveryResult recoverKey(ReadableByteChannel inputChannel) throws IOException {
+        long start = System.nanoTime();
+        PhaseEvent keyRecoveryEvent = PhaseEvent.start(Phase.KEY_RECOVERY, MeteredOperation.KEY_RECOVERY, STANDARD_STREAMS_PATH);
+        try {
+            HistogramBuilder histogramBuilder = frequencyAnalyzer.getHistogramBuilder();
+            int[] histogram = new int[histogramBuilder.getAlphabetSize()];
+            ByteBuffer buffer = ByteBuffer.allocate(SampledKeyFinder.BLOCK_SIZE);
+            // UTF-8 takes at most two bytes per alphabet character, so this holds at least as many characters
+            ByteBuffer head = ByteBuffer.allocate(2 * NGramAnalyzer.MAX_SCORED_CHARACTERS);
+            long size = 0;
+
+            int read;
+            while ((read = inputChannel.read(buffer)) != -1) {
+                buffer.flip();
+                if (size < SampledKeyFinder.MAX_SAMPLE_SIZE) {
+                    // A character split between two reads is skipped, which does not matter for letter frequencies
+                    histogramBuilder.addAll(buffer, histogram);
+                }
+                if (head.hasRemaining()) {
+                    head.put(buffer.limit(Math.min(buffer.limit(), head.remaining())));
+                }
+                buffer.clear();
+                size += read;
             }
+
+            KeyRecoveryResult result = frequencyAnalyzer.findKey(histogram);
+            NGramAnalyzer nGramAnalyzer = (result.getConfidence() < LOW_CONFIDENCE_THRESHOLD) ? getNGramAnalyzer() : null;
+            if (nGramAnalyzer != null) {
+                result = nGramAnalyzer.choose(new String(head.array(), 0, head.position(), StandardCharsets.UTF_8),
+                        result);
+            }
+
+            keyRecoveryEvent.finish(size, 0);
+            OperationMetrics.of(MeteredOperation.KEY_RECOVERY).recordSuccess(System.nanoTime() - start, size, 0);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            OperationMetrics.of(MeteredOperation.KEY_RECOVERY).recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Identifies a transformation by everything that affects its output, so a resumable run never continues
+     * a partial output written with another key, case mode or alphabet. The fingerprint is stored in checkpoint
+     * files and compared by runs in later JVMs, so it is the CRC32C of a description made only of values that
+     * are the same in every run: numbers, flags and strings, never identity hash codes. Enum constants are passed
+     * by their names.
+     *
+     * @param transformation the keys, flags and names that select the transformation
+     * @return the fingerprint of the transformation with the current alphabet
+     */
+    int jobFingerprint(Object... transformation) {
+        Alphabet alphabet = caesarCipher.getAlphabet();
+        StringBuilder description = new StringBuilder();
+        for (Object part : transformation) {
+            description.append(part).append('|');
+        }
+        description.append(alphabet.getAlphabet()).append('|').append(alphabet.getUnsupportedCharacterPolicy().name());
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(description.toString().getBytes(StandardCharsets.UTF_8));
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Stores a recovered key in the cache. A cache that cannot be written only costs a new analysis next time,
+     * so the problem is reported and the recovered key is still used.
+     *
+     * @param fingerprint the fingerprint of the ciphertext file
+     * @param result      the recovered key
+     */
+    private void storeKey(KeyRecoveryCache.ContentFingerprint fingerprint, KeyRecoveryResult result) {
+        try {
+            keyRecoveryCache.put(fingerprint, result);
         } catch (IOException e) {
             ErrorHandler.showError(ErrorHandler.FILE_ERROR_MESSAGE + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Loads the bundled n-gram language models the first time they are needed, so encryption and pipe mode
+     * never read them or report a problem with them. Key recovery still works with letter frequencies alone
+     * if the models cannot be loaded, for example because a custom alphabet is configured.
+     *
+     * @return the n-gram analyzer, or null if the models are not available
+     */
+    private synchronized NGramAnalyzer getNGramAnalyzer() {
+        if (!nGramAnalyzerLoaded) {
+            nGramAnalyzerLoaded = true;
+            try {
+                nGramAnalyzer = new NGramAnalyzer(caesarCipher.getAlphabet());
+            } catch (IOException e) {
+                ErrorHandler.showError(ErrorHandler.FILE_ERROR_MESSAGE + e.getMessage());
+            }
+        }
+        return nGramAnalyzer;
+    }
+
+    /**
+     * Transforms one kind of range with an open range transformer.
+     */
+    @FunctionalInterface
+    private interface RangeOperation {
+        long apply(RangeTransformer transformer) throws IOException;
+    }
+}
@@ -6,7 +6,12 @@ package ru.javarush.dnekh.cryptoanalyzer.service;
 public enum OperationSuffix {
     ENCRYPT("_encrypted"),
     DECRYPT("_decrypted"),
-    BRUTE_FORCE_DECRYPT("_bruteforce_decrypted");
+    BRUTE_FORCE_DECRYPT("_bruteforce_decrypted"),
+    VIGENERE_ENCRYPT("_vigenere_encrypted"),
+    VIGENERE_DECRYPT("_vigenere_decrypted"),
+    AFFINE_ENCRYPT("_affine_encrypted"),
+    AFFINE_DECRYPT("_affine_decrypted"),
+    ALL_SHIFTS_DECRYPT("_shift_");
 
     private final String suffix;
 
@@ -17,4 +22,13 @@ public enum OperationSuffix {
     public String getSuffix() {
         return suffix;
     }
+
+    /**
+     * Checks whether the operation produces ciphertext.
+     *
+     * @return true for the encrypting operations
+     */
+    public boolean isEncryption() {
+        return this == ENCRYPT || this == VIGENERE_ENCRYPT || this == AFFINE_ENCRYPT;
+    }
 }
\ No newline at end of file
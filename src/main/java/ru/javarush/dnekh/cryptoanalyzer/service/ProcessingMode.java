@@ -0,0 +1,59 @@
+package ru.javarush.dnekh.cryptoanalyzer.service;
+
+/**
+ * Enum representing the ways a file can be read, transformed and written.
+ * The mode used for files is chosen at startup with the {@value #MODE_PROPERTY} system property.
+ */
+public enum ProcessingMode {
+    /**
+     * Reads the whole file into memory, transforms it and writes it in one go.
+     */
+    IN_MEMORY,
+
+    /**
+     * Reads, transforms and writes the file in fixed-size chunks with bounded memory usage.
+     */
+    STREAMING,
+
+    /**
+     * Maps the file into memory and transforms its UTF-8 bytes directly, without decoding the text.
+     */
+    MAPPED,
+
+    /**
+     * Transforms UTF-8 safe segments of the mapped file on several threads and writes them in order.
+     */
+    PARALLEL,
+
+    /**
+     * Transforms the UTF-8 bytes in checkpointed chunks into a partial file that replaces the output when complete,
+     * so an interrupted run continues from its last durable chunk. Every chunk is forced to disk, so this mode
+     * is only used when it is selected.
+     */
+    RESUMABLE;
+
+    /**
+     * System property naming the processing mode of file operations, for example
+     * {@code -Dcryptoanalyzer.mode=parallel}. Without it files are processed in {@link #STREAMING} mode.
+     */
+    public static final String MODE_PROPERTY = "cryptoanalyzer.mode";
+
+    private static final String ERR_MESSAGE_UNKNOWN_MODE = "UNKNOWN PROCESSING MODE: ";
+
+    /**
+     * Returns the mode with the given name, ignoring case; a dash may stand for the underscore.
+     *
+     * @param mode the name of the mode
+     * @return the mode
+     * @throws IllegalArgumentException if no mode has this name
+     */
+    public static ProcessingMode fromString(String mode) {
+        String name = mode.trim().replace('-', '_');
+        for (ProcessingMode value : values()) {
+            if (value.name().equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException(ERR_MESSAGE_UNKNOWN_MODE + mode);
+    }
+}
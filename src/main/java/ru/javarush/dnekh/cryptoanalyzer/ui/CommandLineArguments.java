@@ -0,0 +1,128 @@
+package ru.javarush.dnekh.cryptoanalyzer.ui;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class parses the command line arguments of the non-interactive mode.
+ * The first argument is the command; every following argument must be an option of the form
+ * {@code --name value}. Options without a value, such as {@code --help}, are given as {@code --name}.
+ */
+public class CommandLineArguments {
+
+    private static final String OPTION_PREFIX = "--";
+    private static final String ERR_MESSAGE_UNEXPECTED_ARGUMENT = "UNEXPECTED ARGUMENT: ";
+    private static final String ERR_MESSAGE_MISSING_OPTION = "MISSING OPTION: --";
+    private static final String ERR_MESSAGE_NOT_A_NUMBER = "OPTION --%s MUST BE AN INTEGER: %s";
+    private static final String ERR_MESSAGE_NOT_A_RANGE = "OPTION --%s MUST BE A RANGE <from>..<to>: %s";
+    private static final String RANGE_SEPARATOR = "..";
+
+    private final String command;
+    private final Map<String, String> options;
+
+    private CommandLineArguments(String command, Map<String, String> options) {
+        this.command = command;
+        this.options = options;
+    }
+
+    /**
+     * Parses the command line arguments.
+     *
+     * @param args the arguments passed to the application, the first one being the command
+     * @return the parsed arguments
+     * @throws IllegalArgumentException if an argument is neither the command nor an option
+     */
+    public static CommandLineArguments parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith(OPTION_PREFIX)) {
+                throw new IllegalArgumentException(ERR_MESSAGE_UNEXPECTED_ARGUMENT + args[i]);
+            }
+            String name = args[i].substring(OPTION_PREFIX.length());
+            boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith(OPTION_PREFIX);
+            options.put(name, hasValue ? args[++i] : "");
+        }
+        return new CommandLineArguments(args[0], options);
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Checks whether the option was given.
+     *
+     * @param name the option name without the leading dashes
+     * @return true if the option is present
+     */
+    public boolean hasOption(String name) {
+        return options.containsKey(name);
+    }
+
+    /**
+     * Returns the value of a required option.
+     *
+     * @param name the option name without the leading dashes
+     * @return the option value
+     * @throws IllegalArgumentException if the option is missing
+     */
+    public String getOption(String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException(ERR_MESSAGE_MISSING_OPTION + name);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of an option, or the default value if the option is missing.
+     *
+     * @param name         the option name without the leading dashes
+     * @param defaultValue the value used when the option is missing
+     * @return the option value
+     */
+    public String getOption(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    /**
+     * Returns the integer value of a required option.
+     *
+     * @param name the option name without the leading dashes
+     * @return the option value
+     * @throws IllegalArgumentException if the option is missing or not an integer
+     */
+    public int getIntOption(String name) {
+        String value = getOption(name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(ERR_MESSAGE_NOT_A_NUMBER, name, value));
+        }
+    }
+
+    /**
+     * Returns the bounds of a required option of the form {@code <from>..<to>}, both ends included.
+     *
+     * @param name the option name without the leading dashes
+     * @return the lower and the upper end of the range
+     * @throws IllegalArgumentException if the option is missing or not a range of integers
+     */
+    public long[] getLongRangeOption(String name) {
+        String value = getOption(name);
+        int separator = value.indexOf(RANGE_SEPARATOR);
+        try {
+            if (separator < 0) {
+                throw new NumberFormatException();
+            }
+            long from = Long.parseLong(value.substring(0, separator).trim());
+            long to = Long.parseLong(value.substring(separator + RANGE_SEPARATOR.length()).trim());
+            if (from > to) {
+                throw new NumberFormatException();
+            }
+            return new long[]{from, to};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(ERR_MESSAGE_NOT_A_RANGE, name, value));
+        }
+    }
+}
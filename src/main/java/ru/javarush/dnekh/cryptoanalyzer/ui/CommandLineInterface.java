@@ -1,6 +1,8 @@
 package ru.javarush.dnekh.cryptoanalyzer.ui;
 
 import ru.javarush.dnekh.cryptoanalyzer.exception.ErrorHandler;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.OperationMetrics;
+import ru.javarush.dnekh.cryptoanalyzer.service.BatchProcessor;
 import ru.javarush.dnekh.cryptoanalyzer.service.FileProcessor;
 import ru.javarush.dnekh.cryptoanalyzer.utils.UserInputUtils;
 import ru.javarush.dnekh.cryptoanalyzer.service.OperationSuffix;
@@ -16,22 +18,41 @@ public class CommandLineInterface {
 
     private final Scanner scanner;
     private final FileProcessor fileProcessor;
+    private final BatchProcessor batchProcessor;
 
     private static final String MENU_HEADER = "MENU OPTIONS:";
     private static final String PROMPT_OPTION = "Choose an option: ";
     private static final String EXIT_MESSAGE = "Exiting...";
     private static final String BRUTE_FORCE_CHOSEN_OPERATION_MESSAGE = "decrypt using Brute Force";
+    private static final String BATCH_CHOSEN_OPERATION_MESSAGE = "process in batch";
+    private static final String BATCH_OPERATION_PROMPT = "Operation (1 - encrypt, 2 - decrypt, 3 - brute force)";
+    private static final String BATCH_FILE_PATTERN_PROMPT = "File name pattern";
+    private static final String DEFAULT_BATCH_OPERATION = "1";
+    private static final String DEFAULT_FILE_PATTERN = "*.txt";
+    private static final String PRESERVE_CASE_PROMPT = "Preserve letter case (yes/no)";
+    private static final String DEFAULT_PRESERVE_CASE = "no";
+    private static final String KEYWORD_PROMPT = "Keyword";
+    private static final String KEYWORD_OR_RECOVER_PROMPT = "Keyword (leave empty to recover it automatically)";
+    private static final String DEFAULT_KEYWORD = "";
+    private static final String MULTIPLIER_OPERATION_MESSAGE = "the multiplier a";
+    private static final String SHIFT_OPERATION_MESSAGE = "the shift b";
 
     /**
      * Message shown when the user requests help information.
      */
     private static final String HELP_MESSAGE = """
                 HELP:
-                1. Encrypt text from file - Encrypt a text file with a Caesar cipher.
+                1. Encrypt text from file - Encrypt a text file with a Caesar cipher, optionally keeping letter case.
                 2. Decrypt text from file with key - Decrypt a text file with a Caesar cipher using a key.
                 3. Brute Force Decrypt - Decrypt text using the Brute Force method.
                 4. Help - Show this help message.
                 5. Exit - Exit the application.
+                6. Automatic Brute Force Decrypt - Find the key by frequency analysis and decrypt without questions.
+                7. Batch Process Directory - Encrypt, decrypt or brute force every matching file in a directory tree.
+                8. Vigenère Encrypt with keyword - Shift every letter by the next letter of a repeating keyword.
+                9. Vigenère Decrypt with keyword - Decrypt a Vigenère-encrypted file using its keyword, or recover the keyword if none is given.
+                10. Affine Encrypt - Map the letter at position i to position (a * i + b); a must be coprime with the alphabet size.
+                11. Affine Decrypt - Decrypt an affine-encrypted file using its multiplier and shift.
                 """;
 
     /**
@@ -39,7 +60,8 @@ public class CommandLineInterface {
      */
     public CommandLineInterface() {
         this.scanner = new Scanner(System.in);
-        this.fileProcessor = new FileProcessor();
+        this.fileProcessor = FileProcessor.fromConfiguration();
+        this.batchProcessor = new BatchProcessor(fileProcessor, BatchProcessor.DEFAULT_MAX_FILES_IN_FLIGHT);
     }
 
     /**
@@ -47,6 +69,7 @@ public class CommandLineInterface {
      * This method will run in a loop until the user chooses to exit the application.
      */
     public void start() {
+        OperationMetrics.registerMBeans();
         while (true) {
             System.out.println(MENU_HEADER);
             MenuOption.printMenu();
@@ -64,7 +87,7 @@ public class CommandLineInterface {
                         handleFileOperation(OperationSuffix.DECRYPT);
                         break;
                     case BRUTE_FORCE:
-                        handleBruteForceFileOperation();
+                        handleBruteForceFileOperation(true);
                         break;
                     case HELP:
                         printHelp();
@@ -72,6 +95,24 @@ public class CommandLineInterface {
                     case EXIT:
                         exitApplication();
                         break;
+                    case AUTO_BRUTE_FORCE:
+                        handleBruteForceFileOperation(false);
+                        break;
+                    case BATCH:
+                        handleBatchOperation();
+                        break;
+                    case VIGENERE_ENCRYPT:
+                        handleVigenereOperation(OperationSuffix.VIGENERE_ENCRYPT);
+                        break;
+                    case VIGENERE_DECRYPT:
+                        handleVigenereOperation(OperationSuffix.VIGENERE_DECRYPT);
+                        break;
+                    case AFFINE_ENCRYPT:
+                        handleAffineOperation(OperationSuffix.AFFINE_ENCRYPT);
+                        break;
+                    case AFFINE_DECRYPT:
+                        handleAffineOperation(OperationSuffix.AFFINE_DECRYPT);
+                        break;
                     default:
                         ErrorHandler.showError(ErrorHandler.INVALID_CHOSEN_OPTION_MESSAGE);
                 }
@@ -83,24 +124,88 @@ public class CommandLineInterface {
 
     /**
      * Handles file operations for encryption and decryption based on the user's choice.
-     * It retrieves the file path and key from the user and processes the operation.
+     * It retrieves the file path, the key and whether letter case is preserved from the user and processes the operation.
      *
      * @param operationSuffix the suffix indicating the operation to perform (encrypt/decrypt)
      */
     private void handleFileOperation(OperationSuffix operationSuffix) {
         String filePath = UserInputUtils.getInputFilePath(operationSuffix.name().toLowerCase());
         int key = UserInputUtils.getKeyFromUser(operationSuffix.name().toLowerCase());
+        boolean preserveCase = UserInputUtils.getLineFromUser(PRESERVE_CASE_PROMPT, DEFAULT_PRESERVE_CASE)
+                .equalsIgnoreCase("yes");
 
-        fileProcessor.processFileOperation(filePath, operationSuffix, key);
+        fileProcessor.processFileOperation(filePath, operationSuffix, key, fileProcessor.getProcessingMode(), preserveCase);
     }
 
     /**
      * Handles the Brute Force decryption operation by retrieving the file path
      * from the user and passing it to the FileProcessor for processing.
+     *
+     * @param interactive whether the user confirms the shift or it is recovered automatically
      */
-    private void handleBruteForceFileOperation() {
+    private void handleBruteForceFileOperation(boolean interactive) {
         String filePath = UserInputUtils.getInputFilePath(BRUTE_FORCE_CHOSEN_OPERATION_MESSAGE);
-        fileProcessor.handleBruteForceFileOperation(filePath);
+        fileProcessor.handleBruteForceFileOperation(filePath, interactive);
+    }
+
+    /**
+     * Handles the batch operation by retrieving the directory, the operation, the file name pattern,
+     * if needed the key, and whether letter case is preserved from the user and passing them to the BatchProcessor.
+     */
+    private void handleBatchOperation() {
+        String directoryPath = UserInputUtils.getInputDirectoryPath(BATCH_CHOSEN_OPERATION_MESSAGE);
+        OperationSuffix operationSuffix = switch (UserInputUtils.getLineFromUser(BATCH_OPERATION_PROMPT, DEFAULT_BATCH_OPERATION)) {
+            case "1" -> OperationSuffix.ENCRYPT;
+            case "2" -> OperationSuffix.DECRYPT;
+            case "3" -> OperationSuffix.BRUTE_FORCE_DECRYPT;
+            default -> throw new IllegalArgumentException(ErrorHandler.INVALID_CHOSEN_OPTION_MESSAGE);
+        };
+        String fileGlob = UserInputUtils.getLineFromUser(BATCH_FILE_PATTERN_PROMPT, DEFAULT_FILE_PATTERN);
+        int key = (operationSuffix == OperationSuffix.BRUTE_FORCE_DECRYPT)
+                ? 0
+                : UserInputUtils.getKeyFromUser(operationSuffix.name().toLowerCase());
+        boolean preserveCase = UserInputUtils.getLineFromUser(PRESERVE_CASE_PROMPT, DEFAULT_PRESERVE_CASE)
+                .equalsIgnoreCase("yes");
+
+        batchProcessor.processDirectory(directoryPath, fileGlob, operationSuffix, key, preserveCase);
+    }
+
+    /**
+     * Handles the Vigenère encryption and decryption by retrieving the file path, the keyword and whether
+     * letter case is preserved from the user and passing them to the FileProcessor.
+     * For decryption the keyword may be left empty, in which case it is recovered from the file.
+     *
+     * @param operationSuffix VIGENERE_ENCRYPT or VIGENERE_DECRYPT
+     */
+    private void handleVigenereOperation(OperationSuffix operationSuffix) {
+        String filePath = UserInputUtils.getInputFilePath(operationSuffix.name().toLowerCase());
+        boolean decrypt = operationSuffix == OperationSuffix.VIGENERE_DECRYPT;
+        String keyword = UserInputUtils.getLineFromUser(decrypt ? KEYWORD_OR_RECOVER_PROMPT : KEYWORD_PROMPT,
+                DEFAULT_KEYWORD);
+        boolean preserveCase = UserInputUtils.getLineFromUser(PRESERVE_CASE_PROMPT, DEFAULT_PRESERVE_CASE)
+                .equalsIgnoreCase("yes");
+
+        if (decrypt && keyword.isEmpty()) {
+            fileProcessor.handleVigenereBruteForceFileOperation(filePath, preserveCase);
+        } else {
+            fileProcessor.processVigenereFileOperation(filePath, operationSuffix, keyword, preserveCase);
+        }
+    }
+
+    /**
+     * Handles the affine encryption and decryption by retrieving the file path, the multiplier, the shift and
+     * whether letter case is preserved from the user and passing them to the FileProcessor.
+     *
+     * @param operationSuffix AFFINE_ENCRYPT or AFFINE_DECRYPT
+     */
+    private void handleAffineOperation(OperationSuffix operationSuffix) {
+        String filePath = UserInputUtils.getInputFilePath(operationSuffix.name().toLowerCase());
+        int multiplier = UserInputUtils.getKeyFromUser(MULTIPLIER_OPERATION_MESSAGE);
+        int shift = UserInputUtils.getKeyFromUser(SHIFT_OPERATION_MESSAGE);
+        boolean preserveCase = UserInputUtils.getLineFromUser(PRESERVE_CASE_PROMPT, DEFAULT_PRESERVE_CASE)
+                .equalsIgnoreCase("yes");
+
+        fileProcessor.processAffineFileOperation(filePath, operationSuffix, multiplier, shift, preserveCase);
     }
 
     /**
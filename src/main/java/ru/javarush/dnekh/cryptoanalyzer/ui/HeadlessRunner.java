@@ -0,0 +1,300 @@
+package ru.javarush.dnekh.cryptoanalyzer.ui;
+
+import ru.javarush.dnekh.cryptoanalyzer.exception.ErrorHandler;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.OperationMetrics;
+import ru.javarush.dnekh.cryptoanalyzer.search.MatchListener;
+import ru.javarush.dnekh.cryptoanalyzer.server.CipherServer;
+import ru.javarush.dnekh.cryptoanalyzer.service.FileProcessor;
+import ru.javarush.dnekh.cryptoanalyzer.service.OperationSuffix;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * This class runs the application without the interactive menu, driven only by command line arguments.
+ * In pipe mode the text is read from standard input and the result is written to standard output,
+ * so the application can sit in the middle of a Unix pipeline, for example
+ * {@code zcat text.gz | java ru.javarush.dnekh.cryptoanalyzer.Main encrypt --key 3 | nc host 9000}.
+ * Standard output carries only data; all messages go to standard error.
+ * In server mode the cipher stays resident and serves requests from {@link CipherServer}.
+ */
+public class HeadlessRunner {
+
+    /**
+     * Exit status of a successful run.
+     */
+    public static final int EXIT_SUCCESS = 0;
+
+    /**
+     * Exit status of a run that failed while processing data.
+     */
+    public static final int EXIT_FAILURE = 1;
+
+    /**
+     * Exit status of a run with invalid command line arguments.
+     */
+    public static final int EXIT_USAGE = 2;
+
+    private static final String ENCRYPT_COMMAND = "encrypt";
+    private static final String DECRYPT_COMMAND = "decrypt";
+    private static final String SERVE_COMMAND = "serve";
+    private static final String FOLLOW_COMMAND = "follow";
+    private static final String ALL_SHIFTS_COMMAND = "all-shifts";
+    private static final String GREP_COMMAND = "grep";
+    private static final String INDEX_COMMAND = "index";
+    private static final String RANGE_COMMAND = "range";
+    private static final String FILE_OPTION = "file";
+    private static final String KEY_OPTION = "key";
+    private static final String KEYS_OPTION = "keys";
+    private static final String PATTERN_OPTION = "pattern";
+    private static final String LINES_OPTION = "lines";
+    private static final String BYTES_OPTION = "bytes";
+    private static final String PRESERVE_CASE_OPTION = "preserve-case";
+    private static final String PORT_OPTION = "port";
+    private static final String UNKNOWN_COMMAND_MESSAGE = "UNKNOWN COMMAND: ";
+    private static final String SERVER_STARTED_MESSAGE = "Listening on 127.0.0.1:";
+    private static final String FOLLOWING_MESSAGE = "Following: ";
+    private static final String MATCHES_MESSAGE = "Matches: ";
+    private static final String INDEXED_MESSAGE = "Indexed %d lines.%n";
+    private static final String ERR_MESSAGE_RANGE_OPTION = "EXACTLY ONE OF --lines AND --bytes IS NEEDED";
+    private static final int SERVER_STOP_DELAY_SECONDS = 1;
+
+    /**
+     * Message shown for invalid arguments.
+     */
+    private static final String USAGE_MESSAGE = """
+                USAGE:
+                  (no arguments)         Start the interactive menu.
+                  encrypt --key <key> [--preserve-case]
+                                         Encrypt standard input to standard output.
+                  decrypt --key <key> [--preserve-case]
+                                         Decrypt standard input to standard output.
+                                         With --preserve-case upper-case letters keep their case.
+                  serve [--port <port>]  Keep the cipher resident and serve requests on 127.0.0.1 (default port 8765).
+                                         Send requests with the CipherClient class or with curl.
+                  follow --file <path> --key <key> [--preserve-case]
+                                         Keep encrypting text appended to a growing file, such as a log,
+                                         into its "_encrypted" file until the process is stopped.
+                                         A restart continues from the last checkpoint.
+                  all-shifts --file <path>
+                                         Decrypt a file with every shift from 1 in one pass into one
+                                         "_shift_<n>" file per shift and print their paths.
+                  grep --file <path> --pattern <text> [--key <key> | --keys <from>..<to>]
+                                         Find the text in an encrypted file without decrypting it and print
+                                         the byte offset and key of every match. Without a key every shift
+                                         is searched for in one pass.
+                  index --file <path> --key <key> [--preserve-case]
+                                         Rebuild the line index of the "_encrypted" file of a plaintext file.
+                                         Encryption writes it too when started with -Dcryptoanalyzer.lineIndex=true.
+                  range --file <path> --key <key> [--preserve-case] (--lines <from>..<to> | --bytes <from>..<to>)
+                                         Decrypt only the given lines (counted from 1, needs the line index)
+                                         or bytes (counted from 0) of an encrypted file to standard output.
+                SYSTEM PROPERTIES:
+                  -Dcryptoanalyzer.mode=<mode>
+                                         How files are encrypted and decrypted: in_memory, streaming (the default),
+                                         mapped, parallel or resumable. Also applies to the menu.
+                  -Dcryptoanalyzer.parallelism=<threads>
+                                         Worker threads for parallel mode and key recovery
+                                         (default: one per available processor).
+                """;
+
+    private final FileProcessor fileProcessor;
+
+    /**
+     * Constructor initializes the runner with the processor performing the operations.
+     *
+     * @param fileProcessor the processor performing the operations
+     */
+    public HeadlessRunner(FileProcessor fileProcessor) {
+        this.fileProcessor = fileProcessor;
+    }
+
+    /**
+     * Runs the command given by the arguments.
+     *
+     * @param args the command line arguments, the first one being the command
+     * @return the exit status of the application
+     */
+    public int run(String[] args) {
+        CommandLineArguments arguments;
+        try {
+            arguments = CommandLineArguments.parse(args);
+            return switch (arguments.getCommand()) {
+                case ENCRYPT_COMMAND -> pipe(OperationSuffix.ENCRYPT, arguments.getIntOption(KEY_OPTION),
+                        arguments.hasOption(PRESERVE_CASE_OPTION));
+                case DECRYPT_COMMAND -> pipe(OperationSuffix.DECRYPT, arguments.getIntOption(KEY_OPTION),
+                        arguments.hasOption(PRESERVE_CASE_OPTION));
+                case SERVE_COMMAND -> serve(getPort(arguments));
+                case FOLLOW_COMMAND -> follow(arguments.getOption(FILE_OPTION), arguments.getIntOption(KEY_OPTION),
+                        arguments.hasOption(PRESERVE_CASE_OPTION));
+                case ALL_SHIFTS_COMMAND -> decryptAllShifts(arguments.getOption(FILE_OPTION));
+                case GREP_COMMAND -> grep(arguments.getOption(FILE_OPTION), arguments.getOption(PATTERN_OPTION),
+                        getKeyRange(arguments));
+                case INDEX_COMMAND -> buildLineIndex(arguments.getOption(FILE_OPTION), arguments.getIntOption(KEY_OPTION),
+                        arguments.hasOption(PRESERVE_CASE_OPTION));
+                case RANGE_COMMAND -> decryptRange(arguments);
+                default -> throw new IllegalArgumentException(UNKNOWN_COMMAND_MESSAGE + arguments.getCommand());
+            };
+        } catch (IllegalArgumentException e) {
+            ErrorHandler.showErrorOnStderr(ErrorHandler.INVALID_ARGUMENTS_MESSAGE + e.getMessage());
+            ErrorHandler.showErrorOnStderr(USAGE_MESSAGE);
+            return EXIT_USAGE;
+        }
+    }
+
+    private static int getPort(CommandLineArguments arguments) {
+        return arguments.hasOption(PORT_OPTION)
+                ? arguments.getIntOption(PORT_OPTION)
+                : CipherServer.DEFAULT_PORT;
+    }
+
+    /**
+     * Returns the inclusive key range of a search: a single key, a range of keys, or null for every shift.
+     */
+    private static long[] getKeyRange(CommandLineArguments arguments) {
+        if (arguments.hasOption(KEY_OPTION)) {
+            int key = arguments.getIntOption(KEY_OPTION);
+            return new long[]{key, key};
+        }
+        return arguments.hasOption(KEYS_OPTION) ? arguments.getLongRangeOption(KEYS_OPTION) : null;
+    }
+
+    /**
+     * Starts the server and keeps serving until the process is terminated.
+     */
+    private int serve(int port) {
+        CipherServer server;
+        try {
+            server = new CipherServer(fileProcessor, port);
+        } catch (IOException e) {
+            ErrorHandler.showErrorOnStderr(ErrorHandler.SOME_ERROR + e.getMessage());
+            return EXIT_FAILURE;
+        }
+        OperationMetrics.registerMBeans();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(SERVER_STOP_DELAY_SECONDS)));
+        server.start();
+        System.err.println(SERVER_STARTED_MESSAGE + server.getPort());
+
+        // The server threads do the work; the main thread only has to stay alive until the process is stopped
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Encrypts a growing file until the process is terminated. Stopping the process at any point is safe,
+     * because the follower only moves its checkpoint after a complete pass. Like the server, the long-running
+     * follower exposes its metrics over JMX.
+     */
+    private int follow(String filePath, int key, boolean preserveCase) {
+        OperationMetrics.registerMBeans();
+        try {
+            System.err.println(FOLLOWING_MESSAGE + filePath);
+            fileProcessor.followFile(filePath, key, preserveCase);
+            return EXIT_SUCCESS;
+        } catch (IOException | RuntimeException e) {
+            ErrorHandler.showErrorOnStderr(ErrorHandler.SOME_ERROR + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Decrypts a file with every shift but 0 and prints the output paths, one per line in shift order.
+     */
+    private int decryptAllShifts(String filePath) {
+        try {
+            for (Path outputPath : fileProcessor.decryptAllShifts(filePath)) {
+                System.out.println(outputPath);
+            }
+            return EXIT_SUCCESS;
+        } catch (IOException | RuntimeException e) {
+            ErrorHandler.showErrorOnStderr(ErrorHandler.SOME_ERROR + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Searches an encrypted file for a plaintext pattern and prints one {@code <offset> <key>} line per match
+     * on standard output as the matches are found; the number of matches goes to standard error.
+     */
+    private int grep(String filePath, String pattern, long[] keyRange) {
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), false);
+        try {
+            MatchListener listener = (offset, key) -> out.println(offset + " " + key);
+            long matches = (keyRange == null)
+                    ? fileProcessor.searchCiphertext(filePath, pattern, listener)
+                    : fileProcessor.searchCiphertext(filePath, pattern, keyRange[0], keyRange[1], listener);
+            out.flush();
+            System.err.println(MATCHES_MESSAGE + matches);
+            return EXIT_SUCCESS;
+        } catch (IOException | RuntimeException e) {
+            out.flush();
+            ErrorHandler.showErrorOnStderr(ErrorHandler.SOME_ERROR + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Rebuilds the line index of the encrypted file of a plaintext file.
+     */
+    private int buildLineIndex(String filePath, int key, boolean preserveCase) {
+        try {
+            System.err.printf(INDEXED_MESSAGE, fileProcessor.buildLineIndex(filePath, key, preserveCase));
+            return EXIT_SUCCESS;
+        } catch (IOException | RuntimeException e) {
+            ErrorHandler.showErrorOnStderr(ErrorHandler.SOME_ERROR + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Decrypts a line or byte range of an encrypted file to standard output.
+     */
+    private int decryptRange(CommandLineArguments arguments) {
+        String filePath = arguments.getOption(FILE_OPTION);
+        int key = arguments.getIntOption(KEY_OPTION);
+        boolean preserveCase = arguments.hasOption(PRESERVE_CASE_OPTION);
+        boolean lines = arguments.hasOption(LINES_OPTION);
+        if (lines == arguments.hasOption(BYTES_OPTION)) {
+            throw new IllegalArgumentException(ERR_MESSAGE_RANGE_OPTION);
+        }
+        long[] range = arguments.getLongRangeOption(lines ? LINES_OPTION : BYTES_OPTION);
+
+        try (FileChannel outputChannel = new FileOutputStream(FileDescriptor.out).getChannel()) {
+            if (lines) {
+                fileProcessor.decryptLines(filePath, key, preserveCase, range[0], range[1], outputChannel);
+            } else {
+                fileProcessor.decryptBytes(filePath, key, preserveCase, range[0], range[1], outputChannel);
+            }
+            return EXIT_SUCCESS;
+        } catch (IOException | RuntimeException e) {
+            ErrorHandler.showErrorOnStderr(ErrorHandler.SOME_ERROR + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Streams standard input to standard output through the cipher.
+     * The channels of the standard file descriptors are used directly, so the data does not pass
+     * through the buffered {@code System.in} and {@code System.out} streams.
+     */
+    private int pipe(OperationSuffix operationSuffix, int key, boolean preserveCase) {
+        try (FileChannel inputChannel = new FileInputStream(FileDescriptor.in).getChannel();
+             FileChannel outputChannel = new FileOutputStream(FileDescriptor.out).getChannel()) {
+            fileProcessor.processStream(inputChannel, outputChannel, operationSuffix, key, preserveCase);
+            return EXIT_SUCCESS;
+        } catch (IOException | RuntimeException e) {
+            ErrorHandler.showErrorOnStderr(ErrorHandler.SOME_ERROR + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+}
@@ -10,7 +10,13 @@ public enum MenuOption {
     DECRYPT("2. Decrypt text from file with key"),
     BRUTE_FORCE("3. Brute Force Decrypt"),
     HELP("4. Help"),
-    EXIT("5. Exit");
+    EXIT("5. Exit"),
+    AUTO_BRUTE_FORCE("6. Automatic Brute Force Decrypt"),
+    BATCH("7. Batch Process Directory"),
+    VIGENERE_ENCRYPT("8. Vigenère Encrypt with keyword"),
+    VIGENERE_DECRYPT("9. Vigenère Decrypt with keyword"),
+    AFFINE_ENCRYPT("10. Affine Encrypt"),
+    AFFINE_DECRYPT("11. Affine Decrypt");
 
     private final String description;
 
@@ -58,6 +64,12 @@ public enum MenuOption {
             case "3" -> BRUTE_FORCE;
             case "4" -> HELP;
             case "5" -> EXIT;
+            case "6" -> AUTO_BRUTE_FORCE;
+            case "7" -> BATCH;
+            case "8" -> VIGENERE_ENCRYPT;
+            case "9" -> VIGENERE_DECRYPT;
+            case "10" -> AFFINE_ENCRYPT;
+            case "11" -> AFFINE_DECRYPT;
             default -> throw new IllegalArgumentException("\nINVALID MENU OPTION: " + option + "\nTRY AGAIN!\n");
         };
     }
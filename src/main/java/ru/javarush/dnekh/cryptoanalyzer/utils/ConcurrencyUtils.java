@@ -0,0 +1,33 @@
+package ru.javarush.dnekh.cryptoanalyzer.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Utility class for creating executors for I/O-bound work.
+ */
+public final class ConcurrencyUtils {
+
+    private static final String VIRTUAL_THREAD_EXECUTOR_FACTORY = "newVirtualThreadPerTaskExecutor";
+
+    private ConcurrencyUtils() {
+    }
+
+    /**
+     * Creates an executor that runs every task on its own thread.
+     * On a JDK with virtual threads each task gets a virtual thread; on older JDKs the executor
+     * falls back to a cached pool of platform threads. Callers are expected to bound the number
+     * of tasks in flight themselves.
+     *
+     * @return a thread-per-task executor
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY);
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -17,6 +17,8 @@ public class UserInputUtils {
 
     private static final String ENTER_FILE_PATH = "Enter the file path to %s: ";
     private static final String ENTER_KEY_OPERATION = "Enter the key for %s: ";
+    private static final String ENTER_DIRECTORY_PATH = "Enter the directory path to %s: ";
+    private static final String ENTER_WITH_DEFAULT = "%s [%s]: ";
 
     /**
      * Prompts the user for a valid file path and validates it.
@@ -38,6 +40,39 @@ public class UserInputUtils {
         }
     }
 
+    /**
+     * Prompts the user for a readable directory path and validates it.
+     * Repeatedly asks the user for a valid directory path until one is provided.
+     *
+     * @param operation the operation being performed (e.g., "process in batch")
+     * @return the validated directory path as a string
+     */
+    public static String getInputDirectoryPath(String operation) {
+        String directoryPath;
+        while (true) {
+            System.out.printf(ENTER_DIRECTORY_PATH, operation);
+            directoryPath = scanner.nextLine().trim();
+            if (InputValidator.isValidInputDirectory(directoryPath)) {
+                return directoryPath;
+            }
+            ErrorHandler.showError(ErrorHandler.INVALID_DIRECTORY_PATH);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Prompts the user for a line of text, offering a default value that is used when the input is empty.
+     *
+     * @param prompt       the question shown to the user
+     * @param defaultValue the value used if the user just presses Enter
+     * @return the entered text, or the default value
+     */
+    public static String getLineFromUser(String prompt, String defaultValue) {
+        System.out.printf(ENTER_WITH_DEFAULT, prompt, defaultValue);
+        String line = scanner.nextLine().trim();
+        return line.isEmpty() ? defaultValue : line;
+    }
+
     /**
      * Prompts the user to input a key for encryption or decryption.
      * Ensures that the user provides a valid integer as the key.
@@ -18,6 +18,17 @@ public class InputValidator {
         return file.exists() && file.isFile() && file.canRead();
     }
 
+    /**
+     * Validates if the specified directory exists and can be read.
+     *
+     * @param directoryPath the directory path to validate
+     * @return true if the path is a readable directory, false otherwise
+     */
+    public static boolean isValidInputDirectory(String directoryPath) {
+        File directory = new File(directoryPath);
+        return directory.exists() && directory.isDirectory() && directory.canRead();
+    }
+
     /**
      * Validates if the specified directory path is valid and writable.
      * Ensures that the directory is not a system directory.
@@ -0,0 +1,83 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link FrequencyAnalyzer} recovers the shift of Russian and English Caesar ciphertext
+ * with the chi-squared statistic, names the language of the plaintext, and ranks the recovered shift first.
+ */
+class FrequencyAnalyzerTest {
+
+    private static final String RUSSIAN_SAMPLE = "мой дядя самых честных правил, когда не в шутку занемог, "
+            + "он уважать себя заставил и лучше выдумать не мог. его пример другим наука, но, боже мой, "
+            + "какая скука с больным сидеть и день и ночь, не отходя ни шагу прочь. какое низкое коварство "
+            + "полуживого забавлять, ему подушки поправлять, печально подносить лекарство, вздыхать и думать "
+            + "про себя, когда же черт возьмет тебя.";
+
+    private static final String ENGLISH_SAMPLE = "it was the best of times, it was the worst of times, "
+            + "it was the age of wisdom, it was the age of foolishness, it was the epoch of belief, "
+            + "it was the epoch of incredulity, it was the season of light, it was the season of darkness, "
+            + "it was the spring of hope, it was the winter of despair, we had everything before us, "
+            + "we had nothing before us.";
+
+    private CaesarCipher caesarCipher;
+    private FrequencyAnalyzer frequencyAnalyzer;
+
+    @BeforeEach
+    void setUp() {
+        caesarCipher = new CaesarCipher();
+        frequencyAnalyzer = new FrequencyAnalyzer(caesarCipher.getAlphabet());
+    }
+
+    @Test
+    void recoversShiftOfRussianText() {
+        for (int key : new int[]{1, 7, 33, 64, caesarCipher.getAlphabet().size() - 1}) {
+            KeyRecoveryResult result = frequencyAnalyzer.findKey(caesarCipher.encrypt(RUSSIAN_SAMPLE, key));
+
+            assertEquals(key, result.getShift());
+            assertEquals(LanguageProfile.RUSSIAN, result.getLanguage());
+            assertTrue(result.getConfidence() > 0);
+        }
+    }
+
+    @Test
+    void recoversShiftOfEnglishText() {
+        for (int key : new int[]{3, 26, 50, 80}) {
+            KeyRecoveryResult result = frequencyAnalyzer.findKey(caesarCipher.encrypt(ENGLISH_SAMPLE, key));
+
+            assertEquals(key, result.getShift());
+            assertEquals(LanguageProfile.ENGLISH, result.getLanguage());
+            assertTrue(result.getConfidence() > 0);
+        }
+    }
+
+    @Test
+    void recoversZeroShiftOfPlaintext() {
+        assertEquals(0, frequencyAnalyzer.findKey(RUSSIAN_SAMPLE).getShift());
+        assertEquals(0, frequencyAnalyzer.findKey(ENGLISH_SAMPLE).getShift());
+    }
+
+    @Test
+    void ranksRecoveredShiftFirst() {
+        int key = 19;
+        int[] histogram = frequencyAnalyzer.getHistogramBuilder().build(caesarCipher.encrypt(RUSSIAN_SAMPLE, key));
+
+        int[] ranked = frequencyAnalyzer.rankShifts(histogram);
+
+        assertEquals(caesarCipher.getAlphabet().size(), ranked.length);
+        assertEquals(key, ranked[0]);
+        assertEquals(frequencyAnalyzer.findKey(histogram).getShift(), ranked[0]);
+    }
+
+    @Test
+    void scoresEmptyHistogramWithZeroConfidence() {
+        KeyRecoveryResult result = frequencyAnalyzer.findKey(new int[caesarCipher.getAlphabet().size()]);
+
+        assertEquals(0, result.getConfidence(), 1e-9);
+    }
+}
@@ -0,0 +1,112 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the parallel {@link HistogramBuilder} paths, which merge per-thread partial histograms,
+ * count exactly what the sequential pass counts, also when a multi-byte UTF-8 sequence is cut by the
+ * border between two file segments.
+ */
+class HistogramBuilderTest {
+
+    private static final String MIXED_CHARACTERS = "абвгдеёжзийклмнопрстуфхцчшщъыьэюяABCxyz.,№ \n";
+
+    @TempDir
+    Path directory;
+
+    private HistogramBuilder histogramBuilder;
+
+    @BeforeEach
+    void setUp() {
+        histogramBuilder = new HistogramBuilder(new Alphabet());
+    }
+
+    @Test
+    void countsCaseInsensitivelyAndIgnoresUnknownCharacters() {
+        Alphabet alphabet = new Alphabet();
+
+        int[] histogram = histogramBuilder.build("Жж ж\né");
+
+        assertEquals(3, histogram[alphabet.indexOf('ж')]);
+        assertEquals(1, histogram[alphabet.indexOf(' ')]);
+        assertEquals(4, sum(histogram));
+    }
+
+    @Test
+    void parallelTextHistogramMatchesSequential() {
+        String text = randomText(3 * HistogramBuilder.PARALLEL_THRESHOLD + 17);
+
+        assertArrayEquals(histogramBuilder.build(text), histogramBuilder.buildParallel(text));
+    }
+
+    @Test
+    void parallelFileHistogramMatchesSequential() throws IOException {
+        String text = randomText(2 * HistogramBuilder.PARALLEL_THRESHOLD);
+        Path path = directory.resolve("mixed.txt");
+        Files.writeString(path, text);
+
+        assertArrayEquals(histogramBuilder.build(text), histogramBuilder.buildParallel(path, 4));
+    }
+
+    @Test
+    void countsSequencesCutBySegmentBorderOnce() throws IOException {
+        int border = HistogramBuilder.PARALLEL_THRESHOLD;
+        // The two-byte 'ж' starts one byte before the first border, the three-byte '№' two bytes before the second
+        String text = "a".repeat(border - 1) + "ж" + "b".repeat(border - 3) + "№" + "ёЁ";
+        Path path = directory.resolve("borders.txt");
+        Files.writeString(path, text);
+        byte[] bytes = Files.readAllBytes(path);
+        assertEquals((byte) 0xB6, bytes[border]);
+        assertEquals((byte) 0x84, bytes[2 * border - 1]);
+
+        int[] histogram = histogramBuilder.buildParallel(path, 3);
+
+        Alphabet alphabet = new Alphabet();
+        assertArrayEquals(histogramBuilder.build(text), histogram);
+        assertEquals(1, histogram[alphabet.indexOf('ж')]);
+        assertEquals(1, histogram[alphabet.indexOf('№')]);
+        assertEquals(2, histogram[alphabet.indexOf('ё')]);
+        assertEquals(text.length(), sum(histogram));
+    }
+
+    @Test
+    void addsUtf8BufferLikeText() {
+        String text = randomText(10_000);
+        int[] histogram = new int[histogramBuilder.getAlphabetSize()];
+
+        long counted = histogramBuilder.addAll(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), histogram);
+
+        assertArrayEquals(histogramBuilder.build(text), histogram);
+        assertEquals(sum(histogram), counted);
+    }
+
+    private static String randomText(int length) {
+        Random random = new Random(5);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(MIXED_CHARACTERS.charAt(random.nextInt(MIXED_CHARACTERS.length())));
+        }
+        return text.toString();
+    }
+
+    private static long sum(int[] histogram) {
+        long total = 0;
+        for (int count : histogram) {
+            total += count;
+        }
+        return total;
+    }
+}
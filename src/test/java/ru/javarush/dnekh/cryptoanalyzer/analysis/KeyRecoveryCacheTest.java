@@ -0,0 +1,194 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+import ru.javarush.dnekh.cryptoanalyzer.model.UnsupportedCharacterPolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests {@link KeyRecoveryCache}: results survive in the cache file, a hit needs the same size, lookup blocks,
+ * verification blocks and alphabet, the least recently used entry is evicted first, also after the file is
+ * read again, and expired entries and corrupt files count as misses.
+ */
+class KeyRecoveryCacheTest {
+
+    private static final int BLOCK_SIZE = KeyRecoveryCache.ContentFingerprint.BLOCK_SIZE;
+    private static final KeyRecoveryResult RESULT = new KeyRecoveryResult(17, 0.875, LanguageProfile.ENGLISH, -2.5);
+
+    @TempDir
+    Path directory;
+
+    private Path cacheFile;
+    private Alphabet alphabet;
+
+    @BeforeEach
+    void setUp() {
+        cacheFile = directory.resolve("cache").resolve("key-cache.bin");
+        alphabet = new Alphabet();
+    }
+
+    @Test
+    void keepsResultsInCacheFile() throws IOException {
+        Path ciphertext = file("ciphertext.txt", 100 * BLOCK_SIZE + 17);
+        cache(16).put(KeyRecoveryCache.ContentFingerprint.of(ciphertext), RESULT);
+
+        KeyRecoveryResult cached = cache(16).get(KeyRecoveryCache.ContentFingerprint.of(ciphertext));
+
+        assertNotNull(cached);
+        assertEquals(RESULT.getShift(), cached.getShift());
+        assertEquals(RESULT.getConfidence(), cached.getConfidence());
+        assertEquals(RESULT.getLanguage(), cached.getLanguage());
+        assertEquals(RESULT.getScore(), cached.getScore());
+    }
+
+    @Test
+    void missesFileWithOtherSize() throws IOException {
+        Path ciphertext = file("ciphertext.txt", 100 * BLOCK_SIZE);
+        KeyRecoveryCache cache = cache(16);
+        cache.put(KeyRecoveryCache.ContentFingerprint.of(ciphertext), RESULT);
+
+        Files.write(ciphertext, new byte[]{'a'}, StandardOpenOption.APPEND);
+
+        assertNull(cache.get(KeyRecoveryCache.ContentFingerprint.of(ciphertext)));
+    }
+
+    @Test
+    void missesFileWithEditInVerificationBlock() throws IOException {
+        long size = 100L * BLOCK_SIZE;
+        Path ciphertext = file("ciphertext.txt", (int) size);
+        KeyRecoveryCache cache = cache(16);
+        cache.put(KeyRecoveryCache.ContentFingerprint.of(ciphertext), RESULT);
+
+        // The second of the sixteen verification blocks, which none of the three lookup blocks overlaps
+        flipByte(ciphertext, (size - BLOCK_SIZE) / 15 + 1);
+
+        assertNull(cache.get(KeyRecoveryCache.ContentFingerprint.of(ciphertext)));
+    }
+
+    @Test
+    void hitsFileWithEditOutsideHashedBlocks() throws IOException {
+        long size = 100L * BLOCK_SIZE;
+        Path ciphertext = file("ciphertext.txt", (int) size);
+        KeyRecoveryCache cache = cache(16);
+        cache.put(KeyRecoveryCache.ContentFingerprint.of(ciphertext), RESULT);
+
+        // Between the first and the second verification block
+        flipByte(ciphertext, 2L * BLOCK_SIZE);
+
+        assertNotNull(cache.get(KeyRecoveryCache.ContentFingerprint.of(ciphertext)));
+    }
+
+    @Test
+    void hashesWholeSmallFile() throws IOException {
+        for (int size : new int[]{1, 100, BLOCK_SIZE, 3 * BLOCK_SIZE + 1, 16 * BLOCK_SIZE}) {
+            Path ciphertext = file("small" + size + ".txt", size);
+            KeyRecoveryCache cache = cache(16);
+            cache.put(KeyRecoveryCache.ContentFingerprint.of(ciphertext), RESULT);
+
+            flipByte(ciphertext, size - 1);
+
+            assertNull(cache.get(KeyRecoveryCache.ContentFingerprint.of(ciphertext)), "size " + size);
+        }
+    }
+
+    @Test
+    void missesEntriesOfAnotherAlphabet() throws IOException {
+        Path ciphertext = file("ciphertext.txt", 10 * BLOCK_SIZE);
+        cache(16).put(KeyRecoveryCache.ContentFingerprint.of(ciphertext), RESULT);
+        Alphabet other = new Alphabet("latin", List.of("abcdefghijklmnopqrstuvwxyz"), " .,",
+                UnsupportedCharacterPolicy.REJECT);
+
+        KeyRecoveryCache cache = new KeyRecoveryCache(cacheFile, other, 16, KeyRecoveryCache.DEFAULT_MAX_AGE);
+
+        assertNull(cache.get(KeyRecoveryCache.ContentFingerprint.of(ciphertext)));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() throws IOException {
+        KeyRecoveryCache.ContentFingerprint[] fingerprints = new KeyRecoveryCache.ContentFingerprint[4];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = KeyRecoveryCache.ContentFingerprint.of(file("file" + i + ".txt", 1000 + i));
+        }
+        KeyRecoveryCache cache = cache(2);
+        cache.put(fingerprints[0], RESULT);
+        cache.put(fingerprints[1], RESULT);
+        assertNotNull(cache.get(fingerprints[0]));
+
+        cache.put(fingerprints[2], RESULT);
+
+        assertNull(cache.get(fingerprints[1]));
+        assertNotNull(cache.get(fingerprints[0]));
+        assertNotNull(cache.get(fingerprints[2]));
+
+        // The file keeps the order of use, so a new instance evicts the entry used longest ago
+        KeyRecoveryCache reloaded = cache(2);
+        reloaded.put(fingerprints[3], RESULT);
+
+        assertNull(reloaded.get(fingerprints[0]));
+        assertNotNull(reloaded.get(fingerprints[2]));
+        assertNotNull(reloaded.get(fingerprints[3]));
+    }
+
+    @Test
+    void dropsExpiredEntries() throws IOException, InterruptedException {
+        Path ciphertext = file("ciphertext.txt", 10 * BLOCK_SIZE);
+        KeyRecoveryCache cache = new KeyRecoveryCache(cacheFile, alphabet, 16, Duration.ofMillis(1));
+        cache.put(KeyRecoveryCache.ContentFingerprint.of(ciphertext), RESULT);
+
+        TimeUnit.MILLISECONDS.sleep(20);
+
+        assertNull(cache.get(KeyRecoveryCache.ContentFingerprint.of(ciphertext)));
+        assertNull(new KeyRecoveryCache(cacheFile, alphabet, 16, Duration.ofMillis(1))
+                .get(KeyRecoveryCache.ContentFingerprint.of(ciphertext)));
+    }
+
+    @Test
+    void treatsCorruptFileAsEmpty() throws IOException {
+        Path ciphertext = file("ciphertext.txt", 10 * BLOCK_SIZE);
+        cache(16).put(KeyRecoveryCache.ContentFingerprint.of(ciphertext), RESULT);
+        byte[] content = Files.readAllBytes(cacheFile);
+        Files.write(cacheFile, Arrays.copyOf(content, content.length - 5));
+
+        KeyRecoveryCache cache = cache(16);
+        assertNull(cache.get(KeyRecoveryCache.ContentFingerprint.of(ciphertext)));
+
+        cache.put(KeyRecoveryCache.ContentFingerprint.of(ciphertext), RESULT);
+        assertNotNull(cache(16).get(KeyRecoveryCache.ContentFingerprint.of(ciphertext)));
+    }
+
+    private KeyRecoveryCache cache(int maxEntries) {
+        return new KeyRecoveryCache(cacheFile, alphabet, maxEntries, KeyRecoveryCache.DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Writes a file of random bytes, different for every size.
+     */
+    private Path file(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        Path path = directory.resolve(name);
+        Files.write(path, content);
+        return path;
+    }
+
+    private static void flipByte(Path path, long position) throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        content[(int) position] ^= 1;
+        Files.write(path, content);
+    }
+}
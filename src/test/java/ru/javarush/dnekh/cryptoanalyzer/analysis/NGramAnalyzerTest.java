@@ -0,0 +1,51 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests that {@link NGramAnalyzer#choose} compares candidate shifts under the n-gram models
+ * and not by the confidences the analyzers report.
+ */
+class NGramAnalyzerTest {
+
+    private static final int KEY = 7;
+
+    private CaesarCipher caesarCipher;
+    private NGramAnalyzer nGramAnalyzer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        caesarCipher = new CaesarCipher();
+        nGramAnalyzer = new NGramAnalyzer(caesarCipher.getAlphabet());
+    }
+
+    @Test
+    void replacesConfidentWrongCandidate() {
+        String ciphertext = caesarCipher.encrypt("важать", KEY);
+        KeyRecoveryResult wrong = new KeyRecoveryResult(KEY + 1, 0.99, LanguageProfile.RUSSIAN, 0);
+
+        assertEquals(KEY, nGramAnalyzer.choose(ciphertext, wrong).getShift());
+    }
+
+    @Test
+    void keepsCandidateThatScoresBest() {
+        String ciphertext = caesarCipher.encrypt("съешь ещё этих мягких французских булок", KEY);
+        KeyRecoveryResult right = new KeyRecoveryResult(KEY, 0.01, LanguageProfile.RUSSIAN, 0);
+
+        assertSame(right, nGramAnalyzer.choose(ciphertext, right));
+    }
+
+    @Test
+    void keepsCandidateWithoutEnoughText() {
+        KeyRecoveryResult candidate = new KeyRecoveryResult(3, 0.1, LanguageProfile.RUSSIAN, 0);
+
+        assertSame(candidate, nGramAnalyzer.choose(caesarCipher.encrypt("я", KEY), candidate));
+    }
+}
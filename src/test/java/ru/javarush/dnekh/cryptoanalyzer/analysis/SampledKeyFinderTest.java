@@ -0,0 +1,125 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests when {@link SampledKeyFinder} stops sampling. The test files are encrypted with one key in the regions
+ * the finder is expected to read and with another key everywhere else, so the recovered key shows which
+ * blocks were counted: reading the whole file would always find the key of the larger remainder.
+ */
+class SampledKeyFinderTest {
+
+    private static final int FILE_SIZE = 64 * SampledKeyFinder.BLOCK_SIZE;
+    private static final int SAMPLED_KEY = 5;
+    private static final int REMAINDER_KEY = 20;
+
+    @TempDir
+    Path directory;
+
+    private CaesarCipher caesarCipher;
+    private SampledKeyFinder keyFinder;
+    private Random random;
+
+    @BeforeEach
+    void setUp() {
+        caesarCipher = new CaesarCipher();
+        keyFinder = new SampledKeyFinder(new FrequencyAnalyzer(caesarCipher.getAlphabet()),
+                SampledKeyFinder.DEFAULT_CONFIDENCE_THRESHOLD, 2);
+        random = new Random(3);
+    }
+
+    @Test
+    void stopsAfterHeadOfUnambiguousFile() throws IOException {
+        byte[] file = new byte[FILE_SIZE];
+        fill(file, 0, SampledKeyFinder.BLOCK_SIZE, SAMPLED_KEY);
+        fill(file, SampledKeyFinder.BLOCK_SIZE, FILE_SIZE, REMAINDER_KEY);
+        Path path = directory.resolve("unambiguous.txt");
+        Files.write(path, file);
+
+        KeyRecoveryResult result = keyFinder.findKey(path);
+
+        assertEquals(SAMPLED_KEY, result.getShift());
+        assertEquals(LanguageProfile.RUSSIAN, result.getLanguage());
+        assertTrue(result.getConfidence() >= SampledKeyFinder.DEFAULT_CONFIDENCE_THRESHOLD);
+    }
+
+    @Test
+    void readsStridedSampleWhenHeadIsAmbiguous() throws IOException {
+        int middle = FILE_SIZE / 2;
+        byte[] file = new byte[FILE_SIZE];
+        // A head counting every alphabet character once scores all shifts alike
+        Arrays.fill(file, 0, SampledKeyFinder.BLOCK_SIZE, (byte) '\n');
+        byte[] flat = new String(caesarCipher.getAlphabet().getAlphabet()).getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(flat, 0, file, 0, flat.length);
+        fill(file, SampledKeyFinder.BLOCK_SIZE, middle, REMAINDER_KEY);
+        fill(file, middle, middle + SampledKeyFinder.BLOCK_SIZE, SAMPLED_KEY);
+        fill(file, middle + SampledKeyFinder.BLOCK_SIZE, FILE_SIZE, REMAINDER_KEY);
+        Path path = directory.resolve("ambiguous.txt");
+        Files.write(path, file);
+
+        KeyRecoveryResult result = keyFinder.findKey(path);
+
+        assertEquals(SAMPLED_KEY, result.getShift());
+        assertTrue(result.getConfidence() >= SampledKeyFinder.DEFAULT_CONFIDENCE_THRESHOLD);
+    }
+
+    @Test
+    void headAloneIsAmbiguous() {
+        FrequencyAnalyzer frequencyAnalyzer = new FrequencyAnalyzer(caesarCipher.getAlphabet());
+
+        KeyRecoveryResult result = frequencyAnalyzer.findKey(new String(caesarCipher.getAlphabet().getAlphabet()));
+
+        assertTrue(result.getConfidence() < SampledKeyFinder.DEFAULT_CONFIDENCE_THRESHOLD);
+    }
+
+    /**
+     * Fills the byte range with whole UTF-8 characters of Russian-like text encrypted with the key,
+     * padding the last bytes that cannot hold a complete character with line breaks.
+     */
+    private void fill(byte[] file, int from, int to, int key) {
+        String ciphertext = caesarCipher.encrypt(plaintext(to - from), key);
+        int position = from;
+        for (int i = 0; i < ciphertext.length(); i++) {
+            byte[] character = String.valueOf(ciphertext.charAt(i)).getBytes(StandardCharsets.UTF_8);
+            if (position + character.length > to) {
+                break;
+            }
+            System.arraycopy(character, 0, file, position, character.length);
+            position += character.length;
+        }
+        Arrays.fill(file, position, to, (byte) '\n');
+    }
+
+    /**
+     * Returns text of the given length drawn from the Russian character distribution.
+     */
+    private String plaintext(int length) {
+        Alphabet alphabet = caesarCipher.getAlphabet();
+        double[] distribution = LanguageProfile.RUSSIAN.expectedDistribution(alphabet);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            double draw = random.nextDouble();
+            int c = 0;
+            while (c < distribution.length - 1 && draw >= distribution[c]) {
+                draw -= distribution[c];
+                c++;
+            }
+            text.append(alphabet.charAt(c));
+        }
+        return text.toString();
+    }
+}
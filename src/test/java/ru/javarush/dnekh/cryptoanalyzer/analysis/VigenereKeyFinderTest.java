@@ -0,0 +1,93 @@
+package ru.javarush.dnekh.cryptoanalyzer.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link VigenereKeyFinder} recovers keywords of different lengths rather than their multiples,
+ * from a string and from a file longer than the sample used for the key length.
+ * The plaintext is drawn character by character from the {@link LanguageProfile#RUSSIAN} distribution,
+ * so every column of the ciphertext is a Caesar shift of text with the profile's letter frequencies.
+ */
+class VigenereKeyFinderTest {
+
+    @TempDir
+    Path directory;
+
+    private CaesarCipher caesarCipher;
+    private VigenereKeyFinder keyFinder;
+
+    @BeforeEach
+    void setUp() {
+        caesarCipher = new CaesarCipher();
+        Alphabet alphabet = caesarCipher.getAlphabet();
+        keyFinder = new VigenereKeyFinder(new FrequencyAnalyzer(alphabet), alphabet,
+                VigenereKeyFinder.DEFAULT_MAX_KEY_LENGTH, 2);
+    }
+
+    @Test
+    void findsKeywordsOfDifferentLengths() {
+        String plaintext = plaintext(60_000);
+
+        for (String keyword : new String[]{"ж", "ключ", "шифр", "криптоанализ", "съешьжеещёэтихмягкихбулок"}) {
+            VigenereKeyResult result = keyFinder.findKey(caesarCipher.encryptVigenere(plaintext, keyword, false));
+
+            assertEquals(keyword, result.getKeyword());
+            assertEquals(LanguageProfile.RUSSIAN, result.getLanguage());
+        }
+    }
+
+    @Test
+    void findsKeywordInFileLongerThanSample() throws IOException {
+        String keyword = "шифр";
+        Path path = directory.resolve("ciphertext.txt");
+        // Two bytes per Cyrillic letter put most of the file after the sample
+        Files.writeString(path, caesarCipher.encryptVigenere(plaintext(VigenereKeyFinder.KEY_LENGTH_SAMPLE_SIZE), keyword,
+                false));
+        assertTrue(Files.size(path) > VigenereKeyFinder.KEY_LENGTH_SAMPLE_SIZE);
+
+        VigenereKeyResult result = keyFinder.findKey(path);
+
+        assertEquals(keyword, result.getKeyword());
+        assertEquals(LanguageProfile.RUSSIAN, result.getLanguage());
+    }
+
+    @Test
+    void computesMeanIndexOfCoincidence() {
+        assertEquals(1.0, VigenereKeyFinder.meanIndexOfCoincidence(new int[][]{{5, 0, 0}}), 1e-9);
+        assertEquals(0.0, VigenereKeyFinder.meanIndexOfCoincidence(new int[][]{{1, 1, 1}}), 1e-9);
+        // (2 * 1 + 2 * 1) / (4 * 3) for the first column, nothing to draw twice from the second
+        assertEquals(1.0 / 6, VigenereKeyFinder.meanIndexOfCoincidence(new int[][]{{2, 2, 0}, {0, 1, 0}}), 1e-9);
+    }
+
+    /**
+     * Returns text of the given length drawn from the Russian character distribution.
+     */
+    private String plaintext(int length) {
+        Alphabet alphabet = caesarCipher.getAlphabet();
+        double[] distribution = LanguageProfile.RUSSIAN.expectedDistribution(alphabet);
+        Random random = new Random(11);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            double draw = random.nextDouble();
+            int c = 0;
+            while (c < distribution.length - 1 && draw >= distribution[c]) {
+                draw -= distribution[c];
+                c++;
+            }
+            text.append(alphabet.charAt(c));
+        }
+        return text.toString();
+    }
+}
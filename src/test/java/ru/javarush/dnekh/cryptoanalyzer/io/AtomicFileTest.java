@@ -0,0 +1,77 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that an {@link AtomicFile} replaces its target only on commit, and that writers of the same target
+ * write into temporary files of their own.
+ */
+class AtomicFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void interleavedWritersOfOneTargetDoNotMix() throws IOException {
+        Path target = directory.resolve("checkpoint");
+        try (AtomicFile first = new AtomicFile(target); AtomicFile second = new AtomicFile(target)) {
+            assertNotEquals(first.getTemporaryPath(), second.getTemporaryPath());
+            Files.writeString(first.getTemporaryPath(), "first");
+            Files.writeString(second.getTemporaryPath(), "second");
+
+            first.commit();
+            assertEquals("first", Files.readString(target));
+            second.commit();
+        }
+
+        assertEquals("second", Files.readString(target));
+        assertEquals(1, fileCount());
+    }
+
+    @Test
+    void uncommittedFileLeavesTargetAsItWas() throws IOException {
+        Path target = directory.resolve("checkpoint");
+        Files.writeString(target, "previous");
+
+        assertThrows(IOException.class, () -> AtomicFile.write(target, out -> {
+            out.writeBytes("partial");
+            throw new IOException("interrupted");
+        }));
+
+        assertEquals("previous", Files.readString(target));
+        assertEquals(1, fileCount());
+    }
+
+    @Test
+    void writesBinaryContent() throws IOException {
+        Path target = directory.resolve("checkpoint");
+
+        AtomicFile.write(target, out -> {
+            out.writeInt(42);
+            out.writeUTF("ok");
+        });
+
+        byte[] content = Files.readAllBytes(target);
+        assertEquals(8, content.length);
+        assertEquals(42, content[3]);
+        assertEquals("ok", new String(content, 6, 2, StandardCharsets.UTF_8));
+        assertEquals(1, fileCount());
+    }
+
+    private long fileCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link FileFollower}: only appended input is transformed, an input truncated in place is followed again
+ * from its start while the output keeps growing, a restarted follower continues from its checkpoint and drops
+ * the output of a pass that was not checkpointed, and a sequence cut off at the end of the input waits for its rest.
+ */
+class FileFollowerTest {
+
+    private static final int KEY = 9;
+    private static final int JOB = 7;
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(20);
+
+    @TempDir
+    Path directory;
+
+    private CaesarCipher caesarCipher;
+    private Path inputPath;
+    private Path outputPath;
+
+    @BeforeEach
+    void setUp() {
+        caesarCipher = new CaesarCipher();
+        inputPath = directory.resolve("app.log");
+        outputPath = directory.resolve("app_encrypted.log");
+    }
+
+    @Test
+    void transformsOnlyAppendedInput() throws IOException {
+        FileFollower follower = follower(JOB);
+        append("первая строка\n");
+        assertEquals(bytes("первая строка\n"), follower.catchUp());
+
+        append("вторая строка\n");
+        assertEquals(bytes("вторая строка\n"), follower.catchUp());
+        assertEquals(0, follower.catchUp());
+
+        assertOutput("первая строка\nвторая строка\n");
+        assertEquals(Files.size(inputPath), follower.getInputOffset());
+    }
+
+    @Test
+    void followsTruncatedInputFromStart() throws IOException {
+        FileFollower follower = follower(JOB);
+        append("длинная строка до ротации журнала\n");
+        follower.catchUp();
+
+        // Truncated in place, as by logrotate copytruncate, and written again with less than before
+        Files.writeString(inputPath, "после\n");
+        assertEquals(bytes("после\n"), follower.catchUp());
+
+        append("и ещё\n");
+        follower.catchUp();
+
+        assertOutput("длинная строка до ротации журнала\nпосле\nи ещё\n");
+        assertEquals(Files.size(inputPath), follower.getInputOffset());
+    }
+
+    @Test
+    void followsInputTruncatedToEmpty() throws IOException {
+        FileFollower follower = follower(JOB);
+        append("до ротации\n");
+        follower.catchUp();
+
+        Files.write(inputPath, new byte[0]);
+        assertEquals(0, follower.catchUp());
+        assertEquals(0, follower.getInputOffset());
+
+        append("после\n");
+        follower.catchUp();
+
+        assertOutput("до ротации\nпосле\n");
+    }
+
+    @Test
+    void restartedFollowerNoticesTruncation() throws IOException {
+        append("длинная строка до ротации журнала\n");
+        follower(JOB).catchUp();
+
+        Files.writeString(inputPath, "после\n");
+        FileFollower restarted = follower(JOB);
+        restarted.catchUp();
+
+        assertOutput("длинная строка до ротации журнала\nпосле\n");
+    }
+
+    @Test
+    void continuesFromCheckpointAndDropsUncheckpointedOutput() throws IOException {
+        append("первая строка\n");
+        follower(JOB).catchUp();
+        // Output of a pass that crashed before its checkpoint was saved
+        Files.write(outputPath, new byte[]{'x', 'y', 'z'}, StandardOpenOption.APPEND);
+
+        append("вторая строка\n");
+        FileFollower restarted = follower(JOB);
+        assertEquals(bytes("вторая строка\n"), restarted.catchUp());
+
+        assertOutput("первая строка\nвторая строка\n");
+    }
+
+    @Test
+    void waitsForRestOfCutSequence() throws IOException {
+        FileFollower follower = follower(JOB);
+        byte[] letter = "я".getBytes(StandardCharsets.UTF_8);
+        append("a");
+        Files.write(inputPath, Arrays.copyOf(letter, 1), StandardOpenOption.APPEND);
+
+        assertEquals(1, follower.catchUp());
+        assertEquals(1, follower.getInputOffset());
+
+        Files.write(inputPath, Arrays.copyOfRange(letter, 1, letter.length), StandardOpenOption.APPEND);
+        assertEquals(letter.length, follower.catchUp());
+
+        assertOutput("aя");
+    }
+
+    @Test
+    void refusesOutputOfAnotherJob() throws IOException {
+        append("строка\n");
+        follower(JOB).catchUp();
+        append("ещё строка\n");
+
+        assertThrows(IOException.class, () -> follower(JOB + 1).catchUp());
+        assertOutput("строка\n");
+    }
+
+    @Test
+    void followsTruncationWhileRunning() throws Exception {
+        append("длинная строка до ротации журнала\n");
+        FileFollower follower = follower(JOB);
+        Thread thread = new Thread(() -> {
+            try {
+                follower.follow((transformedBytes, transformedCharacters) -> {
+                });
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        try {
+            String before = "длинная строка до ротации журнала\n";
+            awaitOutput(before);
+
+            Files.writeString(inputPath, "после\n");
+            awaitOutput(before + "после\n");
+        } finally {
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private FileFollower follower(int job) {
+        return new FileFollower(inputPath, outputPath, caesarCipher.getUtf8ShiftTable(KEY), job, POLL_INTERVAL);
+    }
+
+    private void append(String text) throws IOException {
+        Files.writeString(inputPath, text, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void assertOutput(String plaintext) throws IOException {
+        assertEquals(caesarCipher.encrypt(plaintext, KEY), Files.readString(outputPath));
+    }
+
+    /**
+     * Waits up to ten seconds for the output to hold the encryption of the plaintext.
+     */
+    private void awaitOutput(String plaintext) throws IOException, InterruptedException {
+        String expected = caesarCipher.encrypt(plaintext, KEY);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            if (Files.exists(outputPath) && expected.equals(readOutput())) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(expected, readOutput());
+    }
+
+    /**
+     * Reads the output without failing on a sequence the follower is still writing.
+     */
+    private String readOutput() throws IOException {
+        return new String(Files.readAllBytes(outputPath), StandardCharsets.UTF_8);
+    }
+
+    private static long bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,186 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.service.OperationSuffix;
+
+import java.io.IOException;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that the file transformations of {@link FileHandler} replace their output only when they complete,
+ * that a Vigenère key position carries across chunks and dropped line breaks,
+ * and that decrypting with every shift writes its outputs next to the source without asking for a location.
+ */
+class FileHandlerTest {
+
+    private static final byte[] PREVIOUS_OUTPUT = "previous output".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private CaesarCipher caesarCipher;
+    private FileHandler fileHandler;
+    private Path inputPath;
+    private Path outputPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        caesarCipher = new CaesarCipher();
+        fileHandler = new FileHandler();
+        inputPath = directory.resolve("text.txt");
+        outputPath = directory.resolve("text_encrypted.txt");
+        // Valid text first, so the failure comes after some output was written
+        byte[] text = ResumableFileTransformerTest.text(3 * FileHandler.OUTPUT_BUFFER_SIZE);
+        text[text.length - 1] = (byte) 0xFF;
+        Files.write(inputPath, text);
+        Files.write(outputPath, PREVIOUS_OUTPUT);
+    }
+
+    @Test
+    void mappedTransformKeepsPreviousOutputOnFailure() {
+        assertThrows(MalformedInputException.class,
+                () -> fileHandler.transformFileMapped(inputPath, outputPath, caesarCipher.getUtf8ShiftTable(3)));
+
+        assertPreviousOutputKept();
+    }
+
+    @Test
+    void streamingTransformKeepsPreviousOutputOnFailure() {
+        assertThrows(MalformedInputException.class, () -> fileHandler.transformFile(inputPath.toString(),
+                OperationSuffix.ENCRYPT, caesarCipher.getShiftTable(3), FileHandler.DEFAULT_CHUNK_SIZE));
+
+        assertPreviousOutputKept();
+    }
+
+    @Test
+    void mappedTransformReplacesOutputOnSuccess() throws IOException {
+        Files.writeString(inputPath, "привет, мир");
+
+        fileHandler.transformFileMapped(inputPath, outputPath, caesarCipher.getUtf8ShiftTable(3));
+
+        assertEquals(caesarCipher.encrypt("привет, мир", 3), Files.readString(outputPath));
+        assertEquals(2, fileCount());
+    }
+
+    @Test
+    void vigenereKeyPositionCarriesAcrossChunksAndLineBreaks() throws IOException {
+        String text = linesLongerThanChunk();
+        Path plainPath = directory.resolve("plain.txt");
+        Files.writeString(plainPath, text);
+        // Space and punctuation are alphabet characters too, so they are valid keyword characters
+        String keyword = "ключ, шифр.";
+        String ciphertext = caesarCipher.encryptVigenere(text, keyword, false);
+
+        for (int chunkSize : new int[]{FileHandler.DEFAULT_CHUNK_SIZE, 7}) {
+            long written = fileHandler.transformFile(plainPath.toString(), OperationSuffix.VIGENERE_ENCRYPT,
+                    caesarCipher.getVigenereTable(keyword, false, false), chunkSize);
+
+            Path encryptedPath = directory.resolve("plain" + OperationSuffix.VIGENERE_ENCRYPT.getSuffix() + ".txt");
+            assertEquals(ciphertext, Files.readString(encryptedPath));
+            assertEquals(ciphertext.length(), written);
+
+            fileHandler.transformFile(encryptedPath.toString(), OperationSuffix.VIGENERE_DECRYPT,
+                    caesarCipher.getVigenereTable(keyword, true, false), chunkSize);
+
+            Path decryptedPath = directory.resolve("plain" + OperationSuffix.VIGENERE_ENCRYPT.getSuffix()
+                    + OperationSuffix.VIGENERE_DECRYPT.getSuffix() + ".txt");
+            assertEquals(text.replace("\r", "").replace("\n", ""), Files.readString(decryptedPath));
+        }
+    }
+
+    @Test
+    void decryptsWithEveryShift() throws IOException {
+        Files.writeString(inputPath, caesarCipher.encrypt("съешь же ещё этих мягких булок", 3));
+
+        List<Path> outputPaths = fileHandler.getAllShiftsOutputPaths(inputPath.toString(),
+                caesarCipher.getAlphabet().size());
+        long written = fileHandler.decryptAllShifts(inputPath.toString(), outputPaths, caesarCipher.getAllShiftsTable(),
+                FileHandler.ALL_SHIFTS_CHUNK_SIZE);
+
+        // Shift 0 would only copy the ciphertext, so the outputs start at shift 1
+        assertEquals(caesarCipher.getAlphabet().size() - 1, outputPaths.size());
+        assertEquals(directory.resolve("text" + OperationSuffix.ALL_SHIFTS_DECRYPT.getSuffix() + 1 + ".txt"),
+                outputPaths.get(0));
+        assertEquals(directory.resolve("text" + OperationSuffix.ALL_SHIFTS_DECRYPT.getSuffix() + 3 + ".txt"),
+                outputPaths.get(2));
+        assertEquals("съешь же ещё этих мягких булок", Files.readString(outputPaths.get(2)));
+        assertEquals("съешь же ещё этих мягких булок".length(), written);
+        assertEquals(2 + outputPaths.size(), fileCount());
+    }
+
+    @Test
+    void allShiftsKeepPreviousOutputsOnFailure() throws IOException {
+        Path previous = directory.resolve("text" + OperationSuffix.ALL_SHIFTS_DECRYPT.getSuffix() + 5 + ".txt");
+        Files.write(previous, PREVIOUS_OUTPUT);
+
+        assertThrows(MalformedInputException.class, () -> fileHandler.decryptAllShifts(inputPath.toString(),
+                fileHandler.getAllShiftsOutputPaths(inputPath.toString(), caesarCipher.getAlphabet().size()),
+                caesarCipher.getAllShiftsTable(), FileHandler.ALL_SHIFTS_CHUNK_SIZE));
+
+        assertArrayEquals(PREVIOUS_OUTPUT, Files.readAllBytes(previous));
+        assertEquals(3, fileCount(), "no output or temporary file is left behind");
+    }
+
+    @Test
+    void allShiftsFailOnOutputDirectory() throws IOException {
+        Files.writeString(inputPath, "текст");
+        Files.createDirectory(directory.resolve("text" + OperationSuffix.ALL_SHIFTS_DECRYPT.getSuffix() + 1 + ".txt"));
+
+        assertThrows(IOException.class, () -> fileHandler.getAllShiftsOutputPaths(inputPath.toString(),
+                caesarCipher.getAlphabet().size()));
+        assertEquals(3, fileCount());
+    }
+
+    private void assertPreviousOutputKept() {
+        try {
+            assertArrayEquals(PREVIOUS_OUTPUT, Files.readAllBytes(outputPath));
+            assertEquals(2, fileCount(), "no temporary file is left behind");
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Returns lines of lower-case text ending in '\n' or "\r\n", longer than one default chunk,
+     * with a "\r\n" split across the border of the first chunk.
+     */
+    private static String linesLongerThanChunk() {
+        String characters = "абвгдеёжзийклмнопрстуфхцчшщъыьэюя .,";
+        Random random = new Random(9);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < FileHandler.DEFAULT_CHUNK_SIZE - 1) {
+            text.append(characters.charAt(random.nextInt(characters.length())));
+            if (random.nextInt(40) == 0) {
+                text.append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+        }
+        text.setLength(FileHandler.DEFAULT_CHUNK_SIZE - 1);
+        text.append("\r\n");
+        while (text.length() < 2 * FileHandler.DEFAULT_CHUNK_SIZE + 123) {
+            text.append(characters.charAt(random.nextInt(characters.length())));
+            if (random.nextInt(40) == 0) {
+                text.append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+        }
+        return text.toString();
+    }
+
+    private long fileCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
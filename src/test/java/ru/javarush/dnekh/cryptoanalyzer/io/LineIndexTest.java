@@ -0,0 +1,287 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the {@link LineIndex} file format: the variable-length line lengths, the checkpoints every
+ * {@code checkpointInterval} lines, the trailer, and the stamp that ties an index to one state of its ciphertext.
+ * Expected offsets come from encrypting every line on its own with {@link CaesarCipher#encrypt(String, int)}.
+ */
+class LineIndexTest {
+
+    private static final int KEY = 5;
+    private static final int INTERVAL = LineIndex.DEFAULT_CHECKPOINT_INTERVAL;
+    private static final String LETTERS = "абвгдеёжзийклмнопрстуфхцчшщъыьэюя .,";
+
+    @TempDir
+    Path directory;
+
+    private CaesarCipher caesarCipher;
+    private Utf8ShiftTable encryption;
+    private Path plaintextPath;
+    private Path ciphertextPath;
+
+    @BeforeEach
+    void setUp() {
+        caesarCipher = new CaesarCipher();
+        encryption = caesarCipher.getUtf8ShiftTable(KEY);
+        plaintextPath = directory.resolve("text.txt");
+        ciphertextPath = directory.resolve("text_encrypted.txt");
+    }
+
+    @Test
+    void locatesEveryLine() throws IOException {
+        List<String> lines = lines(3 * INTERVAL + 7);
+        encrypt(lines, true);
+
+        assertEquals(lines.size(), LineIndex.build(plaintextPath, ciphertextPath, encryption, INTERVAL));
+        LineIndex index = LineIndex.load(ciphertextPath);
+
+        assertEquals(lines.size(), index.getLineCount());
+        assertEquals(Files.size(ciphertextPath), index.getCiphertextSize());
+        assertRanges(index, lines, 0, lines.size() - 1);
+    }
+
+    @Test
+    void locatesLinesAroundCheckpoints() throws IOException {
+        List<String> lines = lines(3 * INTERVAL + 7);
+        encrypt(lines, true);
+        LineIndex.build(plaintextPath, ciphertextPath, encryption, INTERVAL);
+        LineIndex index = LineIndex.load(ciphertextPath);
+
+        for (int k = 1; k <= 3; k++) {
+            int checkpoint = k * INTERVAL;
+            assertRanges(index, lines, checkpoint, checkpoint);
+            assertRanges(index, lines, checkpoint - 1, checkpoint - 1);
+            assertRanges(index, lines, checkpoint - 1, checkpoint);
+            assertRanges(index, lines, checkpoint - 2, Math.min(checkpoint + 2, lines.size() - 1));
+        }
+        assertRanges(index, lines, lines.size() - 1, lines.size() - 1);
+    }
+
+    @Test
+    void endsOnCheckpointBoundary() throws IOException {
+        List<String> lines = lines(2 * INTERVAL);
+        encrypt(lines, true);
+
+        LineIndex.build(plaintextPath, ciphertextPath, encryption, INTERVAL);
+        LineIndex index = LineIndex.load(ciphertextPath);
+
+        assertEquals(2 * INTERVAL, index.getLineCount());
+        assertRanges(index, lines, INTERVAL - 1, 2 * INTERVAL - 1);
+        assertThrows(IllegalArgumentException.class, () -> index.forEachLine(2 * INTERVAL, 2 * INTERVAL, (s, e) -> {
+        }));
+    }
+
+    @Test
+    void countsLastLineWithoutLineBreak() throws IOException {
+        List<String> lines = List.of("первая", "", "последняя");
+        encrypt(lines, false);
+
+        assertEquals(3, LineIndex.build(plaintextPath, ciphertextPath, encryption, 2));
+        assertRanges(LineIndex.load(ciphertextPath), lines, 0, 2);
+    }
+
+    @Test
+    void storesLongLinesInSeveralBytes() throws IOException {
+        // Lengths of one, two and three varint bytes
+        List<String> lines = List.of("а".repeat(50), "б".repeat(5000), "", "в".repeat(70000), "г");
+        encrypt(lines, true);
+
+        LineIndex.build(plaintextPath, ciphertextPath, encryption, 2);
+        LineIndex index = LineIndex.load(ciphertextPath);
+
+        assertRanges(index, lines, 0, lines.size() - 1);
+        assertRanges(index, lines, 3, 4);
+    }
+
+    @Test
+    void writerInTransformLoopMatchesRebuild() throws IOException {
+        List<String> lines = lines(3 * INTERVAL + 7);
+        encrypt(lines, true);
+        Path output = directory.resolve("inline.txt");
+
+        try (LineIndex.Writer writer = new LineIndex.Writer(output, INTERVAL)) {
+            new ResumableFileTransformer().transform(plaintextPath, output, encryption, 1, writer);
+            assertEquals(lines.size(), writer.commit());
+        }
+        byte[] inline = Files.readAllBytes(LineIndex.indexPathOf(output));
+        LineIndex.build(plaintextPath, output, encryption, INTERVAL);
+
+        assertArrayEquals(Files.readAllBytes(LineIndex.indexPathOf(output)), inline);
+        assertArrayEquals(Files.readAllBytes(ciphertextPath), Files.readAllBytes(output));
+    }
+
+    @Test
+    void decryptsLinesAcrossCheckpoint() throws IOException {
+        List<String> lines = lines(2 * INTERVAL + 1);
+        encrypt(lines, true);
+        LineIndex.build(plaintextPath, ciphertextPath, encryption, INTERVAL);
+
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        try (RangeTransformer transformer = new RangeTransformer(ciphertextPath, caesarCipher.getUtf8ShiftTable(-KEY),
+                Channels.newChannel(decrypted))) {
+            transformer.transformLines(LineIndex.load(ciphertextPath), INTERVAL - 1, INTERVAL + 1);
+        }
+
+        String expected = lines.get(INTERVAL - 1) + "\n" + lines.get(INTERVAL) + "\n" + lines.get(INTERVAL + 1) + "\n";
+        assertEquals(expected, decrypted.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void removesUncommittedIndex() throws IOException {
+        encrypt(lines(10), true);
+
+        try (FileChannel plaintext = FileChannel.open(plaintextPath, StandardOpenOption.READ);
+             LineIndex.Writer writer = new LineIndex.Writer(ciphertextPath, INTERVAL)) {
+            writer.recordLines(plaintext, plaintext.size(), encryption);
+        }
+
+        try (var files = Files.list(directory)) {
+            assertFalse(files.anyMatch(path -> path.getFileName().toString().contains(LineIndex.INDEX_SUFFIX)));
+        }
+    }
+
+    @Test
+    void rejectsCiphertextOfAnotherSize() throws IOException {
+        encrypt(lines(100), true);
+        LineIndex.build(plaintextPath, ciphertextPath, encryption, INTERVAL);
+
+        Files.write(ciphertextPath, new byte[]{'a'}, StandardOpenOption.APPEND);
+
+        assertThrows(IOException.class, () -> LineIndex.load(ciphertextPath));
+    }
+
+    @Test
+    void rejectsCiphertextWithAnotherModificationTime() throws IOException {
+        encrypt(lines(100), true);
+        LineIndex.build(plaintextPath, ciphertextPath, encryption, INTERVAL);
+
+        FileTime modified = Files.getLastModifiedTime(ciphertextPath);
+        Files.setLastModifiedTime(ciphertextPath, FileTime.fromMillis(modified.toMillis() + 2000));
+
+        assertThrows(IOException.class, () -> LineIndex.load(ciphertextPath));
+    }
+
+    @Test
+    void rejectsCiphertextRewrittenWithSameSizeAndTime() throws IOException {
+        encrypt(lines(100), true);
+        LineIndex.build(plaintextPath, ciphertextPath, encryption, INTERVAL);
+
+        FileTime modified = Files.getLastModifiedTime(ciphertextPath);
+        byte[] ciphertext = Files.readAllBytes(ciphertextPath);
+        ciphertext[ciphertext.length - 2] ^= 1;
+        Files.write(ciphertextPath, ciphertext);
+        Files.setLastModifiedTime(ciphertextPath, modified);
+
+        assertThrows(IOException.class, () -> LineIndex.load(ciphertextPath));
+    }
+
+    @Test
+    void rejectsDamagedIndex() throws IOException {
+        encrypt(lines(100), true);
+        LineIndex.build(plaintextPath, ciphertextPath, encryption, 16);
+        Path indexPath = LineIndex.indexPathOf(ciphertextPath);
+        byte[] index = Files.readAllBytes(indexPath);
+
+        // Trailer magic
+        byte[] damaged = index.clone();
+        damaged[damaged.length - 1] ^= 1;
+        Files.write(indexPath, damaged);
+        assertThrows(IOException.class, () -> LineIndex.load(ciphertextPath));
+
+        // A checkpoint cut off, so the checkpoint section no longer fits the line count
+        byte[] truncated = new byte[index.length - 16];
+        System.arraycopy(index, 0, truncated, 0, truncated.length - 40);
+        System.arraycopy(index, index.length - 40, truncated, truncated.length - 40, 40);
+        Files.write(indexPath, truncated);
+        assertThrows(IOException.class, () -> LineIndex.load(ciphertextPath));
+
+        Files.write(indexPath, new byte[10]);
+        assertThrows(IOException.class, () -> LineIndex.load(ciphertextPath));
+    }
+
+    @Test
+    void rejectsMissingIndex() throws IOException {
+        encrypt(lines(10), true);
+
+        assertThrows(IOException.class, () -> LineIndex.load(ciphertextPath));
+    }
+
+    /**
+     * Writes the lines as the plaintext file and encrypts it into the ciphertext file.
+     */
+    private void encrypt(List<String> lines, boolean lastLineBreak) throws IOException {
+        String text = String.join("\n", lines) + (lastLineBreak ? "\n" : "");
+        Files.writeString(plaintextPath, text);
+        new FileHandler().transformFileMapped(plaintextPath, ciphertextPath, encryption);
+    }
+
+    /**
+     * Checks that the index reports every line in the range at the offset and with the length that
+     * encrypting the lines one by one gives.
+     */
+    private void assertRanges(LineIndex index, List<String> lines, int firstLine, int lastLine) throws IOException {
+        long offset = 0;
+        for (int i = 0; i < firstLine; i++) {
+            offset += encryptedLength(lines.get(i));
+        }
+        List<long[]> expected = new ArrayList<>();
+        for (int i = firstLine; i <= lastLine; i++) {
+            long end = offset + encryptedLength(lines.get(i));
+            expected.add(new long[]{offset, end});
+            offset = end;
+        }
+
+        List<long[]> actual = new ArrayList<>();
+        index.forEachLine(firstLine, lastLine, (start, end) -> actual.add(new long[]{start, end}));
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i), "line " + (firstLine + i));
+        }
+    }
+
+    private long encryptedLength(String line) {
+        return caesarCipher.encrypt(line, KEY).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Returns lines of random length, about one in five of them empty.
+     */
+    private static List<String> lines(int count) {
+        Random random = new Random(7);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = (random.nextInt(5) == 0) ? 0 : random.nextInt(200);
+            StringBuilder line = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                line.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+}
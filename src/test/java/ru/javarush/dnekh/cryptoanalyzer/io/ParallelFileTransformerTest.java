@@ -0,0 +1,148 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.model.Alphabet;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.model.UnsupportedCharacterPolicy;
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.io.IOException;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that {@link ParallelFileTransformer} writes the same bytes as a sequential run, with segment borders
+ * falling inside multi-byte sequences, and that a failed run leaves the previous output as it was.
+ * Sequences of two, three and four bytes are placed so that a segment border falls after each of their bytes.
+ */
+class ParallelFileTransformerTest {
+
+    @TempDir
+    Path directory;
+
+    private final Utf8ShiftTable table = new CaesarCipher().getUtf8ShiftTable(11);
+
+    @Test
+    void matchesSequentialTransform() throws IOException {
+        // An odd size of two-byte characters puts most segment borders inside a sequence
+        Path inputPath = directory.resolve("input.txt");
+        Files.write(inputPath, ResumableFileTransformerTest.text(5 * ParallelFileTransformer.SEGMENT_SIZE + 3));
+        Path sequential = directory.resolve("sequential.txt");
+        new FileHandler().transformFileMapped(inputPath, sequential, table);
+
+        for (int parallelism : new int[]{1, 2, 3, 8}) {
+            Path parallel = directory.resolve("parallel" + parallelism + ".txt");
+            new ParallelFileTransformer(parallelism).transform(inputPath, parallel, table);
+            assertArrayEquals(Files.readAllBytes(sequential), Files.readAllBytes(parallel), "parallelism " + parallelism);
+        }
+    }
+
+    @Test
+    void transformsSequencesAcrossSegmentBorders() throws IOException {
+        Utf8ShiftTable passThrough = new CaesarCipher(new Alphabet()
+                .withUnsupportedCharacterPolicy(UnsupportedCharacterPolicy.PASS_THROUGH)).getUtf8ShiftTable(11);
+
+        for (String character : new String[]{"я", "№", "€", "😀"}) {
+            int length = character.getBytes(StandardCharsets.UTF_8).length;
+            for (int cut = 1; cut < length; cut++) {
+                Path inputPath = directory.resolve("input.txt");
+                Files.write(inputPath, textWithSequencesAtBorders(character, cut, 3));
+                Path sequential = directory.resolve("sequential.txt");
+                TransformResult sequentialResult = new FileHandler().transformFileMapped(inputPath, sequential, passThrough);
+                Path parallel = directory.resolve("parallel.txt");
+
+                TransformResult result = new ParallelFileTransformer(3).transform(inputPath, parallel, passThrough);
+
+                byte[] expected = Files.readAllBytes(sequential);
+                assertEquals(expected.length, result.getBytesWritten());
+                String text = Files.readString(inputPath);
+                assertEquals(text.codePointCount(0, text.length()), result.getCharacters());
+                assertEquals(sequentialResult.getCharacters(), result.getCharacters());
+                assertArrayEquals(expected, Files.readAllBytes(parallel), character + " cut after byte " + cut);
+            }
+        }
+    }
+
+    @Test
+    void transformsInputEndingOnSegmentBorder() throws IOException {
+        for (int size : new int[]{0, 1, ParallelFileTransformer.SEGMENT_SIZE, 2 * ParallelFileTransformer.SEGMENT_SIZE}) {
+            Path inputPath = directory.resolve("input.txt");
+            Files.write(inputPath, ResumableFileTransformerTest.text(size));
+            Path sequential = directory.resolve("sequential.txt");
+            new FileHandler().transformFileMapped(inputPath, sequential, table);
+            Path parallel = directory.resolve("parallel.txt");
+
+            new ParallelFileTransformer(2).transform(inputPath, parallel, table);
+
+            assertArrayEquals(Files.readAllBytes(sequential), Files.readAllBytes(parallel), "size " + size);
+        }
+    }
+
+    @Test
+    void rejectsMalformedSequencesAtSegmentBorders() throws IOException {
+        int border = ParallelFileTransformer.SEGMENT_SIZE;
+        byte[] text = new byte[2 * border];
+        Arrays.fill(text, (byte) 'a');
+        Path inputPath = directory.resolve("input.txt");
+        Path outputPath = directory.resolve("output.txt");
+
+        // A continuation byte without a lead byte, which the next segment skips as the tail of a sequence
+        byte[] strayContinuation = text.clone();
+        strayContinuation[border] = (byte) 0x80;
+        Files.write(inputPath, strayContinuation);
+        assertThrows(MalformedInputException.class,
+                () -> new ParallelFileTransformer(2).transform(inputPath, outputPath, table));
+
+        // A lead byte whose sequence is cut off by the end of the input
+        byte[] truncated = Arrays.copyOf(text, border + 1);
+        truncated[border] = (byte) 0xD0;
+        Files.write(inputPath, truncated);
+        assertThrows(MalformedInputException.class,
+                () -> new ParallelFileTransformer(2).transform(inputPath, outputPath, table));
+    }
+
+    @Test
+    void keepsPreviousOutputOnFailure() throws IOException {
+        Path inputPath = directory.resolve("input.txt");
+        byte[] text = ResumableFileTransformerTest.text(5 * ParallelFileTransformer.SEGMENT_SIZE);
+        text[text.length - 1] = (byte) 0xFF;
+        Files.write(inputPath, text);
+        Path outputPath = directory.resolve("output.txt");
+        byte[] previous = "previous output".getBytes(StandardCharsets.UTF_8);
+        Files.write(outputPath, previous);
+
+        assertThrows(MalformedInputException.class,
+                () -> new ParallelFileTransformer(4).transform(inputPath, outputPath, table));
+
+        assertArrayEquals(previous, Files.readAllBytes(outputPath));
+        try (var files = Files.list(directory)) {
+            assertArrayEquals(new Object[]{"input.txt", "output.txt"},
+                    files.map(path -> path.getFileName().toString()).sorted().toArray());
+        }
+    }
+
+    /**
+     * Returns text of letters and spaces with the character placed so that the border after every segment but
+     * the last falls after byte {@code cut} of its encoding.
+     */
+    private static byte[] textWithSequencesAtBorders(String character, int cut, int segments) {
+        byte[] sequence = character.getBytes(StandardCharsets.UTF_8);
+        byte[] text = new byte[segments * ParallelFileTransformer.SEGMENT_SIZE + 7];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (byte) ((i % 7 == 0) ? ' ' : 'a' + i % 26);
+        }
+        for (int border = ParallelFileTransformer.SEGMENT_SIZE; border < text.length;
+             border += ParallelFileTransformer.SEGMENT_SIZE) {
+            System.arraycopy(sequence, 0, text, border - cut, sequence.length);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,294 @@
+package ru.javarush.dnekh.cryptoanalyzer.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.model.Utf8ShiftTable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the checkpoint format of {@link ResumableFileTransformer}: a run that died part way through is continued
+ * after the last chunk whose output is intact, and a checkpoint of another input or job is discarded.
+ * <p>
+ * An interrupted run is made by transforming into an output path that is a non-empty directory, which fails
+ * after every chunk was committed, and then dropping the last chunk from the checkpoint as if the run had died
+ * while writing it.
+ */
+class ResumableFileTransformerTest {
+
+    private static final int JOB = 42;
+    private static final String LETTERS = "абвгдеёжзийклмнопрстуфхцчшщъыьэюя .,";
+
+    // Every read of the input buffer completes a chunk, so the input spans several chunks
+    private static final long CHUNK_SIZE = 1;
+    private static final int INPUT_SIZE = 3 * FileHandler.OUTPUT_BUFFER_SIZE + 12345;
+
+    @TempDir
+    Path directory;
+
+    private Path inputPath;
+    private Path outputPath;
+    private Path partPath;
+    private Path checkpointPath;
+    private Utf8ShiftTable table;
+    private byte[] expected;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        inputPath = directory.resolve("input.txt");
+        outputPath = directory.resolve("output.txt");
+        partPath = directory.resolve("output.txt" + ResumableFileTransformer.PART_SUFFIX);
+        checkpointPath = directory.resolve("output.txt" + ResumableFileTransformer.PART_SUFFIX
+                + ResumableFileTransformer.CHECKPOINT_SUFFIX);
+        table = new CaesarCipher().getUtf8ShiftTable(3);
+
+        Files.write(inputPath, text(INPUT_SIZE));
+        Path reference = directory.resolve("reference.txt");
+        new FileHandler().transformFileMapped(inputPath, reference, table);
+        expected = Files.readAllBytes(reference);
+    }
+
+    @Test
+    void transformsInOneRunAndRemovesPartialFiles() throws IOException {
+        TransformResult result = new ResumableFileTransformer(CHUNK_SIZE).transform(inputPath, outputPath, table, JOB);
+
+        assertEquals(0, result.getResumedOffset());
+        assertEquals(expected.length, result.getBytesWritten());
+        assertEquals(Files.readString(inputPath).length(), result.getCharacters());
+        assertArrayEquals(expected, Files.readAllBytes(outputPath));
+        assertFalse(Files.exists(partPath));
+        assertFalse(Files.exists(checkpointPath));
+    }
+
+    @Test
+    void removesPartialFilesOfInputThatCannotBeTransformed() throws IOException {
+        byte[] invalid = Files.readAllBytes(inputPath);
+        invalid[invalid.length - 1] = (byte) 0xFF;
+        Files.write(inputPath, invalid);
+
+        ResumableFileTransformer transformer = new ResumableFileTransformer(CHUNK_SIZE);
+        assertThrows(MalformedInputException.class, () -> transformer.transform(inputPath, outputPath, table, JOB));
+
+        assertFalse(Files.exists(outputPath));
+        assertFalse(Files.exists(partPath));
+        assertFalse(Files.exists(checkpointPath));
+    }
+
+    @Test
+    void continuesAfterLastChunk() throws IOException {
+        long[][] chunks = interruptRun();
+
+        TransformResult result = new ResumableFileTransformer(CHUNK_SIZE).transform(inputPath, outputPath, table, JOB);
+
+        long[] last = chunks[chunks.length - 1];
+        assertEquals(last[0], result.getResumedOffset());
+        assertEquals(expected.length - last[1], result.getBytesWritten());
+        byte[] input = Files.readAllBytes(inputPath);
+        assertEquals(new String(input, (int) last[0], input.length - (int) last[0], StandardCharsets.UTF_8).length(),
+                result.getCharacters());
+        assertArrayEquals(expected, Files.readAllBytes(outputPath));
+    }
+
+    @Test
+    void stepsBackOverTruncatedLastChunk() throws IOException {
+        long[][] chunks = interruptRun();
+        try (FileChannel part = FileChannel.open(partPath, StandardOpenOption.WRITE)) {
+            part.truncate(chunks[chunks.length - 1][1] - 1);
+        }
+
+        long resumed = new ResumableFileTransformer(CHUNK_SIZE).transform(inputPath, outputPath, table, JOB)
+                .getResumedOffset();
+
+        assertEquals(chunks[chunks.length - 2][0], resumed);
+        assertArrayEquals(expected, Files.readAllBytes(outputPath));
+    }
+
+    @Test
+    void stepsBackOverChunkWithWrongChecksum() throws IOException {
+        long[][] chunks = interruptRun();
+        corruptByte(chunks[chunks.length - 2][1]);
+
+        long resumed = new ResumableFileTransformer(CHUNK_SIZE).transform(inputPath, outputPath, table, JOB)
+                .getResumedOffset();
+
+        assertEquals(chunks[chunks.length - 2][0], resumed);
+        assertArrayEquals(expected, Files.readAllBytes(outputPath));
+    }
+
+    @Test
+    void stepsBackThroughSeveralChunks() throws IOException {
+        long[][] chunks = interruptRun();
+        try (FileChannel part = FileChannel.open(partPath, StandardOpenOption.WRITE)) {
+            part.truncate(chunks[0][1]);
+        }
+
+        long resumed = new ResumableFileTransformer(CHUNK_SIZE).transform(inputPath, outputPath, table, JOB)
+                .getResumedOffset();
+
+        assertEquals(chunks[0][0], resumed);
+        assertArrayEquals(expected, Files.readAllBytes(outputPath));
+    }
+
+    @Test
+    void startsOverWhenFirstChunkIsDamaged() throws IOException {
+        long[][] chunks = interruptRun();
+        try (FileChannel part = FileChannel.open(partPath, StandardOpenOption.WRITE)) {
+            part.truncate(chunks[0][1]);
+        }
+        corruptByte(0);
+
+        long resumed = new ResumableFileTransformer(CHUNK_SIZE).transform(inputPath, outputPath, table, JOB)
+                .getResumedOffset();
+
+        assertEquals(0, resumed);
+        assertArrayEquals(expected, Files.readAllBytes(outputPath));
+    }
+
+    @Test
+    void discardsCheckpointOfAnotherJob() throws IOException {
+        interruptRun();
+
+        long resumed = new ResumableFileTransformer(CHUNK_SIZE).transform(inputPath, outputPath,
+                new CaesarCipher().getUtf8ShiftTable(4), JOB + 1).getResumedOffset();
+
+        assertEquals(0, resumed);
+        Path reference = directory.resolve("reference4.txt");
+        new FileHandler().transformFileMapped(inputPath, reference, new CaesarCipher().getUtf8ShiftTable(4));
+        assertArrayEquals(Files.readAllBytes(reference), Files.readAllBytes(outputPath));
+    }
+
+    @Test
+    void discardsCheckpointOfModifiedInput() throws IOException {
+        interruptRun();
+        Files.setLastModifiedTime(inputPath, FileTime.fromMillis(Files.getLastModifiedTime(inputPath).toMillis() + 2000));
+
+        long resumed = new ResumableFileTransformer(CHUNK_SIZE).transform(inputPath, outputPath, table, JOB)
+                .getResumedOffset();
+
+        assertEquals(0, resumed);
+        assertArrayEquals(expected, Files.readAllBytes(outputPath));
+    }
+
+    @Test
+    void startsOverWhenCheckpointIsDamaged() throws IOException {
+        interruptRun();
+        Files.write(checkpointPath, new byte[]{1, 2, 3});
+
+        long resumed = new ResumableFileTransformer(CHUNK_SIZE).transform(inputPath, outputPath, table, JOB)
+                .getResumedOffset();
+
+        assertEquals(0, resumed);
+        assertArrayEquals(expected, Files.readAllBytes(outputPath));
+    }
+
+    /**
+     * Leaves the partial output and the checkpoint of a run that died while writing its last chunk,
+     * and returns the input end, output end and CRC-32C of every chunk left in the checkpoint.
+     */
+    private long[][] interruptRun() throws IOException {
+        Files.createDirectory(outputPath);
+        Files.createFile(outputPath.resolve("occupied"));
+
+        ResumableFileTransformer transformer = new ResumableFileTransformer(CHUNK_SIZE);
+        assertThrows(IOException.class, () -> transformer.transform(inputPath, outputPath, table, JOB));
+
+        Files.delete(outputPath.resolve("occupied"));
+        Files.delete(outputPath);
+        assertTrue(Files.exists(partPath));
+        long[][] chunks = readChunks();
+        assertTrue(chunks.length >= 3, "the input should span several chunks");
+        long[][] committed = Arrays.copyOf(chunks, chunks.length - 1);
+        writeChunks(committed);
+        return committed;
+    }
+
+    /**
+     * Reads the chunk list of the checkpoint file: MAGIC, VERSION, input size, input modification time,
+     * job fingerprint, chunk count, then the input end, output end and CRC-32C of every chunk.
+     */
+    private long[][] readChunks() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointPath)))) {
+            assertEquals(0x52465400, in.readInt());
+            assertEquals(1, in.readInt());
+            assertEquals(Files.size(inputPath), in.readLong());
+            assertEquals(Files.getLastModifiedTime(inputPath).toMillis(), in.readLong());
+            assertEquals(JOB, in.readInt());
+            long[][] chunks = new long[in.readInt()][];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = new long[]{in.readLong(), in.readLong(), in.readInt()};
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * Replaces the checkpoint file with one of the same input and job that lists the given chunks.
+     */
+    private void writeChunks(long[][] chunks) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(checkpointPath)))) {
+            out.writeInt(0x52465400);
+            out.writeInt(1);
+            out.writeLong(Files.size(inputPath));
+            out.writeLong(Files.getLastModifiedTime(inputPath).toMillis());
+            out.writeInt(JOB);
+            out.writeInt(chunks.length);
+            for (long[] chunk : chunks) {
+                out.writeLong(chunk[0]);
+                out.writeLong(chunk[1]);
+                out.writeInt((int) chunk[2]);
+            }
+        }
+    }
+
+    private void corruptByte(long position) throws IOException {
+        try (FileChannel part = FileChannel.open(partPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer single = ByteBuffer.allocate(1);
+            part.read(single, position);
+            single.put(0, (byte) (single.get(0) ^ 1));
+            single.rewind();
+            part.write(single, position);
+        }
+    }
+
+    /**
+     * Returns UTF-8 text of exactly the given size, made of one- and two-byte characters and line breaks.
+     */
+    static byte[] text(int size) {
+        Random random = new Random(1);
+        StringBuilder builder = new StringBuilder();
+        int length = 0;
+        while (length < size) {
+            char c = (random.nextInt(40) == 0) ? '\n' : LETTERS.charAt(random.nextInt(LETTERS.length()));
+            int bytes = (c < 0x80) ? 1 : 2;
+            if (length + bytes > size) {
+                c = ' ';
+                bytes = 1;
+            }
+            builder.append(c);
+            length += bytes;
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.javarush.dnekh.cryptoanalyzer.analysis.FrequencyAnalyzer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the interactive brute force of {@link CaesarCipher}: candidates are offered in the order they are given,
+ * which puts the best-scored shift first, and only a preview window of the text is decrypted per candidate.
+ * The user's answers are fed through {@link System#in} and the offered previews are read from {@link System#out}.
+ */
+class CaesarCipherTest {
+
+    private static final int KEY = 12;
+    private static final String FIRST_SENTENCE = "мой дядя самых честных правил";
+    private static final String PLAINTEXT = FIRST_SENTENCE + ". когда не в шутку занемог, он уважать себя "
+            + "заставил и лучше выдумать не мог. его пример другим наука, но, боже мой, какая скука с больным сидеть "
+            + "и день и ночь, не отходя ни шагу прочь.";
+
+    private final InputStream originalIn = System.in;
+    private final PrintStream originalOut = System.out;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private CaesarCipher caesarCipher;
+
+    @BeforeEach
+    void setUp() {
+        caesarCipher = new CaesarCipher();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void restoreStandardStreams() {
+        System.setIn(originalIn);
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void offersBestScoredShiftFirst() {
+        String ciphertext = caesarCipher.encrypt(PLAINTEXT, KEY);
+        FrequencyAnalyzer frequencyAnalyzer = new FrequencyAnalyzer(caesarCipher.getAlphabet());
+        int[] ranked = frequencyAnalyzer.rankShifts(frequencyAnalyzer.getHistogramBuilder().build(ciphertext));
+        answer("yes");
+
+        assertEquals(KEY, caesarCipher.bruteForceDecryptAndGetShift(ciphertext, ranked));
+
+        assertEquals(List.of("Shift " + KEY + ": " + FIRST_SENTENCE), offeredPreviews());
+    }
+
+    @Test
+    void offersCandidatesInGivenOrder() {
+        String ciphertext = caesarCipher.encrypt(PLAINTEXT, KEY);
+        int[] shifts = {40, 3, KEY, 7};
+        answer("no", "No ", "yes");
+
+        assertEquals(KEY, caesarCipher.bruteForceDecryptAndGetShift(ciphertext, shifts));
+
+        List<String> previews = offeredPreviews();
+        assertEquals(3, previews.size());
+        assertTrue(previews.get(0).startsWith("Shift 40: "), previews.get(0));
+        assertTrue(previews.get(1).startsWith("Shift 3: "), previews.get(1));
+        assertEquals("Shift " + KEY + ": " + FIRST_SENTENCE, previews.get(2));
+    }
+
+    @Test
+    void decryptsOnlyPreviewWindowOfEveryCandidate() {
+        // The tail is far longer than a preview and holds a character the cipher rejects
+        CountingText text = new CountingText(caesarCipher.encrypt(PLAINTEXT, KEY) + "а".repeat(100_000) + "字");
+        int[] shifts = new int[caesarCipher.getAlphabet().size() - 1];
+        Arrays.setAll(shifts, i -> i + 1);
+        String[] answers = new String[shifts.length];
+        Arrays.fill(answers, "no");
+        answer(answers);
+
+        assertEquals(-1, caesarCipher.bruteForceDecryptAndGetShift(text, shifts));
+
+        assertEquals(shifts.length, offeredPreviews().size());
+        assertTrue(text.highestIndex < CaesarCipher.PREVIEW_WINDOW_LENGTH, "highest index read " + text.highestIndex);
+        assertTrue(text.reads <= (long) shifts.length * CaesarCipher.PREVIEW_WINDOW_LENGTH,
+                "characters read " + text.reads);
+    }
+
+    private void answer(String... answers) {
+        String input = String.join(System.lineSeparator(), answers) + System.lineSeparator();
+        System.setIn(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private List<String> offeredPreviews() {
+        List<String> previews = new ArrayList<>();
+        // The confirmation question ends without a line break, so the next preview follows it on the same line
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\\R|\\(yes/no\\): ")) {
+            if (line.startsWith("Shift ")) {
+                previews.add(line);
+            }
+        }
+        return previews;
+    }
+
+    /**
+     * A character sequence that remembers how many characters were read and the highest position read.
+     */
+    private static final class CountingText implements CharSequence {
+
+        private final String text;
+        private long reads;
+        private int highestIndex = -1;
+
+        CountingText(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            reads++;
+            highestIndex = Math.max(highestIndex, index);
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests {@link PerfectHashCharMap} lookups over the whole {@code char} range, and the lookups of alphabet
+ * characters above {@link Alphabet#DENSE_LIMIT}, which go through it.
+ */
+class PerfectHashCharMapTest {
+
+    @Test
+    void findsEveryKeyAndNothingElse() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int size : new int[]{0, 1, 2, 3, 7, 64, 65, 300}) {
+            Map<Character, Character> expected = new HashMap<>();
+            while (expected.size() < size) {
+                char key = (char) random.nextInt(PerfectHashCharMap.MISSING);
+                expected.put(key, (char) random.nextInt(PerfectHashCharMap.MISSING));
+            }
+            char[] keys = new char[size];
+            char[] values = new char[size];
+            int i = 0;
+            for (Map.Entry<Character, Character> entry : expected.entrySet()) {
+                keys[i] = entry.getKey();
+                values[i++] = entry.getValue();
+            }
+
+            PerfectHashCharMap map = PerfectHashCharMap.of(keys, values);
+
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                char value = expected.getOrDefault((char) c, PerfectHashCharMap.MISSING);
+                assertEquals(value, map.get((char) c), "character " + c + " in a map of " + size);
+            }
+        }
+    }
+
+    @Test
+    void findsKeysThatShareLowBits() {
+        // Keys a multiple of a large power of two apart collide under a plain modulo
+        char[] keys = new char[32];
+        char[] values = new char[32];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (char) (0x2000 + i * 0x400);
+            values[i] = (char) i;
+        }
+
+        PerfectHashCharMap map = PerfectHashCharMap.of(keys, values);
+
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(values[i], map.get(keys[i]));
+            assertEquals(PerfectHashCharMap.MISSING, map.get((char) (keys[i] + 1)));
+        }
+    }
+
+    @Test
+    void shiftsAlphabetCharactersAboveDenseRange() {
+        // Typographic punctuation lies far above the dense lookup range
+        Alphabet alphabet = new Alphabet("typographic", List.of("абвгд"), "—“”…№€", UnsupportedCharacterPolicy.REJECT);
+        char[] characters = alphabet.getAlphabet();
+
+        ShiftTable table = ShiftTable.forKey(alphabet, 1, false, TransformKernel.SCALAR);
+
+        for (int i = 0; i < characters.length; i++) {
+            assertEquals(i, alphabet.indexOf(characters[i]));
+            assertEquals(characters[(i + 1) % characters.length], table.map(characters[i]));
+        }
+        assertEquals(-1, alphabet.indexOf('‘'));
+        assertEquals(ShiftTable.NOT_SUPPORTED, table.map('‘'));
+        assertEquals("б“”…№€а—", table.transform("а—“”…№€д"));
+    }
+}
@@ -0,0 +1,144 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import org.junit.jupiter.api.Test;
+import ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException;
+
+import java.nio.CharBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the compiled {@link ShiftTable} against a shift computed character by character from
+ * {@link Alphabet#indexOf(char)}, for every key and for the characters the table treats specially:
+ * upper-case letters, line breaks, characters above {@link Alphabet#DENSE_LIMIT} and unsupported characters.
+ */
+class ShiftTableTest {
+
+    private static final String TEXT = "Съешь же ещё этих мягких французских булок, да выпей чаю! "
+            + "The quick brown fox №42 (jumps) over «the» lazy dog?";
+
+    private final Alphabet alphabet = new Alphabet();
+
+    @Test
+    void matchesReferenceShiftForEveryKey() {
+        for (int key = -alphabet.size(); key <= 2 * alphabet.size(); key++) {
+            assertEquals(referenceShift(TEXT, key), ShiftTable.forKey(alphabet, key, false, TransformKernel.SCALAR)
+                    .transform(TEXT), "key " + key);
+        }
+    }
+
+    @Test
+    void mapsEveryAlphabetCharacter() {
+        int key = 11;
+        ShiftTable table = ShiftTable.forKey(alphabet, key, false, TransformKernel.SCALAR);
+
+        for (int i = 0; i < alphabet.size(); i++) {
+            char expected = alphabet.charAt((i + key) % alphabet.size());
+            assertEquals(expected, table.map(alphabet.charAt(i)), "character " + alphabet.charAt(i));
+        }
+    }
+
+    @Test
+    void opposingKeysRestoreText() {
+        String lowerCase = referenceShift(TEXT, 0);
+        for (int key = 1; key < alphabet.size(); key++) {
+            String encrypted = ShiftTable.forKey(alphabet, key).transform(TEXT);
+            assertEquals(lowerCase, ShiftTable.forKey(alphabet, -key).transform(encrypted), "key " + key);
+        }
+    }
+
+    @Test
+    void preservesCaseWithinUpperCaseRings() {
+        String text = "Привет, Мир! Hello, World! ЁЖИК";
+        for (int key : new int[]{1, 7, 33, 58, -5}) {
+            String encrypted = ShiftTable.forKey(alphabet, key, true).transform(text);
+            for (int i = 0; i < text.length(); i++) {
+                assertEquals(Character.isUpperCase(text.charAt(i)), Character.isUpperCase(encrypted.charAt(i)),
+                        "position " + i + " with key " + key);
+            }
+            assertEquals(text, ShiftTable.forKey(alphabet, -key, true).transform(encrypted), "key " + key);
+        }
+    }
+
+    @Test
+    void dropsLineBreaks() {
+        ShiftTable table = ShiftTable.forKey(alphabet, 3);
+
+        assertEquals(table.transform("абвгд"), table.transform("аб\nв\r\nгд\n"));
+    }
+
+    @Test
+    void transformsArraysAndBuffersLikeStrings() {
+        ShiftTable table = ShiftTable.forKey(alphabet, 17);
+        String text = "строка\nвторая " + TEXT;
+        String expected = table.transform(text);
+
+        char[] array = ("xx" + text).toCharArray();
+        int written = table.transform(array, 2, text.length());
+        assertEquals(expected, new String(array, 2, written));
+
+        CharBuffer src = CharBuffer.wrap(text).asReadOnlyBuffer();
+        CharBuffer dst = CharBuffer.allocate(text.length());
+        table.transform(src, dst);
+        assertEquals(expected, dst.flip().toString());
+        assertEquals(0, src.remaining());
+    }
+
+    @Test
+    void rejectsOrPassesThroughUnsupportedCharacters() {
+        String text = "абв 字 € где";
+
+        assertThrows(InvalidCharacterException.class, () -> ShiftTable.forKey(alphabet, 5).transform(text));
+
+        Alphabet passThrough = alphabet.withUnsupportedCharacterPolicy(UnsupportedCharacterPolicy.PASS_THROUGH);
+        String encrypted = ShiftTable.forKey(passThrough, 5).transform(text);
+        assertEquals('字', encrypted.charAt(4));
+        assertEquals('€', encrypted.charAt(6));
+        assertEquals(text, ShiftTable.forKey(passThrough, -5).transform(encrypted));
+    }
+
+    @Test
+    void affineTableInvertsItself() {
+        int multiplier = 5;
+        while (gcd(multiplier, alphabet.size()) != 1) {
+            multiplier++;
+        }
+        ShiftTable encryption = ShiftTable.forAffine(alphabet, multiplier, 9, false, false);
+        ShiftTable decryption = ShiftTable.forAffine(alphabet, multiplier, 9, false, true);
+
+        char[] encrypted = new char[alphabet.size()];
+        for (int i = 0; i < alphabet.size(); i++) {
+            encrypted[i] = encryption.map(alphabet.charAt(i));
+            assertEquals(alphabet.charAt((multiplier * i + 9) % alphabet.size()), encrypted[i]);
+            assertEquals(alphabet.charAt(i), decryption.map(encrypted[i]));
+        }
+        assertArrayEquals(alphabet.getAlphabet(), decryption.transform(new String(encrypted)).toCharArray());
+        int notInvertible = alphabet.size() % 2 == 0 ? 2 : alphabet.size();
+        assertThrows(IllegalArgumentException.class, () -> ShiftTable.forAffine(alphabet, notInvertible, 1, false, false));
+    }
+
+    /**
+     * Shifts the text one character at a time: line breaks are dropped and upper-case letters are
+     * shifted as their lower-case form.
+     */
+    private String referenceShift(String text, int key) {
+        StringBuilder result = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            if (c == '\n' || c == '\r') {
+                continue;
+            }
+            int index = alphabet.indexOf(c);
+            if (index < 0) {
+                index = alphabet.indexOf(Character.toLowerCase(c));
+            }
+            result.append(alphabet.charAt(Math.floorMod(index + key, alphabet.size())));
+        }
+        return result.toString();
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
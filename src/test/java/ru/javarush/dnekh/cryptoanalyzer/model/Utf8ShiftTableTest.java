@@ -0,0 +1,175 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import org.junit.jupiter.api.Test;
+import ru.javarush.dnekh.cryptoanalyzer.exception.InvalidCharacterException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link Utf8ShiftTable} against the char-level {@link ShiftTable} it is built from: whole texts, texts fed
+ * a few bytes at a time into a small output buffer so that sequences are cut at every border, the pass-through
+ * of unsupported sequences, and the rejection of input that is not valid UTF-8.
+ */
+class Utf8ShiftTableTest {
+
+    private static final String TEXT = "Съешь же ещё этих мягких французских булок, да выпей чаю!\n"
+            + "The quick brown fox №42 (jumps) over «the» lazy dog?\r\n";
+
+    private final Alphabet alphabet = new Alphabet();
+
+    @Test
+    void matchesCharShiftForEveryKey() throws MalformedInputException {
+        byte[] input = TEXT.getBytes(StandardCharsets.UTF_8);
+        for (int key = 0; key < alphabet.size(); key++) {
+            ShiftTable shiftTable = ShiftTable.forKey(alphabet, key, true);
+
+            assertArrayEquals(shiftTable.transform(TEXT).getBytes(StandardCharsets.UTF_8),
+                    transform(Utf8ShiftTable.of(shiftTable), input, input.length, 4 * input.length), "key " + key);
+        }
+    }
+
+    @Test
+    void opposingKeysRestoreText() throws MalformedInputException {
+        String text = "съешь же ещё этих мягких французских булок №7 «в кавычках»";
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        for (int key = 1; key < alphabet.size(); key++) {
+            byte[] encrypted = transform(Utf8ShiftTable.of(ShiftTable.forKey(alphabet, key)), input, input.length,
+                    4 * input.length);
+            byte[] decrypted = transform(Utf8ShiftTable.of(ShiftTable.forKey(alphabet, -key)), encrypted,
+                    encrypted.length, 4 * encrypted.length);
+
+            assertEquals(text, new String(decrypted, StandardCharsets.UTF_8), "key " + key);
+        }
+    }
+
+    @Test
+    void continuesSequencesCutAtBufferBorders() throws MalformedInputException {
+        Alphabet passThrough = alphabet.withUnsupportedCharacterPolicy(UnsupportedCharacterPolicy.PASS_THROUGH);
+        String text = TEXT + "€ 😀 ✓";
+        byte[] input = text.getBytes(StandardCharsets.UTF_8);
+        ShiftTable shiftTable = ShiftTable.forKey(passThrough, 5, true);
+        Utf8ShiftTable table = Utf8ShiftTable.of(shiftTable);
+        byte[] expected = shiftTable.transform(text).getBytes(StandardCharsets.UTF_8);
+
+        for (int chunk = 1; chunk <= 5; chunk++) {
+            for (int room = Utf8ShiftTable.MAX_OUTPUT_SEQUENCE_LENGTH; room <= 9; room++) {
+                assertArrayEquals(expected, transform(table, input, chunk, room), "chunk " + chunk + ", room " + room);
+            }
+        }
+    }
+
+    @Test
+    void copiesUnsupportedSequencesWithPassThrough() throws MalformedInputException {
+        Alphabet passThrough = alphabet.withUnsupportedCharacterPolicy(UnsupportedCharacterPolicy.PASS_THROUGH);
+        Utf8ShiftTable table = Utf8ShiftTable.of(ShiftTable.forKey(passThrough, 1));
+        byte[] input = "а€б😀вü".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("б€в😀гü", new String(transform(table, input, input.length, 64), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void countsTransformedCharacters() throws MalformedInputException {
+        Alphabet passThrough = alphabet.withUnsupportedCharacterPolicy(UnsupportedCharacterPolicy.PASS_THROUGH);
+        Utf8ShiftTable table = Utf8ShiftTable.of(ShiftTable.forKey(passThrough, 1));
+        ByteBuffer src = ByteBuffer.wrap("а€б😀в\nü".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(7, table.transform(src, ByteBuffer.allocate(64)));
+        assertEquals(0, src.remaining());
+    }
+
+    @Test
+    void rejectsUnsupportedCharacters() {
+        Utf8ShiftTable table = Utf8ShiftTable.of(ShiftTable.forKey(alphabet, 1));
+
+        for (String text : new String[]{"аü", "а€", "а😀"}) {
+            byte[] input = text.getBytes(StandardCharsets.UTF_8);
+            assertThrows(InvalidCharacterException.class, () -> transform(table, input, input.length, 64), text);
+        }
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        Utf8ShiftTable table = Utf8ShiftTable.of(ShiftTable.forKey(
+                alphabet.withUnsupportedCharacterPolicy(UnsupportedCharacterPolicy.PASS_THROUGH), 1));
+        byte[][] malformed = {
+                {(byte) 0x80},                                      // continuation without a lead byte
+                {(byte) 0xC0, (byte) 0xB0},                         // overlong two-byte '0'
+                {(byte) 0xC1, (byte) 0xBF},                         // overlong two-byte DEL
+                {(byte) 0xD0, 'a'},                                 // lead byte followed by ASCII
+                {(byte) 0xE0, (byte) 0x80, (byte) 0xB0},            // overlong three-byte '0'
+                {(byte) 0xED, (byte) 0xA0, (byte) 0x80},            // surrogate
+                {(byte) 0xF0, (byte) 0x80, (byte) 0x80, (byte) 0xB0}, // overlong four-byte '0'
+                {(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, // above U+10FFFF
+                {(byte) 0xF8, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80},
+                {(byte) 0xFF}
+        };
+
+        for (byte[] sequence : malformed) {
+            ByteBuffer src = ByteBuffer.allocate(sequence.length + 2).put((byte) 'a').put(sequence).put((byte) 'b').flip();
+            ByteBuffer dst = ByteBuffer.allocate(64);
+
+            assertThrows(MalformedInputException.class, () -> table.transform(src, dst), () -> hex(sequence));
+            assertEquals(1, src.position(), () -> "source left at the malformed sequence " + hex(sequence));
+            assertEquals(1, dst.position(), () -> "output of the characters before " + hex(sequence));
+        }
+    }
+
+    @Test
+    void leavesIncompleteSequenceInSource() throws MalformedInputException {
+        Utf8ShiftTable table = Utf8ShiftTable.of(ShiftTable.forKey(alphabet, 1));
+        byte[] letter = "я".getBytes(StandardCharsets.UTF_8);
+        byte[] sign = "№".getBytes(StandardCharsets.UTF_8);
+
+        for (byte[] sequence : new byte[][]{letter, sign}) {
+            for (int cut = 1; cut < sequence.length; cut++) {
+                ByteBuffer src = ByteBuffer.allocate(1 + cut).put((byte) 'a').put(sequence, 0, cut).flip();
+                ByteBuffer dst = ByteBuffer.allocate(64);
+
+                table.transform(src, dst);
+
+                assertEquals(1, src.position());
+                assertEquals(1, dst.position());
+                assertEquals('b', dst.get(0));
+            }
+        }
+    }
+
+    /**
+     * Feeds the input to the table at most {@code chunk} new bytes at a time, keeping the bytes of an incomplete
+     * sequence for the next call, and drains an output buffer of the given capacity after every call.
+     */
+    private static byte[] transform(Utf8ShiftTable table, byte[] input, int chunk, int room)
+            throws MalformedInputException {
+        ByteBuffer src = ByteBuffer.wrap(input).limit(0);
+        ByteBuffer dst = ByteBuffer.allocate(room);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        boolean needsInput = true;
+        while (src.position() < input.length) {
+            if (needsInput) {
+                src.limit(Math.min(input.length, src.limit() + chunk));
+            }
+            int position = src.position();
+            table.transform(src, dst);
+            needsInput = src.position() == position || src.position() == src.limit();
+            output.write(dst.array(), 0, dst.position());
+            dst.clear();
+        }
+        return output.toByteArray();
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02X ", b & 0xFF));
+        }
+        return builder.toString().trim();
+    }
+}
@@ -0,0 +1,179 @@
+package ru.javarush.dnekh.cryptoanalyzer.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.io.FileHandler;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the byte matchers of {@link CiphertextSearch} against a naive search, with the text split into windows
+ * that overlap the way the search maps the file, so that every match across a window border is reported once.
+ * Patterns that are prefixes, suffixes and overlapping repeats of each other exercise the failure links
+ * of {@link AhoCorasick}.
+ */
+class CiphertextSearchTest {
+
+    private static final byte[] TEXT_BYTES = {'a', 'b', 'c', (byte) 0xD0, (byte) 0xB0};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void ahoCorasickMatchesNaiveSearch() {
+        Random random = new Random(3);
+        byte[][] fixed = {bytes("a"), bytes("ab"), bytes("bab"), bytes("abab"), bytes("c"), bytes("cabc")};
+
+        for (int round = 0; round < 50; round++) {
+            byte[][] patterns = (round == 0) ? fixed : randomPatterns(random);
+            byte[] text = randomText(random, 200);
+            BytePatternMatcher matcher = new AhoCorasick(patterns);
+
+            for (int window = 1; window <= 9; window++) {
+                assertEquals(naiveSearch(text, patterns), search(matcher, text, window),
+                        "round " + round + ", window " + window);
+            }
+        }
+    }
+
+    @Test
+    void boyerMooreHorspoolMatchesNaiveSearch() {
+        Random random = new Random(5);
+
+        for (int round = 0; round < 50; round++) {
+            byte[][] patterns = {randomPatterns(random)[0]};
+            byte[] text = randomText(random, 200);
+            BytePatternMatcher matcher = new BoyerMooreHorspool(patterns[0]);
+
+            for (int window = 1; window <= 9; window++) {
+                assertEquals(naiveSearch(text, patterns), search(matcher, text, window),
+                        "round " + round + ", window " + window);
+            }
+        }
+    }
+
+    @Test
+    void ahoCorasickKeepsManyLongPatterns() {
+        // A row of 256 transitions per state would need about 4 GB for these patterns
+        Random random = new Random(7);
+        byte[][] patterns = new byte[64][];
+        for (int p = 0; p < patterns.length; p++) {
+            patterns[p] = randomText(random, 64 * 1024);
+        }
+        byte[] text = new byte[3 * patterns[5].length];
+        System.arraycopy(patterns[5], 0, text, patterns[5].length, patterns[5].length);
+
+        List<String> matches = search(new AhoCorasick(patterns), text, text.length);
+
+        assertEquals(naiveSearch(text, patterns), matches);
+    }
+
+    @Test
+    void findsMatchesAcrossMappedWindowBorder() throws IOException {
+        CaesarCipher caesarCipher = new CaesarCipher();
+        CiphertextSearch search = new CiphertextSearch(caesarCipher);
+        String pattern = "ёжик в тумане";
+        int key = 7;
+        byte[] encrypted = bytes(caesarCipher.encrypt(pattern, key));
+        long border = FileHandler.MAPPED_WINDOW_SIZE;
+
+        // The files are sparse, so only the bytes around the border take space
+        for (long offset : new long[]{border - encrypted.length, border - encrypted.length / 2, border - 1, border}) {
+            Path path = directory.resolve("ciphertext" + (offset - border) + ".txt");
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                    StandardOpenOption.SPARSE)) {
+                channel.write(ByteBuffer.wrap(encrypted), offset);
+                channel.write(ByteBuffer.wrap(bytes(" ")), border + 2L * encrypted.length);
+            }
+
+            for (int[] keys : new int[][]{{key}, search.allKeys()}) {
+                List<String> matches = new ArrayList<>();
+                long count = search.search(path, pattern, keys, (found, k) -> matches.add(found + " " + k));
+
+                assertEquals(List.of(offset + " " + key), matches, "offset " + offset + " with " + keys.length + " keys");
+                assertEquals(1, count);
+            }
+        }
+    }
+
+    /**
+     * Runs the matcher over the text in windows of the given size that overlap by the longest pattern length
+     * less one byte, as {@link CiphertextSearch} runs it over a mapped file, and returns the sorted matches.
+     */
+    private static List<String> search(BytePatternMatcher matcher, byte[] text, int window) {
+        List<String> matches = new ArrayList<>();
+        int overlap = matcher.maxPatternLength() - 1;
+        for (int position = 0; position < text.length; position += window) {
+            int startLimit = Math.min(window, text.length - position);
+            int windowSize = Math.min(window + overlap, text.length - position);
+            ByteBuffer buffer = ByteBuffer.wrap(text, position, windowSize).slice();
+            matcher.search(buffer, 0, startLimit, windowSize, position,
+                    (offset, pattern) -> matches.add(offset + " " + pattern));
+        }
+        matches.sort(null);
+        return matches;
+    }
+
+    private static List<String> naiveSearch(byte[] text, byte[][] patterns) {
+        List<String> matches = new ArrayList<>();
+        for (int start = 0; start < text.length; start++) {
+            for (int p = 0; p < patterns.length; p++) {
+                if (matchesAt(text, start, patterns[p])) {
+                    matches.add(start + " " + p);
+                }
+            }
+        }
+        matches.sort(null);
+        return matches;
+    }
+
+    private static boolean matchesAt(byte[] text, int start, byte[] pattern) {
+        if (start + pattern.length > text.length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (text[start + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns one to six distinct patterns of one to six bytes over the few bytes of the text, so they match often.
+     */
+    private static byte[][] randomPatterns(Random random) {
+        List<String> patterns = new ArrayList<>();
+        int count = 1 + random.nextInt(6);
+        while (patterns.size() < count) {
+            String pattern = new String(randomText(random, 1 + random.nextInt(6)), StandardCharsets.ISO_8859_1);
+            if (!patterns.contains(pattern)) {
+                patterns.add(pattern);
+            }
+        }
+        return patterns.stream().map(pattern -> pattern.getBytes(StandardCharsets.ISO_8859_1)).toArray(byte[][]::new);
+    }
+
+    private static byte[] randomText(Random random, int length) {
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = TEXT_BYTES[random.nextInt(TEXT_BYTES.length)];
+        }
+        return text;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,178 @@
+package ru.javarush.dnekh.cryptoanalyzer.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+import ru.javarush.dnekh.cryptoanalyzer.service.FileProcessor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the answers of {@link CipherServer} over HTTP: the transformed text, 400 for a missing or malformed key,
+ * 405 for anything but a POST, a dropped connection for a body that is not valid UTF-8, and the requests it turns
+ * away while all of its request permits are taken.
+ */
+class CipherServerTest {
+
+    private static final int KEY = 3;
+    private static final String TEXT = "съешь же ещё этих мягких французских булок";
+    private static final String ENCRYPT = CipherServer.ENCRYPT_PATH + "?key=" + KEY;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private CipherServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void encryptsRequestBody() throws Exception {
+        start(CipherServer.DEFAULT_MAX_CONCURRENT_REQUESTS);
+
+        HttpResponse<String> response = post(ENCRYPT, TEXT);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(new CaesarCipher().encrypt(TEXT, KEY), response.body());
+    }
+
+    @Test
+    void rejectsMissingKey() throws Exception {
+        start(CipherServer.DEFAULT_MAX_CONCURRENT_REQUESTS);
+
+        HttpResponse<String> response = post(CipherServer.ENCRYPT_PATH + "?" + CipherServer.PRESERVE_CASE_PARAMETER,
+                TEXT);
+
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains(CipherServer.KEY_PARAMETER), response.body());
+    }
+
+    @Test
+    void rejectsKeyThatIsNotAnInteger() throws Exception {
+        start(CipherServer.DEFAULT_MAX_CONCURRENT_REQUESTS);
+
+        for (String key : new String[]{"three", "", "3.5", "99999999999"}) {
+            HttpResponse<String> response = post(CipherServer.DECRYPT_PATH + "?key=" + key, TEXT);
+
+            assertEquals(400, response.statusCode(), "key " + key);
+            assertTrue(response.body().contains(CipherServer.KEY_PARAMETER), response.body());
+        }
+    }
+
+    @Test
+    void rejectsMethodsOtherThanPost() throws Exception {
+        start(CipherServer.DEFAULT_MAX_CONCURRENT_REQUESTS);
+
+        for (String path : new String[]{ENCRYPT, CipherServer.RECOVER_KEY_PATH}) {
+            HttpResponse<String> response = client.send(request(path).GET().build(),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+            assertEquals(405, response.statusCode(), path);
+            assertEquals(CipherServer.POST_METHOD, response.headers().firstValue("Allow").orElse(null), path);
+        }
+    }
+
+    @Test
+    void dropsConnectionOnInvalidText() throws Exception {
+        start(CipherServer.DEFAULT_MAX_CONCURRENT_REQUESTS);
+        byte[] text = TEXT.getBytes(StandardCharsets.UTF_8);
+        byte[] invalid = Arrays.copyOf(text, text.length + 1);
+        invalid[text.length] = (byte) 0xFF;
+
+        // The response has started when the invalid byte is read, so the client must not see a complete body
+        assertThrows(IOException.class, () -> client.send(request(ENCRYPT)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(invalid)).build(), HttpResponse.BodyHandlers.ofString()));
+
+        assertEquals(200, post(ENCRYPT, TEXT).statusCode(), "the server keeps serving");
+    }
+
+    @Test
+    void rejectsRequestsOverTheLimit() throws Exception {
+        start(1);
+        // The first request holds the only permit until the last chunk of its body arrives
+        try (Socket first = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            OutputStream output = first.getOutputStream();
+            InputStream input = first.getInputStream();
+            byte[] text = TEXT.getBytes(StandardCharsets.UTF_8);
+            output.write(("POST " + ENCRYPT + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n"
+                    + Integer.toHexString(text.length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            output.write(text);
+            output.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            output.flush();
+
+            // The status line is sent before the body is read, so once it arrives the permit is taken
+            String statusLine = readLine(input);
+            assertTrue(statusLine.startsWith("HTTP/1.1 200"), statusLine);
+
+            HttpResponse<String> rejected = post(ENCRYPT, TEXT);
+            assertEquals(503, rejected.statusCode(), "a request over the limit is rejected");
+            assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+
+            output.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            output.flush();
+            String firstResponse = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(firstResponse.contains(new CaesarCipher().encrypt(TEXT, KEY)), firstResponse);
+        }
+
+        // The permit is released right after the response is complete, which the client may see first
+        int status = 0;
+        for (int attempt = 0; attempt < 100 && status != 200; attempt++) {
+            status = post(ENCRYPT, TEXT).statusCode();
+            if (status != 200) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+        }
+        assertEquals(200, status, "the permit is released");
+    }
+
+    @Test
+    void rejectsInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new CipherServer(new FileProcessor(1), 0, 0));
+    }
+
+    private void start(int maxConcurrentRequests) throws IOException {
+        server = new CipherServer(new FileProcessor(1), 0, maxConcurrentRequests);
+        server.start();
+    }
+
+    /**
+     * Reads one line of an HTTP response without reading ahead, so the rest stays in the stream.
+     */
+    private static String readLine(InputStream input) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = input.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private HttpRequest.Builder request(String pathAndQuery) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + pathAndQuery));
+    }
+
+    private HttpResponse<String> post(String pathAndQuery, String body) throws IOException, InterruptedException {
+        return client.send(request(pathAndQuery).POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+}
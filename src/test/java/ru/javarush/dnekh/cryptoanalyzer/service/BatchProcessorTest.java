@@ -0,0 +1,86 @@
+package ru.javarush.dnekh.cryptoanalyzer.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.MeteredOperation;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.OperationMetrics;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that {@link BatchProcessor} transforms every input of a directory tree, optionally preserving letter case,
+ * counts the files it fails on in the metrics of the operation and carries on with the rest of the batch,
+ * and that it skips the outputs of earlier runs only by the suffix right before the extension.
+ */
+class BatchProcessorTest {
+
+    private static final int KEY = 4;
+
+    @TempDir
+    Path directory;
+
+    private BatchProcessor batchProcessor;
+
+    @BeforeEach
+    void setUp() {
+        batchProcessor = new BatchProcessor(new FileProcessor(2), 2);
+    }
+
+    @Test
+    void encryptsEveryFileAndRecordsFailures() throws IOException {
+        Files.createDirectories(directory.resolve("nested"));
+        Files.writeString(directory.resolve("first.txt"), "первый файл");
+        Files.writeString(directory.resolve("nested").resolve("second.txt"), "второй файл");
+        Files.writeString(directory.resolve("broken.txt"), "иероглиф 字");
+        OperationMetrics metrics = OperationMetrics.of(MeteredOperation.ENCRYPT);
+        long failures = metrics.getFailureCount();
+
+        batchProcessor.processDirectory(directory.toString(), "*.txt", OperationSuffix.ENCRYPT, KEY);
+
+        CaesarCipher caesarCipher = new CaesarCipher();
+        assertEquals(caesarCipher.encrypt("первый файл", KEY),
+                Files.readString(directory.resolve("first_encrypted.txt")));
+        assertEquals(caesarCipher.encrypt("второй файл", KEY),
+                Files.readString(directory.resolve("nested").resolve("second_encrypted.txt")));
+        assertFalse(Files.exists(directory.resolve("broken_encrypted.txt")));
+        assertEquals(failures + 1, metrics.getFailureCount());
+    }
+
+    @Test
+    void preservesCaseWhenAsked() throws IOException {
+        Files.writeString(directory.resolve("letter.txt"), "Привет, Мир! Hello");
+
+        batchProcessor.processDirectory(directory.toString(), "*.txt", OperationSuffix.ENCRYPT, KEY, true);
+        batchProcessor.processDirectory(directory.toString(), "*_encrypted.txt", OperationSuffix.DECRYPT, KEY, true);
+
+        assertEquals(new CaesarCipher().encrypt("Привет, Мир! Hello", KEY, true),
+                Files.readString(directory.resolve("letter_encrypted.txt")));
+        assertEquals("Привет, Мир! Hello", Files.readString(directory.resolve("letter_encrypted_decrypted.txt")));
+    }
+
+    @Test
+    void skipsOnlyOutputsOfEarlierRuns() throws IOException {
+        for (String name : new String[]{"notes_encrypted_draft.txt", "report_shift_notes.txt", "decrypted",
+                "old_encrypted.txt", "old_decrypted.txt", "old_shift_12.txt", "old_bruteforce_decrypted"}) {
+            Files.writeString(directory.resolve(name), "текст");
+        }
+
+        batchProcessor.processDirectory(directory.toString(), "*", OperationSuffix.ENCRYPT, KEY);
+
+        assertTrue(Files.exists(directory.resolve("notes_encrypted_draft_encrypted.txt")));
+        assertTrue(Files.exists(directory.resolve("report_shift_notes_encrypted.txt")));
+        assertTrue(Files.exists(directory.resolve("decrypted_encrypted")));
+        assertFalse(Files.exists(directory.resolve("old_encrypted_encrypted.txt")));
+        assertFalse(Files.exists(directory.resolve("old_decrypted_encrypted.txt")));
+        assertFalse(Files.exists(directory.resolve("old_shift_12_encrypted.txt")));
+        assertFalse(Files.exists(directory.resolve("old_bruteforce_decrypted_encrypted")));
+    }
+}
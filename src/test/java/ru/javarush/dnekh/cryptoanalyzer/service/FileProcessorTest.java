@@ -0,0 +1,261 @@
+package ru.javarush.dnekh.cryptoanalyzer.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.javarush.dnekh.cryptoanalyzer.io.FileFollower;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.MeteredOperation;
+import ru.javarush.dnekh.cryptoanalyzer.metrics.OperationMetrics;
+import ru.javarush.dnekh.cryptoanalyzer.model.CaesarCipher;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests key recovery of {@link FileProcessor} on texts where letter frequencies alone find the wrong shift,
+ * the selection of the processing mode and parallelism by system properties, pipe mode on input that arrives
+ * in reads cutting UTF-8 sequences, following a file from the checkpoint of an earlier run, and the metrics
+ * and error reports of failed operations.
+ */
+class FileProcessorTest {
+
+    private static final int KEY = 7;
+    private static final String SENTENCE = "мой дядя самых честных правил когда не в шутку занемог он уважать себя заставил";
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void clearProperties() {
+        System.clearProperty(ProcessingMode.MODE_PROPERTY);
+        System.clearProperty(FileProcessor.PARALLELISM_PROPERTY);
+    }
+
+    @Test
+    void processesInStreamingModeByDefault() {
+        assertEquals(ProcessingMode.STREAMING, FileProcessor.fromConfiguration().getProcessingMode());
+    }
+
+    @Test
+    void readsModeAndParallelismFromProperties() {
+        System.setProperty(ProcessingMode.MODE_PROPERTY, "Parallel");
+        System.setProperty(FileProcessor.PARALLELISM_PROPERTY, "3");
+        assertEquals(ProcessingMode.PARALLEL, FileProcessor.fromConfiguration().getProcessingMode());
+
+        System.setProperty(ProcessingMode.MODE_PROPERTY, "in-memory");
+        assertEquals(ProcessingMode.IN_MEMORY, FileProcessor.fromConfiguration().getProcessingMode());
+    }
+
+    @Test
+    void rejectsInvalidProperties() {
+        System.setProperty(ProcessingMode.MODE_PROPERTY, "fast");
+        assertThrows(IllegalStateException.class, FileProcessor::fromConfiguration);
+
+        System.clearProperty(ProcessingMode.MODE_PROPERTY);
+        for (String parallelism : new String[]{"0", "-2", "many"}) {
+            System.setProperty(FileProcessor.PARALLELISM_PROPERTY, parallelism);
+            assertThrows(IllegalStateException.class, FileProcessor::fromConfiguration, parallelism);
+        }
+    }
+
+    @Test
+    void jobFingerprintIsStableAcrossRuns() {
+        FileProcessor fileProcessor = new FileProcessor(1);
+
+        // Checkpoints of earlier runs store this value, so it must not depend on the JVM
+        assertEquals(-799206770, fileProcessor.jobFingerprint(KEY, false));
+        assertNotEquals(fileProcessor.jobFingerprint(KEY, false), fileProcessor.jobFingerprint(KEY, true));
+        assertNotEquals(fileProcessor.jobFingerprint(KEY, false), fileProcessor.jobFingerprint(-KEY, false));
+    }
+
+    @Test
+    void followContinuesFromCheckpointOfEarlierRun() throws Exception {
+        String first = "первая строка\n";
+        String second = "вторая строка\n";
+        CaesarCipher caesarCipher = new CaesarCipher();
+        Path inputPath = directory.resolve("app.log");
+        Path outputPath = directory.resolve("app_encrypted.log");
+        Files.writeString(inputPath, first + second);
+        Files.writeString(outputPath, caesarCipher.encrypt(first, KEY));
+        // The checkpoint an earlier run left after the first line, with the fingerprint of key 7 without preserved case
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(checkpoint)) {
+            out.writeInt(0x46464F00);
+            out.writeInt(2);
+            out.writeInt(-799206770);
+            out.writeLong(first.getBytes(StandardCharsets.UTF_8).length);
+            out.writeLong(Files.size(outputPath));
+        }
+        Files.write(directory.resolve("app_encrypted.log" + FileFollower.CHECKPOINT_SUFFIX), checkpoint.toByteArray());
+
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                new FileProcessor(1).followFile(inputPath.toString(), KEY, false);
+            } catch (IOException | RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        thread.start();
+        try {
+            String expected = caesarCipher.encrypt(first + second, KEY);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (failure.get() == null && !expected.equals(Files.readString(outputPath))
+                    && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertNull(failure.get());
+            assertEquals(expected, Files.readString(outputPath));
+        } finally {
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    @Test
+    void shortTextIsDecidedByNGramModel() throws IOException {
+        // Letter frequencies find another shift with a higher confidence than the n-gram models give the right one
+        assertEquals(KEY, recoverKey("важать"));
+    }
+
+    @Test
+    void longTextIsDecidedByLetterFrequencies() throws IOException {
+        assertEquals(KEY, recoverKey(SENTENCE));
+    }
+
+    @Test
+    void recordsFailureOfUnsupportedCharacter() throws IOException {
+        Path filePath = directory.resolve("text.txt");
+        Files.writeString(filePath, "текст с иероглифом 字");
+        OperationMetrics metrics = OperationMetrics.of(MeteredOperation.ENCRYPT);
+
+        for (ProcessingMode mode : ProcessingMode.values()) {
+            long failures = metrics.getFailureCount();
+            new FileProcessor(1).processFileOperation(filePath.toString(), OperationSuffix.ENCRYPT, KEY, mode);
+            assertEquals(failures + 1, metrics.getFailureCount(), mode.name());
+        }
+    }
+
+    @Test
+    void bruteForceReportsUnsupportedCharacter() throws IOException {
+        Path filePath = directory.resolve("text_encrypted.txt");
+        Files.writeString(filePath, new CaesarCipher().encrypt(SENTENCE, KEY) + " 字");
+        OperationMetrics metrics = OperationMetrics.of(MeteredOperation.DECRYPT);
+        long failures = metrics.getFailureCount();
+
+        new FileProcessor(1).handleBruteForceFileOperation(filePath.toString(), false);
+        assertEquals(failures + 1, metrics.getFailureCount());
+
+        // The user confirms the best-scored shift before the whole file is decrypted
+        InputStream originalIn = System.in;
+        System.setIn(new ByteArrayInputStream(("yes" + System.lineSeparator()).getBytes(StandardCharsets.UTF_8)));
+        try {
+            new FileProcessor(1).handleBruteForceFileOperation(filePath.toString(), true);
+        } finally {
+            System.setIn(originalIn);
+        }
+    }
+
+    @Test
+    void pipeModeTransformsSequencesSplitAcrossReads() throws IOException {
+        String text = "Съешь же ещё этих мягких французских булок, да выпей чаю!\n".repeat(500);
+        CaesarCipher caesarCipher = new CaesarCipher();
+        FileProcessor fileProcessor = new FileProcessor(1);
+        OperationMetrics metrics = OperationMetrics.of(MeteredOperation.ENCRYPT);
+        long characters = metrics.getCharactersProcessed();
+
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        long written = fileProcessor.processStream(new SmallReadChannel(text.getBytes(StandardCharsets.UTF_8)),
+                Channels.newChannel(encrypted), OperationSuffix.ENCRYPT, KEY, true);
+
+        String expected = caesarCipher.encrypt(text, KEY, true);
+        assertEquals(expected, encrypted.toString(StandardCharsets.UTF_8));
+        assertEquals(encrypted.size(), written);
+        // Dropped line breaks are processed characters too
+        assertEquals(characters + text.length(), metrics.getCharactersProcessed());
+
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        fileProcessor.processStream(new SmallReadChannel(encrypted.toByteArray()), Channels.newChannel(decrypted),
+                OperationSuffix.DECRYPT, KEY, true);
+        assertEquals(text.replace("\n", ""), decrypted.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void pipeModeRejectsMalformedInput() {
+        byte[] text = "привет, мир".getBytes(StandardCharsets.UTF_8);
+        byte[] cutAtEnd = Arrays.copyOf(text, text.length - 1);
+        byte[] invalidByte = Arrays.copyOf(text, text.length + 2);
+        invalidByte[text.length] = (byte) 0xFF;
+        invalidByte[text.length + 1] = 'a';
+        FileProcessor fileProcessor = new FileProcessor(1);
+        OperationMetrics metrics = OperationMetrics.of(MeteredOperation.ENCRYPT);
+
+        for (byte[] input : new byte[][]{cutAtEnd, invalidByte}) {
+            long failures = metrics.getFailureCount();
+            assertThrows(MalformedInputException.class, () -> fileProcessor.processStream(new SmallReadChannel(input),
+                    Channels.newChannel(new ByteArrayOutputStream()), OperationSuffix.ENCRYPT, KEY));
+            assertEquals(failures + 1, metrics.getFailureCount());
+        }
+    }
+
+    private static int recoverKey(String plaintext) throws IOException {
+        String ciphertext = new CaesarCipher().encrypt(plaintext, KEY);
+        FileProcessor fileProcessor = new FileProcessor(1);
+        return fileProcessor.recoverKey(Channels.newChannel(
+                new ByteArrayInputStream(ciphertext.getBytes(StandardCharsets.UTF_8)))).getShift();
+    }
+
+    /**
+     * A channel that returns its bytes in reads of one to five bytes, so most two-byte Cyrillic sequences
+     * are cut by a read at some point, like input arriving from a pipe.
+     */
+    private static final class SmallReadChannel implements ReadableByteChannel {
+
+        private final byte[] bytes;
+        private final Random random = new Random(1);
+        private int position;
+
+        SmallReadChannel(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (position == bytes.length) {
+                return -1;
+            }
+            int length = Math.min(Math.min(1 + random.nextInt(5), bytes.length - position), dst.remaining());
+            dst.put(bytes, position, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that {@link TransformKernel#VECTOR} produces exactly what {@link TransformKernel#SCALAR} produces
+ * on random text that mixes runs of Latin characters, Cyrillic characters and line breaks,
+ * in place and into a separate buffer, with and without preserved case.
+ * <p>
+ * Only compiled and run with the {@code vector} Maven profile, which adds the {@code jdk.incubator.vector} module.
+ */
+class VectorShiftKernelTest {
+
+    private static final String LATIN = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 .,!?-*()=+_[]{}<>\"':;";
+    private static final String CYRILLIC = "абвгдеёжзийклмнопрстуфхцчшщъыьэюяАБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ«»№";
+    private static final String LINE_BREAKS = "\n\r";
+
+    private final Alphabet alphabet = new Alphabet();
+
+    @Test
+    void vectorKernelIsAvailable() {
+        assertEquals(TransformKernel.VECTOR,
+                ShiftTable.forKey(alphabet, 3, false, TransformKernel.VECTOR).getTransformKernel());
+    }
+
+    @Test
+    void matchesScalarKernelIntoSeparateBuffer() {
+        Random random = new Random(1);
+        for (boolean preserveCase : new boolean[]{false, true}) {
+            for (int key = 1; key < alphabet.size(); key += 7) {
+                ShiftTable scalar = ShiftTable.forKey(alphabet, key, preserveCase, TransformKernel.SCALAR);
+                ShiftTable vector = ShiftTable.forKey(alphabet, key, preserveCase, TransformKernel.VECTOR);
+
+                for (int round = 0; round < 20; round++) {
+                    char[] text = randomText(random, 1 + random.nextInt(4096));
+                    int offset = random.nextInt(text.length);
+                    int length = text.length - offset;
+                    char[] expected = new char[length + 5];
+                    char[] actual = new char[length + 5];
+
+                    int expectedWritten = scalar.transform(text, offset, length, expected, 5);
+                    int actualWritten = vector.transform(text, offset, length, actual, 5);
+
+                    String context = "key " + key + ", preserveCase " + preserveCase + ", round " + round;
+                    assertEquals(expectedWritten, actualWritten, context);
+                    assertArrayEquals(expected, actual, context);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesScalarKernelInPlace() {
+        Random random = new Random(2);
+        for (boolean preserveCase : new boolean[]{false, true}) {
+            for (int key = 1; key < alphabet.size(); key += 5) {
+                ShiftTable scalar = ShiftTable.forKey(alphabet, key, preserveCase, TransformKernel.SCALAR);
+                ShiftTable vector = ShiftTable.forKey(alphabet, key, preserveCase, TransformKernel.VECTOR);
+
+                for (int round = 0; round < 20; round++) {
+                    char[] expected = randomText(random, 1 + random.nextInt(4096));
+                    char[] actual = Arrays.copyOf(expected, expected.length);
+                    int offset = random.nextInt(expected.length);
+                    int length = random.nextInt(expected.length - offset + 1);
+
+                    int expectedWritten = scalar.transform(expected, offset, length);
+                    int actualWritten = vector.transform(actual, offset, length);
+
+                    String context = "key " + key + ", preserveCase " + preserveCase + ", round " + round;
+                    assertEquals(expectedWritten, actualWritten, context);
+                    assertArrayEquals(expected, actual, context);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesScalarKernelOnStrings() {
+        Random random = new Random(3);
+        for (boolean preserveCase : new boolean[]{false, true}) {
+            ShiftTable scalar = ShiftTable.forKey(alphabet, 17, preserveCase, TransformKernel.SCALAR);
+            ShiftTable vector = ShiftTable.forKey(alphabet, 17, preserveCase, TransformKernel.VECTOR);
+            String text = new String(randomText(random, 100_000));
+
+            assertEquals(scalar.transform(text), vector.transform(text), "preserveCase " + preserveCase);
+        }
+    }
+
+    /**
+     * Returns text made of runs of Latin and Cyrillic characters of random lengths, so the vector kernel
+     * sees whole vectors of ASCII as well as vectors cut at any lane, with an occasional line break.
+     */
+    private static char[] randomText(Random random, int length) {
+        char[] text = new char[length];
+        int i = 0;
+        while (i < length) {
+            String characters = random.nextBoolean() ? LATIN : CYRILLIC;
+            int run = Math.min(length - i, 1 + random.nextInt(80));
+            for (int end = i + run; i < end; i++) {
+                text[i] = random.nextInt(50) == 0
+                        ? LINE_BREAKS.charAt(random.nextInt(LINE_BREAKS.length()))
+                        : characters.charAt(random.nextInt(characters.length()));
+            }
+        }
+        return text;
+    }
+}
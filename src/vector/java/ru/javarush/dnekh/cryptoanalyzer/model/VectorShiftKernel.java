@@ -0,0 +1,117 @@
+package ru.javarush.dnekh.cryptoanalyzer.model;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A Vector API kernel for {@link ShiftTable}. The printable ASCII part of the table, 95 characters,
+ * is split into vector-sized slices. A whole vector of characters is mapped by permuting every slice
+ * with the low bits of the characters and picking the right slice per lane with range compares,
+ * so Latin text takes a handful of SIMD instructions per vector instead of one lookup per character.
+ * <p>
+ * The kernel stops at control characters, including the line breaks that are dropped, at characters above ASCII
+ * (Cyrillic, «, ») and at characters outside the alphabet; the lanes before the first of them are still mapped.
+ * The table's scalar loop takes over from there, for runs that grow while the kernel keeps stopping early,
+ * so Cyrillic text costs about as much as with the scalar kernel alone.
+ * <p>
+ * Loaded by {@link TransformKernel} only when the {@code jdk.incubator.vector} module is present.
+ */
+final class VectorShiftKernel implements ShiftKernel {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    private static final char FIRST_PRINTABLE = ' ';
+    private static final char LAST_PRINTABLE = '~';
+
+    /**
+     * Subtracting the sign bit turns an unsigned comparison into a signed one, which every SIMD unit has.
+     */
+    private static final short SIGN_BIAS = Short.MIN_VALUE;
+    private static final short BIASED_FIRST_PRINTABLE = (short) (FIRST_PRINTABLE + SIGN_BIAS);
+    private static final short BIASED_PRINTABLE_WIDTH = (short) (LAST_PRINTABLE - FIRST_PRINTABLE + SIGN_BIAS);
+
+    private static final ShortVector LANE_INDEXES = ShortVector.zero(SPECIES).addIndex(1);
+
+    private final ShortVector[] slices;
+
+    /**
+     * Compiles the printable ASCII part of a shift table into vector slices.
+     *
+     * @param shiftTable the table to apply, its scalar loop handles everything the slices do not
+     */
+    VectorShiftKernel(ShiftTable shiftTable) {
+        int lanes = SPECIES.length();
+        int printable = LAST_PRINTABLE - FIRST_PRINTABLE + 1;
+        short[] mapped = new short[(printable + lanes - 1) / lanes * lanes];
+        for (int i = 0; i < mapped.length; i++) {
+            char c = (char) (FIRST_PRINTABLE + i);
+            // Unsupported characters keep their marker, so a single compare detects them
+            mapped[i] = (short) (c <= LAST_PRINTABLE ? shiftTable.map(c) : ShiftTable.NOT_SUPPORTED);
+        }
+
+        this.slices = new ShortVector[mapped.length / lanes];
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = ShortVector.fromArray(SPECIES, mapped, i * lanes);
+        }
+    }
+
+    @Override
+    public int transformPrefix(char[] src, int srcOffset, int length, char[] dst, int dstOffset) {
+        ShortVector[] slices = this.slices;
+        int lanes = SPECIES.length();
+        int end = srcOffset + length;
+        int out = dstOffset;
+        int i = srcOffset;
+
+        while (i <= end - lanes) {
+            ShortVector chars = ShortVector.fromCharArray(SPECIES, src, i);
+
+            // Control characters, such as line breaks that are dropped, and non-ASCII characters
+            // are left to the scalar loop; the lanes before the first of them are still vectorized
+            VectorMask<Short> special = chars.sub(BIASED_FIRST_PRINTABLE)
+                    .compare(VectorOperators.GT, BIASED_PRINTABLE_WIDTH);
+            int vectorLanes = special.anyTrue() ? special.firstTrue() : lanes;
+            if (vectorLanes == 0) {
+                break;
+            }
+
+            ShortVector index = chars.sub((short) FIRST_PRINTABLE);
+            VectorShuffle<Short> lane = index.and((short) (lanes - 1)).toShuffle();
+            ShortVector shifted = slices[0].rearrange(lane);
+            for (int s = 1; s < slices.length; s++) {
+                shifted = shifted.blend(slices[s].rearrange(lane),
+                        index.compare(VectorOperators.GE, (short) (s * lanes)));
+            }
+
+            VectorMask<Short> notSupported = shifted.compare(VectorOperators.EQ, (short) ShiftTable.NOT_SUPPORTED);
+            if (vectorLanes < lanes) {
+                notSupported = notSupported.and(LANE_INDEXES.compare(VectorOperators.LT, (short) vectorLanes));
+            }
+            if (notSupported.anyTrue()) {
+                // Nothing of the block is stored, so the scalar loop reports the character from the intact source
+                break;
+            }
+
+            if (vectorLanes == lanes) {
+                shifted.intoCharArray(dst, out);
+            } else {
+                // Blending with the current destination keeps the special character intact in place.
+                // The whole vector fits: the destination has room for every source character.
+                ShortVector.fromCharArray(SPECIES, dst, out)
+                        .blend(shifted, LANE_INDEXES.compare(VectorOperators.LT, (short) vectorLanes))
+                        .intoCharArray(dst, out);
+            }
+            out += vectorLanes;
+            i += vectorLanes;
+
+            if (vectorLanes < lanes) {
+                break;
+            }
+        }
+
+        return i - srcOffset;
+    }
+}